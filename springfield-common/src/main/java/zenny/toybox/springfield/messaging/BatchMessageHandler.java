@@ -0,0 +1,17 @@
+package zenny.toybox.springfield.messaging;
+
+import java.util.List;
+
+public interface BatchMessageHandler extends MessageHandler {
+
+  int getBatchSize();
+
+  long getBatchLingerMillis();
+
+  void handleBatch(List<Message<?>> messages);
+
+  @Override
+  default void handle(Message<?> message) {
+    this.handleBatch(List.of(message));
+  }
+}
@@ -0,0 +1,23 @@
+package zenny.toybox.springfield.messaging;
+
+import java.util.Set;
+
+public interface DispatchCallback {
+
+  void onComplete();
+
+  void onFailure(Throwable ex);
+
+  /**
+   * Notifies a failed dispatch along with the consumer groups that did not handle the message,
+   * either because they failed or because they were not reached. The groups that handled it are
+   * left out, so that a redelivery can skip them.
+   *
+   * <p>The default implementation ignores the groups.
+   *
+   * @param failedGroups the names of the groups that did not handle the message, empty if unknown
+   */
+  default void onFailure(Throwable ex, Set<String> failedGroups) {
+    this.onFailure(ex);
+  }
+}
@@ -5,5 +5,18 @@ import java.util.List;
 @FunctionalInterface
 public interface DispatchStrategy {
 
+  /**
+   * Selects the handlers of the given group to dispatch a message to. Strategies keeping state per
+   * group look it up by the identity of the list on every call, so dispatchers should rather {@link
+   * #bind} the group once.
+   */
   List<MessageHandler> select(List<MessageHandler> handlers, Message<?> message);
+
+  /**
+   * Binds a selector to the given handler group. Dispatchers call this once whenever the routing
+   * changes and use the returned selector for every message of the group.
+   */
+  default HandlerSelector bind(List<MessageHandler> handlers) {
+    return message -> this.select(handlers, message);
+  }
 }
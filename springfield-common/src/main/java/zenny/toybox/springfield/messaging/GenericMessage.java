@@ -1,24 +1,70 @@
 package zenny.toybox.springfield.messaging;
 
+import java.util.Arrays;
 import java.util.Map;
 import org.jspecify.annotations.Nullable;
 
 public class GenericMessage<T> implements Message<T> {
 
+  private static final Decoded[] NOT_DECODED = new Decoded[0];
+
   private final String channel;
   private final T payload;
   private final Map<String, Object> headers;
   private final @Nullable Runnable acknowledgeCallback;
+  private final @Nullable PayloadCodec codec;
+  private final @Nullable Message<T> source;
+  // copied on write, a message is rarely read as more than one or two types
+  private volatile Decoded[] decoded = NOT_DECODED;
 
   public GenericMessage(
       String channel,
       T payload,
       Map<String, Object> headers,
       @Nullable Runnable acknowledgeCallback) {
+    this(channel, payload, headers, acknowledgeCallback, null);
+  }
+
+  /**
+   * Creates a message whose payload is decoded with the given codec when read as another type, see
+   * {@link #getPayload(Class)}.
+   */
+  public GenericMessage(
+      String channel,
+      T payload,
+      Map<String, Object> headers,
+      @Nullable Runnable acknowledgeCallback,
+      @Nullable PayloadCodec codec) {
+    this(channel, payload, headers, acknowledgeCallback, codec, null);
+  }
+
+  private GenericMessage(
+      String channel,
+      T payload,
+      Map<String, Object> headers,
+      @Nullable Runnable acknowledgeCallback,
+      @Nullable PayloadCodec codec,
+      @Nullable Message<T> source) {
     this.channel = channel;
     this.payload = payload;
-    this.headers = Map.copyOf(headers);
+    this.headers = MessageHeaders.copyOf(headers);
     this.acknowledgeCallback = acknowledgeCallback;
+    this.codec = codec;
+    this.source = source;
+  }
+
+  /**
+   * Creates a message carrying the payload of the given one, with other headers or another
+   * acknowledgement. Typed payload reads are delegated to the source message, so a payload already
+   * decoded is not decoded again.
+   */
+  public static <T> GenericMessage<T> from(
+      Message<T> source,
+      String channel,
+      Map<String, Object> headers,
+      @Nullable Runnable acknowledgeCallback) {
+    return new GenericMessage<>(
+        channel, source.getPayload(), headers, acknowledgeCallback, null, source);
   }
 
   @Override
@@ -31,6 +77,39 @@ public class GenericMessage<T> implements Message<T> {
     return this.payload;
   }
 
+  @Override
+  public <P> P getPayload(Class<P> type) {
+    if (this.source != null) {
+      return this.source.getPayload(type);
+    }
+    if (type.isInstance(this.payload) || this.codec == null) {
+      return Message.super.getPayload(type);
+    }
+    Decoded decoded = find(this.decoded, type);
+    if (decoded == null) {
+      synchronized (this) {
+        Decoded[] memo = this.decoded;
+        decoded = find(memo, type);
+        if (decoded == null) {
+          decoded = new Decoded(type, this.codec.decode(this.payload, type));
+          Decoded[] grown = Arrays.copyOf(memo, memo.length + 1);
+          grown[memo.length] = decoded;
+          this.decoded = grown;
+        }
+      }
+    }
+    return type.cast(decoded.value);
+  }
+
+  private static @Nullable Decoded find(Decoded[] memo, Class<?> type) {
+    for (Decoded decoded : memo) {
+      if (decoded.type == type) {
+        return decoded;
+      }
+    }
+    return null;
+  }
+
   @Override
   public Map<String, Object> getHeaders() {
     return this.headers;
@@ -42,4 +121,11 @@ public class GenericMessage<T> implements Message<T> {
       this.acknowledgeCallback.run();
     }
   }
+
+  @Override
+  public boolean isAcknowledgeable() {
+    return this.acknowledgeCallback != null;
+  }
+
+  private record Decoded(Class<?> type, Object value) {}
 }
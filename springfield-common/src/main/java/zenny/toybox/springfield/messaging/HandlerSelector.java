@@ -0,0 +1,14 @@
+package zenny.toybox.springfield.messaging;
+
+import java.util.List;
+
+/**
+ * Selects the handlers of a single consumer group a message is dispatched to. A selector is bound
+ * once per group by {@link DispatchStrategy#bind(List)}, so any per-group state is resolved up
+ * front rather than looked up for every message.
+ */
+@FunctionalInterface
+public interface HandlerSelector {
+
+  List<MessageHandler> select(Message<?> message);
+}
@@ -6,9 +6,40 @@ public interface Message<T> {
 
   String getChannel();
 
+  /** Returns the payload as received, before any decoding. */
   T getPayload();
 
+  /**
+   * Returns the payload decoded into the given type.
+   *
+   * <p>The default implementation only returns payloads of that type already. Messages carrying a
+   * {@link PayloadCodec} decode the payload on first access and keep the result for each type, so
+   * that it is decoded once for all the handlers of the message.
+   *
+   * @throws IllegalArgumentException if the payload cannot be read as the given type
+   */
+  default <P> P getPayload(Class<P> type) {
+    Object payload = this.getPayload();
+    if (!type.isInstance(payload)) {
+      throw new IllegalArgumentException(
+          "payload of type "
+              + payload.getClass().getName()
+              + " cannot be read as "
+              + type.getName()
+              + " without a PayloadCodec");
+    }
+    return type.cast(payload);
+  }
+
   Map<String, Object> getHeaders();
 
   void acknowledge();
+
+  /**
+   * Returns whether acknowledging the message notifies where it came from, e.g. a broker which
+   * delivers it again unless it is acknowledged. The default implementation returns {@code false}.
+   */
+  default boolean isAcknowledgeable() {
+    return false;
+  }
 }
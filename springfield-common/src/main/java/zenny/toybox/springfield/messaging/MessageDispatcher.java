@@ -3,4 +3,14 @@ package zenny.toybox.springfield.messaging;
 public interface MessageDispatcher {
 
   void dispatch(Message<?> message);
+
+  default void dispatch(Message<?> message, DispatchCallback callback) {
+    try {
+      this.dispatch(message);
+    } catch (Throwable ex) {
+      callback.onFailure(ex);
+      return;
+    }
+    callback.onComplete();
+  }
 }
@@ -8,4 +8,8 @@ public interface MessageHandlerRegistry {
   void register(MessageHandler handler);
 
   Map<String, Map<String, List<MessageHandler>>> getHandlerMap();
+
+  default RoutingTable getRoutingTable() {
+    return RoutingTable.of(this.getHandlerMap());
+  }
 }
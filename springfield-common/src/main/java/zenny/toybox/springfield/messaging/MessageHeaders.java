@@ -0,0 +1,258 @@
+package zenny.toybox.springfield.messaging;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import org.jspecify.annotations.Nullable;
+import zenny.toybox.springfield.util.Assert;
+
+/**
+ * An immutable header map storing its entries in a single array of alternating keys and values.
+ *
+ * <p>Messages carry a handful of headers, for which a linear scan is as fast as hashing and needs
+ * neither a table nor entry objects. A {@link Builder} hands its array over to the map it builds,
+ * and {@link GenericMessage} keeps a {@code MessageHeaders} as is, so headers assembled with a
+ * builder are never copied. Like {@link Map#copyOf}, null keys and values are rejected.
+ *
+ * <p>Headers are serialized as their entries, which must be serializable themselves.
+ */
+public final class MessageHeaders extends AbstractMap<String, Object> implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final MessageHeaders EMPTY = new MessageHeaders(new Object[0], 0);
+
+  private final transient @Nullable Object[] entries;
+  private final transient int size;
+
+  private MessageHeaders(@Nullable Object[] entries, int size) {
+    this.entries = entries;
+    this.size = size;
+  }
+
+  public static MessageHeaders empty() {
+    return EMPTY;
+  }
+
+  /** Returns the given headers if they are {@code MessageHeaders} already, or a copy of them. */
+  public static MessageHeaders copyOf(Map<String, ?> headers) {
+    if (headers instanceof MessageHeaders messageHeaders) {
+      return messageHeaders;
+    }
+    if (headers.isEmpty()) {
+      return EMPTY;
+    }
+    return builder(headers.size()).headers(headers).build();
+  }
+
+  public static Builder builder() {
+    return new Builder(4);
+  }
+
+  public static Builder builder(int expectedSize) {
+    return new Builder(expectedSize);
+  }
+
+  /** Returns a builder starting with the given headers. */
+  public static Builder builder(Map<String, ?> headers) {
+    return new Builder(headers.size() + 1).headers(headers);
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return indexOf(this.entries, this.size, key) >= 0;
+  }
+
+  @Override
+  public @Nullable Object get(Object key) {
+    int index = indexOf(this.entries, this.size, key);
+    return index >= 0 ? this.entries[index + 1] : null;
+  }
+
+  @Override
+  public void forEach(BiConsumer<? super String, ? super Object> action) {
+    for (int i = 0; i < this.size * 2; i += 2) {
+      action.accept((String) this.entries[i], this.entries[i + 1]);
+    }
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    return new AbstractSet<>() {
+
+      @Override
+      public int size() {
+        return MessageHeaders.this.size;
+      }
+
+      @Override
+      public Iterator<Entry<String, Object>> iterator() {
+        return new Iterator<>() {
+
+          private int index;
+
+          @Override
+          public boolean hasNext() {
+            return this.index < MessageHeaders.this.size * 2;
+          }
+
+          @Override
+          public Entry<String, Object> next() {
+            if (!this.hasNext()) {
+              throw new NoSuchElementException();
+            }
+            @Nullable Object[] entries = MessageHeaders.this.entries;
+            Entry<String, Object> entry =
+                new SimpleImmutableEntry<>((String) entries[this.index], entries[this.index + 1]);
+            this.index += 2;
+            return entry;
+          }
+        };
+      }
+    };
+  }
+
+  private Object writeReplace() {
+    return new SerializedForm(this.entries, this.size);
+  }
+
+  private void readObject(ObjectInputStream in) throws InvalidObjectException {
+    throw new InvalidObjectException("MessageHeaders are deserialized through SerializedForm");
+  }
+
+  private static int indexOf(@Nullable Object[] entries, int size, @Nullable Object key) {
+    for (int i = 0; i < size * 2; i += 2) {
+      Object candidate = entries[i];
+      if (candidate == key || (key != null && key.equals(candidate))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** The serialized form of {@link MessageHeaders}: the number of headers, then each entry. */
+  private static final class SerializedForm implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient @Nullable Object[] entries;
+    private transient int size;
+
+    SerializedForm(@Nullable Object[] entries, int size) {
+      this.entries = entries;
+      this.size = size;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+      out.defaultWriteObject();
+      out.writeInt(this.size);
+      for (int i = 0; i < this.size * 2; i++) {
+        out.writeObject(this.entries[i]);
+      }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      this.size = in.readInt();
+      if (this.size < 0) {
+        throw new InvalidObjectException("negative header count " + this.size);
+      }
+      this.entries = new Object[this.size * 2];
+      for (int i = 0; i < this.size * 2; i++) {
+        this.entries[i] = in.readObject();
+      }
+    }
+
+    private Object readResolve() throws InvalidObjectException {
+      Builder builder = builder(this.size);
+      for (int i = 0; i < this.size * 2; i += 2) {
+        if (!(this.entries[i] instanceof String name) || this.entries[i + 1] == null) {
+          throw new InvalidObjectException("invalid header at " + i / 2);
+        }
+        builder.header(name, this.entries[i + 1]);
+      }
+      return builder.build();
+    }
+  }
+
+  /**
+   * Collects headers into a {@link MessageHeaders} without copying them once built. A builder can
+   * only build once.
+   */
+  public static final class Builder {
+
+    private @Nullable Object[] entries;
+    private int size;
+    private boolean built;
+
+    private Builder(int expectedSize) {
+      this.entries = new Object[Math.max(expectedSize, 1) * 2];
+    }
+
+    /** Sets a header, replacing the value of an existing header with the same name. */
+    public Builder header(String name, Object value) {
+      Objects.requireNonNull(name, "name");
+      Objects.requireNonNull(value, "value");
+      Assert.state(!this.built, "headers have been built already");
+      int index = indexOf(this.entries, this.size, name);
+      if (index >= 0) {
+        this.entries[index + 1] = value;
+        return this;
+      }
+      if (this.size * 2 == this.entries.length) {
+        this.entries = Arrays.copyOf(this.entries, this.entries.length * 2);
+      }
+      this.entries[this.size * 2] = name;
+      this.entries[this.size * 2 + 1] = value;
+      this.size++;
+      return this;
+    }
+
+    public Builder headers(Map<String, ?> headers) {
+      headers.forEach(this::header);
+      return this;
+    }
+
+    /** Removes a header if present. */
+    public Builder remove(String name) {
+      Assert.state(!this.built, "headers have been built already");
+      int index = indexOf(this.entries, this.size, name);
+      if (index >= 0) {
+        int last = (this.size - 1) * 2;
+        this.entries[index] = this.entries[last];
+        this.entries[index + 1] = this.entries[last + 1];
+        this.entries[last] = null;
+        this.entries[last + 1] = null;
+        this.size--;
+      }
+      return this;
+    }
+
+    public MessageHeaders build() {
+      Assert.state(!this.built, "headers have been built already");
+      this.built = true;
+      return this.size == 0 ? EMPTY : new MessageHeaders(this.entries, this.size);
+    }
+  }
+}
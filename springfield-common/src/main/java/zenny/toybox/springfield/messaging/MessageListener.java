@@ -21,4 +21,8 @@ public @interface MessageListener {
 
   Class<? extends Converter<Message<?>, Object[]>> converter() default
       DefaultMessageToArgsConverter.class;
+
+  int batchSize() default 0;
+
+  long batchLingerMillis() default 100;
 }
@@ -1,6 +1,100 @@
 package zenny.toybox.springfield.messaging;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.jspecify.annotations.Nullable;
+
 public interface MessagePublisher {
 
   void publish(Message<?> message);
+
+  /**
+   * Publishes the message and returns a future completed once it has been acknowledged.
+   *
+   * <p>The default implementation can only observe the acknowledgement. Publishers able to tell
+   * dispatch failures and rejections apart should override it to complete the future exceptionally
+   * in those cases.
+   */
+  default CompletableFuture<Void> publishAsync(Message<?> message) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    try {
+      this.publish(
+          GenericMessage.from(
+              message,
+              message.getChannel(),
+              message.getHeaders(),
+              () -> {
+                try {
+                  message.acknowledge();
+                } catch (RuntimeException ex) {
+                  future.completeExceptionally(ex);
+                  throw ex;
+                }
+                future.complete(null);
+              }));
+    } catch (RuntimeException ex) {
+      future.completeExceptionally(ex);
+    }
+    return future;
+  }
+
+  /**
+   * Publishes the message after the given delay.
+   *
+   * <p>The default implementation relies on {@link CompletableFuture#delayedExecutor}; publishers
+   * expecting many pending messages should override it with a cheaper timer.
+   */
+  default void publish(Message<?> message, Duration delay) {
+    CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS)
+        .execute(() -> this.publish(message));
+  }
+
+  /**
+   * Publishes the message unless the publisher is saturated. A saturated publisher rejects the
+   * message instead of blocking, dropping another message or running it on the calling thread, so
+   * producers can shed load on their own terms.
+   *
+   * @return {@code true} if the message was accepted, {@code false} if it was rejected
+   */
+  default boolean tryPublish(Message<?> message) {
+    this.publish(message);
+    return true;
+  }
+
+  /**
+   * Publishes the message unless the publisher is saturated, as {@link #tryPublish(Message)} does,
+   * and returns a future completed once it has been acknowledged, as {@link #publishAsync(Message)}
+   * does.
+   *
+   * <p>The default implementation can only observe the acknowledgement. Publishers able to tell
+   * dispatch failures apart should override it to complete the future exceptionally then.
+   *
+   * @return the future, or {@code null} if the message was rejected
+   */
+  default @Nullable CompletableFuture<Void> tryPublishAsync(Message<?> message) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    boolean accepted;
+    try {
+      accepted =
+          this.tryPublish(
+              GenericMessage.from(
+                  message,
+                  message.getChannel(),
+                  message.getHeaders(),
+                  () -> {
+                    try {
+                      message.acknowledge();
+                    } catch (RuntimeException ex) {
+                      future.completeExceptionally(ex);
+                      throw ex;
+                    }
+                    future.complete(null);
+                  }));
+    } catch (RuntimeException ex) {
+      future.completeExceptionally(ex);
+      return future;
+    }
+    return accepted ? future : null;
+  }
 }
@@ -0,0 +1,18 @@
+package zenny.toybox.springfield.messaging;
+
+/**
+ * Decodes the raw payload of a message, typically a string or a byte array, into the type a
+ * listener asks for.
+ *
+ * @see Message#getPayload(Class)
+ */
+@FunctionalInterface
+public interface PayloadCodec {
+
+  /**
+   * Decodes the payload.
+   *
+   * @throws IllegalArgumentException if the payload cannot be decoded into the given type
+   */
+  <T> T decode(Object payload, Class<T> type);
+}
@@ -0,0 +1,245 @@
+package zenny.toybox.springfield.messaging;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jspecify.annotations.Nullable;
+import org.springframework.util.ConcurrentLruCache;
+import org.springframework.util.StringUtils;
+
+/**
+ * An immutable, precompiled snapshot of the handler routes, resolving each channel to a flat array
+ * of consumer groups.
+ *
+ * <p>Channels are made of segments separated by dots. A subscription may be a pattern, in which a
+ * {@code *} segment matches exactly one segment and a {@code **} segment matches any number of
+ * segments, as in {@code order.*.created} or {@code order.**}. Patterns are kept in a segment trie,
+ * so matching a channel costs one lookup per segment regardless of the number of patterns; the
+ * groups subscribed to a channel directly and through patterns are merged by name. Channels
+ * matching the same subscriptions share a single merged array, so callers may key per-group state
+ * by its identity, and the arrays of the channels most recently resolved are cached per channel.
+ * Each pair of trie node and segment is visited at most once, so consecutive {@code **} segments
+ * cannot make matching exponential.
+ *
+ * <p>Instances are never modified after construction, so they can be safely published to and read
+ * by any number of dispatching threads without further synchronization.
+ */
+public final class RoutingTable {
+
+  private static final Group[] NO_GROUPS = new Group[0];
+
+  private static final RoutingTable EMPTY = new RoutingTable(Map.of(), null);
+
+  private static final int MAX_RESOLVED_CHANNELS = 4096;
+
+  private static final String SINGLE_WILDCARD = "*";
+
+  private static final String MULTI_WILDCARD = "**";
+
+  private final Map<String, Group[]> routes;
+  private final @Nullable Node patterns;
+  private final ConcurrentLruCache<String, Group[]> resolved =
+      new ConcurrentLruCache<>(MAX_RESOLVED_CHANNELS, this::resolve);
+  private final Map<List<Object>, Group[]> merged = new ConcurrentHashMap<>();
+
+  private RoutingTable(Map<String, Group[]> routes, @Nullable Node patterns) {
+    this.routes = routes;
+    this.patterns = patterns;
+  }
+
+  public static RoutingTable empty() {
+    return EMPTY;
+  }
+
+  public static RoutingTable of(
+      Map<String, ? extends Map<String, ? extends List<MessageHandler>>> handlerMap) {
+    if (handlerMap.isEmpty()) {
+      return EMPTY;
+    }
+    Map<String, Group[]> routes = new LinkedHashMap<>();
+    Node patterns = null;
+    for (Map.Entry<String, ? extends Map<String, ? extends List<MessageHandler>>> channel :
+        handlerMap.entrySet()) {
+      List<Group> groups = new ArrayList<>(channel.getValue().size());
+      for (Map.Entry<String, ? extends List<MessageHandler>> group :
+          channel.getValue().entrySet()) {
+        if (!group.getValue().isEmpty()) {
+          groups.add(new Group(group.getKey(), group.getValue()));
+        }
+      }
+      if (groups.isEmpty()) {
+        continue;
+      }
+      routes.put(channel.getKey(), groups.toArray(NO_GROUPS));
+      if (isPattern(channel.getKey())) {
+        patterns = patterns != null ? patterns : new Node();
+        patterns.insert(split(channel.getKey()), 0, routes.get(channel.getKey()));
+      }
+    }
+    return new RoutingTable(Collections.unmodifiableMap(routes), patterns);
+  }
+
+  /** Returns whether the given subscription contains a {@code *} or {@code **} segment. */
+  public static boolean isPattern(String channel) {
+    for (String segment : split(channel)) {
+      if (segment.equals(SINGLE_WILDCARD) || segment.equals(MULTI_WILDCARD)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the consumer groups subscribed to the given channel, directly or through a pattern, or
+   * an empty array if there is none. The returned array is shared by all callers and by all the
+   * channels matching the same subscriptions, and must not be modified.
+   */
+  public Group[] getGroups(String channel) {
+    if (this.patterns == null) {
+      Group[] groups = this.routes.get(channel);
+      return groups != null ? groups : NO_GROUPS;
+    }
+    return this.resolved.get(channel);
+  }
+
+  /** Returns the subscribed channels and patterns. */
+  public Set<String> getChannels() {
+    return this.routes.keySet();
+  }
+
+  private Group[] resolve(String channel) {
+    Set<Node> matches = new LinkedHashSet<>();
+    this.patterns.match(split(channel), 0, matches, new HashSet<>());
+    Group[] exact = isPattern(channel) ? null : this.routes.get(channel);
+    if (matches.isEmpty()) {
+      return exact != null ? exact : NO_GROUPS;
+    }
+    // the merged groups only depend on the subscriptions matched, not on the channel itself
+    List<Object> subscriptions = new ArrayList<>(matches.size() + 1);
+    if (exact != null) {
+      subscriptions.add(exact);
+    }
+    subscriptions.addAll(matches);
+    Group[] groups = this.merged.get(subscriptions);
+    return groups != null
+        ? groups
+        : this.merged.computeIfAbsent(subscriptions, k -> merge(exact, matches));
+  }
+
+  private static Group[] merge(Group @Nullable [] exact, Set<Node> matches) {
+    Map<String, List<MessageHandler>> merged = new LinkedHashMap<>();
+    if (exact != null) {
+      for (Group group : exact) {
+        merged.put(group.getName(), new ArrayList<>(group.getHandlers()));
+      }
+    }
+    for (Node match : matches) {
+      for (Group group : match.groups) {
+        merged.computeIfAbsent(group.getName(), k -> new ArrayList<>()).addAll(group.getHandlers());
+      }
+    }
+    Group[] groups = new Group[merged.size()];
+    int i = 0;
+    for (Map.Entry<String, List<MessageHandler>> group : merged.entrySet()) {
+      groups[i++] = new Group(group.getKey(), group.getValue());
+    }
+    return groups;
+  }
+
+  private static String[] split(String channel) {
+    return StringUtils.delimitedListToStringArray(channel, ".");
+  }
+
+  public Map<String, Map<String, List<MessageHandler>>> toHandlerMap() {
+    Map<String, Map<String, List<MessageHandler>>> handlerMap = new LinkedHashMap<>();
+    for (Map.Entry<String, Group[]> route : this.routes.entrySet()) {
+      Map<String, List<MessageHandler>> groups = new LinkedHashMap<>();
+      for (Group group : route.getValue()) {
+        groups.put(group.getName(), group.getHandlers());
+      }
+      handlerMap.put(route.getKey(), Collections.unmodifiableMap(groups));
+    }
+    return Collections.unmodifiableMap(handlerMap);
+  }
+
+  /** A node of the pattern trie, holding the groups of the patterns ending at it. */
+  private static final class Node {
+
+    private final Map<String, Node> children = new HashMap<>();
+    private @Nullable Node single;
+    private @Nullable Node multi;
+    private Group[] groups = NO_GROUPS;
+
+    void insert(String[] segments, int index, Group[] groups) {
+      if (index == segments.length) {
+        this.groups = groups;
+        return;
+      }
+      String segment = segments[index];
+      Node child;
+      if (segment.equals(SINGLE_WILDCARD)) {
+        child = this.single != null ? this.single : (this.single = new Node());
+      } else if (segment.equals(MULTI_WILDCARD)) {
+        child = this.multi != null ? this.multi : (this.multi = new Node());
+      } else {
+        child = this.children.computeIfAbsent(segment, k -> new Node());
+      }
+      child.insert(segments, index + 1, groups);
+    }
+
+    void match(String[] segments, int index, Set<Node> matches, Set<Visit> visited) {
+      if (!visited.add(new Visit(this, index))) {
+        // already matched from here, e.g. through another ** consuming a different span
+        return;
+      }
+      if (index == segments.length) {
+        if (this.groups.length > 0) {
+          matches.add(this);
+        }
+      } else {
+        Node child = this.children.get(segments[index]);
+        if (child != null) {
+          child.match(segments, index + 1, matches, visited);
+        }
+        if (this.single != null) {
+          this.single.match(segments, index + 1, matches, visited);
+        }
+      }
+      if (this.multi != null) {
+        // ** consumes any number of segments, including none
+        for (int i = index; i <= segments.length; i++) {
+          this.multi.match(segments, i, matches, visited);
+        }
+      }
+    }
+  }
+
+  /** A trie node reached at a segment index while matching a channel. */
+  private record Visit(Node node, int index) {}
+
+  public static final class Group {
+
+    private final String name;
+    private final List<MessageHandler> handlers;
+
+    Group(String name, List<? extends MessageHandler> handlers) {
+      this.name = name;
+      this.handlers = List.copyOf(handlers);
+    }
+
+    public String getName() {
+      return this.name;
+    }
+
+    public List<MessageHandler> getHandlers() {
+      return this.handlers;
+    }
+  }
+}
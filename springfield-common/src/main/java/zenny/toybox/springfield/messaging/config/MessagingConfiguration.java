@@ -1,35 +1,89 @@
 package zenny.toybox.springfield.messaging.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.ErrorHandler;
 import zenny.toybox.springfield.messaging.DispatchStrategy;
+import zenny.toybox.springfield.messaging.Message;
 import zenny.toybox.springfield.messaging.MessageDispatcher;
 import zenny.toybox.springfield.messaging.MessageHandlerRegistry;
 import zenny.toybox.springfield.messaging.MessageListenerFactory;
 import zenny.toybox.springfield.messaging.MessagePublisher;
+import zenny.toybox.springfield.messaging.PayloadCodec;
+import zenny.toybox.springfield.messaging.journal.JournalingMessagePublisher;
+import zenny.toybox.springfield.messaging.journal.MessageJournal;
+import zenny.toybox.springfield.messaging.metrics.MessagingExecutorMetrics;
+import zenny.toybox.springfield.messaging.metrics.MicrometerMessagingObserver;
+import zenny.toybox.springfield.messaging.support.CoalescingMessagePublisher;
+import zenny.toybox.springfield.messaging.support.ConversionServicePayloadCodec;
 import zenny.toybox.springfield.messaging.support.DefaultMessageDispatcher;
 import zenny.toybox.springfield.messaging.support.DefaultMessageHandlerRegistry;
 import zenny.toybox.springfield.messaging.support.DefaultMessageListenerFactory;
 import zenny.toybox.springfield.messaging.support.DefaultMessagePublisher;
+import zenny.toybox.springfield.messaging.support.MessageBatcher;
+import zenny.toybox.springfield.messaging.support.MessageConditionEvaluator;
 import zenny.toybox.springfield.messaging.support.MessageListenerMethodProcessor;
+import zenny.toybox.springfield.messaging.support.MessageOverflowHandler;
+import zenny.toybox.springfield.messaging.support.MessagingObserver;
+import zenny.toybox.springfield.messaging.support.PartitionedMessageExecutor;
+import zenny.toybox.springfield.messaging.support.PriorityMessageQueue;
 import zenny.toybox.springfield.messaging.support.RandomDispatchStrategy;
+import zenny.toybox.springfield.messaging.support.RetryPolicy;
+import zenny.toybox.springfield.messaging.support.RingBufferMessagePublisher;
+import zenny.toybox.springfield.messaging.support.VirtualThreadMessageExecutor;
+import zenny.toybox.springfield.util.Assert;
+import zenny.toybox.springfield.util.concurrent.HierarchicalTimingWheel;
 
 @Configuration
 @EnableConfigurationProperties(MessagingProperties.class)
 public class MessagingConfiguration {
 
+  protected final Log log = LogFactory.getLog(this.getClass());
+
+  @Bean
+  @ConditionalOnMissingBean(MessageConditionEvaluator.class)
+  public MessageConditionEvaluator messageConditionEvaluator(MessagingProperties props) {
+    return new MessageConditionEvaluator(props.getConditionCompilerMode());
+  }
+
+  @Bean
+  public MessageListenerFactory messageListenerFactory(
+      ApplicationContext applicationContext,
+      MessageConditionEvaluator conditionEvaluator,
+      @Nullable MessagingObserver messagingObserver) {
+    DefaultMessageListenerFactory factory =
+        new DefaultMessageListenerFactory(applicationContext, conditionEvaluator);
+    factory.setObserver(messagingObserver);
+    return factory;
+  }
+
   @Bean
-  public MessageListenerFactory messageListenerFactory(ApplicationContext applicationContext) {
-    return new DefaultMessageListenerFactory(applicationContext);
+  @ConditionalOnMissingBean(PayloadCodec.class)
+  public PayloadCodec messagePayloadCodec() {
+    return new ConversionServicePayloadCodec();
   }
 
   @Bean
@@ -51,31 +105,221 @@ public class MessagingConfiguration {
     return new RandomDispatchStrategy();
   }
 
+  @Bean
+  @ConditionalOnMissingBean(MessageBatcher.class)
+  public MessageBatcher messageBatcher(
+      @Qualifier("messagingBusinessExecutor") Executor messagingBusinessExecutor) {
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("messaging-batch-");
+    threadFactory.setDaemon(true);
+    return new MessageBatcher(
+        new ScheduledThreadPoolExecutor(1, threadFactory), messagingBusinessExecutor);
+  }
+
   @Bean
   @ConditionalOnMissingBean(MessageDispatcher.class)
   public MessageDispatcher messageDispatcher(
-      MessageHandlerRegistry registry, DispatchStrategy strategy) {
-    return new DefaultMessageDispatcher(registry, strategy);
+      MessageHandlerRegistry registry,
+      DispatchStrategy strategy,
+      MessageBatcher batcher,
+      @Nullable @Qualifier("messagingGroupExecutor") Executor messagingGroupExecutor,
+      @Qualifier("messagingBusinessExecutor") Executor messagingBusinessExecutor,
+      @Nullable MessagingObserver messagingObserver) {
+    Executor groupExecutor = messagingGroupExecutor;
+    if (groupExecutor != null && messagingBusinessExecutor instanceof PartitionedMessageExecutor) {
+      this.log.warn(
+          "parallel group dispatch is disabled, groups leaving their partition lane would lose"
+              + " per-key ordering");
+      groupExecutor = null;
+    }
+    DefaultMessageDispatcher dispatcher =
+        new DefaultMessageDispatcher(registry, strategy, batcher, groupExecutor);
+    dispatcher.setObserver(messagingObserver);
+    return dispatcher;
+  }
+
+  @Bean
+  @ConditionalOnProperty(prefix = "springfield.messaging", name = "parallel-group-dispatch")
+  @ConditionalOnMissingBean(name = "messagingGroupExecutor")
+  public ExecutorService messagingGroupExecutor() {
+    return Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("messaging-group-", 0).factory());
   }
 
   @Bean
   @ConditionalOnMissingBean(name = "messagingBusinessExecutor")
-  public ThreadPoolExecutor messagingBusinessExecutor(MessagingProperties props) {
-    return new ThreadPoolExecutor(
-        props.getCorePoolSize(),
-        props.getMaxPoolSize(),
-        60L,
-        TimeUnit.SECONDS,
-        new LinkedBlockingQueue<>(props.getQueueCapacity()),
-        new ThreadPoolExecutor.CallerRunsPolicy());
+  public Executor messagingBusinessExecutor(
+      MessagingProperties props, MessageConditionEvaluator conditionEvaluator) {
+    return switch (props.getExecutor()) {
+      case PARTITIONED ->
+          new PartitionedMessageExecutor(
+              props.getPartitions(),
+              props.getQueueCapacity(),
+              this.partitionKeyExtractor(props, conditionEvaluator));
+      case VIRTUAL ->
+          new VirtualThreadMessageExecutor(
+              props.getDefaultChannelConcurrency(),
+              props.getChannelConcurrency(),
+              props.getQueueCapacity(),
+              new MessageOverflowHandler(
+                  props.getOverflowPolicy(), props.getOverflowBlockTimeout()));
+      case PRIORITY ->
+          new ThreadPoolExecutor(
+              props.getCorePoolSize(),
+              props.getMaxPoolSize(),
+              60L,
+              TimeUnit.SECONDS,
+              new PriorityMessageQueue(
+                  props.getQueueCapacity(),
+                  props.getPriorityWeights().stream().mapToInt(Integer::intValue).toArray(),
+                  props.getDefaultPriority(),
+                  PriorityMessageQueue.levelResolver(
+                      props.getPriorityHeader(),
+                      props.getChannelPriority(),
+                      props.getDefaultPriority())),
+              new MessageOverflowHandler(
+                  props.getOverflowPolicy(), props.getOverflowBlockTimeout()));
+      case POOL ->
+          new ThreadPoolExecutor(
+              props.getCorePoolSize(),
+              props.getMaxPoolSize(),
+              60L,
+              TimeUnit.SECONDS,
+              new LinkedBlockingQueue<>(props.getQueueCapacity()),
+              new MessageOverflowHandler(
+                  props.getOverflowPolicy(), props.getOverflowBlockTimeout()));
+    };
+  }
+
+  private Function<Message<?>, @Nullable Object> partitionKeyExtractor(
+      MessagingProperties props, MessageConditionEvaluator conditionEvaluator) {
+    if (props.getPartitionKeyExpression() != null) {
+      return conditionEvaluator.compileValue(props.getPartitionKeyExpression());
+    }
+    Assert.state(
+        props.getPartitionKeyHeader() != null,
+        "springfield.messaging.partition-key-header or partition-key-expression is required");
+    return PartitionedMessageExecutor.headerKey(props.getPartitionKeyHeader());
+  }
+
+  /**
+   * Timer backing delayed publishing and redelivery. Expired timeouts run on virtual threads, so a
+   * publish blocked by a saturated executor never holds up the clock. Its worker thread is only
+   * started by the first delayed publish or retry.
+   */
+  @Bean
+  @ConditionalOnMissingBean(name = "messagingTimer")
+  public HierarchicalTimingWheel messagingTimer() {
+    return new HierarchicalTimingWheel(
+        10, 512, task -> Thread.ofVirtual().name("messaging-timer-task").start(task));
+  }
+
+  @Bean
+  @ConditionalOnProperty(prefix = "springfield.messaging.journal", name = "enabled")
+  @ConditionalOnMissingBean(MessageJournal.class)
+  public MessageJournal messagingJournal(MessagingProperties props) throws IOException {
+    MessagingProperties.Journal journal = props.getJournal();
+    return new MessageJournal(
+        journal.getDirectory(),
+        Math.toIntExact(journal.getSegmentSize().toBytes()),
+        journal.getCheckpointInterval().toMillis());
   }
 
   @Bean
   @ConditionalOnMissingBean(MessagePublisher.class)
   public MessagePublisher messagePublisher(
+      MessagingProperties props,
       MessageDispatcher dispatcher,
-      ThreadPoolExecutor messagingBusinessExecutor,
-      @Nullable ErrorHandler errorHandler) {
-    return new DefaultMessagePublisher(dispatcher, messagingBusinessExecutor, errorHandler);
+      @Qualifier("messagingBusinessExecutor") Executor messagingBusinessExecutor,
+      HierarchicalTimingWheel messagingTimer,
+      @Nullable MessageJournal messagingJournal,
+      PayloadCodec payloadCodec,
+      MessageConditionEvaluator conditionEvaluator,
+      @Nullable ErrorHandler errorHandler,
+      @Nullable MessagingObserver messagingObserver) {
+    DefaultMessagePublisher publisher =
+        switch (props.getPublisher()) {
+          case RING_BUFFER ->
+              new RingBufferMessagePublisher(
+                  dispatcher, errorHandler, props.getRingBufferSize(), props.getWaitStrategy());
+          case EXECUTOR ->
+              new DefaultMessagePublisher(dispatcher, messagingBusinessExecutor, errorHandler);
+        };
+    publisher.setObserver(messagingObserver);
+    publisher.setTimer(messagingTimer);
+    MessagingProperties.Retry retry = props.getRetry();
+    if (retry.isEnabled()) {
+      publisher.setRetryPolicy(
+          new RetryPolicy(
+              retry.getMaxRetries(),
+              retry.getInitialInterval(),
+              retry.getMultiplier(),
+              retry.getMaxInterval(),
+              retry.getDeadLetterChannel()));
+    }
+    MessagePublisher decorated = publisher;
+    MessagingProperties.Coalescing coalescing = props.getCoalescing();
+    if (coalescing.isEnabled()) {
+      CoalescingMessagePublisher coalescer =
+          new CoalescingMessagePublisher(
+              decorated,
+              this.coalescingKeyExtractor(coalescing, conditionEvaluator),
+              coalescing.getMerge(),
+              coalescing.getWindow(),
+              coalescing.getBuckets(),
+              coalescing.getMaxKeys());
+      coalescer.setErrorHandler(errorHandler);
+      decorated = coalescer;
+    }
+    if (messagingJournal != null) {
+      if (props.getJournal().getChannels().isEmpty()) {
+        this.log.warn(
+            "springfield.messaging.journal is enabled without channels, no message is journaled");
+      }
+      JournalingMessagePublisher journaling =
+          new JournalingMessagePublisher(
+              decorated, messagingJournal, props.getJournal().getChannels());
+      journaling.setPayloadCodec(payloadCodec);
+      decorated = journaling;
+    }
+    return decorated;
+  }
+
+  private Function<Message<?>, @Nullable Object> coalescingKeyExtractor(
+      MessagingProperties.Coalescing coalescing, MessageConditionEvaluator conditionEvaluator) {
+    Function<Message<?>, @Nullable Object> key;
+    if (coalescing.getKeyExpression() != null) {
+      key = conditionEvaluator.compileValue(coalescing.getKeyExpression());
+    } else {
+      Assert.state(
+          coalescing.getKeyHeader() != null,
+          "springfield.messaging.coalescing.key-header or key-expression is required");
+      key = PartitionedMessageExecutor.headerKey(coalescing.getKeyHeader());
+    }
+    Set<String> channels = Set.copyOf(coalescing.getChannels());
+    return message -> channels.contains(message.getChannel()) ? key.apply(message) : null;
+  }
+
+  @Configuration(proxyBeanMethods = false)
+  @ConditionalOnClass(MeterRegistry.class)
+  static class MessagingMetricsConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean(MessagingObserver.class)
+    public MessagingObserver messagingObserver(
+        MessagingProperties props, ObjectProvider<MeterRegistry> meterRegistry) {
+      MeterRegistry registry = meterRegistry.getIfAvailable();
+      return registry != null
+          ? new MicrometerMessagingObserver(registry, props.getMetricsMaxChannels())
+          : MessagingObserver.NOOP;
+    }
+
+    @Bean
+    public MessagingExecutorMetrics messagingExecutorMetrics(
+        MessagingProperties props,
+        @Qualifier("messagingBusinessExecutor") Executor messagingBusinessExecutor,
+        MessagePublisher messagePublisher) {
+      return new MessagingExecutorMetrics(
+          messagingBusinessExecutor, messagePublisher, props.getMetricsMaxChannels());
+    }
   }
 }
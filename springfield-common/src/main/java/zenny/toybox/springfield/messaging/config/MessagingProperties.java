@@ -1,13 +1,71 @@
 package zenny.toybox.springfield.messaging.config;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.jspecify.annotations.Nullable;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.util.unit.DataSize;
+import zenny.toybox.springfield.messaging.journal.MessageJournal;
+import zenny.toybox.springfield.messaging.metrics.MicrometerMessagingObserver;
+import zenny.toybox.springfield.messaging.support.CoalescingMessagePublisher;
+import zenny.toybox.springfield.messaging.support.MessageOverflowHandler;
+import zenny.toybox.springfield.messaging.support.RingBufferMessagePublisher;
 
 @ConfigurationProperties(prefix = "springfield.messaging")
 public class MessagingProperties {
 
+  private ExecutorType executor = ExecutorType.POOL;
   private int corePoolSize = 4;
   private int maxPoolSize = 16;
   private int queueCapacity = 1000;
+  private SpelCompilerMode conditionCompilerMode = SpelCompilerMode.OFF;
+  private int defaultChannelConcurrency = 256;
+  private final Map<String, Integer> channelConcurrency = new HashMap<>();
+  private int partitions = Runtime.getRuntime().availableProcessors();
+  private @Nullable String partitionKeyHeader;
+  private @Nullable String partitionKeyExpression;
+  private boolean parallelGroupDispatch = false;
+  private String priorityHeader = "priority";
+  private List<Integer> priorityWeights = List.of(8, 4, 1);
+  private int defaultPriority = 1;
+  private final Map<String, Integer> channelPriority = new HashMap<>();
+  private MessageOverflowHandler.OverflowPolicy overflowPolicy =
+      MessageOverflowHandler.OverflowPolicy.CALLER_RUNS;
+  private Duration overflowBlockTimeout = Duration.ofSeconds(5);
+  private PublisherType publisher = PublisherType.EXECUTOR;
+  private int ringBufferSize = RingBufferMessagePublisher.DEFAULT_BUFFER_SIZE;
+  private RingBufferMessagePublisher.WaitStrategy waitStrategy =
+      RingBufferMessagePublisher.WaitStrategy.PARK;
+  private int metricsMaxChannels = MicrometerMessagingObserver.DEFAULT_MAX_CHANNELS;
+  private final Retry retry = new Retry();
+  private final Journal journal = new Journal();
+  private final Coalescing coalescing = new Coalescing();
+
+  public enum ExecutorType {
+    POOL,
+    VIRTUAL,
+    PARTITIONED,
+    PRIORITY
+  }
+
+  public enum PublisherType {
+    EXECUTOR,
+    RING_BUFFER
+  }
+
+  public ExecutorType getExecutor() {
+    return this.executor;
+  }
+
+  public void setExecutor(ExecutorType executor) {
+    this.executor = executor;
+  }
 
   public int getCorePoolSize() {
     return this.corePoolSize;
@@ -32,4 +90,329 @@ public class MessagingProperties {
   public void setQueueCapacity(int queueCapacity) {
     this.queueCapacity = queueCapacity;
   }
+
+  public SpelCompilerMode getConditionCompilerMode() {
+    return this.conditionCompilerMode;
+  }
+
+  public void setConditionCompilerMode(SpelCompilerMode conditionCompilerMode) {
+    this.conditionCompilerMode = conditionCompilerMode;
+  }
+
+  public int getDefaultChannelConcurrency() {
+    return this.defaultChannelConcurrency;
+  }
+
+  public void setDefaultChannelConcurrency(int defaultChannelConcurrency) {
+    this.defaultChannelConcurrency = defaultChannelConcurrency;
+  }
+
+  public Map<String, Integer> getChannelConcurrency() {
+    return this.channelConcurrency;
+  }
+
+  public int getPartitions() {
+    return this.partitions;
+  }
+
+  public void setPartitions(int partitions) {
+    this.partitions = partitions;
+  }
+
+  public @Nullable String getPartitionKeyHeader() {
+    return this.partitionKeyHeader;
+  }
+
+  public void setPartitionKeyHeader(@Nullable String partitionKeyHeader) {
+    this.partitionKeyHeader = partitionKeyHeader;
+  }
+
+  public @Nullable String getPartitionKeyExpression() {
+    return this.partitionKeyExpression;
+  }
+
+  public void setPartitionKeyExpression(@Nullable String partitionKeyExpression) {
+    this.partitionKeyExpression = partitionKeyExpression;
+  }
+
+  public boolean isParallelGroupDispatch() {
+    return this.parallelGroupDispatch;
+  }
+
+  public void setParallelGroupDispatch(boolean parallelGroupDispatch) {
+    this.parallelGroupDispatch = parallelGroupDispatch;
+  }
+
+  public String getPriorityHeader() {
+    return this.priorityHeader;
+  }
+
+  public void setPriorityHeader(String priorityHeader) {
+    this.priorityHeader = priorityHeader;
+  }
+
+  /** Returns the weight of each priority level, the most urgent first. */
+  public List<Integer> getPriorityWeights() {
+    return this.priorityWeights;
+  }
+
+  public void setPriorityWeights(List<Integer> priorityWeights) {
+    this.priorityWeights = priorityWeights;
+  }
+
+  public int getDefaultPriority() {
+    return this.defaultPriority;
+  }
+
+  public void setDefaultPriority(int defaultPriority) {
+    this.defaultPriority = defaultPriority;
+  }
+
+  public Map<String, Integer> getChannelPriority() {
+    return this.channelPriority;
+  }
+
+  public PublisherType getPublisher() {
+    return this.publisher;
+  }
+
+  public void setPublisher(PublisherType publisher) {
+    this.publisher = publisher;
+  }
+
+  public int getRingBufferSize() {
+    return this.ringBufferSize;
+  }
+
+  public void setRingBufferSize(int ringBufferSize) {
+    this.ringBufferSize = ringBufferSize;
+  }
+
+  public RingBufferMessagePublisher.WaitStrategy getWaitStrategy() {
+    return this.waitStrategy;
+  }
+
+  public void setWaitStrategy(RingBufferMessagePublisher.WaitStrategy waitStrategy) {
+    this.waitStrategy = waitStrategy;
+  }
+
+  public int getMetricsMaxChannels() {
+    return this.metricsMaxChannels;
+  }
+
+  /** Sets how many channels get meters of their own, the others sharing an "other" channel tag. */
+  public void setMetricsMaxChannels(int metricsMaxChannels) {
+    this.metricsMaxChannels = metricsMaxChannels;
+  }
+
+  public MessageOverflowHandler.OverflowPolicy getOverflowPolicy() {
+    return this.overflowPolicy;
+  }
+
+  /**
+   * Sets the policy applied when the messaging executor is saturated. The default runs the message
+   * on the publishing thread, which the virtual thread executor only does once a permit of the
+   * channel is available, so that the channel concurrency still holds.
+   */
+  public void setOverflowPolicy(MessageOverflowHandler.OverflowPolicy overflowPolicy) {
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  public Duration getOverflowBlockTimeout() {
+    return this.overflowBlockTimeout;
+  }
+
+  public void setOverflowBlockTimeout(Duration overflowBlockTimeout) {
+    this.overflowBlockTimeout = overflowBlockTimeout;
+  }
+
+  public Retry getRetry() {
+    return this.retry;
+  }
+
+  public Journal getJournal() {
+    return this.journal;
+  }
+
+  public Coalescing getCoalescing() {
+    return this.coalescing;
+  }
+
+  public static class Retry {
+
+    private boolean enabled = false;
+    private int maxRetries = 3;
+    private Duration initialInterval = Duration.ofSeconds(1);
+    private double multiplier = 2.0;
+    private Duration maxInterval = Duration.ofMinutes(1);
+    private @Nullable String deadLetterChannel;
+
+    public boolean isEnabled() {
+      return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getMaxRetries() {
+      return this.maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+      this.maxRetries = maxRetries;
+    }
+
+    public Duration getInitialInterval() {
+      return this.initialInterval;
+    }
+
+    public void setInitialInterval(Duration initialInterval) {
+      this.initialInterval = initialInterval;
+    }
+
+    public double getMultiplier() {
+      return this.multiplier;
+    }
+
+    public void setMultiplier(double multiplier) {
+      this.multiplier = multiplier;
+    }
+
+    public Duration getMaxInterval() {
+      return this.maxInterval;
+    }
+
+    public void setMaxInterval(Duration maxInterval) {
+      this.maxInterval = maxInterval;
+    }
+
+    public @Nullable String getDeadLetterChannel() {
+      return this.deadLetterChannel;
+    }
+
+    public void setDeadLetterChannel(@Nullable String deadLetterChannel) {
+      this.deadLetterChannel = deadLetterChannel;
+    }
+  }
+
+  public static class Journal {
+
+    private boolean enabled = false;
+    private Path directory = Path.of("messaging-journal");
+    private DataSize segmentSize = DataSize.ofBytes(MessageJournal.DEFAULT_SEGMENT_SIZE);
+    private Duration checkpointInterval = Duration.ofSeconds(1);
+    private final Set<String> channels = new HashSet<>();
+
+    public boolean isEnabled() {
+      return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public Path getDirectory() {
+      return this.directory;
+    }
+
+    public void setDirectory(Path directory) {
+      this.directory = directory;
+    }
+
+    public DataSize getSegmentSize() {
+      return this.segmentSize;
+    }
+
+    public void setSegmentSize(DataSize segmentSize) {
+      this.segmentSize = segmentSize;
+    }
+
+    public Duration getCheckpointInterval() {
+      return this.checkpointInterval;
+    }
+
+    public void setCheckpointInterval(Duration checkpointInterval) {
+      this.checkpointInterval = checkpointInterval;
+    }
+
+    /** Returns the durable channels, whose messages are journaled; none by default. */
+    public Set<String> getChannels() {
+      return this.channels;
+    }
+  }
+
+  public static class Coalescing {
+
+    private boolean enabled = false;
+    private final Set<String> channels = new HashSet<>();
+    private @Nullable String keyHeader;
+    private @Nullable String keyExpression;
+    private Duration window = Duration.ofMillis(500);
+    private int buckets = 10;
+    private int maxKeys = 10000;
+    private CoalescingMessagePublisher.Merge merge = CoalescingMessagePublisher.Merge.LATEST;
+
+    public boolean isEnabled() {
+      return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    /** Returns the coalesced channels; other channels are never held back. */
+    public Set<String> getChannels() {
+      return this.channels;
+    }
+
+    public @Nullable String getKeyHeader() {
+      return this.keyHeader;
+    }
+
+    public void setKeyHeader(@Nullable String keyHeader) {
+      this.keyHeader = keyHeader;
+    }
+
+    public @Nullable String getKeyExpression() {
+      return this.keyExpression;
+    }
+
+    public void setKeyExpression(@Nullable String keyExpression) {
+      this.keyExpression = keyExpression;
+    }
+
+    public Duration getWindow() {
+      return this.window;
+    }
+
+    public void setWindow(Duration window) {
+      this.window = window;
+    }
+
+    public int getBuckets() {
+      return this.buckets;
+    }
+
+    public void setBuckets(int buckets) {
+      this.buckets = buckets;
+    }
+
+    public int getMaxKeys() {
+      return this.maxKeys;
+    }
+
+    public void setMaxKeys(int maxKeys) {
+      this.maxKeys = maxKeys;
+    }
+
+    /** Returns how the messages of a key are merged; the latest one is kept by default. */
+    public CoalescingMessagePublisher.Merge getMerge() {
+      return this.merge;
+    }
+
+    public void setMerge(CoalescingMessagePublisher.Merge merge) {
+      this.merge = merge;
+    }
+  }
 }
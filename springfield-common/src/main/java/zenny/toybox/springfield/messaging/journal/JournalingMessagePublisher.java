@@ -0,0 +1,264 @@
+package zenny.toybox.springfield.messaging.journal;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.serializer.DefaultDeserializer;
+import org.springframework.core.serializer.DefaultSerializer;
+import org.springframework.core.serializer.Deserializer;
+import org.springframework.core.serializer.Serializer;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageHeaders;
+import zenny.toybox.springfield.messaging.MessagePublisher;
+import zenny.toybox.springfield.messaging.PayloadCodec;
+
+/**
+ * A {@link MessagePublisher} writing the messages of durable channels to a {@link MessageJournal}
+ * before handing them to the delegate, which gives at-least-once delivery across restarts.
+ *
+ * <p>A message is only published once its record is on disk, and its record is released when the
+ * message is acknowledged. Records still pending when the application stopped are published again
+ * once all singletons are instantiated, that is once the listeners are registered, delayed messages
+ * keeping what is left of their delay. A message that fails without being dead-lettered is
+ * therefore delivered again on the next startup. {@link #tryPublish(Message)} does not wait for the
+ * disk, so a message it accepted can be lost by a crash within the next flush.
+ *
+ * <p>Only the listed channels are durable. Messages that are {@link Message#isAcknowledgeable()
+ * acknowledgeable} are not journaled, their source delivering them again already, and neither are
+ * messages that cannot be serialized, which are published as is with a warning.
+ *
+ * <p>Channels, headers and payloads are written with the given {@link Serializer}, Java
+ * serialization by default.
+ */
+public class JournalingMessagePublisher
+    implements MessagePublisher, SmartInitializingSingleton, AutoCloseable {
+
+  private static final long NOT_JOURNALED = -1L;
+
+  protected final Log log = LogFactory.getLog(this.getClass());
+
+  private final MessagePublisher delegate;
+  private final MessageJournal journal;
+  private final Set<String> channels;
+  private final Serializer<Object> serializer;
+  private final Deserializer<Object> deserializer;
+  private final Set<Class<?>> unserializable = ConcurrentHashMap.newKeySet();
+  private @Nullable PayloadCodec payloadCodec;
+
+  /**
+   * @param channels the durable channels
+   */
+  public JournalingMessagePublisher(
+      MessagePublisher delegate, MessageJournal journal, Set<String> channels) {
+    this(delegate, journal, channels, new DefaultSerializer(), new DefaultDeserializer());
+  }
+
+  public JournalingMessagePublisher(
+      MessagePublisher delegate,
+      MessageJournal journal,
+      Set<String> channels,
+      Serializer<Object> serializer,
+      Deserializer<Object> deserializer) {
+    this.delegate = delegate;
+    this.journal = journal;
+    this.channels = Set.copyOf(channels);
+    this.serializer = serializer;
+    this.deserializer = deserializer;
+  }
+
+  /** Sets the codec of the messages replayed from the journal. */
+  public void setPayloadCodec(@Nullable PayloadCodec payloadCodec) {
+    this.payloadCodec = payloadCodec;
+  }
+
+  public MessagePublisher getDelegate() {
+    return this.delegate;
+  }
+
+  @Override
+  public void publish(Message<?> message) {
+    long offset = this.append(message, 0L, true);
+    if (offset == NOT_JOURNALED) {
+      this.delegate.publish(message);
+      return;
+    }
+    try {
+      this.delegate.publish(this.journaled(message, offset));
+    } catch (RuntimeException ex) {
+      this.journal.acknowledge(offset);
+      throw ex;
+    }
+  }
+
+  @Override
+  public void publish(Message<?> message, Duration delay) {
+    long offset = this.append(message, System.currentTimeMillis() + delay.toMillis(), true);
+    if (offset == NOT_JOURNALED) {
+      this.delegate.publish(message, delay);
+      return;
+    }
+    try {
+      this.delegate.publish(this.journaled(message, offset), delay);
+    } catch (RuntimeException ex) {
+      this.journal.acknowledge(offset);
+      throw ex;
+    }
+  }
+
+  @Override
+  public CompletableFuture<Void> publishAsync(Message<?> message) {
+    long offset;
+    try {
+      offset = this.append(message, 0L, true);
+    } catch (RuntimeException ex) {
+      return CompletableFuture.failedFuture(ex);
+    }
+    if (offset == NOT_JOURNALED) {
+      return this.delegate.publishAsync(message);
+    }
+    try {
+      return this.delegate.publishAsync(this.journaled(message, offset));
+    } catch (RuntimeException ex) {
+      this.journal.acknowledge(offset);
+      return CompletableFuture.failedFuture(ex);
+    }
+  }
+
+  @Override
+  public boolean tryPublish(Message<?> message) {
+    long offset = this.append(message, 0L, false);
+    if (offset == NOT_JOURNALED) {
+      return this.delegate.tryPublish(message);
+    }
+    boolean accepted;
+    try {
+      accepted = this.delegate.tryPublish(this.journaled(message, offset));
+    } catch (RuntimeException ex) {
+      this.journal.acknowledge(offset);
+      throw ex;
+    }
+    if (!accepted) {
+      this.journal.acknowledge(offset);
+    }
+    return accepted;
+  }
+
+  @Override
+  public @Nullable CompletableFuture<Void> tryPublishAsync(Message<?> message) {
+    if (!this.isDurable(message)) {
+      return this.delegate.tryPublishAsync(message);
+    }
+    return MessagePublisher.super.tryPublishAsync(message);
+  }
+
+  /** Publishes the records recovered from the journal again. */
+  @Override
+  public void afterSingletonsInstantiated() {
+    this.journal.replay(
+        (offset, record) -> {
+          Record recovered;
+          try {
+            recovered = (Record) this.deserializer.deserializeFromByteArray(record);
+          } catch (IOException | RuntimeException ex) {
+            this.log.error("dropping unreadable journal record offset=" + offset, ex);
+            this.journal.acknowledge(offset);
+            return;
+          }
+          Message<?> message =
+              new GenericMessage<>(
+                  recovered.channel(),
+                  recovered.payload(),
+                  recovered.headers(),
+                  () -> this.journal.acknowledge(offset),
+                  this.payloadCodec);
+          long delay = recovered.dueAt() - System.currentTimeMillis();
+          if (recovered.dueAt() > 0L && delay > 0L) {
+            this.delegate.publish(message, Duration.ofMillis(delay));
+          } else {
+            this.delegate.publish(message);
+          }
+        });
+  }
+
+  /** Closes the delegate if it is closeable; the journal itself is managed separately. */
+  @Override
+  public void close() {
+    if (this.delegate instanceof AutoCloseable closeable) {
+      try {
+        closeable.close();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      } catch (Exception ex) {
+        this.log.warn("failed to close " + closeable, ex);
+      }
+    }
+  }
+
+  /** Returns whether the message goes to a durable channel and is not redelivered otherwise. */
+  protected boolean isDurable(Message<?> message) {
+    return this.channels.contains(message.getChannel()) && !message.isAcknowledgeable();
+  }
+
+  /**
+   * Appends the record of a durable message to the journal.
+   *
+   * @param dueAt when a delayed message is due, in epoch milliseconds, or {@code 0}
+   * @param sync whether to wait for the record to be on disk
+   * @return the offset of the record, or {@link #NOT_JOURNALED}
+   */
+  private long append(Message<?> message, long dueAt, boolean sync) {
+    if (!this.isDurable(message)) {
+      return NOT_JOURNALED;
+    }
+    byte[] record;
+    try {
+      record =
+          this.serializer.serializeToByteArray(
+              new Record(
+                  message.getChannel(),
+                  MessageHeaders.copyOf(message.getHeaders()),
+                  message.getPayload(),
+                  dueAt));
+    } catch (IOException | IllegalArgumentException ex) {
+      Class<?> payloadType = message.getPayload().getClass();
+      if (this.unserializable.add(payloadType)) {
+        this.log.warn(
+            "publishing messages of channel "
+                + message.getChannel()
+                + " with payload "
+                + payloadType.getName()
+                + " without journaling, they cannot be serialized",
+            ex);
+      }
+      return NOT_JOURNALED;
+    }
+    long offset = this.journal.append(record);
+    if (sync) {
+      this.journal.sync(offset);
+    }
+    return offset;
+  }
+
+  private Message<?> journaled(Message<?> message, long offset) {
+    return GenericMessage.from(
+        message,
+        message.getChannel(),
+        message.getHeaders(),
+        () -> {
+          message.acknowledge();
+          this.journal.acknowledge(offset);
+        });
+  }
+
+  private record Record(String channel, Map<String, Object> headers, Object payload, long dueAt)
+      implements Serializable {}
+}
@@ -0,0 +1,456 @@
+package zenny.toybox.springfield.messaging.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jspecify.annotations.Nullable;
+import zenny.toybox.springfield.util.Assert;
+
+/**
+ * An append-only journal of records stored in fixed-size, memory-mapped segment files.
+ *
+ * <p>Each record is framed by its length and a CRC32C checksum, so that a record torn by a crash is
+ * detected and cut off on recovery. An offset is the logical byte position of a record, segment
+ * files being named after the offset of their first byte.
+ *
+ * <p>Appending only copies the record into the mapped segment; a single flusher thread forces the
+ * bytes written since the previous force to disk, and every appender waiting in {@link #sync(long)}
+ * is released by the same force, so concurrent appends share one fsync.
+ *
+ * <p>Records stay pending until {@link #acknowledge(long) acknowledged}. The pending records are
+ * periodically written to a checkpoint file, and the segments before the oldest of them are
+ * unmapped and deleted. When the journal is opened again, the records pending at the last
+ * checkpoint and those written after it are {@link #replay(BiConsumer) replayed}.
+ */
+public class MessageJournal implements AutoCloseable {
+
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  private static final int HEADER_SIZE = 8;
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final String CHECKPOINT_FILE = "checkpoint";
+  private static final String CHECKPOINT_TEMP_FILE = "checkpoint.tmp";
+  private static final @Nullable MethodHandle UNMAPPER = unmapper();
+
+  protected final Log log = LogFactory.getLog(this.getClass());
+
+  private final Path directory;
+  private final int segmentSize;
+  private final long checkpointIntervalNanos;
+  private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+  private final ConcurrentSkipListSet<Long> pending = new ConcurrentSkipListSet<>();
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final Object flushMonitor = new Object();
+  private final AtomicLong acknowledged = new AtomicLong();
+  private final List<Long> recovered = new ArrayList<>();
+  private final Thread flusher;
+  private volatile Segment active;
+  private volatile long written;
+  private volatile long flushed;
+  private long horizon;
+  private long checkpointedAcks;
+  private volatile boolean running = true;
+
+  public MessageJournal(Path directory) throws IOException {
+    this(directory, DEFAULT_SEGMENT_SIZE, 1000);
+  }
+
+  /**
+   * Opens the journal stored in the given directory, recovering its pending records.
+   *
+   * @param directory the directory holding the segment and checkpoint files
+   * @param segmentSize the size of a segment file, which bounds the size of a record
+   * @param checkpointIntervalMillis how often the checkpoint is written and old segments deleted
+   */
+  public MessageJournal(Path directory, int segmentSize, long checkpointIntervalMillis)
+      throws IOException {
+    Assert.isTrue(segmentSize > HEADER_SIZE, "segmentSize is too small");
+    Assert.isTrue(checkpointIntervalMillis > 0, "checkpointIntervalMillis must be positive");
+    this.directory = Files.createDirectories(directory);
+    this.segmentSize = segmentSize;
+    this.checkpointIntervalNanos = TimeUnit.MILLISECONDS.toNanos(checkpointIntervalMillis);
+    this.active = this.recover();
+    this.flusher = new Thread(this::flush, "messaging-journal-flusher");
+    this.flusher.setDaemon(true);
+    this.flusher.start();
+  }
+
+  /**
+   * Appends the record without waiting for it to reach the disk.
+   *
+   * @return the offset of the record, pending until acknowledged
+   */
+  public long append(byte[] record) {
+    Assert.isTrue(
+        record.length > 0 && record.length <= this.segmentSize - HEADER_SIZE,
+        "record size must be between 1 and " + (this.segmentSize - HEADER_SIZE));
+    CRC32C crc = new CRC32C();
+    crc.update(record);
+    this.writeLock.lock();
+    try {
+      Assert.state(this.running, "journal has been closed");
+      int position = (int) (this.written - this.active.base);
+      if (position + HEADER_SIZE + record.length > this.segmentSize) {
+        this.active = this.openSegment(this.active.base + this.segmentSize);
+        position = 0;
+      }
+      long offset = this.active.base + position;
+      MappedByteBuffer buffer = this.active.buffer;
+      buffer.put(position + HEADER_SIZE, record);
+      buffer.putInt(position + 4, (int) crc.getValue());
+      buffer.putInt(position, record.length);
+      this.pending.add(offset);
+      this.written = offset + HEADER_SIZE + record.length;
+      return offset;
+    } catch (IOException ex) {
+      throw new UncheckedIOException("failed to roll journal segment", ex);
+    } finally {
+      this.writeLock.unlock();
+    }
+  }
+
+  /** Waits until the record at the given offset, and every record before it, is on disk. */
+  public void sync(long offset) {
+    if (this.flushed > offset) {
+      return;
+    }
+    synchronized (this.flushMonitor) {
+      this.flushMonitor.notifyAll();
+      while (this.flushed <= offset) {
+        Assert.state(this.flusher.isAlive(), "journal has been closed");
+        try {
+          this.flushMonitor.wait();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("interrupted while syncing the journal", ex);
+        }
+      }
+    }
+  }
+
+  /** Marks the record at the given offset as processed, so that it is no longer replayed. */
+  public void acknowledge(long offset) {
+    if (this.pending.remove(offset)) {
+      this.acknowledged.incrementAndGet();
+    }
+  }
+
+  /** Returns the number of records not acknowledged yet. */
+  public int getPendingCount() {
+    return this.pending.size();
+  }
+
+  /**
+   * Hands the records recovered when the journal was opened to the given consumer, together with
+   * their offsets. Replayed records stay pending until acknowledged.
+   */
+  public void replay(BiConsumer<Long, byte[]> consumer) {
+    List<Long> offsets;
+    synchronized (this.recovered) {
+      offsets = new ArrayList<>(this.recovered);
+      this.recovered.clear();
+    }
+    for (long offset : offsets) {
+      Segment segment = this.segments.floorEntry(offset).getValue();
+      int position = (int) (offset - segment.base);
+      byte[] record = new byte[segment.buffer.getInt(position)];
+      segment.buffer.get(position + HEADER_SIZE, record);
+      consumer.accept(offset, record);
+    }
+  }
+
+  @Override
+  public void close() {
+    this.writeLock.lock();
+    try {
+      this.running = false;
+    } finally {
+      this.writeLock.unlock();
+    }
+    synchronized (this.flushMonitor) {
+      this.flushMonitor.notifyAll();
+    }
+    try {
+      this.flusher.join(TimeUnit.SECONDS.toMillis(10));
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    // a segment still used by a flusher that failed to stop must stay mapped
+    boolean unmap = !this.flusher.isAlive();
+    try {
+      for (Segment segment : this.segments.values()) {
+        if (unmap) {
+          segment.close();
+        } else {
+          segment.channel.close();
+        }
+      }
+    } catch (IOException ex) {
+      this.log.warn("failed to close journal " + this.directory, ex);
+    }
+  }
+
+  private Segment recover() throws IOException {
+    List<Long> bases = new ArrayList<>();
+    try (Stream<Path> files = Files.list(this.directory)) {
+      files
+          .map(file -> file.getFileName().toString())
+          .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+          .forEach(name -> bases.add(Long.parseLong(name, 0, name.length() - 4, 10)));
+    }
+    bases.sort(null);
+    // checkpoint, horizon, then the offsets of the records pending before the horizon
+    Path checkpointFile = this.directory.resolve(CHECKPOINT_FILE);
+    ByteBuffer saved =
+        ByteBuffer.wrap(
+            Files.exists(checkpointFile) ? Files.readAllBytes(checkpointFile) : new byte[0]);
+    long checkpoint = bases.isEmpty() ? 0L : bases.get(0);
+    long horizon = checkpoint;
+    Set<Long> pendingBeforeHorizon = new HashSet<>();
+    if (saved.remaining() >= 2 * Long.BYTES + Integer.BYTES) {
+      checkpoint = saved.getLong();
+      horizon = saved.getLong();
+      for (int i = saved.getInt(); i > 0; i--) {
+        pendingBeforeHorizon.add(saved.getLong());
+      }
+    }
+    this.horizon = horizon;
+    if (bases.isEmpty()) {
+      this.written = checkpoint;
+      this.flushed = checkpoint;
+      return this.openSegment(checkpoint);
+    }
+    Segment segment = null;
+    long end = checkpoint;
+    for (long base : bases) {
+      if (base + this.segmentSize <= checkpoint && base != bases.get(bases.size() - 1)) {
+        Files.deleteIfExists(this.segmentFile(base));
+        continue;
+      }
+      segment = this.openSegment(base);
+      int position = (int) Math.max(checkpoint - base, 0);
+      while (position + HEADER_SIZE <= this.segmentSize) {
+        int length = segment.buffer.getInt(position);
+        if (length <= 0
+            || position + HEADER_SIZE + length > this.segmentSize
+            || !segment.isIntact(position, length)) {
+          break;
+        }
+        long offset = base + position;
+        if (offset >= horizon || pendingBeforeHorizon.contains(offset)) {
+          this.recovered.add(offset);
+          this.pending.add(offset);
+        }
+        position += HEADER_SIZE + length;
+      }
+      end = base + position;
+    }
+    segment.truncate((int) (end - segment.base));
+    this.written = end;
+    this.flushed = end;
+    if (!this.recovered.isEmpty()) {
+      this.log.info(
+          "recovered " + this.recovered.size() + " pending records from journal " + this.directory);
+    }
+    return segment;
+  }
+
+  private Segment openSegment(long base) throws IOException {
+    FileChannel channel =
+        FileChannel.open(
+            this.segmentFile(base),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    Segment segment =
+        new Segment(
+            base, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, this.segmentSize));
+    this.segments.put(base, segment);
+    return segment;
+  }
+
+  private Path segmentFile(long base) {
+    return this.directory.resolve(String.format("%020d", base) + SEGMENT_SUFFIX);
+  }
+
+  private void flush() {
+    long lastCheckpoint = System.nanoTime();
+    while (this.running || this.flushed < this.written) {
+      long target = this.written;
+      if (target == this.flushed) {
+        synchronized (this.flushMonitor) {
+          if (this.running && this.written == this.flushed) {
+            try {
+              this.flushMonitor.wait(TimeUnit.NANOSECONDS.toMillis(this.checkpointIntervalNanos));
+            } catch (InterruptedException ex) {
+              return;
+            }
+          }
+        }
+      } else {
+        long flushed = this.flushed;
+        Long from = this.segments.floorKey(flushed);
+        for (Segment segment :
+            this.segments
+                .subMap(from != null ? from : this.segments.firstKey(), true, target, false)
+                .values()) {
+          long start = Math.max(flushed, segment.base);
+          long end = Math.min(target, segment.base + this.segmentSize);
+          if (end > start) {
+            segment.buffer.force((int) (start - segment.base), (int) (end - start));
+          }
+        }
+        synchronized (this.flushMonitor) {
+          this.flushed = target;
+          this.flushMonitor.notifyAll();
+        }
+      }
+      if (System.nanoTime() - lastCheckpoint >= this.checkpointIntervalNanos) {
+        this.checkpoint();
+        lastCheckpoint = System.nanoTime();
+      }
+    }
+    this.checkpoint();
+    synchronized (this.flushMonitor) {
+      this.flushMonitor.notifyAll();
+    }
+  }
+
+  private void checkpoint() {
+    // read before the pending records, which are added before they are written
+    long flushed = this.flushed;
+    long acknowledged = this.acknowledged.get();
+    if (flushed == this.horizon && acknowledged == this.checkpointedAcks) {
+      return;
+    }
+    List<Long> pending = new ArrayList<>(this.pending.headSet(flushed));
+    long checkpoint = pending.isEmpty() ? flushed : pending.get(0);
+    ByteBuffer buffer =
+        ByteBuffer.allocate(2 * Long.BYTES + Integer.BYTES + pending.size() * Long.BYTES);
+    buffer.putLong(checkpoint).putLong(flushed).putInt(pending.size());
+    for (long offset : pending) {
+      buffer.putLong(offset);
+    }
+    buffer.flip();
+    try {
+      Path temp = this.directory.resolve(CHECKPOINT_TEMP_FILE);
+      try (FileChannel channel =
+          FileChannel.open(
+              temp,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING)) {
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        channel.force(false);
+      }
+      Files.move(
+          temp,
+          this.directory.resolve(CHECKPOINT_FILE),
+          StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      this.horizon = flushed;
+      this.checkpointedAcks = acknowledged;
+      for (Map.Entry<Long, Segment> entry : this.segments.headMap(checkpoint).entrySet()) {
+        Segment segment = entry.getValue();
+        if (segment.base + this.segmentSize <= checkpoint && segment != this.active) {
+          this.segments.remove(entry.getKey());
+          segment.close();
+          Files.deleteIfExists(this.segmentFile(segment.base));
+        }
+      }
+    } catch (IOException ex) {
+      this.log.warn("failed to checkpoint journal " + this.directory, ex);
+    }
+  }
+
+  private static final class Segment {
+
+    private final long base;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    Segment(long base, FileChannel channel, MappedByteBuffer buffer) {
+      this.base = base;
+      this.channel = channel;
+      this.buffer = buffer;
+    }
+
+    boolean isIntact(int position, int length) {
+      CRC32C crc = new CRC32C();
+      crc.update(this.buffer.slice(position + HEADER_SIZE, length));
+      return (int) crc.getValue() == this.buffer.getInt(position + 4);
+    }
+
+    /** Closes the file and unmaps it; the segment must not be accessed afterwards. */
+    void close() throws IOException {
+      this.channel.close();
+      unmap(this.buffer);
+    }
+
+    /** Marks the given position as the end of the segment, dropping a torn record if any. */
+    void truncate(int position) {
+      if (position + Integer.BYTES <= this.buffer.capacity() && this.buffer.getInt(position) != 0) {
+        this.buffer.putInt(position, 0);
+        this.buffer.force();
+      }
+    }
+  }
+
+  /**
+   * Releases the mapping right away instead of when the buffer is garbage collected, which keeps
+   * the address space and the deleted files of retired segments around until then.
+   */
+  private static void unmap(MappedByteBuffer buffer) {
+    if (UNMAPPER != null) {
+      try {
+        UNMAPPER.invokeExact((ByteBuffer) buffer);
+      } catch (Throwable ex) {
+        LogFactory.getLog(MessageJournal.class).debug("failed to unmap journal segment", ex);
+      }
+    }
+  }
+
+  private static @Nullable MethodHandle unmapper() {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field field = unsafeClass.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      return MethodHandles.lookup()
+          .findVirtual(
+              unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+          .bindTo(field.get(null));
+    } catch (ReflectiveOperationException | RuntimeException ex) {
+      LogFactory.getLog(MessageJournal.class)
+          .debug("journal segments will be unmapped when garbage collected", ex);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package zenny.toybox.springfield.messaging.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.jspecify.annotations.Nullable;
+import zenny.toybox.springfield.messaging.MessagePublisher;
+import zenny.toybox.springfield.messaging.journal.JournalingMessagePublisher;
+import zenny.toybox.springfield.messaging.support.CoalescingMessagePublisher;
+import zenny.toybox.springfield.messaging.support.PartitionedMessageExecutor;
+import zenny.toybox.springfield.messaging.support.PriorityMessageQueue;
+import zenny.toybox.springfield.messaging.support.RingBufferMessagePublisher;
+import zenny.toybox.springfield.messaging.support.VirtualThreadMessageExecutor;
+
+/**
+ * Binds gauges for the depth of the messaging executor queue: the queue of a pool executor, each
+ * lane of a partitioned executor, the tasks waiting for a permit of each channel of a virtual
+ * thread executor, or the backlog of a ring buffer publisher.
+ *
+ * <p>The lanes of a virtual thread executor are created per channel as messages arrive, so at most
+ * {@code maxChannels} of them get a gauge of their own; the tasks waiting in any further lane are
+ * summed under the {@value MicrometerMessagingObserver#OTHER_CHANNEL} channel tag.
+ */
+public class MessagingExecutorMetrics implements MeterBinder {
+
+  private final @Nullable Executor executor;
+  private final @Nullable MessagePublisher publisher;
+  private final int maxChannels;
+  private final Set<String> channels = ConcurrentHashMap.newKeySet();
+
+  public MessagingExecutorMetrics(
+      @Nullable Executor executor, @Nullable MessagePublisher publisher) {
+    this(executor, publisher, MicrometerMessagingObserver.DEFAULT_MAX_CHANNELS);
+  }
+
+  public MessagingExecutorMetrics(
+      @Nullable Executor executor, @Nullable MessagePublisher publisher, int maxChannels) {
+    this.executor = executor;
+    this.maxChannels = maxChannels;
+    while (true) {
+      if (publisher instanceof JournalingMessagePublisher journaling) {
+        publisher = journaling.getDelegate();
+      } else if (publisher instanceof CoalescingMessagePublisher coalescing) {
+        publisher = coalescing.getDelegate();
+      } else {
+        break;
+      }
+    }
+    this.publisher = publisher;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    String name = MicrometerMessagingObserver.PREFIX + ".queue.depth";
+    if (this.publisher instanceof RingBufferMessagePublisher ringBuffer) {
+      Gauge.builder(name, ringBuffer, RingBufferMessagePublisher::getBacklog)
+          .tag("executor", "ring-buffer")
+          .register(registry);
+    } else if (this.executor instanceof ThreadPoolExecutor pool) {
+      if (pool.getQueue() instanceof PriorityMessageQueue queue) {
+        for (int level = 0; level < queue.getLevelCount(); level++) {
+          int index = level;
+          Gauge.builder(name, queue, q -> q.size(index))
+              .tag("executor", "pool")
+              .tag("priority", Integer.toString(level))
+              .register(registry);
+        }
+      } else {
+        Gauge.builder(name, pool, p -> p.getQueue().size())
+            .tag("executor", "pool")
+            .register(registry);
+      }
+      Gauge.builder(
+              MicrometerMessagingObserver.PREFIX + ".executor.active",
+              pool,
+              p -> p.getActiveCount())
+          .tag("executor", "pool")
+          .register(registry);
+    } else if (this.executor instanceof PartitionedMessageExecutor partitioned) {
+      for (int lane = 0; lane < partitioned.getLaneCount(); lane++) {
+        int index = lane;
+        Gauge.builder(name, partitioned, p -> p.getQueueDepth(index))
+            .tag("executor", "partitioned")
+            .tag("lane", Integer.toString(lane))
+            .register(registry);
+      }
+    } else if (this.executor instanceof VirtualThreadMessageExecutor virtual) {
+      Gauge.builder(name, virtual, this::otherWaitingCount)
+          .tag("executor", "virtual")
+          .tag("channel", MicrometerMessagingObserver.OTHER_CHANNEL)
+          .register(registry);
+      virtual.setLaneListener(channel -> this.bindLane(registry, name, virtual, channel));
+      for (String channel : virtual.getChannels()) {
+        this.bindLane(registry, name, virtual, channel);
+      }
+    }
+  }
+
+  private void bindLane(
+      MeterRegistry registry, String name, VirtualThreadMessageExecutor executor, String channel) {
+    synchronized (this.channels) {
+      if (this.channels.size() >= this.maxChannels || !this.channels.add(channel)) {
+        return;
+      }
+    }
+    Gauge.builder(name, executor, e -> e.getWaitingCount(channel))
+        .tag("executor", "virtual")
+        .tag("channel", channel)
+        .register(registry);
+  }
+
+  private double otherWaitingCount(VirtualThreadMessageExecutor executor) {
+    int waiting = 0;
+    for (String channel : executor.getChannels()) {
+      if (!this.channels.contains(channel)) {
+        waiting += executor.getWaitingCount(channel);
+      }
+    }
+    return waiting;
+  }
+}
@@ -0,0 +1,170 @@
+package zenny.toybox.springfield.messaging.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.jspecify.annotations.Nullable;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageHandler;
+import zenny.toybox.springfield.messaging.support.MessagingObserver;
+
+/**
+ * A {@link MessagingObserver} recording Micrometer meters tagged by channel, and by consumer group
+ * for handler meters. Meters are looked up once per channel, handler or handler error and cached
+ * afterwards.
+ *
+ * <p>Channels are named by whoever publishes, so at most {@code maxChannels} of them get meters of
+ * their own; messages of any further channel are recorded under the {@value #OTHER_CHANNEL} channel
+ * tag.
+ */
+public class MicrometerMessagingObserver implements MessagingObserver {
+
+  public static final String PREFIX = "springfield.messaging";
+
+  /** The channel tag of the messages of channels over the limit. */
+  public static final String OTHER_CHANNEL = "other";
+
+  public static final int DEFAULT_MAX_CHANNELS = 100;
+
+  private final MeterRegistry registry;
+  private final int maxChannels;
+  private final Map<String, ChannelMeters> channels = new ConcurrentHashMap<>();
+  private final Map<MessageHandler, HandlerMeters> handlers = new ConcurrentHashMap<>();
+  private volatile @Nullable ChannelMeters other;
+
+  public MicrometerMessagingObserver(MeterRegistry registry) {
+    this(registry, DEFAULT_MAX_CHANNELS);
+  }
+
+  public MicrometerMessagingObserver(MeterRegistry registry, int maxChannels) {
+    this.registry = registry;
+    this.maxChannels = maxChannels;
+  }
+
+  @Override
+  public void published(Message<?> message) {
+    this.channel(message).published.increment();
+  }
+
+  @Override
+  public void dequeued(Message<?> message, long waitNanos) {
+    this.channel(message).queueWait.record(waitNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void dispatched(Message<?> message, long durationNanos, @Nullable Throwable failure) {
+    ChannelMeters meters = this.channel(message);
+    (failure == null ? meters.dispatched : meters.dispatchFailed)
+        .record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void handled(
+      MessageHandler handler, Message<?> message, long durationNanos, @Nullable Throwable failure) {
+    HandlerMeters meters = this.handler(handler);
+    meters.handled.record(durationNanos, TimeUnit.NANOSECONDS);
+    if (failure != null) {
+      meters.errors(failure.getClass()).increment();
+    }
+  }
+
+  @Override
+  public void skipped(MessageHandler handler, Message<?> message) {
+    this.handler(handler).skipped.increment();
+  }
+
+  private ChannelMeters channel(Message<?> message) {
+    ChannelMeters meters = this.channels.get(message.getChannel());
+    if (meters != null) {
+      return meters;
+    }
+    if (this.channels.size() >= this.maxChannels) {
+      return this.other();
+    }
+    return this.channels.computeIfAbsent(
+        message.getChannel(), channel -> new ChannelMeters(this.registry, channel));
+  }
+
+  private ChannelMeters other() {
+    ChannelMeters other = this.other;
+    if (other == null) {
+      other = new ChannelMeters(this.registry, OTHER_CHANNEL);
+      this.other = other;
+    }
+    return other;
+  }
+
+  private HandlerMeters handler(MessageHandler handler) {
+    HandlerMeters meters = this.handlers.get(handler);
+    return meters != null
+        ? meters
+        : this.handlers.computeIfAbsent(handler, h -> new HandlerMeters(this.registry, h));
+  }
+
+  private static final class ChannelMeters {
+
+    private final Counter published;
+    private final Timer queueWait;
+    private final Timer dispatched;
+    private final Timer dispatchFailed;
+
+    ChannelMeters(MeterRegistry registry, String channel) {
+      this.published =
+          Counter.builder(PREFIX + ".published").tag("channel", channel).register(registry);
+      this.queueWait =
+          Timer.builder(PREFIX + ".queue.wait").tag("channel", channel).register(registry);
+      this.dispatched =
+          Timer.builder(PREFIX + ".dispatch")
+              .tag("channel", channel)
+              .tag("outcome", "success")
+              .register(registry);
+      this.dispatchFailed =
+          Timer.builder(PREFIX + ".dispatch")
+              .tag("channel", channel)
+              .tag("outcome", "failure")
+              .register(registry);
+    }
+  }
+
+  private static final class HandlerMeters {
+
+    private final MeterRegistry registry;
+    private final MessageHandler handler;
+    private final Timer handled;
+    private final Counter skipped;
+    private final Map<Class<?>, Counter> errors = new ConcurrentHashMap<>();
+
+    HandlerMeters(MeterRegistry registry, MessageHandler handler) {
+      this.registry = registry;
+      this.handler = handler;
+      this.handled =
+          Timer.builder(PREFIX + ".handler")
+              .tag("channel", handler.getChannel())
+              .tag("group", handler.getGroup())
+              .publishPercentileHistogram()
+              .register(registry);
+      this.skipped =
+          Counter.builder(PREFIX + ".condition.skipped")
+              .tag("channel", handler.getChannel())
+              .tag("group", handler.getGroup())
+              .register(registry);
+    }
+
+    Counter errors(Class<?> exceptionType) {
+      Counter counter = this.errors.get(exceptionType);
+      return counter != null
+          ? counter
+          : this.errors.computeIfAbsent(
+              exceptionType,
+              type ->
+                  Counter.builder(PREFIX + ".handler.errors")
+                      .tag("channel", this.handler.getChannel())
+                      .tag("group", this.handler.getGroup())
+                      .tag("exception", type.getSimpleName())
+                      .register(this.registry));
+    }
+  }
+}
@@ -0,0 +1,4 @@
+@NullMarked
+package zenny.toybox.springfield.messaging.metrics;
+
+import org.jspecify.annotations.NullMarked;
@@ -0,0 +1,99 @@
+package zenny.toybox.springfield.messaging.support;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import org.jspecify.annotations.Nullable;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.ResolvableType;
+import zenny.toybox.springfield.messaging.BatchMessageHandler;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageListener;
+import zenny.toybox.springfield.util.Assert;
+
+public class BatchMessageListenerMethodAdapter extends MessageListenerMethodAdapter
+    implements BatchMessageHandler {
+
+  private final int batchSize;
+  private final long batchLingerMillis;
+  private final boolean messageElements;
+  private final @Nullable Class<?> payloadType;
+
+  public BatchMessageListenerMethodAdapter(
+      Object bean,
+      Method method,
+      MessageListener annotation,
+      ApplicationContext applicationContext,
+      MessageConditionEvaluator conditionEvaluator) {
+    super(bean, method, annotation, applicationContext, conditionEvaluator);
+    Assert.state(
+        method.getParameterCount() == 1
+            && method.getParameterTypes()[0].isAssignableFrom(List.class),
+        () -> "batch @MessageListener method must declare a single List parameter: " + method);
+    Assert.state(
+        annotation.batchSize() > 0,
+        () -> "batch @MessageListener batchSize must be positive: " + method);
+    this.batchSize = annotation.batchSize();
+    this.batchLingerMillis = Math.max(annotation.batchLingerMillis(), 0);
+    Class<?> elementType =
+        ResolvableType.forMethodParameter(method, 0).asCollection().resolveGeneric(0);
+    this.messageElements = elementType != null && Message.class.isAssignableFrom(elementType);
+    this.payloadType =
+        this.messageElements || elementType == null || elementType == Object.class
+            ? null
+            : elementType;
+  }
+
+  @Override
+  public int getBatchSize() {
+    return this.batchSize;
+  }
+
+  @Override
+  public long getBatchLingerMillis() {
+    return this.batchLingerMillis;
+  }
+
+  @Override
+  public void handle(Message<?> message) {
+    this.handleBatch(List.of(message));
+  }
+
+  @Override
+  public void handleBatch(List<Message<?>> messages) {
+    List<Object> elements = new ArrayList<>(messages.size());
+    for (Message<?> message : messages) {
+      if (this.passCondition(message)) {
+        elements.add(this.resolveElement(message));
+      } else {
+        this.conditionSkipped(message);
+      }
+    }
+    if (elements.isEmpty()) {
+      return;
+    }
+    if (this.log.isDebugEnabled()) {
+      this.log.debug(
+          "invoking batch handler channel="
+              + this.getChannel()
+              + " group="
+              + this.getGroup()
+              + " method="
+              + this.getMethod().getName()
+              + " size="
+              + elements.size());
+    }
+    this.invokeHandlerMethod(new Object[] {elements});
+  }
+
+  /**
+   * Resolves the list element of a message: the message itself, or its payload decoded through
+   * {@link Message#getPayload(Class)} into the element type of the list.
+   */
+  private Object resolveElement(Message<?> message) {
+    if (this.messageElements) {
+      return message;
+    }
+    return this.payloadType != null ? message.getPayload(this.payloadType) : message.getPayload();
+  }
+}
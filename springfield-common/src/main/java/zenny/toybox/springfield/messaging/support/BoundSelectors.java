@@ -0,0 +1,75 @@
+package zenny.toybox.springfield.messaging.support;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jspecify.annotations.Nullable;
+import zenny.toybox.springfield.messaging.DispatchStrategy;
+import zenny.toybox.springfield.messaging.HandlerSelector;
+import zenny.toybox.springfield.messaging.MessageHandler;
+
+/**
+ * The selectors a {@link DispatchStrategy} binds for the handler lists passed to {@link
+ * DispatchStrategy#select} directly, rather than through a selector bound up front.
+ *
+ * <p>Lists are told apart by identity, so looking one up does not hash its elements, and the
+ * selector of a list is dropped once the list is no longer referenced, so the groups replaced on
+ * every routing change do not pile up. Selectors must therefore not hold on to the list they are
+ * bound to.
+ */
+final class BoundSelectors {
+
+  private final Map<Key, HandlerSelector> selectors = new ConcurrentHashMap<>();
+  private final ReferenceQueue<List<MessageHandler>> cleared = new ReferenceQueue<>();
+
+  /** Returns the selector bound by the given strategy to the given list, binding it if needed. */
+  HandlerSelector get(DispatchStrategy strategy, List<MessageHandler> handlers) {
+    HandlerSelector selector = this.selectors.get(new Key(handlers, null));
+    if (selector != null) {
+      return selector;
+    }
+    this.purge();
+    return this.selectors.computeIfAbsent(
+        new Key(handlers, this.cleared), key -> strategy.bind(handlers));
+  }
+
+  private void purge() {
+    Reference<?> reference;
+    while ((reference = this.cleared.poll()) != null) {
+      this.selectors.remove(reference);
+    }
+  }
+
+  /** A weak reference to a handler list, equal to the references to the same list. */
+  private static final class Key extends WeakReference<List<MessageHandler>> {
+
+    private final int hash;
+
+    Key(
+        List<MessageHandler> handlers,
+        @Nullable ReferenceQueue<? super List<MessageHandler>> queue) {
+      super(handlers, queue);
+      this.hash = System.identityHashCode(handlers);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof Key key) || key.hash != this.hash) {
+        return false;
+      }
+      List<MessageHandler> handlers = this.get();
+      return handlers != null && handlers == key.get();
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+  }
+}
@@ -2,6 +2,7 @@ package zenny.toybox.springfield.messaging.support;
 
 import java.util.List;
 import zenny.toybox.springfield.messaging.DispatchStrategy;
+import zenny.toybox.springfield.messaging.HandlerSelector;
 import zenny.toybox.springfield.messaging.Message;
 import zenny.toybox.springfield.messaging.MessageHandler;
 
@@ -11,4 +12,9 @@ public class BroadcastDispatchStrategy implements DispatchStrategy {
   public List<MessageHandler> select(List<MessageHandler> handlers, Message<?> message) {
     return handlers;
   }
+
+  @Override
+  public HandlerSelector bind(List<MessageHandler> handlers) {
+    return message -> handlers;
+  }
 }
@@ -0,0 +1,483 @@
+package zenny.toybox.springfield.messaging.support;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jspecify.annotations.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.ErrorHandler;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessagePublisher;
+import zenny.toybox.springfield.util.Assert;
+
+/**
+ * A {@link MessagePublisher} holding back messages for a time window and merging those sharing a
+ * key, so that a burst of copies of the same event reaches the handlers once. Messages without a
+ * key are handed to the delegate right away.
+ *
+ * <p>The first message of a key opens its window, and the following ones replace it or are merged
+ * into it by the given merge function. Pending keys sit in a ring of time buckets, one bucket per
+ * tick of {@code window / buckets}, and a bucket is released as a whole once its window has
+ * elapsed. When {@code maxKeys} keys are pending, messages of new keys are not held back: {@link
+ * #tryPublish} rejects them and the other methods hand them to the delegate right away.
+ *
+ * <p>Released messages are handed over with {@link MessagePublisher#tryPublishAsync}, so a
+ * saturated delegate never blocks the releasing thread. A rejected message is kept pending, still
+ * merging the messages of its key, and released again on the next tick; a message the delegate
+ * throws on, or that cannot be merged with the messages of its key arrived meanwhile, is reported
+ * to the error handler. The released message acknowledges all the messages merged into it once
+ * acknowledged itself, and the futures of the merged messages fail when the delegate fails on it.
+ */
+public class CoalescingMessagePublisher implements MessagePublisher, AutoCloseable {
+
+  protected final Log log = LogFactory.getLog(this.getClass());
+
+  private final MessagePublisher delegate;
+  private final Function<Message<?>, @Nullable Object> keyExtractor;
+  private final @Nullable BinaryOperator<Message<?>> merger;
+  private final int maxKeys;
+  private final long tickNanos;
+  private final int windowTicks;
+  private final Bucket[] buckets;
+  private final Map<PendingKey, Pending> pending = new HashMap<>();
+  private final ArrayDeque<Pending> due = new ArrayDeque<>();
+  private final ScheduledExecutorService scheduler;
+  private final long origin = System.nanoTime();
+  private @Nullable ErrorHandler errorHandler;
+
+  public CoalescingMessagePublisher(
+      MessagePublisher delegate,
+      Function<Message<?>, @Nullable Object> keyExtractor,
+      Duration window,
+      int buckets,
+      int maxKeys) {
+    this(delegate, keyExtractor, null, window, buckets, maxKeys);
+  }
+
+  /**
+   * @param keyExtractor extracts the coalescing key of a message, or {@code null} not to coalesce
+   *     it; keys are scoped by channel
+   * @param merger merges a new message into the pending one, or {@code null} to keep the latest
+   * @param window how long messages are held back after the first one of their key
+   * @param buckets the number of time buckets the window is divided into
+   * @param maxKeys the maximum number of pending keys
+   */
+  public CoalescingMessagePublisher(
+      MessagePublisher delegate,
+      Function<Message<?>, @Nullable Object> keyExtractor,
+      @Nullable BinaryOperator<Message<?>> merger,
+      Duration window,
+      int buckets,
+      int maxKeys) {
+    Assert.isTrue(buckets > 0, "buckets must be positive");
+    Assert.isTrue(maxKeys > 0, "maxKeys must be positive");
+    Assert.isTrue(window.toNanos() >= buckets, "window is too short");
+    this.delegate = delegate;
+    this.keyExtractor = keyExtractor;
+    this.merger = merger;
+    this.maxKeys = maxKeys;
+    this.tickNanos = window.toNanos() / buckets;
+    this.windowTicks = buckets;
+    // one more bucket than the window spans, so that the current one has always been released
+    this.buckets = new Bucket[buckets + 1];
+    for (int i = 0; i < this.buckets.length; i++) {
+      this.buckets[i] = new Bucket();
+    }
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("messaging-coalesce-");
+    threadFactory.setDaemon(true);
+    this.scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+    this.scheduler.scheduleAtFixedRate(
+        this::releaseExpired, this.tickNanos, this.tickNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** Sets the handler of the released messages the delegate failed on; they are logged if none. */
+  public void setErrorHandler(@Nullable ErrorHandler errorHandler) {
+    this.errorHandler = errorHandler;
+  }
+
+  public MessagePublisher getDelegate() {
+    return this.delegate;
+  }
+
+  /** Returns the number of keys currently held back. */
+  public int getPendingCount() {
+    synchronized (this.pending) {
+      return this.pending.size();
+    }
+  }
+
+  @Override
+  public void publish(Message<?> message) {
+    Object key = this.keyExtractor.apply(message);
+    if (key == null || !this.hold(message, key, null)) {
+      this.delegate.publish(message);
+    }
+  }
+
+  @Override
+  public void publish(Message<?> message, Duration delay) {
+    this.delegate.publish(message, delay);
+  }
+
+  /**
+   * Holds the message back like {@link #publish(Message)}. The future is completed once the
+   * released message has been acknowledged, or exceptionally if the delegate failed on it or the
+   * publisher was closed before it could be released.
+   */
+  @Override
+  public CompletableFuture<Void> publishAsync(Message<?> message) {
+    Object key;
+    try {
+      key = this.keyExtractor.apply(message);
+    } catch (RuntimeException ex) {
+      return CompletableFuture.failedFuture(ex);
+    }
+    if (key == null) {
+      return this.delegate.publishAsync(message);
+    }
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    if (!this.hold(message, key, future)) {
+      return this.delegate.publishAsync(message);
+    }
+    return future;
+  }
+
+  /**
+   * Holds the message back like {@link #publish(Message)}, but rejects the message of a new key
+   * when {@code maxKeys} keys are pending.
+   */
+  @Override
+  public boolean tryPublish(Message<?> message) {
+    Object key = this.keyExtractor.apply(message);
+    if (key == null) {
+      return this.delegate.tryPublish(message);
+    }
+    return this.hold(message, key, null);
+  }
+
+  /**
+   * Holds the message back like {@link #publishAsync(Message)}, but rejects the message of a new
+   * key when {@code maxKeys} keys are pending.
+   */
+  @Override
+  public @Nullable CompletableFuture<Void> tryPublishAsync(Message<?> message) {
+    Object key = this.keyExtractor.apply(message);
+    if (key == null) {
+      return this.delegate.tryPublishAsync(message);
+    }
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    return this.hold(message, key, future) ? future : null;
+  }
+
+  /** Releases all pending messages right away, handing them to the delegate on the caller. */
+  public void flush() {
+    List<Pending> released = new ArrayList<>();
+    synchronized (this.pending) {
+      released.addAll(this.due);
+      this.due.clear();
+      for (Bucket bucket : this.buckets) {
+        released.addAll(bucket.entries);
+        bucket.entries = new ArrayList<>();
+      }
+      this.pending.clear();
+    }
+    for (Pending entry : released) {
+      Message<?> message = entry.toMessage();
+      try {
+        this.delegate.publish(message);
+      } catch (RuntimeException ex) {
+        this.failed(entry, message, ex);
+      }
+    }
+  }
+
+  /** Releases the pending messages, then closes the delegate if it is closeable. */
+  @Override
+  public void close() {
+    this.scheduler.shutdown();
+    try {
+      this.scheduler.awaitTermination(this.tickNanos, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    this.flush();
+    if (this.delegate instanceof AutoCloseable closeable) {
+      try {
+        closeable.close();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      } catch (Exception ex) {
+        this.log.warn("failed to close " + closeable, ex);
+      }
+    }
+  }
+
+  /**
+   * Holds the message back under its key.
+   *
+   * @return {@code false} if the message opens a new key while {@code maxKeys} keys are pending
+   */
+  private boolean hold(Message<?> message, Object key, @Nullable CompletableFuture<Void> future) {
+    PendingKey pendingKey = new PendingKey(message.getChannel(), key);
+    synchronized (this.pending) {
+      Pending existing = this.pending.get(pendingKey);
+      if (existing != null) {
+        existing.merge(message, future, this.merger);
+        return true;
+      }
+      if (this.pending.size() >= this.maxKeys) {
+        return false;
+      }
+      long tick = this.currentTick();
+      Bucket bucket = this.buckets[(int) (tick % this.buckets.length)];
+      if (bucket.tick != tick && !bucket.entries.isEmpty()) {
+        // the release lags behind, the entries of the previous round are overdue
+        this.due.addAll(bucket.entries);
+        bucket.entries = new ArrayList<>();
+      }
+      bucket.tick = tick;
+      Pending entry = new Pending(pendingKey, message, future);
+      bucket.entries.add(entry);
+      this.pending.put(pendingKey, entry);
+    }
+    return true;
+  }
+
+  private long currentTick() {
+    return (System.nanoTime() - this.origin) / this.tickNanos;
+  }
+
+  /**
+   * Hands the expired entries to the delegate, stopping at the first one it rejects; that one and
+   * the remaining ones stay pending until the next tick. Failures are logged rather than thrown, as
+   * they would cancel the periodic release.
+   */
+  private void releaseExpired() {
+    try {
+      this.doReleaseExpired();
+    } catch (Throwable ex) {
+      this.log.error("failed to release coalesced messages", ex);
+    }
+  }
+
+  private void doReleaseExpired() {
+    List<Pending> released = new ArrayList<>();
+    long tick = this.currentTick();
+    synchronized (this.pending) {
+      for (Bucket bucket : this.buckets) {
+        if (!bucket.entries.isEmpty() && bucket.tick + this.windowTicks <= tick) {
+          this.due.addAll(bucket.entries);
+          bucket.entries = new ArrayList<>();
+        }
+      }
+      released.addAll(this.due);
+      this.due.clear();
+      for (Pending entry : released) {
+        this.pending.remove(entry.key);
+      }
+    }
+    for (int i = 0; i < released.size(); i++) {
+      Pending entry = released.get(i);
+      Message<?> message = entry.toMessage();
+      CompletableFuture<Void> future;
+      try {
+        future = this.delegate.tryPublishAsync(message);
+      } catch (RuntimeException ex) {
+        this.failed(entry, message, ex);
+        continue;
+      }
+      if (future == null) {
+        this.requeue(released.subList(i, released.size()));
+        return;
+      }
+      if (!entry.futures.isEmpty()) {
+        // the delegate reported the failure itself, only the merged messages are left to fail
+        future.whenComplete(
+            (result, ex) -> {
+              if (ex != null) {
+                entry.fail(ex);
+              }
+            });
+      }
+    }
+  }
+
+  /** Puts rejected entries back, ahead of the entries due, merging what arrived for their keys. */
+  private void requeue(List<Pending> rejected) {
+    if (this.log.isDebugEnabled()) {
+      this.log.debug("delegate saturated, holding back " + rejected.size() + " coalesced messages");
+    }
+    List<Pending> requeued = new ArrayList<>(rejected.size());
+    Map<Pending, RuntimeException> unmerged = new LinkedHashMap<>();
+    synchronized (this.pending) {
+      Map<PendingKey, Pending> newer = new LinkedHashMap<>();
+      for (Pending entry : rejected) {
+        Pending later = this.pending.get(entry.key);
+        if (later != null) {
+          try {
+            entry.absorb(later, this.merger);
+          } catch (RuntimeException ex) {
+            // the later entry stays pending in its bucket
+            unmerged.put(entry, ex);
+            continue;
+          }
+          newer.put(entry.key, later);
+        }
+        this.pending.put(entry.key, entry);
+        requeued.add(entry);
+      }
+      if (!newer.isEmpty()) {
+        for (Bucket bucket : this.buckets) {
+          bucket.entries.removeIf(entry -> newer.get(entry.key) == entry);
+        }
+        this.due.removeIf(entry -> newer.get(entry.key) == entry);
+      }
+      for (int i = requeued.size() - 1; i >= 0; i--) {
+        this.due.addFirst(requeued.get(i));
+      }
+    }
+    unmerged.forEach((entry, ex) -> this.failed(entry, entry.current, ex));
+  }
+
+  private void failed(Pending entry, Message<?> message, RuntimeException ex) {
+    if (this.errorHandler != null) {
+      this.errorHandler.handleError(ex);
+    } else {
+      this.log.error("failed to publish coalesced message channel=" + message.getChannel(), ex);
+    }
+    entry.fail(ex);
+  }
+
+  private record PendingKey(String channel, Object key) {}
+
+  private static final class Bucket {
+
+    private long tick = -1;
+    private List<Pending> entries = new ArrayList<>();
+  }
+
+  private static final class Pending {
+
+    private final PendingKey key;
+    private final List<Message<?>> merged = new ArrayList<>(2);
+    private final List<CompletableFuture<Void>> futures = new ArrayList<>(0);
+    private Message<?> current;
+
+    Pending(PendingKey key, Message<?> message, @Nullable CompletableFuture<Void> future) {
+      this.key = key;
+      this.current = message;
+      this.merged.add(message);
+      if (future != null) {
+        this.futures.add(future);
+      }
+    }
+
+    void merge(
+        Message<?> message,
+        @Nullable CompletableFuture<Void> future,
+        @Nullable BinaryOperator<Message<?>> merger) {
+      this.current = merger != null ? merger.apply(this.current, message) : message;
+      this.merged.add(message);
+      if (future != null) {
+        this.futures.add(future);
+      }
+    }
+
+    /** Merges the messages of a later entry of the same key into this one. */
+    void absorb(Pending later, @Nullable BinaryOperator<Message<?>> merger) {
+      this.current = merger != null ? merger.apply(this.current, later.current) : later.current;
+      this.merged.addAll(later.merged);
+      this.futures.addAll(later.futures);
+    }
+
+    void fail(Throwable ex) {
+      for (CompletableFuture<Void> future : this.futures) {
+        future.completeExceptionally(ex);
+      }
+    }
+
+    Message<?> toMessage() {
+      if (this.merged.size() == 1 && this.futures.isEmpty()) {
+        return this.current;
+      }
+      List<Message<?>> merged = List.copyOf(this.merged);
+      List<CompletableFuture<Void>> futures = List.copyOf(this.futures);
+      return GenericMessage.from(
+          this.current,
+          this.current.getChannel(),
+          this.current.getHeaders(),
+          () -> {
+            RuntimeException failure = null;
+            for (Message<?> message : merged) {
+              try {
+                message.acknowledge();
+              } catch (RuntimeException ex) {
+                failure = failure != null ? failure : ex;
+              }
+            }
+            if (failure != null) {
+              for (CompletableFuture<Void> future : futures) {
+                future.completeExceptionally(failure);
+              }
+              throw failure;
+            }
+            for (CompletableFuture<Void> future : futures) {
+              future.complete(null);
+            }
+          });
+    }
+  }
+
+  /** The merge functions that can be configured by name. */
+  public enum Merge implements BinaryOperator<Message<?>> {
+
+    /** Keeps the latest message of the key. */
+    LATEST {
+
+      @Override
+      public Message<?> apply(Message<?> pending, Message<?> next) {
+        return next;
+      }
+    },
+
+    /** Keeps the first message of the key. */
+    FIRST {
+
+      @Override
+      public Message<?> apply(Message<?> pending, Message<?> next) {
+        return pending;
+      }
+    },
+
+    /**
+     * Keeps the payload of the latest message, with the headers of all of them, the latest winning.
+     */
+    HEADERS {
+
+      @Override
+      public Message<?> apply(Message<?> pending, Message<?> next) {
+        Map<String, Object> headers = new LinkedHashMap<>(pending.getHeaders());
+        headers.putAll(next.getHeaders());
+        return withHeaders(next, headers);
+      }
+    };
+
+    private static <T> Message<T> withHeaders(Message<T> message, Map<String, Object> headers) {
+      // the released message acknowledges the merged ones itself
+      return GenericMessage.from(message, message.getChannel(), headers, null);
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package zenny.toybox.springfield.messaging.support;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import org.jspecify.annotations.Nullable;
+import zenny.toybox.springfield.messaging.DispatchStrategy;
+import zenny.toybox.springfield.messaging.HandlerSelector;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageHandler;
+import zenny.toybox.springfield.util.Assert;
+import zenny.toybox.springfield.util.algorithm.Hashing;
+
+/**
+ * A {@link DispatchStrategy} selecting the handler of a group by consistent hashing of a message
+ * key, so that messages sharing a key keep landing on the same handler instance. Each handler is
+ * placed on the hash ring at a number of virtual nodes to even out the distribution.
+ *
+ * <p>The virtual nodes of a handler are derived from an identity that survives restarts: the bean
+ * class and method signature of listener methods, the class, channel and group of other handlers.
+ * Handlers sharing an identity within a group are told apart by their order in the group.
+ *
+ * <p>Messages without a key are dispatched to a random handler.
+ */
+public class ConsistentHashDispatchStrategy implements DispatchStrategy {
+
+  public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+  private final Function<Message<?>, @Nullable Object> keyExtractor;
+  private final Hashing hashing;
+  private final int virtualNodes;
+  private final BoundSelectors rings = new BoundSelectors();
+
+  public ConsistentHashDispatchStrategy(Function<Message<?>, @Nullable Object> keyExtractor) {
+    this(keyExtractor, Hashing.MURMURHASH3, DEFAULT_VIRTUAL_NODES);
+  }
+
+  public ConsistentHashDispatchStrategy(
+      Function<Message<?>, @Nullable Object> keyExtractor, Hashing hashing, int virtualNodes) {
+    Assert.notNull(keyExtractor, "keyExtractor must not be null");
+    Assert.notNull(hashing, "hashing must not be null");
+    Assert.isTrue(virtualNodes > 0, "virtualNodes must be positive");
+    this.keyExtractor = keyExtractor;
+    this.hashing = hashing;
+    this.virtualNodes = virtualNodes;
+  }
+
+  public static ConsistentHashDispatchStrategy byHeader(String header) {
+    return new ConsistentHashDispatchStrategy(message -> message.getHeaders().get(header));
+  }
+
+  public static ConsistentHashDispatchStrategy byPayloadProperty(String propertyPath) {
+    PayloadPropertyAccessor accessor = new PayloadPropertyAccessor(propertyPath);
+    return new ConsistentHashDispatchStrategy(message -> accessor.getValue(message.getPayload()));
+  }
+
+  @Override
+  public List<MessageHandler> select(List<MessageHandler> handlers, Message<?> message) {
+    if (handlers.size() <= 1) {
+      return handlers;
+    }
+    return this.rings.get(this, handlers).select(message);
+  }
+
+  @Override
+  public HandlerSelector bind(List<MessageHandler> handlers) {
+    if (handlers.size() <= 1) {
+      return message -> handlers;
+    }
+    return new Ring(handlers);
+  }
+
+  private static String identity(MessageHandler handler) {
+    if (handler instanceof MessageListenerMethodAdapter adapter) {
+      return adapter.getIdentity();
+    }
+    return handler.getClass().getName()
+        + '['
+        + handler.getChannel()
+        + ','
+        + handler.getGroup()
+        + ']';
+  }
+
+  /**
+   * Applies the MurmurHash3 finalization step, so that similar keys and virtual node names are
+   * scattered over the whole ring even with hashings that do not avalanche on their own.
+   */
+  private static int spread(int hash) {
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+
+  private final class Ring implements HandlerSelector {
+
+    private final List<MessageHandler>[] selections;
+    private final int[] hashes;
+    private final List<MessageHandler>[] nodes;
+
+    @SuppressWarnings("unchecked")
+    Ring(List<MessageHandler> handlers) {
+      Hashing hashing = ConsistentHashDispatchStrategy.this.hashing;
+      int virtualNodes = ConsistentHashDispatchStrategy.this.virtualNodes;
+      int size = handlers.size() * virtualNodes;
+      long[] points = new long[size];
+      Map<String, Integer> occurrences = new HashMap<>();
+      for (int h = 0; h < handlers.size(); h++) {
+        String identity = identity(handlers.get(h));
+        int occurrence = occurrences.merge(identity, 1, Integer::sum) - 1;
+        if (occurrence > 0) {
+          identity = identity + '~' + occurrence;
+        }
+        for (int v = 0; v < virtualNodes; v++) {
+          int hash = spread(hashing.hash(identity + '#' + v));
+          // sort by hash first, keeping the handler index in the low bits
+          points[h * virtualNodes + v] = ((long) hash << 32) | h;
+        }
+      }
+      Arrays.sort(points);
+      this.selections = Selections.singletons(handlers);
+      this.hashes = new int[size];
+      this.nodes = (List<MessageHandler>[]) new List<?>[size];
+      for (int i = 0; i < size; i++) {
+        this.hashes[i] = (int) (points[i] >> 32);
+        this.nodes[i] = this.selections[(int) points[i]];
+      }
+    }
+
+    @Override
+    public List<MessageHandler> select(Message<?> message) {
+      Object key = ConsistentHashDispatchStrategy.this.keyExtractor.apply(message);
+      if (key == null) {
+        return this.selections[ThreadLocalRandom.current().nextInt(this.selections.length)];
+      }
+      int hash = spread(ConsistentHashDispatchStrategy.this.hashing.hash(key));
+      int index = Arrays.binarySearch(this.hashes, hash);
+      if (index < 0) {
+        index = -index - 1;
+        if (index == this.hashes.length) {
+          index = 0;
+        }
+      }
+      return this.nodes[index];
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package zenny.toybox.springfield.messaging.support;
+
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import zenny.toybox.springfield.messaging.PayloadCodec;
+
+/** A {@link PayloadCodec} delegating to a {@link ConversionService}. */
+public class ConversionServicePayloadCodec implements PayloadCodec {
+
+  private final ConversionService conversionService;
+
+  public ConversionServicePayloadCodec() {
+    this(DefaultConversionService.getSharedInstance());
+  }
+
+  public ConversionServicePayloadCodec(ConversionService conversionService) {
+    this.conversionService = conversionService;
+  }
+
+  @Override
+  public <T> T decode(Object payload, Class<T> type) {
+    T decoded;
+    try {
+      decoded = this.conversionService.convert(payload, type);
+    } catch (ConversionException ex) {
+      throw new IllegalArgumentException(
+          "cannot decode payload of type " + payload.getClass().getName() + " as " + type.getName(),
+          ex);
+    }
+    if (decoded == null) {
+      throw new IllegalArgumentException("payload decoded as null: " + type.getName());
+    }
+    return decoded;
+  }
+}
@@ -1,41 +1,288 @@
 package zenny.toybox.springfield.messaging.support;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.jspecify.annotations.Nullable;
+import zenny.toybox.springfield.messaging.BatchMessageHandler;
+import zenny.toybox.springfield.messaging.DispatchCallback;
 import zenny.toybox.springfield.messaging.DispatchStrategy;
+import zenny.toybox.springfield.messaging.HandlerSelector;
 import zenny.toybox.springfield.messaging.Message;
 import zenny.toybox.springfield.messaging.MessageDispatcher;
 import zenny.toybox.springfield.messaging.MessageHandler;
 import zenny.toybox.springfield.messaging.MessageHandlerRegistry;
+import zenny.toybox.springfield.messaging.RoutingTable;
 
 public class DefaultMessageDispatcher implements MessageDispatcher {
 
+  private static final Route NO_ROUTE =
+      new Route(new RoutingTable.Group[0], new HandlerSelector[0]);
+
   protected final Log log = LogFactory.getLog(this.getClass());
 
   private final MessageHandlerRegistry registry;
   private final DispatchStrategy strategy;
+  private final MessageBatcher batcher;
+  private final @Nullable Executor groupExecutor;
+  private @Nullable MessagingObserver observer;
+  private volatile Bindings bindings = new Bindings(RoutingTable.empty(), null);
 
   public DefaultMessageDispatcher(MessageHandlerRegistry registry, DispatchStrategy strategy) {
+    this(registry, strategy, new MessageBatcher());
+  }
+
+  public DefaultMessageDispatcher(
+      MessageHandlerRegistry registry, DispatchStrategy strategy, MessageBatcher batcher) {
+    this(registry, strategy, batcher, null);
+  }
+
+  /**
+   * Creates a dispatcher running the consumer groups of a channel in parallel when a group executor
+   * is given: every group but the first is dispatched on the group executor, and a message is only
+   * acknowledged after all of its groups completed. Groups then no longer run on the thread of the
+   * business executor, so no group executor must be given when that executor orders messages, as
+   * {@link PartitionedMessageExecutor} does per key.
+   */
+  public DefaultMessageDispatcher(
+      MessageHandlerRegistry registry,
+      DispatchStrategy strategy,
+      MessageBatcher batcher,
+      @Nullable Executor groupExecutor) {
     this.registry = registry;
     this.strategy = strategy;
+    this.batcher = batcher;
+    this.groupExecutor = groupExecutor;
   }
 
+  public void setObserver(@Nullable MessagingObserver observer) {
+    this.observer = MessagingObserver.nullIfNoop(observer);
+  }
+
+  /**
+   * Dispatches the message to the groups of its channel and returns once they handled it,
+   * rethrowing the first failure, also when groups run in parallel on the group executor. Batch
+   * handlers are not waited for: their failures are logged.
+   */
   @Override
   public void dispatch(Message<?> message) {
-    Map<String, List<MessageHandler>> groups =
-        this.registry.getHandlerMap().get(message.getChannel());
-    if (groups == null || groups.isEmpty()) {
+    Route route = this.getRoute(message.getChannel());
+    HandlerSelector[] selectors = route.selectors;
+    if (this.groupExecutor != null && selectors.length > 1) {
+      this.dispatchInParallelAndWait(route, message);
+      return;
+    }
+    for (HandlerSelector selector : selectors) {
+      List<MessageHandler> selected = selector.select(message);
+      for (int i = 0; i < selected.size(); i++) {
+        MessageHandler handler = selected.get(i);
+        if (handler instanceof BatchMessageHandler batchHandler) {
+          this.batcher.add(batchHandler, message, this.failureLogger(message));
+        } else {
+          this.doDispatch(handler, message);
+        }
+      }
+    }
+  }
+
+  /**
+   * Dispatches the message to the groups of its channel, or only to those named by the {@link
+   * RetryPolicy#GROUPS_HEADER} header of a redelivered message. On failure, the callback is told
+   * the groups that failed, along with those that were not reached.
+   */
+  @Override
+  public void dispatch(Message<?> message, DispatchCallback callback) {
+    DispatchCompletion completion = null;
+    Route route = NO_ROUTE;
+    Set<?> only = null;
+    int group = 0;
+    try {
+      route = this.getRoute(message.getChannel());
+      only = getRedeliveredGroups(message);
+      if (this.groupExecutor != null && route.selectors.length > 1) {
+        this.dispatchInParallel(route, only, message, callback, null);
+        return;
+      }
+      for (; group < route.selectors.length; group++) {
+        String name = route.groups[group].getName();
+        if (only != null && !only.contains(name)) {
+          continue;
+        }
+        List<MessageHandler> selected = route.selectors[group].select(message);
+        for (int i = 0; i < selected.size(); i++) {
+          MessageHandler handler = selected.get(i);
+          if (handler instanceof BatchMessageHandler batchHandler) {
+            completion = completion != null ? completion : new DispatchCompletion(callback, 1);
+            this.batcher.add(batchHandler, message, completion.retain(name));
+          } else {
+            this.doDispatch(handler, message);
+          }
+        }
+      }
+    } catch (Throwable ex) {
+      DispatchCallback target = completion != null ? completion : callback;
+      target.onFailure(ex, route.getNames(group, only));
       return;
     }
-    for (Map.Entry<String, List<MessageHandler>> entry : groups.entrySet()) {
-      List<MessageHandler> handlers = entry.getValue();
-      List<MessageHandler> selected = this.strategy.select(handlers, message);
-      for (MessageHandler handler : selected) {
-        this.doDispatch(handler, message);
+    if (completion != null) {
+      completion.onComplete();
+    } else {
+      callback.onComplete();
+    }
+  }
+
+  private void dispatchInParallelAndWait(Route route, Message<?> message) {
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    this.dispatchInParallel(
+        route,
+        null,
+        message,
+        new DispatchCallback() {
+
+          @Override
+          public void onComplete() {
+            done.complete(null);
+          }
+
+          @Override
+          public void onFailure(Throwable ex) {
+            done.completeExceptionally(ex);
+          }
+        },
+        this.failureLogger(message));
+    try {
+      done.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(
+          "interrupted while dispatching message channel=" + message.getChannel(), ex);
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      if (cause instanceof Error error) {
+        throw error;
+      }
+      throw new IllegalStateException(
+          "failed to dispatch message channel=" + message.getChannel(), cause);
+    }
+  }
+
+  /**
+   * Hands every group but the first to the group executor and dispatches the first one on the
+   * calling thread, skipping the groups not in {@code only} if given. Each group completes one part
+   * of the dispatch, after its batch handlers completed unless a separate {@code batchCallback} is
+   * given.
+   */
+  private void dispatchInParallel(
+      Route route,
+      @Nullable Set<?> only,
+      Message<?> message,
+      DispatchCallback callback,
+      @Nullable DispatchCallback batchCallback) {
+    int parts = 0;
+    int first = -1;
+    for (int i = 0; i < route.groups.length; i++) {
+      if (only == null || only.contains(route.groups[i].getName())) {
+        parts++;
+        first = first < 0 ? i : first;
+      }
+    }
+    if (parts == 0) {
+      callback.onComplete();
+      return;
+    }
+    DispatchCompletion completion = new DispatchCompletion(callback, parts);
+    for (int i = first + 1; i < route.groups.length; i++) {
+      if (only != null && !only.contains(route.groups[i].getName())) {
+        continue;
+      }
+      int group = i;
+      try {
+        this.groupExecutor.execute(
+            () -> this.dispatchGroup(route, group, message, completion, batchCallback));
+      } catch (RejectedExecutionException ex) {
+        this.dispatchGroup(route, group, message, completion, batchCallback);
+      }
+    }
+    this.dispatchGroup(route, first, message, completion, batchCallback);
+  }
+
+  private void dispatchGroup(
+      Route route,
+      int group,
+      Message<?> message,
+      DispatchCompletion completion,
+      @Nullable DispatchCallback batchCallback) {
+    String name = route.groups[group].getName();
+    try {
+      List<MessageHandler> selected = route.selectors[group].select(message);
+      for (int i = 0; i < selected.size(); i++) {
+        MessageHandler handler = selected.get(i);
+        if (handler instanceof BatchMessageHandler batchHandler) {
+          this.batcher.add(
+              batchHandler,
+              message,
+              batchCallback != null ? batchCallback : completion.retain(name));
+        } else {
+          this.doDispatch(handler, message);
+        }
       }
+    } catch (Throwable ex) {
+      completion.onFailure(ex, Set.of(name));
+      return;
     }
+    completion.onComplete();
+  }
+
+  /**
+   * Returns the selectors bound to the groups of the given channel, rebinding all groups whenever
+   * the registry has published a new routing table.
+   */
+  protected HandlerSelector[] getSelectors(String channel) {
+    return this.getRoute(channel).selectors;
+  }
+
+  private Route getRoute(String channel) {
+    RoutingTable table = this.registry.getRoutingTable();
+    Bindings bindings = this.bindings;
+    if (bindings.table != table) {
+      bindings = new Bindings(table, this.strategy);
+      this.bindings = bindings;
+    }
+    return bindings.get(channel, this.strategy);
+  }
+
+  /** Returns the groups a redelivered message is limited to, or {@code null} for all groups. */
+  private static @Nullable Set<?> getRedeliveredGroups(Message<?> message) {
+    return message.getHeaders().get(RetryPolicy.GROUPS_HEADER) instanceof Set<?> groups
+        ? groups
+        : null;
+  }
+
+  /** Returns a callback logging the failure of a dispatch nobody waits for. */
+  private DispatchCallback failureLogger(Message<?> message) {
+    String channel = message.getChannel();
+    return new DispatchCallback() {
+
+      @Override
+      public void onComplete() {}
+
+      @Override
+      public void onFailure(Throwable ex) {
+        DefaultMessageDispatcher.this.log.error(
+            "failed to dispatch message channel=" + channel, ex);
+      }
+    };
   }
 
   protected void doDispatch(MessageHandler handler, Message<?> message) {
@@ -48,6 +295,85 @@ public class DefaultMessageDispatcher implements MessageDispatcher {
               + " handler={}"
               + handler.getClass().getSimpleName());
     }
-    handler.handle(message);
+    MessagingObserver observer = this.observer;
+    if (observer == null) {
+      handler.handle(message);
+      return;
+    }
+    long start = System.nanoTime();
+    try {
+      handler.handle(message);
+    } catch (RuntimeException | Error ex) {
+      observer.handled(handler, message, System.nanoTime() - start, ex);
+      throw ex;
+    }
+    observer.handled(handler, message, System.nanoTime() - start, null);
+  }
+
+  /**
+   * The selectors bound to a routing table. Subscribed channels are bound up front, and channels
+   * only matched by patterns are bound on first use. Selectors are keyed by the groups the table
+   * resolves a channel to, which channels matching the same subscriptions share, so the number of
+   * bindings is bounded by the subscriptions rather than by the channels, and a group keeps its
+   * selector, and thus its rotation or hash ring, for every channel it receives.
+   */
+  private static final class Bindings {
+
+    private final RoutingTable table;
+    private final Map<String, Route> channels = new ConcurrentHashMap<>();
+    private final Map<RoutingTable.Group[], Route> groups = new ConcurrentHashMap<>();
+
+    Bindings(RoutingTable table, @Nullable DispatchStrategy strategy) {
+      this.table = table;
+      if (strategy == null) {
+        return;
+      }
+      for (String channel : table.getChannels()) {
+        if (!RoutingTable.isPattern(channel)) {
+          this.channels.put(channel, this.get(channel, strategy));
+        }
+      }
+    }
+
+    Route get(String channel, DispatchStrategy strategy) {
+      Route route = this.channels.get(channel);
+      if (route != null) {
+        return route;
+      }
+      RoutingTable.Group[] groups = this.table.getGroups(channel);
+      if (groups.length == 0) {
+        return NO_ROUTE;
+      }
+      route = this.groups.get(groups);
+      return route != null
+          ? route
+          : this.groups.computeIfAbsent(groups, key -> bind(key, strategy));
+    }
+
+    private static Route bind(RoutingTable.Group[] groups, DispatchStrategy strategy) {
+      HandlerSelector[] bound = new HandlerSelector[groups.length];
+      for (int i = 0; i < groups.length; i++) {
+        bound[i] = strategy.bind(groups[i].getHandlers());
+      }
+      return new Route(groups, bound);
+    }
+  }
+
+  /** The groups of a channel, along with the selectors bound to them, in the same order. */
+  private record Route(RoutingTable.Group[] groups, HandlerSelector[] selectors) {
+
+    /**
+     * Returns the names of the groups from the given index on, limited to {@code only} if given.
+     */
+    Set<String> getNames(int from, @Nullable Set<?> only) {
+      Set<String> names = new HashSet<>();
+      for (int i = from; i < this.groups.length; i++) {
+        String name = this.groups[i].getName();
+        if (only == null || only.contains(name)) {
+          names.add(name);
+        }
+      }
+      return names;
+    }
   }
 }
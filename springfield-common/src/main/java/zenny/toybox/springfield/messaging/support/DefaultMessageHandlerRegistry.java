@@ -1,26 +1,35 @@
 package zenny.toybox.springfield.messaging.support;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import zenny.toybox.springfield.messaging.MessageHandler;
 import zenny.toybox.springfield.messaging.MessageHandlerRegistry;
+import zenny.toybox.springfield.messaging.RoutingTable;
 
 public class DefaultMessageHandlerRegistry implements MessageHandlerRegistry {
 
-  private final Map<String, Map<String, List<MessageHandler>>> handlerMap = new HashMap<>();
+  private final Map<String, Map<String, List<MessageHandler>>> handlerMap = new LinkedHashMap<>();
+
+  private volatile RoutingTable routingTable = RoutingTable.empty();
 
   @Override
-  public void register(MessageHandler handler) {
+  public synchronized void register(MessageHandler handler) {
     this.handlerMap
-        .computeIfAbsent(handler.getChannel(), k -> new HashMap<>())
+        .computeIfAbsent(handler.getChannel(), k -> new LinkedHashMap<>())
         .computeIfAbsent(handler.getGroup(), k -> new ArrayList<>())
         .add(handler);
+    this.routingTable = RoutingTable.of(this.handlerMap);
   }
 
   @Override
   public Map<String, Map<String, List<MessageHandler>>> getHandlerMap() {
-    return Map.copyOf(this.handlerMap);
+    return this.routingTable.toHandlerMap();
+  }
+
+  @Override
+  public RoutingTable getRoutingTable() {
+    return this.routingTable;
   }
 }
@@ -1,6 +1,7 @@
 package zenny.toybox.springfield.messaging.support;
 
 import java.lang.reflect.Method;
+import org.jspecify.annotations.Nullable;
 import org.springframework.context.ApplicationContext;
 import zenny.toybox.springfield.messaging.MessageHandler;
 import zenny.toybox.springfield.messaging.MessageListener;
@@ -9,14 +10,33 @@ import zenny.toybox.springfield.messaging.MessageListenerFactory;
 public class DefaultMessageListenerFactory implements MessageListenerFactory {
 
   private final ApplicationContext applicationContext;
+  private final MessageConditionEvaluator conditionEvaluator;
+  private @Nullable MessagingObserver observer;
 
   public DefaultMessageListenerFactory(ApplicationContext applicationContext) {
+    this(applicationContext, new MessageConditionEvaluator());
+  }
+
+  public DefaultMessageListenerFactory(
+      ApplicationContext applicationContext, MessageConditionEvaluator conditionEvaluator) {
     this.applicationContext = applicationContext;
+    this.conditionEvaluator = conditionEvaluator;
+  }
+
+  public void setObserver(@Nullable MessagingObserver observer) {
+    this.observer = observer;
   }
 
   @Override
   public MessageHandler createMessageHandler(
       Object bean, Method method, MessageListener annotation) {
-    return new MessageListenerMethodAdapter(bean, method, annotation, this.applicationContext);
+    MessageListenerMethodAdapter adapter =
+        (annotation.batchSize() > 0)
+            ? new BatchMessageListenerMethodAdapter(
+                bean, method, annotation, this.applicationContext, this.conditionEvaluator)
+            : new MessageListenerMethodAdapter(
+                bean, method, annotation, this.applicationContext, this.conditionEvaluator);
+    adapter.setObserver(this.observer);
+    return adapter;
   }
 }
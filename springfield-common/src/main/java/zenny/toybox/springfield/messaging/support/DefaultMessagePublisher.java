@@ -1,13 +1,20 @@
 package zenny.toybox.springfield.messaging.support;
 
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.jspecify.annotations.Nullable;
 import org.springframework.util.ErrorHandler;
+import zenny.toybox.springfield.messaging.DispatchCallback;
 import zenny.toybox.springfield.messaging.Message;
 import zenny.toybox.springfield.messaging.MessageDispatcher;
 import zenny.toybox.springfield.messaging.MessagePublisher;
+import zenny.toybox.springfield.util.concurrent.HierarchicalTimingWheel;
 
 public class DefaultMessagePublisher implements MessagePublisher {
 
@@ -16,6 +23,9 @@ public class DefaultMessagePublisher implements MessagePublisher {
   private final MessageDispatcher dispatcher;
   private final @Nullable Executor executor;
   private final @Nullable ErrorHandler errorHandler;
+  private @Nullable MessagingObserver observer;
+  private @Nullable HierarchicalTimingWheel timer;
+  private @Nullable RetryPolicy retryPolicy;
 
   public DefaultMessagePublisher(
       MessageDispatcher dispatcher,
@@ -26,16 +36,102 @@ public class DefaultMessagePublisher implements MessagePublisher {
     this.errorHandler = errorHandler;
   }
 
+  public void setObserver(@Nullable MessagingObserver observer) {
+    this.observer = MessagingObserver.nullIfNoop(observer);
+  }
+
+  /** Sets the timer backing delayed publishing and redelivery. */
+  public void setTimer(@Nullable HierarchicalTimingWheel timer) {
+    this.timer = timer;
+  }
+
+  /** Sets the policy redelivering failed messages; redelivery also requires a timer. */
+  public void setRetryPolicy(@Nullable RetryPolicy retryPolicy) {
+    this.retryPolicy = retryPolicy;
+  }
+
   @Override
   public void publish(Message<?> message) {
-    if (this.executor != null) {
-      this.executor.execute(() -> this.invokeDispatcher(message));
-    } else {
-      this.invokeDispatcher(message);
+    this.doPublish(message, null, false);
+  }
+
+  @Override
+  public void publish(Message<?> message, Duration delay) {
+    if (this.timer == null) {
+      MessagePublisher.super.publish(message, delay);
+      return;
+    }
+    this.timer.schedule(
+        () -> this.republish(message, null), delay.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public CompletableFuture<Void> publishAsync(Message<?> message) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    try {
+      this.doPublish(message, future, false);
+    } catch (RuntimeException ex) {
+      future.completeExceptionally(ex);
+    }
+    return future;
+  }
+
+  @Override
+  public boolean tryPublish(Message<?> message) {
+    return this.doPublish(message, null, true);
+  }
+
+  @Override
+  public @Nullable CompletableFuture<Void> tryPublishAsync(Message<?> message) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    try {
+      if (!this.doPublish(message, future, true)) {
+        return null;
+      }
+    } catch (RuntimeException ex) {
+      future.completeExceptionally(ex);
+    }
+    return future;
+  }
+
+  /**
+   * Hands the message over for dispatching.
+   *
+   * @param future completed once the message has been acknowledged or has failed, if any
+   * @param failFast whether to reject the message instead of waiting when saturated
+   * @return {@code false} if a fail-fast message was rejected
+   */
+  protected boolean doPublish(
+      Message<?> message, @Nullable CompletableFuture<Void> future, boolean failFast) {
+    if (this.executor == null) {
+      this.notifyPublished(message);
+      this.invokeDispatcher(message, future);
+      return true;
+    }
+    // notified before the hand-off so that it precedes the dispatch of the message
+    this.notifyPublished(message);
+    try {
+      this.executor.execute(new DispatchTask(message, future, failFast));
+    } catch (RejectedExecutionException ex) {
+      if (failFast) {
+        return false;
+      }
+      throw ex;
+    }
+    return true;
+  }
+
+  protected void notifyPublished(Message<?> message) {
+    if (this.observer != null) {
+      this.observer.published(message);
     }
   }
 
   protected void invokeDispatcher(Message<?> message) {
+    this.invokeDispatcher(message, null);
+  }
+
+  protected void invokeDispatcher(Message<?> message, @Nullable CompletableFuture<Void> future) {
     if (this.log.isDebugEnabled()) {
       this.log.debug(
           "publishing message channel="
@@ -43,11 +139,111 @@ public class DefaultMessagePublisher implements MessagePublisher {
               + " payloadType="
               + message.getPayload().getClass().getSimpleName());
     }
+    MessagingObserver observer = this.observer;
+    long start = observer != null ? System.nanoTime() : 0L;
+    this.dispatcher.dispatch(
+        message,
+        new DispatchCallback() {
+
+          @Override
+          public void onComplete() {
+            if (observer != null) {
+              observer.dispatched(message, System.nanoTime() - start, null);
+            }
+            try {
+              message.acknowledge();
+            } catch (Exception ex) {
+              DefaultMessagePublisher.this.invokeErrorHandler(message, ex);
+              if (future != null) {
+                future.completeExceptionally(ex);
+              }
+              return;
+            }
+            if (future != null) {
+              future.complete(null);
+            }
+          }
+
+          @Override
+          public void onFailure(Throwable ex) {
+            this.onFailure(ex, Set.of());
+          }
+
+          @Override
+          public void onFailure(Throwable ex, Set<String> failedGroups) {
+            if (observer != null) {
+              observer.dispatched(message, System.nanoTime() - start, ex);
+            }
+            if (DefaultMessagePublisher.this.scheduleRetry(message, future, ex, failedGroups)) {
+              return;
+            }
+            DefaultMessagePublisher.this.invokeErrorHandler(message, ex);
+            if (future != null) {
+              future.completeExceptionally(ex);
+            }
+            DefaultMessagePublisher.this.deadLetter(message, ex);
+          }
+        });
+  }
+
+  /**
+   * Schedules the redelivery of a failed message according to the retry policy, to the groups that
+   * did not handle it.
+   *
+   * @param failedGroups the groups that did not handle the message, or none if unknown
+   * @return {@code true} if the message will be redelivered
+   */
+  protected boolean scheduleRetry(
+      Message<?> message,
+      @Nullable CompletableFuture<Void> future,
+      Throwable ex,
+      Set<String> failedGroups) {
+    RetryPolicy policy = this.retryPolicy;
+    HierarchicalTimingWheel timer = this.timer;
+    if (policy == null || timer == null) {
+      return false;
+    }
+    int attempt = RetryPolicy.getAttempt(message) + 1;
+    if (attempt > policy.getMaxRetries()) {
+      return false;
+    }
+    Duration backoff = policy.getBackoff(attempt);
+    if (this.log.isDebugEnabled()) {
+      this.log.debug(
+          "redelivering message channel="
+              + message.getChannel()
+              + " attempt="
+              + attempt
+              + " backoff="
+              + backoff.toMillis()
+              + "ms groups="
+              + failedGroups
+              + " cause="
+              + ex);
+    }
+    Message<?> retry = policy.createRetry(message, attempt, failedGroups);
+    timer.schedule(() -> this.republish(retry, future), backoff.toMillis(), TimeUnit.MILLISECONDS);
+    return true;
+  }
+
+  /** Publishes a message that exhausted its retries to the dead-letter channel, if any. */
+  protected void deadLetter(Message<?> message, Throwable ex) {
+    RetryPolicy policy = this.retryPolicy;
+    String channel = policy != null ? policy.getDeadLetterChannel() : null;
+    if (channel == null || channel.equals(message.getChannel())) {
+      return;
+    }
+    this.republish(policy.createDeadLetter(message, channel, ex), null);
+  }
+
+  private void republish(Message<?> message, @Nullable CompletableFuture<Void> future) {
     try {
-      this.dispatcher.dispatch(message);
-      message.acknowledge();
-    } catch (Exception ex) {
+      this.doPublish(message, future, false);
+    } catch (RuntimeException ex) {
       this.invokeErrorHandler(message, ex);
+      if (future != null) {
+        future.completeExceptionally(ex);
+      }
     }
   }
 
@@ -58,4 +254,33 @@ public class DefaultMessagePublisher implements MessagePublisher {
       this.log.error("failed to dispatch message channel=" + message.getChannel(), ex);
     }
   }
+
+  private final class DispatchTask extends MessageTask {
+
+    private final @Nullable CompletableFuture<Void> future;
+    private final long enqueuedAt;
+
+    DispatchTask(Message<?> message, @Nullable CompletableFuture<Void> future, boolean failFast) {
+      super(message, failFast);
+      this.future = future;
+      this.enqueuedAt = DefaultMessagePublisher.this.observer != null ? System.nanoTime() : 0L;
+    }
+
+    @Override
+    public void run() {
+      MessagingObserver observer = DefaultMessagePublisher.this.observer;
+      if (observer != null && this.enqueuedAt != 0L) {
+        observer.dequeued(this.getMessage(), System.nanoTime() - this.enqueuedAt);
+      }
+      DefaultMessagePublisher.this.invokeDispatcher(this.getMessage(), this.future);
+    }
+
+    @Override
+    public void discard(Throwable cause) {
+      DefaultMessagePublisher.this.invokeErrorHandler(this.getMessage(), cause);
+      if (this.future != null) {
+        this.future.completeExceptionally(cause);
+      }
+    }
+  }
 }
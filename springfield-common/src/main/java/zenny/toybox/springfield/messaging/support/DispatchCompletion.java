@@ -0,0 +1,92 @@
+package zenny.toybox.springfield.messaging.support;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jspecify.annotations.Nullable;
+import zenny.toybox.springfield.messaging.DispatchCallback;
+
+/**
+ * Counts the outstanding parts of a single dispatch and notifies the target callback exactly once,
+ * after the last part completed, with the first failure if any part failed, along with the groups
+ * of all the failed parts.
+ */
+class DispatchCompletion implements DispatchCallback {
+
+  private static final AtomicIntegerFieldUpdater<DispatchCompletion> PARTS =
+      AtomicIntegerFieldUpdater.newUpdater(DispatchCompletion.class, "parts");
+
+  private final DispatchCallback callback;
+  private final AtomicReference<@Nullable Throwable> failure = new AtomicReference<>();
+  private @Nullable Set<String> failedGroups;
+  private boolean unknownGroups;
+  private volatile int parts;
+
+  DispatchCompletion(DispatchCallback callback, int parts) {
+    this.callback = callback;
+    this.parts = parts;
+  }
+
+  DispatchCompletion retain() {
+    PARTS.incrementAndGet(this);
+    return this;
+  }
+
+  /** Retains one more part, handled by the given group, and returns the callback completing it. */
+  DispatchCallback retain(String group) {
+    this.retain();
+    return new DispatchCallback() {
+
+      @Override
+      public void onComplete() {
+        DispatchCompletion.this.onComplete();
+      }
+
+      @Override
+      public void onFailure(Throwable ex) {
+        DispatchCompletion.this.onFailure(ex, Set.of(group));
+      }
+    };
+  }
+
+  @Override
+  public void onComplete() {
+    if (PARTS.decrementAndGet(this) == 0) {
+      Throwable ex = this.failure.get();
+      if (ex != null) {
+        this.callback.onFailure(ex, this.getFailedGroups());
+      } else {
+        this.callback.onComplete();
+      }
+    }
+  }
+
+  @Override
+  public void onFailure(Throwable ex) {
+    this.onFailure(ex, Set.of());
+  }
+
+  @Override
+  public void onFailure(Throwable ex, Set<String> failedGroups) {
+    this.failure.compareAndSet(null, ex);
+    synchronized (this) {
+      if (failedGroups.isEmpty()) {
+        this.unknownGroups = true;
+      } else {
+        if (this.failedGroups == null) {
+          this.failedGroups = new HashSet<>();
+        }
+        this.failedGroups.addAll(failedGroups);
+      }
+    }
+    this.onComplete();
+  }
+
+  /** Returns the groups of the failed parts, or none if any failed part did not tell its group. */
+  private synchronized Set<String> getFailedGroups() {
+    return this.unknownGroups || this.failedGroups == null
+        ? Set.of()
+        : Set.copyOf(this.failedGroups);
+  }
+}
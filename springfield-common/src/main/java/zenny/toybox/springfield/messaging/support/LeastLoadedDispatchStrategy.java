@@ -0,0 +1,172 @@
+package zenny.toybox.springfield.messaging.support;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import zenny.toybox.springfield.messaging.BatchMessageHandler;
+import zenny.toybox.springfield.messaging.DispatchStrategy;
+import zenny.toybox.springfield.messaging.HandlerSelector;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageHandler;
+import zenny.toybox.springfield.util.Assert;
+
+/**
+ * A {@link DispatchStrategy} steering messages away from slow or busy handlers. The number of
+ * in-flight messages and an exponentially weighted moving average of the latency are tracked per
+ * handler, and the less loaded of two randomly chosen handlers is picked ("power of two choices").
+ *
+ * <p>The latency estimate of a handler is halved for every {@code decayHalfLife} elapsed since its
+ * last sample. A handler that turned slow, and is therefore no longer picked, sees its estimate
+ * fade until it gets picked and measured again, instead of being shunned for good.
+ *
+ * <p>Tracking is done by handing the dispatcher a wrapper around the selected handler, so no other
+ * configuration is needed. Batch handlers complete asynchronously and are neither wrapped nor
+ * tracked.
+ */
+public class LeastLoadedDispatchStrategy implements DispatchStrategy {
+
+  public static final Duration DEFAULT_DECAY_HALF_LIFE = Duration.ofSeconds(1);
+
+  private final long decayHalfLifeNanos;
+  private final Map<MessageHandler, TrackingHandler> trackers = new ConcurrentHashMap<>();
+  private final BoundSelectors groups = new BoundSelectors();
+
+  public LeastLoadedDispatchStrategy() {
+    this(DEFAULT_DECAY_HALF_LIFE);
+  }
+
+  public LeastLoadedDispatchStrategy(Duration decayHalfLife) {
+    Assert.isTrue(decayHalfLife.compareTo(Duration.ZERO) > 0, "decayHalfLife must be positive");
+    this.decayHalfLifeNanos = decayHalfLife.toNanos();
+  }
+
+  @Override
+  public List<MessageHandler> select(List<MessageHandler> handlers, Message<?> message) {
+    if (handlers.isEmpty()) {
+      return handlers;
+    }
+    return this.groups.get(this, handlers).select(message);
+  }
+
+  @Override
+  public HandlerSelector bind(List<MessageHandler> handlers) {
+    if (handlers.isEmpty()) {
+      return message -> handlers;
+    }
+    TrackingHandler[] candidates = this.track(handlers);
+    if (candidates.length == 1) {
+      List<MessageHandler> selection = candidates[0].selection;
+      return message -> selection;
+    }
+    return message -> {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      int first = random.nextInt(candidates.length);
+      int second = random.nextInt(candidates.length - 1);
+      if (second >= first) {
+        second++;
+      }
+      TrackingHandler a = candidates[first];
+      TrackingHandler b = candidates[second];
+      return (a.load() <= b.load() ? a : b).selection;
+    };
+  }
+
+  public long getInFlight(MessageHandler handler) {
+    TrackingHandler tracker = this.trackers.get(handler);
+    return tracker != null ? tracker.inFlight.sum() : 0L;
+  }
+
+  public long getAverageLatencyNanos(MessageHandler handler) {
+    TrackingHandler tracker = this.trackers.get(handler);
+    return tracker != null ? tracker.latency(System.nanoTime()) : 0L;
+  }
+
+  private TrackingHandler[] track(List<MessageHandler> handlers) {
+    TrackingHandler[] tracked = new TrackingHandler[handlers.size()];
+    for (int i = 0; i < tracked.length; i++) {
+      tracked[i] =
+          this.trackers.computeIfAbsent(
+              handlers.get(i), handler -> new TrackingHandler(handler, this.decayHalfLifeNanos));
+    }
+    return tracked;
+  }
+
+  private static final class TrackingHandler implements MessageHandler {
+
+    /** Weight of a new latency sample, as a right shift: 1/8. */
+    private static final int EWMA_SHIFT = 3;
+
+    private final MessageHandler delegate;
+    private final long decayHalfLifeNanos;
+    private final List<MessageHandler> selection;
+    private final LongAdder inFlight = new LongAdder();
+    private final AtomicLong latency = new AtomicLong();
+    private volatile long sampled = System.nanoTime();
+
+    TrackingHandler(MessageHandler delegate, long decayHalfLifeNanos) {
+      this.delegate = delegate;
+      this.decayHalfLifeNanos = decayHalfLifeNanos;
+      this.selection =
+          List.of(delegate instanceof BatchMessageHandler ? delegate : (MessageHandler) this);
+    }
+
+    long load() {
+      return (this.inFlight.sum() + 1) * Math.max(this.latency(System.nanoTime()), 1L);
+    }
+
+    /** Returns the latency estimate, halved for every half-life elapsed since the last sample. */
+    long latency(long now) {
+      return this.decay(this.latency.get(), now);
+    }
+
+    private long decay(long latency, long now) {
+      long halvings = (now - this.sampled) / this.decayHalfLifeNanos;
+      return halvings >= Long.SIZE - 1 ? 0L : latency >> halvings;
+    }
+
+    @Override
+    public String getChannel() {
+      return this.delegate.getChannel();
+    }
+
+    @Override
+    public String getGroup() {
+      return this.delegate.getGroup();
+    }
+
+    @Override
+    public void handle(Message<?> message) {
+      this.inFlight.increment();
+      long start = System.nanoTime();
+      try {
+        this.delegate.handle(message);
+      } finally {
+        this.inFlight.decrement();
+        long end = System.nanoTime();
+        this.record(end - start, end);
+      }
+    }
+
+    private void record(long sample, long now) {
+      long current;
+      long next;
+      do {
+        current = this.latency.get();
+        long decayed = this.decay(current, now);
+        next = decayed == 0L ? sample : decayed + ((sample - decayed) >> EWMA_SHIFT);
+      } while (!this.latency.compareAndSet(current, next));
+      // racing samples may briefly pair an estimate with a slightly older time, which only
+      // decays it a little early
+      this.sampled = now;
+    }
+
+    @Override
+    public String toString() {
+      return this.delegate.toString();
+    }
+  }
+}
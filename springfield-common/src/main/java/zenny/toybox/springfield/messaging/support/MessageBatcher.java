@@ -0,0 +1,137 @@
+package zenny.toybox.springfield.messaging.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jspecify.annotations.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import zenny.toybox.springfield.messaging.BatchMessageHandler;
+import zenny.toybox.springfield.messaging.DispatchCallback;
+import zenny.toybox.springfield.messaging.Message;
+
+public class MessageBatcher {
+
+  protected final Log log = LogFactory.getLog(this.getClass());
+
+  private final ScheduledExecutorService scheduler;
+  private final Executor executor;
+  private final Map<BatchMessageHandler, Batch> batches = new ConcurrentHashMap<>();
+
+  public MessageBatcher() {
+    this(createScheduler(), null);
+  }
+
+  public MessageBatcher(ScheduledExecutorService scheduler, @Nullable Executor executor) {
+    this.scheduler = scheduler;
+    this.executor = executor != null ? executor : scheduler;
+  }
+
+  private static ScheduledExecutorService createScheduler() {
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("messaging-batch-");
+    threadFactory.setDaemon(true);
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+    scheduler.setRemoveOnCancelPolicy(true);
+    return scheduler;
+  }
+
+  public void add(BatchMessageHandler handler, Message<?> message, DispatchCallback callback) {
+    Batch batch = this.batches.computeIfAbsent(handler, Batch::new);
+    List<Entry> full = batch.add(new Entry(message, callback));
+    if (full != null) {
+      this.invokeHandler(handler, full);
+    }
+  }
+
+  public void flush() {
+    for (Batch batch : this.batches.values()) {
+      List<Entry> entries = batch.drain();
+      if (entries != null) {
+        this.invokeHandler(batch.handler, entries);
+      }
+    }
+  }
+
+  public void shutdown() {
+    this.flush();
+    this.scheduler.shutdown();
+  }
+
+  protected void invokeHandler(BatchMessageHandler handler, List<Entry> entries) {
+    List<Message<?>> messages = new ArrayList<>(entries.size());
+    for (Entry entry : entries) {
+      messages.add(entry.message);
+    }
+    if (this.log.isDebugEnabled()) {
+      this.log.debug(
+          "dispatching batch channel="
+              + handler.getChannel()
+              + " group="
+              + handler.getGroup()
+              + " size="
+              + messages.size());
+    }
+    try {
+      handler.handleBatch(messages);
+    } catch (Throwable ex) {
+      for (Entry entry : entries) {
+        entry.callback.onFailure(ex);
+      }
+      return;
+    }
+    for (Entry entry : entries) {
+      entry.callback.onComplete();
+    }
+  }
+
+  private void flushLater(Batch batch) {
+    List<Entry> entries = batch.drain();
+    if (entries != null) {
+      this.executor.execute(() -> this.invokeHandler(batch.handler, entries));
+    }
+  }
+
+  protected record Entry(Message<?> message, DispatchCallback callback) {}
+
+  private final class Batch {
+
+    private final BatchMessageHandler handler;
+    private final int batchSize;
+    private List<Entry> entries;
+
+    Batch(BatchMessageHandler handler) {
+      this.handler = handler;
+      this.batchSize = Math.max(handler.getBatchSize(), 1);
+      this.entries = new ArrayList<>(this.batchSize);
+    }
+
+    synchronized @Nullable List<Entry> add(Entry entry) {
+      this.entries.add(entry);
+      if (this.entries.size() >= this.batchSize) {
+        return this.drain();
+      }
+      if (this.entries.size() == 1) {
+        MessageBatcher.this.scheduler.schedule(
+            () -> MessageBatcher.this.flushLater(this),
+            this.handler.getBatchLingerMillis(),
+            TimeUnit.MILLISECONDS);
+      }
+      return null;
+    }
+
+    synchronized @Nullable List<Entry> drain() {
+      if (this.entries.isEmpty()) {
+        return null;
+      }
+      List<Entry> drained = this.entries;
+      this.entries = new ArrayList<>(this.batchSize);
+      return drained;
+    }
+  }
+}
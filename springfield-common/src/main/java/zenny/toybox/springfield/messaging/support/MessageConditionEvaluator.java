@@ -1,25 +1,129 @@
 package zenny.toybox.springfield.messaging.support;
 
 import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.jspecify.annotations.Nullable;
 import org.springframework.expression.Expression;
-import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import zenny.toybox.springfield.messaging.Message;
 
 public class MessageConditionEvaluator {
 
-  private final ExpressionParser parser = new SpelExpressionParser();
-  private final Map<String, Expression> expressionCache = new ConcurrentHashMap<>();
+  /**
+   * Matches {@code #headers['name'] == 'value'} and {@code #payload == 'value'} (as well as their
+   * {@code !=} forms), which are turned into plain predicates instead of SpEL expressions.
+   */
+  private static final Pattern SIMPLE_EQUALITY =
+      Pattern.compile(
+          "^\\s*#(?:headers\\s*\\[\\s*(?:'([^']*)'|\"([^\"]*)\")\\s*]|(payload))"
+              + "\\s*(==|!=)\\s*(?:'([^']*)'|\"([^\"]*)\")\\s*$");
+
+  /** The maximum number of idle evaluation contexts kept for reuse. */
+  private static final int MAX_POOLED_CONTEXTS = 64;
+
+  private final SpelExpressionParser parser;
+  private final Map<String, Predicate<Message<?>>> conditionCache = new ConcurrentHashMap<>();
+  private final Queue<MessageEvaluationContext> contexts = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pooledContexts = new AtomicInteger();
+
+  public MessageConditionEvaluator() {
+    this(SpelCompilerMode.OFF);
+  }
+
+  public MessageConditionEvaluator(SpelCompilerMode compilerMode) {
+    this.parser =
+        new SpelExpressionParser(
+            new SpelParserConfiguration(compilerMode, this.getClass().getClassLoader()));
+  }
 
   public Boolean evaluate(String conditionExpression, Message<?> message) {
-    Expression expression =
-        this.expressionCache.computeIfAbsent(conditionExpression, this.parser::parseExpression);
-    StandardEvaluationContext context = new StandardEvaluationContext();
-    context.setVariable("message", message);
-    context.setVariable("payload", message.getPayload());
-    context.setVariable("headers", message.getHeaders());
-    return expression.getValue(context, Boolean.class);
+    return this.compile(conditionExpression).test(message);
+  }
+
+  public Predicate<Message<?>> compile(String conditionExpression) {
+    return this.conditionCache.computeIfAbsent(conditionExpression, this::doCompile);
+  }
+
+  public Function<Message<?>, @Nullable Object> compileValue(String valueExpression) {
+    Expression expression = this.parser.parseExpression(valueExpression);
+    return message -> this.getValue(expression, message, Object.class);
+  }
+
+  protected Predicate<Message<?>> doCompile(String conditionExpression) {
+    Matcher matcher = SIMPLE_EQUALITY.matcher(conditionExpression);
+    if (matcher.matches()) {
+      String header = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+      String literal = matcher.group(5) != null ? matcher.group(5) : matcher.group(6);
+      boolean negated = "!=".equals(matcher.group(4));
+      if (header != null) {
+        return message -> negated != Objects.equals(message.getHeaders().get(header), literal);
+      }
+      return message -> negated != Objects.equals(message.getPayload(), literal);
+    }
+    Expression expression = this.parser.parseExpression(conditionExpression);
+    return message -> Boolean.TRUE.equals(this.evaluate(expression, message));
+  }
+
+  protected @Nullable Boolean evaluate(Expression expression, Message<?> message) {
+    return this.getValue(expression, message, Boolean.class);
+  }
+
+  protected <T> @Nullable T getValue(Expression expression, Message<?> message, Class<T> type) {
+    MessageEvaluationContext context = this.contexts.poll();
+    if (context != null) {
+      this.pooledContexts.decrementAndGet();
+    } else {
+      context = new MessageEvaluationContext();
+    }
+    context.message = message;
+    try {
+      return expression.getValue(context, type);
+    } finally {
+      context.message = null;
+      if (this.pooledContexts.incrementAndGet() <= MAX_POOLED_CONTEXTS) {
+        this.contexts.offer(context);
+      } else {
+        this.pooledContexts.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * An evaluation context exposing {@code #message}, {@code #payload} and {@code #headers} of the
+   * message being evaluated. Contexts are pooled rather than kept per thread, so that they are
+   * still reused when every message runs on a thread of its own, as with virtual threads.
+   */
+  private static final class MessageEvaluationContext extends StandardEvaluationContext {
+
+    private @Nullable Message<?> message;
+
+    @Override
+    public @Nullable Object lookupVariable(String name) {
+      Message<?> message = this.message;
+      if (message != null) {
+        switch (name) {
+          case "message":
+            return message;
+          case "payload":
+            return message.getPayload();
+          case "headers":
+            return message.getHeaders();
+          default:
+            break;
+        }
+      }
+      return super.lookupVariable(name);
+    }
   }
 }
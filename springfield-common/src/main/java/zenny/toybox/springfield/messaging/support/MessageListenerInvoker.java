@@ -0,0 +1,268 @@
+package zenny.toybox.springfield.messaging.support;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.Function;
+import org.jspecify.annotations.Nullable;
+import org.springframework.util.ReflectionUtils;
+import zenny.toybox.springfield.util.ClassUtils;
+
+/**
+ * Invokes a {@code @MessageListener} method without going through {@link Method#invoke}.
+ *
+ * <p>Methods with up to four parameters are bound through {@link LambdaMetafactory}, so the call is
+ * a plain interface invocation the JIT can inline. Wider methods, and methods whose types are not
+ * visible to this class loader, fall back to a spreading {@link MethodHandle}. Property getters
+ * used to resolve {@code @Payload} paths are bound the same way, see {@link #forGetter(Method)}.
+ */
+abstract class MessageListenerInvoker {
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  abstract @Nullable Object invoke(Object bean, @Nullable Object[] args) throws Throwable;
+
+  static MessageListenerInvoker forMethod(Method method) {
+    if (isLambdaCompatible(method)) {
+      try {
+        return generate(method);
+      } catch (Throwable ex) {
+        // fall through to the method handle based invoker
+      }
+    }
+    return new MethodHandleInvoker(method);
+  }
+
+  /**
+   * Returns a function reading a property through the given getter. Exceptions thrown by the getter
+   * propagate unwrapped, checked ones wrapped in an {@link IllegalStateException} when the getter
+   * is not bound as a lambda.
+   */
+  @SuppressWarnings("unchecked")
+  static Function<Object, @Nullable Object> forGetter(Method getter) {
+    Class<?> returnType = ClassUtils.resolvePrimitiveIfNecessary(getter.getReturnType());
+    if (isLambdaCompatible(getter)
+        && ClassUtils.isVisible(returnType, MessageListenerInvoker.class.getClassLoader())) {
+      try {
+        CallSite site =
+            LambdaMetafactory.metafactory(
+                LOOKUP,
+                "apply",
+                MethodType.methodType(Function.class),
+                MethodType.methodType(Object.class, Object.class),
+                LOOKUP.unreflect(getter),
+                MethodType.methodType(returnType, getter.getDeclaringClass()));
+        return (Function<Object, @Nullable Object>) site.getTarget().invoke();
+      } catch (Throwable ex) {
+        // fall through to the method handle based getter
+      }
+    }
+    MethodHandle handle;
+    ReflectionUtils.makeAccessible(getter);
+    try {
+      handle = LOOKUP.unreflect(getter).asType(MethodType.methodType(Object.class, Object.class));
+    } catch (IllegalAccessException ex) {
+      throw new IllegalStateException("cannot access property getter: " + getter, ex);
+    }
+    return bean -> {
+      try {
+        return handle.invokeExact(bean);
+      } catch (RuntimeException | Error ex) {
+        throw ex;
+      } catch (Throwable ex) {
+        throw new IllegalStateException("failed to read property through " + getter, ex);
+      }
+    };
+  }
+
+  private static boolean isLambdaCompatible(Method method) {
+    if (method.getParameterCount() > 4
+        || Modifier.isStatic(method.getModifiers())
+        || !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+      return false;
+    }
+    ClassLoader classLoader = MessageListenerInvoker.class.getClassLoader();
+    if (!ClassUtils.isVisible(method.getDeclaringClass(), classLoader)) {
+      return false;
+    }
+    for (Class<?> type : method.getParameterTypes()) {
+      if (!type.isPrimitive() && !ClassUtils.isVisible(type, classLoader)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static MessageListenerInvoker generate(Method method) throws Throwable {
+    int arity = method.getParameterCount();
+    Class<?> samType =
+        switch (arity) {
+          case 0 -> Invoker0.class;
+          case 1 -> Invoker1.class;
+          case 2 -> Invoker2.class;
+          case 3 -> Invoker3.class;
+          default -> Invoker4.class;
+        };
+    MethodHandle target = LOOKUP.unreflect(method);
+    Class<?>[] instantiatedTypes = new Class<?>[arity + 1];
+    instantiatedTypes[0] = method.getDeclaringClass();
+    Class<?>[] erasedTypes = new Class<?>[arity + 1];
+    erasedTypes[0] = Object.class;
+    for (int i = 0; i < arity; i++) {
+      instantiatedTypes[i + 1] =
+          ClassUtils.resolvePrimitiveIfNecessary(method.getParameterTypes()[i]);
+      erasedTypes[i + 1] = Object.class;
+    }
+    CallSite site =
+        LambdaMetafactory.metafactory(
+            LOOKUP,
+            "invoke",
+            MethodType.methodType(samType),
+            MethodType.methodType(void.class, erasedTypes),
+            target,
+            MethodType.methodType(void.class, instantiatedTypes));
+    Object invoker = site.getTarget().invoke();
+    return switch (arity) {
+      case 0 -> new Arity0((Invoker0) invoker);
+      case 1 -> new Arity1((Invoker1) invoker);
+      case 2 -> new Arity2((Invoker2) invoker);
+      case 3 -> new Arity3((Invoker3) invoker);
+      default -> new Arity4((Invoker4) invoker);
+    };
+  }
+
+  @FunctionalInterface
+  interface Invoker0 {
+    void invoke(Object bean);
+  }
+
+  @FunctionalInterface
+  interface Invoker1 {
+    void invoke(Object bean, @Nullable Object a0);
+  }
+
+  @FunctionalInterface
+  interface Invoker2 {
+    void invoke(Object bean, @Nullable Object a0, @Nullable Object a1);
+  }
+
+  @FunctionalInterface
+  interface Invoker3 {
+    void invoke(Object bean, @Nullable Object a0, @Nullable Object a1, @Nullable Object a2);
+  }
+
+  @FunctionalInterface
+  interface Invoker4 {
+    void invoke(
+        Object bean,
+        @Nullable Object a0,
+        @Nullable Object a1,
+        @Nullable Object a2,
+        @Nullable Object a3);
+  }
+
+  private static final class Arity0 extends MessageListenerInvoker {
+
+    private final Invoker0 invoker;
+
+    Arity0(Invoker0 invoker) {
+      this.invoker = invoker;
+    }
+
+    @Override
+    @Nullable Object invoke(Object bean, @Nullable Object[] args) {
+      this.invoker.invoke(bean);
+      return null;
+    }
+  }
+
+  private static final class Arity1 extends MessageListenerInvoker {
+
+    private final Invoker1 invoker;
+
+    Arity1(Invoker1 invoker) {
+      this.invoker = invoker;
+    }
+
+    @Override
+    @Nullable Object invoke(Object bean, @Nullable Object[] args) {
+      this.invoker.invoke(bean, args[0]);
+      return null;
+    }
+  }
+
+  private static final class Arity2 extends MessageListenerInvoker {
+
+    private final Invoker2 invoker;
+
+    Arity2(Invoker2 invoker) {
+      this.invoker = invoker;
+    }
+
+    @Override
+    @Nullable Object invoke(Object bean, @Nullable Object[] args) {
+      this.invoker.invoke(bean, args[0], args[1]);
+      return null;
+    }
+  }
+
+  private static final class Arity3 extends MessageListenerInvoker {
+
+    private final Invoker3 invoker;
+
+    Arity3(Invoker3 invoker) {
+      this.invoker = invoker;
+    }
+
+    @Override
+    @Nullable Object invoke(Object bean, @Nullable Object[] args) {
+      this.invoker.invoke(bean, args[0], args[1], args[2]);
+      return null;
+    }
+  }
+
+  private static final class Arity4 extends MessageListenerInvoker {
+
+    private final Invoker4 invoker;
+
+    Arity4(Invoker4 invoker) {
+      this.invoker = invoker;
+    }
+
+    @Override
+    @Nullable Object invoke(Object bean, @Nullable Object[] args) {
+      this.invoker.invoke(bean, args[0], args[1], args[2], args[3]);
+      return null;
+    }
+  }
+
+  private static final class MethodHandleInvoker extends MessageListenerInvoker {
+
+    private final MethodHandle handle;
+
+    MethodHandleInvoker(Method method) {
+      ReflectionUtils.makeAccessible(method);
+      try {
+        MethodHandle target = LOOKUP.unreflect(method);
+        if (Modifier.isStatic(method.getModifiers())) {
+          target = MethodHandles.dropArguments(target, 0, Object.class);
+        }
+        this.handle =
+            target
+                .asType(target.type().generic())
+                .asSpreader(Object[].class, method.getParameterCount());
+      } catch (IllegalAccessException ex) {
+        throw new IllegalStateException("cannot access message handler: " + method, ex);
+      }
+    }
+
+    @Override
+    @Nullable Object invoke(Object bean, @Nullable Object[] args) throws Throwable {
+      return this.handle.invokeExact(bean, args);
+    }
+  }
+}
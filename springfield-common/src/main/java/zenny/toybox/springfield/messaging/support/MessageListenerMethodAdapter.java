@@ -1,13 +1,18 @@
 package zenny.toybox.springfield.messaging.support;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.StringJoiner;
+import java.util.function.Predicate;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.springframework.beans.BeanWrapperImpl;
+import org.jspecify.annotations.Nullable;
 import org.springframework.context.ApplicationContext;
 import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.core.convert.converter.Converter;
+import org.springframework.util.ClassUtils;
 import zenny.toybox.springfield.messaging.Header;
 import zenny.toybox.springfield.messaging.Message;
 import zenny.toybox.springfield.messaging.MessageHandler;
@@ -30,14 +35,29 @@ public class MessageListenerMethodAdapter implements MessageHandler {
   private final String group;
   private final String condition;
   private final Converter<Message<?>, Object[]> converter;
-  private final MessageConditionEvaluator conditionEvaluator;
+  private final @Nullable Predicate<Message<?>> conditionPredicate;
   private final ResolutionStrategy strategy;
+  private final ArgumentResolver[] argumentResolvers;
+  private final MessageListenerInvoker invoker;
+  private final Class<?>[] parameterTypes;
+  private final Class<?>[] argumentTypes;
+  private @Nullable MessagingObserver observer;
 
   public MessageListenerMethodAdapter(
       Object bean,
       Method method,
       MessageListener annotation,
       ApplicationContext applicationContext) {
+    this(bean, method, annotation, applicationContext, new MessageConditionEvaluator());
+  }
+
+  @SuppressWarnings("this-escape")
+  public MessageListenerMethodAdapter(
+      Object bean,
+      Method method,
+      MessageListener annotation,
+      ApplicationContext applicationContext,
+      MessageConditionEvaluator conditionEvaluator) {
     Assert.state(
         Modifier.isPublic(method.getModifiers()),
         () -> "@MessageListener method must be public: " + method);
@@ -46,19 +66,28 @@ public class MessageListenerMethodAdapter implements MessageHandler {
     this.channel = annotation.channel();
     this.group = annotation.group();
     this.condition = annotation.condition();
-    this.conditionEvaluator = new MessageConditionEvaluator();
+    this.conditionPredicate =
+        this.condition.isEmpty() ? null : conditionEvaluator.compile(this.condition);
 
     if (this.hasAnnotationBasedParameters(method)) {
       this.strategy = ResolutionStrategy.ANNOTATION;
       this.converter = null;
+      this.argumentResolvers = this.createArgumentResolvers(method);
     } else {
       this.strategy = ResolutionStrategy.CONVERTER;
       this.converter = this.resolveConverter(annotation.converter(), applicationContext);
+      this.argumentResolvers = new ArgumentResolver[0];
+    }
+    this.invoker = MessageListenerInvoker.forMethod(method);
+    this.parameterTypes = method.getParameterTypes();
+    this.argumentTypes = new Class<?>[this.parameterTypes.length];
+    for (int i = 0; i < this.parameterTypes.length; i++) {
+      this.argumentTypes[i] = ClassUtils.resolvePrimitiveIfNecessary(this.parameterTypes[i]);
     }
   }
 
   protected boolean hasAnnotationBasedParameters(Method method) {
-    for (java.lang.reflect.Parameter param : method.getParameters()) {
+    for (Parameter param : method.getParameters()) {
       if (AnnotatedElementUtils.hasAnnotation(param, Payload.class)
           || AnnotatedElementUtils.hasAnnotation(param, Header.class)) {
         return true;
@@ -112,6 +141,7 @@ public class MessageListenerMethodAdapter implements MessageHandler {
                 + " method="
                 + this.method.getName());
       }
+      this.conditionSkipped(message);
       return;
     }
     this.beforeHandle(message);
@@ -126,6 +156,18 @@ public class MessageListenerMethodAdapter implements MessageHandler {
                 + this.method.getParameterCount()
                 + ", actual="
                 + (args == null ? 0 : args.length));
+    this.invokeHandlerMethod(args);
+    this.afterHandle(message);
+  }
+
+  /**
+   * Invokes the handler method with the given arguments. As with {@link Method#invoke}, arguments
+   * not matching the parameter types are rejected with an {@link IllegalArgumentException}, and
+   * exceptions thrown by the method are wrapped in an {@link IllegalStateException} caused by an
+   * {@link InvocationTargetException}.
+   */
+  protected void invokeHandlerMethod(@Nullable Object[] args) {
+    this.checkArguments(args);
     try {
       if (this.log.isTraceEnabled()) {
         this.log.trace(
@@ -136,11 +178,56 @@ public class MessageListenerMethodAdapter implements MessageHandler {
                 + " method="
                 + this.method.getName());
       }
-      this.method.invoke(this.bean, args);
-    } catch (ReflectiveOperationException e) {
-      throw new IllegalStateException("invoke message handler failed: " + this.method, e);
+      this.invoker.invoke(this.bean, args);
+    } catch (Throwable e) {
+      throw new IllegalStateException(
+          "invoke message handler failed: " + this.method, new InvocationTargetException(e));
+    }
+  }
+
+  private void checkArguments(@Nullable Object[] args) {
+    for (int i = 0; i < args.length; i++) {
+      Object arg = args[i];
+      if (arg == null
+          ? this.parameterTypes[i].isPrimitive()
+          : !this.argumentTypes[i].isInstance(arg)) {
+        throw new IllegalArgumentException(
+            "argument type mismatch: parameter "
+                + i
+                + " of "
+                + this.method
+                + " is "
+                + this.parameterTypes[i].getName()
+                + ", argument is "
+                + (arg == null ? "null" : arg.getClass().getName()));
+      }
+    }
+  }
+
+  public void setObserver(@Nullable MessagingObserver observer) {
+    this.observer = MessagingObserver.nullIfNoop(observer);
+  }
+
+  protected void conditionSkipped(Message<?> message) {
+    if (this.observer != null) {
+      this.observer.skipped(this, message);
     }
-    this.afterHandle(message);
+  }
+
+  protected Method getMethod() {
+    return this.method;
+  }
+
+  /**
+   * Returns an identity of this handler that does not change across restarts, made of the user
+   * class of the bean and the signature of the method.
+   */
+  String getIdentity() {
+    StringJoiner parameters = new StringJoiner(",", "(", ")");
+    for (Class<?> type : this.method.getParameterTypes()) {
+      parameters.add(type.getTypeName());
+    }
+    return ClassUtils.getUserClass(this.bean).getName() + '#' + this.method.getName() + parameters;
   }
 
   protected void beforeHandle(Message<?> message) {}
@@ -148,10 +235,19 @@ public class MessageListenerMethodAdapter implements MessageHandler {
   protected void afterHandle(Message<?> message) {}
 
   protected Object[] resolveByAnnotations(Message<?> message) {
-    java.lang.reflect.Parameter[] parameters = this.method.getParameters();
-    Object[] args = new Object[parameters.length];
+    ArgumentResolver[] resolvers = this.argumentResolvers;
+    Object[] args = new Object[resolvers.length];
+    for (int i = 0; i < resolvers.length; i++) {
+      args[i] = resolvers[i].resolve(message);
+    }
+    return args;
+  }
+
+  private ArgumentResolver[] createArgumentResolvers(Method method) {
+    Parameter[] parameters = method.getParameters();
+    ArgumentResolver[] resolvers = new ArgumentResolver[parameters.length];
     for (int i = 0; i < parameters.length; i++) {
-      java.lang.reflect.Parameter param = parameters[i];
+      Parameter param = parameters[i];
 
       Payload payload = AnnotatedElementUtils.findMergedAnnotation(param, Payload.class);
       Header header = AnnotatedElementUtils.findMergedAnnotation(param, Header.class);
@@ -159,30 +255,56 @@ public class MessageListenerMethodAdapter implements MessageHandler {
       if (payload != null) {
         String path = payload.value();
         if (path.isEmpty()) {
-          args[i] = message.getPayload();
+          resolvers[i] = payloadResolver(param);
         } else {
-          BeanWrapperImpl wrapper = new BeanWrapperImpl(message.getPayload());
-          args[i] = wrapper.getPropertyValue(path);
+          PayloadPropertyAccessor accessor = new PayloadPropertyAccessor(path);
+          resolvers[i] = message -> accessor.getValue(message.getPayload());
         }
       } else if (header != null) {
-        args[i] = message.getHeaders().get(header.value());
+        String name = header.value();
+        resolvers[i] = message -> message.getHeaders().get(name);
       } else {
-        Assert.isTrue(
-            param.getType().isInstance(message.getPayload()),
-            () ->
-                "cannot resolve parameter '"
-                    + param.getName()
-                    + "': no @Payload/@Header and type mismatch with payload");
-        args[i] = message.getPayload();
+        ArgumentResolver resolver = payloadResolver(param);
+        String name = param.getName();
+        resolvers[i] =
+            message -> {
+              try {
+                return resolver.resolve(message);
+              } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException(
+                    "cannot resolve parameter '"
+                        + name
+                        + "': no @Payload/@Header and type mismatch with payload",
+                    ex);
+              }
+            };
       }
     }
-    return args;
+    return resolvers;
+  }
+
+  /**
+   * Resolves the whole payload, decoding it through {@link Message#getPayload(Class)} unless the
+   * parameter accepts any object, so that it is only decoded once a condition has passed.
+   */
+  private static ArgumentResolver payloadResolver(Parameter param) {
+    Class<?> type = ClassUtils.resolvePrimitiveIfNecessary(param.getType());
+    if (type == Object.class) {
+      return Message::getPayload;
+    }
+    return message -> message.getPayload(type);
   }
 
   protected boolean passCondition(Message<?> message) {
-    if (this.condition.isEmpty()) {
+    if (this.conditionPredicate == null) {
       return true;
     }
-    return this.conditionEvaluator.evaluate(this.condition, message);
+    return this.conditionPredicate.test(message);
+  }
+
+  @FunctionalInterface
+  private interface ArgumentResolver {
+
+    @Nullable Object resolve(Message<?> message);
   }
 }
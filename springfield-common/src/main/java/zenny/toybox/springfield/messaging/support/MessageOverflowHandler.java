@@ -0,0 +1,99 @@
+package zenny.toybox.springfield.messaging.support;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import zenny.toybox.springfield.util.Assert;
+
+/**
+ * A {@link RejectedExecutionHandler} applying an {@link OverflowPolicy} when the messaging executor
+ * is saturated. {@link MessageTask#isFailFast() Fail-fast} tasks are always rejected.
+ */
+public class MessageOverflowHandler implements RejectedExecutionHandler {
+
+  public enum OverflowPolicy {
+    /** Blocks the publisher until the queue has room, failing after a timeout. */
+    BLOCK,
+    /** Rejects the new message. */
+    REJECT,
+    /** Discards the oldest queued message to make room for the new one. */
+    DROP_OLDEST,
+    /** Runs the new message on the publishing thread. */
+    CALLER_RUNS
+  }
+
+  private final OverflowPolicy policy;
+  private final long blockTimeoutNanos;
+
+  public MessageOverflowHandler(OverflowPolicy policy) {
+    this(policy, Duration.ofSeconds(5));
+  }
+
+  public MessageOverflowHandler(OverflowPolicy policy, Duration blockTimeout) {
+    Assert.notNull(policy, "policy must not be null");
+    Assert.notNull(blockTimeout, "blockTimeout must not be null");
+    this.policy = policy;
+    this.blockTimeoutNanos = blockTimeout.toNanos();
+  }
+
+  public OverflowPolicy getPolicy() {
+    return this.policy;
+  }
+
+  public Duration getBlockTimeout() {
+    return Duration.ofNanos(this.blockTimeoutNanos);
+  }
+
+  @Override
+  public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+    if (executor.isShutdown()) {
+      throw new RejectedExecutionException("executor has been shut down");
+    }
+    this.rejectedExecution(task, executor.getQueue(), executor);
+  }
+
+  /**
+   * Applies the policy to a task rejected because the given queue, holding the tasks waiting to run
+   * on the executor, is full. Tasks dropped to make room are resubmitted to the executor.
+   */
+  public void rejectedExecution(Runnable task, BlockingQueue<Runnable> queue, Executor executor) {
+    if (task instanceof MessageTask messageTask && messageTask.isFailFast()) {
+      throw new RejectedExecutionException("messaging executor is saturated");
+    }
+    switch (this.policy) {
+      case BLOCK -> this.block(task, queue);
+      case REJECT -> throw new RejectedExecutionException("messaging executor is saturated");
+      case DROP_OLDEST -> this.dropOldest(task, queue, executor);
+      case CALLER_RUNS -> task.run();
+    }
+  }
+
+  private void block(Runnable task, BlockingQueue<Runnable> queue) {
+    try {
+      if (!queue.offer(task, this.blockTimeoutNanos, TimeUnit.NANOSECONDS)) {
+        throw new RejectedExecutionException(
+            "timeout waiting for the messaging executor after "
+                + TimeUnit.NANOSECONDS.toMillis(this.blockTimeoutNanos)
+                + "ms");
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new RejectedExecutionException("interrupted while waiting for the executor", ex);
+    }
+  }
+
+  private void dropOldest(Runnable task, BlockingQueue<Runnable> queue, Executor executor) {
+    Runnable oldest =
+        queue instanceof PriorityMessageQueue priorityQueue
+            ? priorityQueue.pollLeastUrgent()
+            : queue.poll();
+    if (oldest instanceof MessageTask dropped) {
+      dropped.discard(new RejectedExecutionException("dropped by the DROP_OLDEST overflow policy"));
+    }
+    executor.execute(task);
+  }
+}
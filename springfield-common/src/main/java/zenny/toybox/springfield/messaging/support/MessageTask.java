@@ -0,0 +1,40 @@
+package zenny.toybox.springfield.messaging.support;
+
+import zenny.toybox.springfield.messaging.Message;
+
+/**
+ * A {@link Runnable} processing a single message. Executors receiving a {@code MessageTask} may
+ * inspect the message, e.g. to schedule it by channel or key.
+ */
+public abstract class MessageTask implements Runnable {
+
+  private final Message<?> message;
+  private final boolean failFast;
+
+  protected MessageTask(Message<?> message) {
+    this(message, false);
+  }
+
+  protected MessageTask(Message<?> message, boolean failFast) {
+    this.message = message;
+    this.failFast = failFast;
+  }
+
+  public Message<?> getMessage() {
+    return this.message;
+  }
+
+  /**
+   * Whether a saturated executor must reject this task right away, rather than apply its overflow
+   * policy (blocking, dropping older tasks or running it on the caller).
+   */
+  public boolean isFailFast() {
+    return this.failFast;
+  }
+
+  /**
+   * Called when the task is discarded after having been accepted, e.g. when an overflow policy
+   * drops it in favour of a newer one.
+   */
+  public void discard(Throwable cause) {}
+}
@@ -0,0 +1,42 @@
+package zenny.toybox.springfield.messaging.support;
+
+import org.jspecify.annotations.Nullable;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageHandler;
+
+/**
+ * Receives timing and outcome notifications from the messaging pipeline, e.g. to record metrics.
+ * Components only take the timings when an observer is set, so an absent observer (or {@link
+ * #NOOP}) costs nothing.
+ */
+public interface MessagingObserver {
+
+  MessagingObserver NOOP = new MessagingObserver() {};
+
+  /**
+   * A message has been accepted by a publisher, before it is handed over for dispatching. A message
+   * the executor then rejects has already been notified.
+   */
+  default void published(Message<?> message) {}
+
+  /** A message has been taken from the executor queue after waiting for the given time. */
+  default void dequeued(Message<?> message, long waitNanos) {}
+
+  /** Dispatching a message to all of its consumer groups has completed or failed. */
+  default void dispatched(Message<?> message, long durationNanos, @Nullable Throwable failure) {}
+
+  /** A handler has processed a message, or failed to. */
+  default void handled(
+      MessageHandler handler,
+      Message<?> message,
+      long durationNanos,
+      @Nullable Throwable failure) {}
+
+  /** A handler skipped a message because its condition did not match. */
+  default void skipped(MessageHandler handler, Message<?> message) {}
+
+  /** Returns the given observer, or {@code null} if it is absent or does nothing. */
+  static @Nullable MessagingObserver nullIfNoop(@Nullable MessagingObserver observer) {
+    return observer != NOOP ? observer : null;
+  }
+}
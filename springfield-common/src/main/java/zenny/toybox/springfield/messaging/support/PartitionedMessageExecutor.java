@@ -0,0 +1,166 @@
+package zenny.toybox.springfield.messaging.support;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jspecify.annotations.Nullable;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.util.Assert;
+import zenny.toybox.springfield.util.algorithm.Hashing;
+
+/**
+ * An {@link Executor} hashing each {@link MessageTask} by a key extracted from its message onto one
+ * of a fixed number of lanes. Every lane is drained by a single thread, so messages sharing a key
+ * are processed strictly in submission order, while different keys are processed in parallel.
+ *
+ * <p>Tasks without a key are spread over the lanes in a round-robin fashion. A full lane blocks the
+ * submitting thread rather than running the task elsewhere, which would break the ordering; {@link
+ * MessageTask#isFailFast() fail-fast} tasks are rejected instead.
+ *
+ * <p>{@link #close()} waits for the submissions in progress, including those blocked on a full
+ * lane, then rejects new tasks and lets the lanes drain, so that no accepted task is left behind.
+ */
+public class PartitionedMessageExecutor implements Executor, AutoCloseable {
+
+  protected final Log log = LogFactory.getLog(this.getClass());
+
+  private final Function<Message<?>, @Nullable Object> keyExtractor;
+  private final Lane[] lanes;
+  private final AtomicInteger next = new AtomicInteger();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private volatile boolean running = true;
+
+  public PartitionedMessageExecutor(
+      int partitions, int laneCapacity, Function<Message<?>, @Nullable Object> keyExtractor) {
+    Assert.isTrue(partitions > 0, "partitions must be positive");
+    Assert.isTrue(laneCapacity > 0, "laneCapacity must be positive");
+    this.keyExtractor = keyExtractor;
+    this.lanes = new Lane[partitions];
+    for (int i = 0; i < partitions; i++) {
+      this.lanes[i] = new Lane(i, laneCapacity);
+      this.lanes[i].thread.start();
+    }
+  }
+
+  public static Function<Message<?>, @Nullable Object> headerKey(String header) {
+    return message -> message.getHeaders().get(header);
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    // held while enqueueing, so that close() cannot stop the lanes between the check and the put
+    this.lock.readLock().lock();
+    try {
+      if (!this.running) {
+        throw new RejectedExecutionException("executor has been closed");
+      }
+      this.enqueue(task);
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  private void enqueue(Runnable task) {
+    Object key =
+        (task instanceof MessageTask messageTask)
+            ? this.keyExtractor.apply(messageTask.getMessage())
+            : null;
+    int index =
+        (key != null)
+            ? Math.floorMod(Hashing.MURMURHASH3.hash(key), this.lanes.length)
+            : Math.floorMod(this.next.getAndIncrement(), this.lanes.length);
+    if (task instanceof MessageTask messageTask && messageTask.isFailFast()) {
+      if (!this.lanes[index].queue.offer(task)) {
+        throw new RejectedExecutionException("lane " + index + " is full");
+      }
+      return;
+    }
+    try {
+      this.lanes[index].queue.put(task);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new RejectedExecutionException("interrupted while waiting for lane " + index, ex);
+    }
+  }
+
+  public int getLaneCount() {
+    return this.lanes.length;
+  }
+
+  public int getQueueDepth(int lane) {
+    return this.lanes[lane].queue.size();
+  }
+
+  public int[] getQueueDepths() {
+    int[] depths = new int[this.lanes.length];
+    for (int i = 0; i < depths.length; i++) {
+      depths[i] = this.lanes[i].queue.size();
+    }
+    return depths;
+  }
+
+  @Override
+  public void close() {
+    this.lock.writeLock().lock();
+    try {
+      this.running = false;
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+    for (Lane lane : this.lanes) {
+      try {
+        lane.thread.join(TimeUnit.SECONDS.toMillis(30));
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      if (lane.thread.isAlive()) {
+        this.log.warn(
+            "timeout waiting for lane " + lane.index + ", pending tasks=" + lane.queue.size());
+        lane.thread.interrupt();
+      }
+    }
+  }
+
+  private final class Lane implements Runnable {
+
+    private final int index;
+    private final BlockingQueue<Runnable> queue;
+    private final Thread thread;
+
+    Lane(int index, int capacity) {
+      this.index = index;
+      this.queue = new LinkedBlockingQueue<>(capacity);
+      this.thread = new Thread(this, "messaging-lane-" + index);
+      this.thread.setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      while (PartitionedMessageExecutor.this.running || !this.queue.isEmpty()) {
+        Runnable task;
+        try {
+          task = this.queue.poll(100, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+          return;
+        }
+        if (task == null) {
+          continue;
+        }
+        try {
+          task.run();
+        } catch (Throwable ex) {
+          PartitionedMessageExecutor.this.log.error("task failed on lane " + this.index, ex);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package zenny.toybox.springfield.messaging.support;
+
+import java.beans.PropertyDescriptor;
+import java.util.Arrays;
+import java.util.function.Function;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.NullValueInNestedPathException;
+import org.springframework.beans.PropertyAccessor;
+import org.springframework.util.StringUtils;
+
+/**
+ * Reads a property path, such as {@code customer.name}, from message payloads. The getter chain is
+ * introspected and bound once per payload type; paths that cannot be expressed as plain getters
+ * fall back to a {@link BeanWrapperImpl}. As with the bean wrapper, a {@code null} value met before
+ * the end of the path raises a {@link NullValueInNestedPathException}.
+ */
+final class PayloadPropertyAccessor {
+
+  private final String path;
+  private volatile @Nullable GetterChain chain;
+
+  PayloadPropertyAccessor(String path) {
+    this.path = path;
+  }
+
+  @Nullable Object getValue(Object payload) {
+    GetterChain chain = this.chain;
+    if (chain == null || chain.type != payload.getClass()) {
+      chain = new GetterChain(payload.getClass(), this.path);
+      this.chain = chain;
+    }
+    if (chain.getters == null) {
+      return new BeanWrapperImpl(payload).getPropertyValue(this.path);
+    }
+    Object value = payload;
+    for (int i = 0; i < chain.getters.length; i++) {
+      if (value == null) {
+        throw new NullValueInNestedPathException(
+            chain.type, String.join(".", Arrays.copyOf(chain.properties, i)));
+      }
+      value = chain.getters[i].apply(value);
+    }
+    return value;
+  }
+
+  private static final class GetterChain {
+
+    private final Class<?> type;
+    private final String[] properties;
+    private final Function<Object, @Nullable Object> @Nullable [] getters;
+
+    GetterChain(Class<?> type, String path) {
+      this.type = type;
+      this.properties = StringUtils.delimitedListToStringArray(path, ".");
+      this.getters = introspect(type, path, this.properties);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, @Nullable Object> @Nullable [] introspect(
+        Class<?> type, String path, String[] properties) {
+      if (path.indexOf(PropertyAccessor.PROPERTY_KEY_PREFIX_CHAR) >= 0) {
+        return null;
+      }
+      Function<Object, @Nullable Object>[] getters =
+          (Function<Object, @Nullable Object>[]) new Function<?, ?>[properties.length];
+      Class<?> current = type;
+      for (int i = 0; i < properties.length; i++) {
+        PropertyDescriptor pd = BeanUtils.getPropertyDescriptor(current, properties[i]);
+        if (pd == null || pd.getReadMethod() == null) {
+          return null;
+        }
+        getters[i] = MessageListenerInvoker.forGetter(pd.getReadMethod());
+        current = pd.getReadMethod().getReturnType();
+      }
+      return getters;
+    }
+  }
+}
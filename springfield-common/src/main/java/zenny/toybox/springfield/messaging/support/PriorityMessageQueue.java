@@ -0,0 +1,351 @@
+package zenny.toybox.springfield.messaging.support;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+import org.jspecify.annotations.Nullable;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.util.Assert;
+
+/**
+ * A bounded {@link BlockingQueue} of tasks holding one FIFO level per priority, meant as the work
+ * queue of a {@link java.util.concurrent.ThreadPoolExecutor}. Level {@code 0} is the most urgent.
+ *
+ * <p>Levels are served by weighted fair scheduling: each level is given as many credits as its
+ * weight, a task is taken from the most urgent level that is not empty and still has credits, and
+ * the credits are restored once no such level is left. An urgent task therefore skips any backlog
+ * of less urgent ones, while every level still gets its share of each round, so that none of them
+ * starves.
+ *
+ * <p>The level of a {@link MessageTask} is resolved from its message; other tasks go to the default
+ * level.
+ */
+public class PriorityMessageQueue extends AbstractQueue<Runnable>
+    implements BlockingQueue<Runnable> {
+
+  private final ArrayDeque<Runnable>[] levels;
+  private final int[] weights;
+  private final int[] credits;
+  private final int capacity;
+  private final int defaultLevel;
+  private final ToIntFunction<Message<?>> levelResolver;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = this.lock.newCondition();
+  private final Condition notFull = this.lock.newCondition();
+  private int count;
+
+  /**
+   * @param capacity the maximum number of queued tasks, all levels included
+   * @param weights the weight of each level, the most urgent first
+   * @param defaultLevel the level of tasks without a resolved priority
+   * @param levelResolver resolves the level of a message, out-of-range levels being clamped
+   */
+  @SuppressWarnings("unchecked")
+  public PriorityMessageQueue(
+      int capacity, int[] weights, int defaultLevel, ToIntFunction<Message<?>> levelResolver) {
+    Assert.isTrue(capacity > 0, "capacity must be positive");
+    Assert.isTrue(weights.length > 0, "at least one level is required");
+    for (int weight : weights) {
+      Assert.isTrue(weight > 0, "weights must be positive");
+    }
+    this.levels = (ArrayDeque<Runnable>[]) new ArrayDeque<?>[weights.length];
+    for (int i = 0; i < weights.length; i++) {
+      this.levels[i] = new ArrayDeque<>();
+    }
+    this.weights = weights.clone();
+    this.credits = weights.clone();
+    this.capacity = capacity;
+    this.defaultLevel = this.clamp(defaultLevel);
+    this.levelResolver = levelResolver;
+  }
+
+  /**
+   * Returns a resolver reading the level from the given header, holding a number or a numeric
+   * string, and falling back to the level configured for the channel, then to {@code defaultLevel}.
+   */
+  public static ToIntFunction<Message<?>> levelResolver(
+      String header, Map<String, Integer> channelLevels, int defaultLevel) {
+    Map<String, Integer> levels = Map.copyOf(channelLevels);
+    return message -> {
+      Object value = message.getHeaders().get(header);
+      if (value instanceof Number number) {
+        return number.intValue();
+      }
+      if (value instanceof String text) {
+        try {
+          return Integer.parseInt(text.trim());
+        } catch (NumberFormatException ex) {
+          // fall back to the channel level
+        }
+      }
+      return levels.getOrDefault(message.getChannel(), defaultLevel);
+    };
+  }
+
+  public int getLevelCount() {
+    return this.levels.length;
+  }
+
+  /** Returns the number of tasks queued at the given level. */
+  public int size(int level) {
+    this.lock.lock();
+    try {
+      return this.levels[level].size();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    this.lock.lock();
+    try {
+      return this.count;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  @Override
+  public int remainingCapacity() {
+    this.lock.lock();
+    try {
+      return this.capacity - this.count;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean offer(Runnable task) {
+    int level = this.levelOf(task);
+    this.lock.lock();
+    try {
+      if (this.count == this.capacity) {
+        return false;
+      }
+      this.enqueue(task, level);
+      return true;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(Runnable task) throws InterruptedException {
+    int level = this.levelOf(task);
+    this.lock.lockInterruptibly();
+    try {
+      while (this.count == this.capacity) {
+        this.notFull.await();
+      }
+      this.enqueue(task, level);
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+    int level = this.levelOf(task);
+    long nanos = unit.toNanos(timeout);
+    this.lock.lockInterruptibly();
+    try {
+      while (this.count == this.capacity) {
+        if (nanos <= 0L) {
+          return false;
+        }
+        nanos = this.notFull.awaitNanos(nanos);
+      }
+      this.enqueue(task, level);
+      return true;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  @Override
+  public @Nullable Runnable poll() {
+    this.lock.lock();
+    try {
+      return this.count == 0 ? null : this.dequeue();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  @Override
+  public Runnable take() throws InterruptedException {
+    this.lock.lockInterruptibly();
+    try {
+      while (this.count == 0) {
+        this.notEmpty.await();
+      }
+      return this.dequeue();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  @Override
+  public @Nullable Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    this.lock.lockInterruptibly();
+    try {
+      while (this.count == 0) {
+        if (nanos <= 0L) {
+          return null;
+        }
+        nanos = this.notEmpty.awaitNanos(nanos);
+      }
+      return this.dequeue();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Removes the oldest task of the least urgent level that is not empty, which is the one to drop
+   * when the queue overflows.
+   */
+  public @Nullable Runnable pollLeastUrgent() {
+    this.lock.lock();
+    try {
+      for (int i = this.levels.length - 1; i >= 0; i--) {
+        Runnable task = this.levels[i].poll();
+        if (task != null) {
+          this.dequeued();
+          return task;
+        }
+      }
+      return null;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /** Returns the task {@link #poll()} would return, without taking it or using a credit. */
+  @Override
+  public @Nullable Runnable peek() {
+    this.lock.lock();
+    try {
+      int level = this.nextLevel();
+      return level >= 0 ? this.levels[level].peek() : null;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean remove(Object task) {
+    this.lock.lock();
+    try {
+      for (ArrayDeque<Runnable> level : this.levels) {
+        if (level.remove(task)) {
+          this.dequeued();
+          return true;
+        }
+      }
+      return false;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  @Override
+  public int drainTo(Collection<? super Runnable> target) {
+    return this.drainTo(target, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(Collection<? super Runnable> target, int maxElements) {
+    this.lock.lock();
+    try {
+      int drained = 0;
+      while (drained < maxElements && this.count > 0) {
+        target.add(this.dequeue());
+        drained++;
+      }
+      return drained;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /** Returns an iterator over a snapshot of the queued tasks, the most urgent level first. */
+  @Override
+  public Iterator<Runnable> iterator() {
+    this.lock.lock();
+    try {
+      List<Runnable> snapshot = new ArrayList<>(this.count);
+      for (ArrayDeque<Runnable> level : this.levels) {
+        snapshot.addAll(level);
+      }
+      return snapshot.iterator();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  private int levelOf(Runnable task) {
+    if (task instanceof MessageTask messageTask) {
+      return this.clamp(this.levelResolver.applyAsInt(messageTask.getMessage()));
+    }
+    return this.defaultLevel;
+  }
+
+  private int clamp(int level) {
+    return Math.max(0, Math.min(level, this.levels.length - 1));
+  }
+
+  private void enqueue(Runnable task, int level) {
+    this.levels[level].add(task);
+    this.count++;
+    this.notEmpty.signal();
+  }
+
+  private Runnable dequeue() {
+    int level = this.nextLevel();
+    if (this.credits[level] == 0) {
+      System.arraycopy(this.weights, 0, this.credits, 0, this.weights.length);
+    }
+    this.credits[level]--;
+    Runnable task = this.levels[level].poll();
+    this.dequeued();
+    return task;
+  }
+
+  /**
+   * Returns the level the next task is taken from: the most urgent level that is not empty and
+   * still has credits or, when no such level is left and the credits are about to be restored, the
+   * most urgent level that is not empty. Returns {@code -1} if the queue is empty.
+   */
+  private int nextLevel() {
+    int firstNonEmpty = -1;
+    for (int i = 0; i < this.levels.length; i++) {
+      if (!this.levels[i].isEmpty()) {
+        if (this.credits[i] > 0) {
+          return i;
+        }
+        if (firstNonEmpty < 0) {
+          firstNonEmpty = i;
+        }
+      }
+    }
+    return firstNonEmpty;
+  }
+
+  private void dequeued() {
+    this.count--;
+    this.notFull.signal();
+  }
+}
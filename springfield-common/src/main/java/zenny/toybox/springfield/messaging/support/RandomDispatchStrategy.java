@@ -3,6 +3,7 @@ package zenny.toybox.springfield.messaging.support;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 import zenny.toybox.springfield.messaging.DispatchStrategy;
+import zenny.toybox.springfield.messaging.HandlerSelector;
 import zenny.toybox.springfield.messaging.Message;
 import zenny.toybox.springfield.messaging.MessageHandler;
 
@@ -15,4 +16,13 @@ public class RandomDispatchStrategy implements DispatchStrategy {
     }
     return List.of(handlers.get(ThreadLocalRandom.current().nextInt(handlers.size())));
   }
+
+  @Override
+  public HandlerSelector bind(List<MessageHandler> handlers) {
+    if (handlers.size() <= 1) {
+      return message -> handlers;
+    }
+    List<MessageHandler>[] selections = Selections.singletons(handlers);
+    return message -> selections[ThreadLocalRandom.current().nextInt(selections.length)];
+  }
 }
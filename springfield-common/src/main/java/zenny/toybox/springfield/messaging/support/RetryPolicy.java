@@ -0,0 +1,105 @@
+package zenny.toybox.springfield.messaging.support;
+
+import java.time.Duration;
+import java.util.Set;
+import org.jspecify.annotations.Nullable;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageHeaders;
+import zenny.toybox.springfield.util.Assert;
+
+/**
+ * Describes how failed messages are redelivered: up to {@code maxRetries} times with an
+ * exponentially growing backoff, after which they are published to the dead-letter channel, if any.
+ * Redelivered messages keep the acknowledgement of the original message.
+ *
+ * <p>A message is only redelivered to the consumer groups that failed to handle it, or were not
+ * reached, as named by its {@link #GROUPS_HEADER} header, so that the groups that handled it do not
+ * run their side effects again.
+ */
+public class RetryPolicy {
+
+  /** Header holding the number of the redelivery attempt, starting at 1. */
+  public static final String ATTEMPT_HEADER = "x-retry-attempt";
+
+  /**
+   * Header of a redelivered message holding the {@link java.util.Set} of the names of the consumer
+   * groups it is redelivered to. A message without it is delivered to all groups.
+   */
+  public static final String GROUPS_HEADER = "x-retry-groups";
+
+  /** Header of a dead-lettered message holding the channel it failed on. */
+  public static final String ORIGINAL_CHANNEL_HEADER = "x-original-channel";
+
+  /** Header of a dead-lettered message describing the last failure. */
+  public static final String EXCEPTION_HEADER = "x-exception";
+
+  private final int maxRetries;
+  private final Duration initialInterval;
+  private final double multiplier;
+  private final Duration maxInterval;
+  private final @Nullable String deadLetterChannel;
+
+  public RetryPolicy(
+      int maxRetries,
+      Duration initialInterval,
+      double multiplier,
+      Duration maxInterval,
+      @Nullable String deadLetterChannel) {
+    Assert.isTrue(maxRetries >= 0, "maxRetries must not be negative");
+    Assert.isTrue(multiplier >= 1.0, "multiplier must be at least 1");
+    this.maxRetries = maxRetries;
+    this.initialInterval = initialInterval;
+    this.multiplier = multiplier;
+    this.maxInterval = maxInterval;
+    this.deadLetterChannel = deadLetterChannel;
+  }
+
+  public int getMaxRetries() {
+    return this.maxRetries;
+  }
+
+  public @Nullable String getDeadLetterChannel() {
+    return this.deadLetterChannel;
+  }
+
+  /** Returns the delay before the given redelivery attempt, starting at 1. */
+  public Duration getBackoff(int attempt) {
+    double millis = this.initialInterval.toMillis() * Math.pow(this.multiplier, attempt - 1);
+    return millis >= this.maxInterval.toMillis()
+        ? this.maxInterval
+        : Duration.ofMillis((long) millis);
+  }
+
+  /** Returns the redelivery attempt of the given message, or {@code 0} for the first delivery. */
+  public static int getAttempt(Message<?> message) {
+    return message.getHeaders().get(ATTEMPT_HEADER) instanceof Integer attempt ? attempt : 0;
+  }
+
+  /**
+   * Creates the redelivery of a message.
+   *
+   * @param failedGroups the groups to redeliver the message to, or none to keep the groups it was
+   *     delivered to
+   */
+  public Message<?> createRetry(Message<?> message, int attempt, Set<String> failedGroups) {
+    MessageHeaders.Builder headers =
+        MessageHeaders.builder(message.getHeaders()).header(ATTEMPT_HEADER, attempt);
+    if (!failedGroups.isEmpty()) {
+      headers.header(GROUPS_HEADER, Set.copyOf(failedGroups));
+    }
+    return GenericMessage.from(
+        message, message.getChannel(), headers.build(), message::acknowledge);
+  }
+
+  public Message<?> createDeadLetter(Message<?> message, String channel, Throwable failure) {
+    MessageHeaders headers =
+        MessageHeaders.builder(message.getHeaders())
+            .remove(ATTEMPT_HEADER)
+            .remove(GROUPS_HEADER)
+            .header(ORIGINAL_CHANNEL_HEADER, message.getChannel())
+            .header(EXCEPTION_HEADER, failure.toString())
+            .build();
+    return GenericMessage.from(message, channel, headers, message::acknowledge);
+  }
+}
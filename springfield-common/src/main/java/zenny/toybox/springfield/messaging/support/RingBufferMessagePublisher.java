@@ -0,0 +1,294 @@
+package zenny.toybox.springfield.messaging.support;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.jspecify.annotations.Nullable;
+import org.springframework.util.ErrorHandler;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageDispatcher;
+import zenny.toybox.springfield.util.Assert;
+import zenny.toybox.springfield.util.concurrent.PaddedAtomicLong;
+
+/**
+ * A publisher handing messages to a single consumer thread through a pre-allocated ring buffer, in
+ * the style of the LMAX Disruptor. Producers claim a slot with a CAS on the claim sequence, store
+ * the message and mark the slot available; no lock is taken and nothing is allocated on the way.
+ * The consumer drains every contiguous available slot as one batch and releases them at once.
+ *
+ * <p>All messages are dispatched on the consumer thread, so this publisher suits in-process event
+ * channels with short handlers. The consumer thread is started by the first publish. A full buffer
+ * makes producers wait for the consumer, while {@link #tryPublish(Message)} rejects the message
+ * instead. The consumer itself cannot wait for a free slot, so a message published from a handler,
+ * or dead-lettered, while the buffer is full is rejected with a {@link RejectedExecutionException}.
+ */
+public class RingBufferMessagePublisher extends DefaultMessagePublisher implements AutoCloseable {
+
+  public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  private static final VarHandle AVAILABLE = MethodHandles.arrayElementVarHandle(int[].class);
+
+  private static final int NEW = 0;
+  private static final int RUNNING = 1;
+  private static final int CLOSED = 2;
+
+  private final Message<?>[] entries;
+  private final @Nullable CompletableFuture<Void>[] futures;
+  private final int[] available;
+  private final int mask;
+  private final int shift;
+  private final WaitStrategy waitStrategy;
+  private final PaddedAtomicLong claimed = new PaddedAtomicLong(-1L);
+  private final PaddedAtomicLong consumed = new PaddedAtomicLong(-1L);
+  private final PaddedAtomicLong gatingCache = new PaddedAtomicLong(-1L);
+  private volatile @Nullable Thread consumer;
+  private volatile int state = NEW;
+
+  public RingBufferMessagePublisher(
+      MessageDispatcher dispatcher, @Nullable ErrorHandler errorHandler) {
+    this(dispatcher, errorHandler, DEFAULT_BUFFER_SIZE, WaitStrategy.PARK);
+  }
+
+  public RingBufferMessagePublisher(
+      MessageDispatcher dispatcher,
+      @Nullable ErrorHandler errorHandler,
+      int bufferSize,
+      WaitStrategy waitStrategy) {
+    super(dispatcher, null, errorHandler);
+    Assert.isTrue(
+        bufferSize > 0 && Integer.bitCount(bufferSize) == 1, "bufferSize must be a power of 2");
+    Assert.notNull(waitStrategy, "waitStrategy must not be null");
+    this.entries = new Message<?>[bufferSize];
+    this.futures = newFutures(bufferSize);
+    this.available = new int[bufferSize];
+    for (int i = 0; i < bufferSize; i++) {
+      this.available[i] = -1;
+    }
+    this.mask = bufferSize - 1;
+    this.shift = Integer.numberOfTrailingZeros(bufferSize);
+    this.waitStrategy = waitStrategy;
+  }
+
+  @Override
+  protected boolean doPublish(
+      Message<?> message, @Nullable CompletableFuture<Void> future, boolean failFast) {
+    Assert.notNull(message, "message must not be null");
+    long sequence = this.claim(failFast);
+    if (sequence < 0) {
+      return false;
+    }
+    this.notifyPublished(message);
+    int index = (int) sequence & this.mask;
+    this.entries[index] = message;
+    this.futures[index] = future;
+    AVAILABLE.setRelease(this.available, index, (int) (sequence >>> this.shift));
+    if (this.state != RUNNING) {
+      this.awaitConsumed(sequence);
+    }
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static @Nullable CompletableFuture<Void>[] newFutures(int size) {
+    return (CompletableFuture<Void>[]) new CompletableFuture<?>[size];
+  }
+
+  /** Returns the number of messages published but not yet consumed. */
+  public long getBacklog() {
+    return this.claimed.get() - this.consumed.get();
+  }
+
+  public int getBufferSize() {
+    return this.entries.length;
+  }
+
+  /** Claims the next sequence, or returns {@code -1} if the buffer is full and not waiting. */
+  private long claim(boolean failFast) {
+    int attempts = 0;
+    while (true) {
+      int state = this.state;
+      if (state != RUNNING) {
+        if (state == CLOSED) {
+          throw new RejectedExecutionException("publisher has been closed");
+        }
+        this.start();
+        continue;
+      }
+      long current = this.claimed.get();
+      long next = current + 1;
+      long wrapPoint = next - this.entries.length;
+      if (wrapPoint > this.gatingCache.get()) {
+        long gating = this.consumed.get();
+        if (wrapPoint > gating) {
+          if (failFast) {
+            return -1L;
+          }
+          if (Thread.currentThread() == this.consumer) {
+            throw new RejectedExecutionException(
+                "ring buffer is full and the consumer thread cannot wait for itself");
+          }
+          this.waitStrategy.idle(attempts);
+          attempts = Math.min(attempts + 1, WaitStrategy.PARK_AFTER);
+          continue;
+        }
+        this.gatingCache.set(gating);
+      }
+      if (this.claimed.compareAndSet(current, next)) {
+        return next;
+      }
+    }
+  }
+
+  private synchronized void start() {
+    if (this.state == NEW) {
+      Thread consumer = new Thread(this::consume, "messaging-ring-buffer");
+      consumer.setDaemon(true);
+      this.consumer = consumer;
+      this.state = RUNNING;
+      consumer.start();
+    }
+  }
+
+  /**
+   * Called by a producer that saw the publisher closing after claiming its sequence: the consumer
+   * may have stopped before seeing the claim, so wait for it to stop and reject the message unless
+   * it was consumed. A producer still seeing the publisher running after its claim is always seen
+   * by the consumer, which only stops once closed and every claimed sequence is consumed.
+   */
+  private void awaitConsumed(long sequence) {
+    Thread consumer = this.consumer;
+    if (consumer == null || consumer == Thread.currentThread()) {
+      return;
+    }
+    try {
+      consumer.join();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new RejectedExecutionException("interrupted while the publisher was closing", ex);
+    }
+    if (this.consumed.get() < sequence) {
+      int index = (int) sequence & this.mask;
+      this.entries[index] = null;
+      this.futures[index] = null;
+      throw new RejectedExecutionException("publisher has been closed");
+    }
+  }
+
+  private boolean isAvailable(long sequence) {
+    return (int) AVAILABLE.getAcquire(this.available, (int) sequence & this.mask)
+        == (int) (sequence >>> this.shift);
+  }
+
+  private void consume() {
+    long next = this.consumed.get() + 1;
+    int attempts = 0;
+    while (true) {
+      if (!this.isAvailable(next)) {
+        if (this.state == CLOSED && this.claimed.get() < next) {
+          return;
+        }
+        this.waitStrategy.idle(attempts);
+        attempts = Math.min(attempts + 1, WaitStrategy.PARK_AFTER);
+        continue;
+      }
+      attempts = 0;
+      long end = next;
+      long highest = this.claimed.get();
+      while (end < highest && this.isAvailable(end + 1)) {
+        end++;
+      }
+      for (long sequence = next; sequence <= end; sequence++) {
+        int index = (int) sequence & this.mask;
+        Message<?> message = this.entries[index];
+        CompletableFuture<Void> future = this.futures[index];
+        this.entries[index] = null;
+        this.futures[index] = null;
+        try {
+          this.invokeDispatcher(message, future);
+        } catch (Throwable ex) {
+          this.invokeErrorHandler(message, ex);
+          if (future != null) {
+            future.completeExceptionally(ex);
+          }
+        }
+      }
+      this.consumed.setRelease(end);
+      next = end + 1;
+    }
+  }
+
+  /** Stops accepting messages and waits for the consumer to drain the buffer. */
+  @Override
+  public void close() {
+    Thread consumer;
+    synchronized (this) {
+      this.state = CLOSED;
+      consumer = this.consumer;
+    }
+    if (consumer == null) {
+      return;
+    }
+    try {
+      consumer.join(TimeUnit.SECONDS.toMillis(30));
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+    if (consumer.isAlive()) {
+      this.log.warn("timeout waiting for ring buffer consumer, backlog=" + this.getBacklog());
+    }
+  }
+
+  /** How the consumer waits for messages, and producers for free slots. */
+  public enum WaitStrategy {
+
+    /**
+     * Spins on the CPU; lowest latency at the cost of a fully busy core. Only use it when there are
+     * more cores than spinning threads.
+     */
+    BUSY_SPIN {
+
+      @Override
+      void idle(int attempts) {
+        Thread.onSpinWait();
+      }
+    },
+
+    /** Spins briefly, then yields the CPU to other threads between checks. */
+    YIELD {
+
+      @Override
+      void idle(int attempts) {
+        if (attempts < SPIN_TRIES) {
+          Thread.onSpinWait();
+        } else {
+          Thread.yield();
+        }
+      }
+    },
+
+    /** Spins and yields briefly, then parks for short periods; cheapest when mostly idle. */
+    PARK {
+
+      @Override
+      void idle(int attempts) {
+        if (attempts < SPIN_TRIES) {
+          Thread.onSpinWait();
+        } else if (attempts < PARK_AFTER) {
+          Thread.yield();
+        } else {
+          LockSupport.parkNanos(PARK_NANOS);
+        }
+      }
+    };
+
+    private static final int SPIN_TRIES = 100;
+    private static final int PARK_AFTER = SPIN_TRIES * 2;
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    abstract void idle(int attempts);
+  }
+}
@@ -1,29 +1,45 @@
 package zenny.toybox.springfield.messaging.support;
 
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
 import zenny.toybox.springfield.messaging.DispatchStrategy;
+import zenny.toybox.springfield.messaging.HandlerSelector;
 import zenny.toybox.springfield.messaging.Message;
 import zenny.toybox.springfield.messaging.MessageHandler;
+import zenny.toybox.springfield.util.concurrent.PaddedAtomicLong;
 
 public class RoundRobinDispatchStrategy implements DispatchStrategy {
 
-  private final ConcurrentHashMap<Integer, AtomicInteger> counters = new ConcurrentHashMap<>();
+  private final BoundSelectors selectors = new BoundSelectors();
 
   @Override
   public List<MessageHandler> select(List<MessageHandler> handlers, Message<?> message) {
-    if (handlers.isEmpty()) {
-      return List.of();
-    }
-    if (handlers.size() == 1) {
+    if (handlers.size() <= 1) {
       return handlers;
     }
-    int key = System.identityHashCode(handlers);
-    int index =
-        Math.floorMod(
-            this.counters.computeIfAbsent(key, k -> new AtomicInteger(0)).getAndIncrement(),
-            handlers.size());
-    return List.of(handlers.get(index));
+    return this.selectors.get(this, handlers).select(message);
+  }
+
+  @Override
+  public HandlerSelector bind(List<MessageHandler> handlers) {
+    if (handlers.size() <= 1) {
+      return message -> handlers;
+    }
+    return new Cursor(handlers);
+  }
+
+  private static final class Cursor implements HandlerSelector {
+
+    private final List<MessageHandler>[] selections;
+    private final PaddedAtomicLong position = new PaddedAtomicLong();
+
+    Cursor(List<MessageHandler> handlers) {
+      this.selections = Selections.singletons(handlers);
+    }
+
+    @Override
+    public List<MessageHandler> select(Message<?> message) {
+      return this.selections[
+          (int) Long.remainderUnsigned(this.position.getAndIncrement(), this.selections.length)];
+    }
   }
 }
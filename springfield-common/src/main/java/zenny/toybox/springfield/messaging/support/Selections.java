@@ -0,0 +1,22 @@
+package zenny.toybox.springfield.messaging.support;
+
+import java.util.List;
+import zenny.toybox.springfield.messaging.MessageHandler;
+
+abstract class Selections {
+
+  private Selections() {}
+
+  /**
+   * Returns a singleton list for each of the given handlers, so selectors can hand out a single
+   * handler without allocating per message.
+   */
+  @SuppressWarnings("unchecked")
+  static List<MessageHandler>[] singletons(List<MessageHandler> handlers) {
+    List<MessageHandler>[] selections = (List<MessageHandler>[]) new List<?>[handlers.size()];
+    for (int i = 0; i < selections.length; i++) {
+      selections[i] = List.of(handlers.get(i));
+    }
+    return selections;
+  }
+}
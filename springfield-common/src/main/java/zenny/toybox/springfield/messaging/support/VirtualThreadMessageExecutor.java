@@ -0,0 +1,225 @@
+package zenny.toybox.springfield.messaging.support;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.jspecify.annotations.Nullable;
+import zenny.toybox.springfield.util.Assert;
+
+/**
+ * An {@link Executor} running every task on its own virtual thread. Instead of capping the number
+ * of threads, the number of {@link MessageTask}s running concurrently is limited per channel. A
+ * task only gets a thread once it holds a permit of its channel: tasks over the limit wait in a
+ * per-channel queue of {@code queueCapacity} tasks, and are started as running tasks complete.
+ *
+ * <p>{@link MessageTask#isFailFast() Fail-fast} tasks over the limit are rejected. Other tasks
+ * finding the queue of their channel full are handed to the {@link MessageOverflowHandler}, as with
+ * the pool based executors, except that {@link MessageOverflowHandler.OverflowPolicy#CALLER_RUNS}
+ * still counts against the limit: the caller waits up to the block timeout for a permit of the
+ * channel, then runs the task itself.
+ */
+public class VirtualThreadMessageExecutor implements Executor, AutoCloseable {
+
+  private final ExecutorService executor;
+  private final int defaultConcurrency;
+  private final Map<String, Integer> channelConcurrency;
+  private final int queueCapacity;
+  private final MessageOverflowHandler overflowHandler;
+  private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+  private volatile @Nullable Consumer<String> laneListener;
+
+  public VirtualThreadMessageExecutor(int defaultConcurrency) {
+    this(defaultConcurrency, Map.of());
+  }
+
+  public VirtualThreadMessageExecutor(
+      int defaultConcurrency, Map<String, Integer> channelConcurrency) {
+    this(
+        defaultConcurrency,
+        channelConcurrency,
+        Integer.MAX_VALUE,
+        new MessageOverflowHandler(MessageOverflowHandler.OverflowPolicy.REJECT));
+  }
+
+  public VirtualThreadMessageExecutor(
+      int defaultConcurrency,
+      Map<String, Integer> channelConcurrency,
+      int queueCapacity,
+      MessageOverflowHandler overflowHandler) {
+    Assert.isTrue(queueCapacity > 0, "queueCapacity must be positive");
+    Assert.notNull(overflowHandler, "overflowHandler must not be null");
+    this.executor =
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("messaging-vt-", 0).factory());
+    this.defaultConcurrency = defaultConcurrency;
+    this.channelConcurrency = Map.copyOf(channelConcurrency);
+    this.queueCapacity = queueCapacity;
+    this.overflowHandler = overflowHandler;
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    if (!(task instanceof MessageTask messageTask)) {
+      this.executor.execute(task);
+      return;
+    }
+    Lane lane = this.getLane(messageTask.getMessage().getChannel());
+    if (lane == null) {
+      this.executor.execute(task);
+      return;
+    }
+    if (lane.permits.tryAcquire()) {
+      lane.start(task);
+      return;
+    }
+    if (messageTask.isFailFast()) {
+      throw new RejectedExecutionException(
+          "concurrency limit reached, channel=" + messageTask.getMessage().getChannel());
+    }
+    if (this.executor.isShutdown()) {
+      throw new RejectedExecutionException("executor has been shut down");
+    }
+    if (!lane.waiting.offer(task)) {
+      if (this.overflowHandler.getPolicy() == MessageOverflowHandler.OverflowPolicy.CALLER_RUNS) {
+        lane.runOnCaller(task);
+      } else {
+        this.overflowHandler.rejectedExecution(task, lane.waiting, this);
+      }
+    }
+    lane.drain();
+  }
+
+  private @Nullable Lane getLane(String channel) {
+    Lane lane = this.lanes.get(channel);
+    if (lane != null) {
+      return lane;
+    }
+    int permits = this.channelConcurrency.getOrDefault(channel, this.defaultConcurrency);
+    if (permits <= 0) {
+      return null;
+    }
+    Lane created = new Lane(permits);
+    lane = this.lanes.putIfAbsent(channel, created);
+    if (lane != null) {
+      return lane;
+    }
+    Consumer<String> listener = this.laneListener;
+    if (listener != null) {
+      listener.accept(channel);
+    }
+    return created;
+  }
+
+  /**
+   * Sets a listener called with the channel of every lane created from now on, e.g. to bind meters
+   * to it. Lanes are created on the first task of their channel.
+   */
+  public void setLaneListener(@Nullable Consumer<String> laneListener) {
+    this.laneListener = laneListener;
+  }
+
+  /** Returns the channels having a lane so far. */
+  public Set<String> getChannels() {
+    return Collections.unmodifiableSet(this.lanes.keySet());
+  }
+
+  public int getActiveCount(String channel) {
+    Lane lane = this.lanes.get(channel);
+    return lane != null ? lane.concurrency - lane.permits.availablePermits() : 0;
+  }
+
+  public int getWaitingCount(String channel) {
+    Lane lane = this.lanes.get(channel);
+    return lane != null ? lane.waiting.size() : 0;
+  }
+
+  @Override
+  public void close() {
+    this.executor.shutdown();
+    try {
+      if (!this.executor.awaitTermination(30, TimeUnit.SECONDS)) {
+        this.executor.shutdownNow();
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      this.executor.shutdownNow();
+    }
+  }
+
+  /** The concurrency limit of a channel, and the tasks waiting for one of its permits. */
+  private final class Lane {
+
+    private final int concurrency;
+    private final Semaphore permits;
+    private final BlockingQueue<Runnable> waiting;
+
+    Lane(int concurrency) {
+      this.concurrency = concurrency;
+      this.permits = new Semaphore(concurrency);
+      this.waiting = new LinkedBlockingQueue<>(VirtualThreadMessageExecutor.this.queueCapacity);
+    }
+
+    /** Starts a task holding a permit, giving the permit back if no thread can be started. */
+    private void start(Runnable task) {
+      try {
+        VirtualThreadMessageExecutor.this.executor.execute(() -> this.run(task));
+      } catch (RuntimeException ex) {
+        this.permits.release();
+        throw ex;
+      }
+    }
+
+    private void run(Runnable task) {
+      try {
+        task.run();
+      } finally {
+        this.permits.release();
+        this.drain();
+      }
+    }
+
+    /** Runs a task on the calling thread once a permit is available. */
+    private void runOnCaller(Runnable task) {
+      long timeout = VirtualThreadMessageExecutor.this.overflowHandler.getBlockTimeout().toNanos();
+      try {
+        if (!this.permits.tryAcquire(timeout, TimeUnit.NANOSECONDS)) {
+          throw new RejectedExecutionException(
+              "timeout waiting for a permit after "
+                  + TimeUnit.NANOSECONDS.toMillis(timeout)
+                  + "ms");
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new RejectedExecutionException("interrupted while waiting for a permit", ex);
+      }
+      this.run(task);
+    }
+
+    /** Starts waiting tasks for as long as permits are available. */
+    private void drain() {
+      while (!this.waiting.isEmpty() && this.permits.tryAcquire()) {
+        Runnable next = this.waiting.poll();
+        if (next == null) {
+          this.permits.release();
+        } else {
+          try {
+            this.start(next);
+          } catch (RejectedExecutionException ex) {
+            if (next instanceof MessageTask dropped) {
+              dropped.discard(ex);
+            }
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,389 @@
+package zenny.toybox.springfield.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jspecify.annotations.Nullable;
+import zenny.toybox.springfield.util.Assert;
+
+/**
+ * A timer backed by a hierarchy of timing wheels, so that scheduling and cancelling a task are O(1)
+ * regardless of the number of pending tasks.
+ *
+ * <p>Each wheel is a circular array of buckets, each bucket holding the tasks expiring within one
+ * tick of the wheel. A task too far in the future for a wheel goes to the next, coarser wheel,
+ * whose tick is the span of the finer one, and is moved down as time advances. Only non-empty
+ * buckets are put on a {@link DelayQueue}, so the worker thread sleeps until the next bucket
+ * expires instead of ticking through empty ones.
+ *
+ * <p>The worker thread is started by the first scheduled task. Expired tasks are handed to the
+ * given executor, or run on the worker thread if there is none; in that case tasks must be short. A
+ * task that throws, or that the executor rejects, is logged and dropped. Closing the timer logs the
+ * number of tasks still pending, which are discarded; {@link #shutdownNow()} returns them instead.
+ *
+ * @author Zenny Xu
+ */
+public class HierarchicalTimingWheel implements AutoCloseable {
+
+  protected final Log logger = LogFactory.getLog(this.getClass());
+
+  private final DelayQueue<Bucket> queue = new DelayQueue<>();
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final AtomicInteger size = new AtomicInteger();
+  private final @Nullable Executor executor;
+  private final Wheel wheel;
+  private final Thread worker;
+  private final AtomicBoolean started = new AtomicBoolean();
+  private volatile boolean running = true;
+
+  /**
+   * Creates a timer with a resolution of {@code tickMillis}, whose finest wheel has {@code
+   * wheelSize} buckets.
+   *
+   * @param tickMillis the duration of one tick of the finest wheel, in milliseconds
+   * @param wheelSize the number of buckets of each wheel
+   * @param executor the executor running expired tasks, or {@code null} to run them on the worker
+   *     thread
+   */
+  public HierarchicalTimingWheel(long tickMillis, int wheelSize, @Nullable Executor executor) {
+    Assert.isTrue(tickMillis > 0, "tickMillis must be positive");
+    Assert.isTrue(wheelSize > 1, "wheelSize must be greater than 1");
+    this.executor = executor;
+    this.wheel = new Wheel(tickMillis, wheelSize, now(), this.queue, this.size);
+    this.worker = new Thread(this::work, "timing-wheel");
+    this.worker.setDaemon(true);
+  }
+
+  /**
+   * Schedules the task to run after the given delay.
+   *
+   * @param task the task
+   * @param delay the delay, anything not positive runs the task as soon as possible
+   * @param unit the unit of the delay
+   * @return a handle to cancel the task
+   */
+  public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+    Assert.notNull(task, "task must not be null");
+    Entry entry = new Entry(task, now() + Math.max(unit.toMillis(delay), 0L));
+    this.lock.readLock().lock();
+    try {
+      Assert.state(this.running, "timer has been closed");
+      if (!this.started.get() && this.started.compareAndSet(false, true)) {
+        this.worker.start();
+      }
+      this.add(entry);
+    } finally {
+      this.lock.readLock().unlock();
+    }
+    return entry;
+  }
+
+  /** Returns the number of tasks scheduled and not yet expired or cancelled. */
+  public int size() {
+    return this.size.get();
+  }
+
+  private void add(Entry entry) {
+    if (!this.wheel.add(entry) && !entry.isCancelled()) {
+      this.run(entry);
+    }
+  }
+
+  private void run(Entry entry) {
+    // a task failing, or rejected by the executor, must not end the worker and the tasks after it
+    try {
+      if (this.executor != null) {
+        this.executor.execute(entry.task);
+      } else {
+        entry.task.run();
+      }
+    } catch (Throwable ex) {
+      this.logger.error("failed to run expired task " + entry.task, ex);
+    }
+  }
+
+  private void work() {
+    Consumer<Entry> reinsert = this::add;
+    while (this.running) {
+      Bucket bucket;
+      try {
+        bucket = this.queue.poll(200, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException ex) {
+        return;
+      }
+      if (bucket == null) {
+        continue;
+      }
+      this.lock.writeLock().lock();
+      try {
+        while (bucket != null) {
+          this.wheel.advanceClock(bucket.getExpiration());
+          bucket.flush(reinsert);
+          bucket = this.queue.poll();
+        }
+      } finally {
+        this.lock.writeLock().unlock();
+      }
+    }
+  }
+
+  /** Stops the worker thread, logging the number of pending tasks, which are discarded. */
+  @Override
+  public void close() {
+    List<Runnable> pending = this.shutdownNow();
+    if (!pending.isEmpty()) {
+      this.logger.warn("timer closed with " + pending.size() + " pending tasks discarded");
+    }
+  }
+
+  /**
+   * Stops the worker thread and returns the tasks that were scheduled and had not run yet, in no
+   * particular order.
+   */
+  public List<Runnable> shutdownNow() {
+    this.lock.writeLock().lock();
+    try {
+      this.running = false;
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+    this.worker.interrupt();
+    if (this.worker != Thread.currentThread()) {
+      try {
+        this.worker.join();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    List<Runnable> pending = new ArrayList<>(this.size.get());
+    this.lock.writeLock().lock();
+    try {
+      for (Wheel wheel = this.wheel; wheel != null; wheel = wheel.overflow) {
+        for (Bucket bucket : wheel.buckets) {
+          bucket.flush(
+              entry -> {
+                if (!entry.isCancelled()) {
+                  pending.add(entry.task);
+                }
+              });
+        }
+      }
+      this.queue.clear();
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+    return pending;
+  }
+
+  private static long now() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+  }
+
+  /** A handle to a scheduled task. */
+  public interface Timeout {
+
+    /**
+     * Cancels the task if it has not run yet.
+     *
+     * @return {@code true} if the task was cancelled by this call
+     */
+    boolean cancel();
+
+    boolean isCancelled();
+  }
+
+  private static final class Wheel {
+
+    private final long tick;
+    private final int wheelSize;
+    private final long interval;
+    private final Bucket[] buckets;
+    private final DelayQueue<Bucket> queue;
+    private final AtomicInteger size;
+    private long currentTime;
+    private volatile @Nullable Wheel overflow;
+
+    Wheel(long tick, int wheelSize, long startTime, DelayQueue<Bucket> queue, AtomicInteger size) {
+      this.tick = tick;
+      this.wheelSize = wheelSize;
+      this.interval = tick * wheelSize;
+      this.buckets = new Bucket[wheelSize];
+      for (int i = 0; i < wheelSize; i++) {
+        this.buckets[i] = new Bucket(size);
+      }
+      this.queue = queue;
+      this.size = size;
+      this.currentTime = startTime - (startTime % tick);
+    }
+
+    /** Adds the entry, or returns {@code false} if it is cancelled or already expired. */
+    boolean add(Entry entry) {
+      long expiration = entry.expiration;
+      if (entry.isCancelled()) {
+        return false;
+      }
+      if (expiration < this.currentTime + this.tick) {
+        return false;
+      }
+      if (expiration < this.currentTime + this.interval) {
+        long virtualId = expiration / this.tick;
+        Bucket bucket = this.buckets[(int) (virtualId % this.wheelSize)];
+        bucket.add(entry);
+        if (bucket.setExpiration(virtualId * this.tick)) {
+          this.queue.offer(bucket);
+        }
+        return true;
+      }
+      return this.overflow().add(entry);
+    }
+
+    void advanceClock(long time) {
+      if (time >= this.currentTime + this.tick) {
+        this.currentTime = time - (time % this.tick);
+        Wheel overflow = this.overflow;
+        if (overflow != null) {
+          overflow.advanceClock(this.currentTime);
+        }
+      }
+    }
+
+    private Wheel overflow() {
+      Wheel overflow = this.overflow;
+      if (overflow == null) {
+        synchronized (this) {
+          overflow = this.overflow;
+          if (overflow == null) {
+            overflow =
+                new Wheel(this.interval, this.wheelSize, this.currentTime, this.queue, this.size);
+            this.overflow = overflow;
+          }
+        }
+      }
+      return overflow;
+    }
+  }
+
+  private static final class Bucket implements Delayed {
+
+    private final AtomicInteger size;
+    private final AtomicLong expiration = new AtomicLong(-1L);
+    private final Entry root = new Entry(() -> {}, -1L);
+
+    Bucket(AtomicInteger size) {
+      this.size = size;
+      this.root.next = this.root;
+      this.root.prev = this.root;
+    }
+
+    /** Sets the expiration, returning {@code true} if it changed, i.e. the bucket was reused. */
+    boolean setExpiration(long expiration) {
+      return this.expiration.getAndSet(expiration) != expiration;
+    }
+
+    long getExpiration() {
+      return this.expiration.get();
+    }
+
+    void add(Entry entry) {
+      boolean done = false;
+      while (!done) {
+        // an entry is in at most one bucket, so remove it from the one it is in first
+        entry.remove();
+        synchronized (this) {
+          synchronized (entry) {
+            if (entry.bucket == null) {
+              Entry tail = this.root.prev;
+              entry.next = this.root;
+              entry.prev = tail;
+              entry.bucket = this;
+              tail.next = entry;
+              this.root.prev = entry;
+              this.size.incrementAndGet();
+              done = true;
+            }
+          }
+        }
+      }
+    }
+
+    synchronized void remove(Entry entry) {
+      synchronized (entry) {
+        if (entry.bucket == this) {
+          entry.next.prev = entry.prev;
+          entry.prev.next = entry.next;
+          entry.next = null;
+          entry.prev = null;
+          entry.bucket = null;
+          this.size.decrementAndGet();
+        }
+      }
+    }
+
+    synchronized void flush(Consumer<Entry> consumer) {
+      Entry head = this.root.next;
+      while (head != this.root) {
+        this.remove(head);
+        consumer.accept(head);
+        head = this.root.next;
+      }
+      this.expiration.set(-1L);
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(Math.max(this.getExpiration() - now(), 0L), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+      return Long.compare(this.getExpiration(), ((Bucket) other).getExpiration());
+    }
+  }
+
+  private static final class Entry implements Timeout {
+
+    private final Runnable task;
+    private final long expiration;
+    private volatile @Nullable Bucket bucket;
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private Entry next;
+    private Entry prev;
+
+    Entry(Runnable task, long expiration) {
+      this.task = task;
+      this.expiration = expiration;
+    }
+
+    void remove() {
+      Bucket current = this.bucket;
+      while (current != null) {
+        current.remove(this);
+        current = this.bucket;
+      }
+    }
+
+    @Override
+    public boolean cancel() {
+      if (!this.cancelled.compareAndSet(false, true)) {
+        return false;
+      }
+      this.remove();
+      return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return this.cancelled.get();
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package zenny.toybox.springfield.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tabletest.junit.TableTest;
+
+/**
+ * Tests for {@link GenericMessage}, covering the decoding of the payload into the type read, its
+ * memoization for every type read, and the typed reads of derived messages.
+ */
+@DisplayName("GenericMessage")
+class GenericMessageTest {
+
+  @TableTest(
+      """
+      Scenario     | Type    | Expected | Decodes
+      Decoded type | Integer | 42       | Integer
+      Payload type | String  | 42       |
+      Supertype    | Object  | 42       |
+      """)
+  @DisplayName("getPayload.decodesOtherTypes")
+  void getPayloadDecodesOtherTypes(String type, String expected, String decodes) throws Exception {
+    CountingCodec codec = new CountingCodec();
+    GenericMessage<String> message = new GenericMessage<>("orders", "42", Map.of(), null, codec);
+
+    Object payload = message.getPayload(Class.forName("java.lang." + type));
+
+    assertEquals(expected, String.valueOf(payload));
+    assertEquals(decodes != null ? List.of(decodes) : List.of(), codec.decoded);
+  }
+
+  @Test
+  @DisplayName("getPayload.memoizesEveryType")
+  void getPayloadMemoizesEveryType() {
+    CountingCodec codec = new CountingCodec();
+    GenericMessage<String> message = new GenericMessage<>("orders", "42", Map.of(), null, codec);
+
+    Integer first = message.getPayload(Integer.class);
+    Long second = message.getPayload(Long.class);
+
+    for (int i = 0; i < 3; i++) {
+      assertSame(first, message.getPayload(Integer.class));
+      assertSame(second, message.getPayload(Long.class));
+    }
+    assertEquals(List.of("Integer", "Long"), codec.decoded);
+  }
+
+  @Test
+  @DisplayName("getPayload.sharesDecodingWithDerivedMessages")
+  void getPayloadSharesDecodingWithDerivedMessages() {
+    CountingCodec codec = new CountingCodec();
+    GenericMessage<String> message = new GenericMessage<>("orders", "42", Map.of(), null, codec);
+    GenericMessage<String> derived = GenericMessage.from(message, "retry", Map.of("a", 1), null);
+
+    assertSame(message.getPayload(Integer.class), derived.getPayload(Integer.class));
+    assertEquals(List.of("Integer"), codec.decoded);
+  }
+
+  @Test
+  @DisplayName("getPayload.rejectsOtherTypesWithoutCodec")
+  void getPayloadRejectsOtherTypesWithoutCodec() {
+    GenericMessage<String> message = new GenericMessage<>("orders", "42", Map.of(), null);
+
+    assertEquals("42", message.getPayload(CharSequence.class));
+    assertThrows(IllegalArgumentException.class, () -> message.getPayload(Integer.class));
+  }
+
+  /** A codec parsing numbers and recording the types it decoded. */
+  static final class CountingCodec implements PayloadCodec {
+
+    final List<String> decoded = new ArrayList<>();
+
+    @Override
+    public <T> T decode(Object payload, Class<T> type) {
+      this.decoded.add(type.getSimpleName());
+      if (type == Integer.class) {
+        return type.cast(Integer.valueOf(payload.toString()));
+      }
+      if (type == Long.class) {
+        return type.cast(Long.valueOf(payload.toString()));
+      }
+      throw new IllegalArgumentException("cannot decode " + type);
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package zenny.toybox.springfield.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tabletest.junit.TableTest;
+
+/**
+ * Tests for {@link MessageHeaders}, covering the hand-off of the builder array, the immutability of
+ * built headers, equality with other maps, and serialization.
+ */
+@DisplayName("MessageHeaders")
+class MessageHeadersTest {
+
+  @Test
+  @DisplayName("build.handsTheBuilderOver")
+  void buildHandsTheBuilderOver() {
+    MessageHeaders.Builder builder = MessageHeaders.builder(1).header("a", 1);
+    MessageHeaders headers = builder.header("b", 2).header("a", 3).build();
+
+    assertEquals(Map.of("a", 3, "b", 2), headers);
+    assertThrows(IllegalStateException.class, () -> builder.header("c", 4));
+    assertThrows(IllegalStateException.class, () -> builder.remove("a"));
+    assertThrows(IllegalStateException.class, builder::build);
+    assertEquals(Map.of("a", 3, "b", 2), headers);
+  }
+
+  @TableTest(
+      """
+      Scenario         | Headers           | Removed | Expected
+      Remove the last  | 'a=1, b=2, c=3'   | c       | 'a=1, b=2'
+      Remove the first | 'a=1, b=2, c=3'   | a       | 'b=2, c=3'
+      Remove a missing | a=1               | z       | a=1
+      Remove the only  | a=1               | a       |
+      """)
+  @DisplayName("remove.keepsTheOtherHeaders")
+  void removeKeepsTheOtherHeaders(String headers, String removed, @Nullable String expected) {
+    MessageHeaders built = MessageHeaders.builder(parse(headers)).remove(removed).build();
+
+    assertEquals(parse(expected), built);
+    assertNull(built.get(removed));
+    if (expected == null) {
+      assertSame(MessageHeaders.empty(), built);
+    }
+  }
+
+  @Test
+  @DisplayName("copyOf.keepsMessageHeadersAsIs")
+  void copyOfKeepsMessageHeadersAsIs() {
+    MessageHeaders headers = MessageHeaders.builder().header("a", 1).build();
+
+    assertSame(headers, MessageHeaders.copyOf(headers));
+    assertSame(MessageHeaders.empty(), MessageHeaders.copyOf(Map.of()));
+    assertThrows(
+        NullPointerException.class, () -> MessageHeaders.builder().header("a", (Object) null));
+  }
+
+  @Test
+  @DisplayName("mutators.areUnsupported")
+  void mutatorsAreUnsupported() {
+    MessageHeaders headers = MessageHeaders.copyOf(Map.of("a", 1));
+
+    assertThrows(UnsupportedOperationException.class, () -> headers.put("b", 2));
+    assertThrows(UnsupportedOperationException.class, () -> headers.remove("a"));
+    assertThrows(UnsupportedOperationException.class, headers::clear);
+    assertThrows(UnsupportedOperationException.class, () -> headers.putAll(Map.of("b", 2)));
+    assertThrows(
+        UnsupportedOperationException.class,
+        () -> headers.entrySet().iterator().next().setValue(2));
+    assertThrows(UnsupportedOperationException.class, () -> headers.keySet().remove("a"));
+    assertEquals(Map.of("a", 1), headers);
+  }
+
+  @TableTest(
+      """
+      Scenario      | Headers    | Other      | Equal
+      Same entries  | 'a=1, b=2' | 'a=1, b=2' | true
+      Other order   | 'a=1, b=2' | 'b=2, a=1' | true
+      Other value   | 'a=1, b=2' | 'a=1, b=3' | false
+      Missing entry | 'a=1, b=2' | a=1        | false
+      Extra entry   | a=1        | 'a=1, b=2' | false
+      Both empty    |            |            | true
+      """)
+  @DisplayName("equals.comparesWithOtherMaps")
+  void equalsComparesWithOtherMaps(
+      @Nullable String headers, @Nullable String other, boolean equal) {
+    MessageHeaders built = MessageHeaders.copyOf(parse(headers));
+    Map<String, Object> map = new HashMap<>(parse(other));
+
+    assertEquals(equal, built.equals(map));
+    assertEquals(equal, map.equals(built));
+    assertEquals(equal, built.equals(MessageHeaders.copyOf(parse(other))));
+    if (equal) {
+      assertEquals(map.hashCode(), built.hashCode());
+    } else {
+      assertNotEquals(map, built);
+    }
+  }
+
+  @Test
+  @DisplayName("serialization.roundTrips")
+  void serializationRoundTrips() throws Exception {
+    MessageHeaders headers = MessageHeaders.builder().header("a", 1).header("b", "two").build();
+
+    Object copy = roundTrip(headers);
+
+    assertTrue(copy instanceof MessageHeaders);
+    assertEquals(headers, copy);
+    assertSame(MessageHeaders.empty(), roundTrip(MessageHeaders.empty()));
+    assertFalse(((MessageHeaders) copy).isEmpty());
+  }
+
+  private static Object roundTrip(Object object) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(object);
+    }
+    try (ObjectInputStream in =
+        new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      return in.readObject();
+    }
+  }
+
+  /** Parses headers written as {@code name=value, ...}, with integer values. */
+  private static Map<String, Object> parse(@Nullable String headers) {
+    Map<String, Object> parsed = new LinkedHashMap<>();
+    if (headers != null) {
+      for (String header : headers.split(",")) {
+        String[] entry = header.trim().split("=");
+        parsed.put(entry[0], Integer.valueOf(entry[1]));
+      }
+    }
+    return parsed;
+  }
+}
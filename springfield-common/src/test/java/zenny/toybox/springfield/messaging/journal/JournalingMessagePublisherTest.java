@@ -0,0 +1,200 @@
+package zenny.toybox.springfield.messaging.journal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tabletest.junit.TableTest;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessagePublisher;
+
+/**
+ * Tests for {@link JournalingMessagePublisher}, covering which messages are journaled, the release
+ * of records the delegate did not take, and the replay of pending records with their delay.
+ */
+@DisplayName("JournalingMessagePublisher")
+class JournalingMessagePublisherTest {
+
+  @TempDir Path directory;
+
+  @TableTest(
+      """
+      Scenario                 | Durable channels | Channel  | Upstream ack | Journaled
+      Durable channel          | orders           | orders   | false        | true
+      Acknowledgeable message  | orders           | orders   | true         | false
+      Other channel            | orders           | payments | false        | false
+      No durable channel       |                  | orders   | false        | false
+      """)
+  @DisplayName("publish.journalsOnlyDurableMessages")
+  void publishJournalsOnlyDurableMessages(
+      @Nullable String durableChannels, String channel, boolean upstreamAck, boolean journaled)
+      throws IOException {
+    RecordingPublisher delegate = new RecordingPublisher();
+    try (MessageJournal journal = new MessageJournal(this.directory)) {
+      JournalingMessagePublisher publisher =
+          new JournalingMessagePublisher(
+              delegate, journal, durableChannels != null ? Set.of(durableChannels) : Set.of());
+
+      publisher.publish(
+          new GenericMessage<>(channel, "payload", Map.of(), upstreamAck ? () -> {} : null));
+
+      assertEquals(journaled ? 1 : 0, journal.getPendingCount());
+      delegate.published.get(0).acknowledge();
+      assertEquals(0, journal.getPendingCount());
+    }
+  }
+
+  @Test
+  @DisplayName("publish.publishesUnserializablePayloadAsIs")
+  void publishPublishesUnserializablePayloadAsIs() throws IOException {
+    RecordingPublisher delegate = new RecordingPublisher();
+    Message<?> message = new GenericMessage<>("orders", new Object(), Map.of(), null);
+    try (MessageJournal journal = new MessageJournal(this.directory)) {
+      JournalingMessagePublisher publisher =
+          new JournalingMessagePublisher(delegate, journal, Set.of("orders"));
+
+      publisher.publish(message);
+      publisher.publish(message);
+
+      assertEquals(List.of(message, message), delegate.published);
+      assertEquals(0, journal.getPendingCount());
+    }
+  }
+
+  @TableTest(
+      """
+      Scenario      | Method       | Throws
+      Publish       | publish      | true
+      Delayed       | delayed      | true
+      Async         | publishAsync | true
+      Try publish   | tryPublish   | true
+      Try, rejected | tryPublish   | false
+      """)
+  @DisplayName("publish.releasesRecordsTheDelegateDidNotTake")
+  void publishReleasesRecordsTheDelegateDidNotTake(String method, boolean throwing)
+      throws IOException {
+    RecordingPublisher delegate = new RecordingPublisher();
+    delegate.failure = throwing ? new IllegalStateException("saturated") : null;
+    delegate.accepting = false;
+    Message<?> message = new GenericMessage<>("orders", "payload", Map.of(), null);
+    try (MessageJournal journal = new MessageJournal(this.directory)) {
+      JournalingMessagePublisher publisher =
+          new JournalingMessagePublisher(delegate, journal, Set.of("orders"));
+
+      switch (method) {
+        case "publish" ->
+            assertThrows(IllegalStateException.class, () -> publisher.publish(message));
+        case "delayed" ->
+            assertThrows(
+                IllegalStateException.class,
+                () -> publisher.publish(message, Duration.ofSeconds(1)));
+        case "publishAsync" ->
+            assertTrue(publisher.publishAsync(message).isCompletedExceptionally());
+        default -> {
+          if (throwing) {
+            assertThrows(IllegalStateException.class, () -> publisher.tryPublish(message));
+          } else {
+            assertFalse(publisher.tryPublish(message));
+          }
+        }
+      }
+
+      assertEquals(0, journal.getPendingCount());
+    }
+  }
+
+  @Test
+  @DisplayName("replay.publishesPendingRecordsWithTheirRemainingDelay")
+  void replayPublishesPendingRecordsWithTheirRemainingDelay() throws IOException {
+    try (MessageJournal journal = new MessageJournal(this.directory)) {
+      JournalingMessagePublisher publisher =
+          new JournalingMessagePublisher(new RecordingPublisher(), journal, Set.of("orders"));
+      publisher.publish(new GenericMessage<>("orders", "now", Map.of("id", 1), null));
+      publisher.publish(
+          new GenericMessage<>("orders", "later", Map.of("id", 2), null), Duration.ofMinutes(10));
+      assertEquals(2, journal.getPendingCount());
+    }
+
+    RecordingPublisher delegate = new RecordingPublisher();
+    try (MessageJournal journal = new MessageJournal(this.directory)) {
+      new JournalingMessagePublisher(delegate, journal, Set.of("orders"))
+          .afterSingletonsInstantiated();
+
+      assertEquals(2, delegate.published.size());
+      Message<?> now = delegate.published.get(0);
+      assertEquals("now", now.getPayload());
+      assertEquals(1, now.getHeaders().get("id"));
+      assertNull(delegate.delays.get(0));
+      Message<?> later = delegate.published.get(1);
+      assertEquals("later", later.getPayload());
+      Duration delay = delegate.delays.get(1);
+      assertTrue(delay.compareTo(Duration.ofMinutes(9)) > 0, "delay " + delay);
+      assertTrue(delay.compareTo(Duration.ofMinutes(10)) <= 0, "delay " + delay);
+
+      now.acknowledge();
+      assertEquals(1, journal.getPendingCount());
+    }
+
+    RecordingPublisher third = new RecordingPublisher();
+    try (MessageJournal journal = new MessageJournal(this.directory)) {
+      new JournalingMessagePublisher(third, journal, Set.of("orders"))
+          .afterSingletonsInstantiated();
+      assertEquals(1, third.published.size());
+      assertEquals("later", third.published.get(0).getPayload());
+    }
+  }
+
+  /** Records the messages handed to it, optionally failing or rejecting them. */
+  private static final class RecordingPublisher implements MessagePublisher {
+
+    final List<Message<?>> published = new ArrayList<>();
+    final List<@Nullable Duration> delays = new ArrayList<>();
+    @Nullable RuntimeException failure;
+    boolean accepting = true;
+
+    @Override
+    public void publish(Message<?> message) {
+      this.record(message, null);
+    }
+
+    @Override
+    public void publish(Message<?> message, Duration delay) {
+      this.record(message, delay);
+    }
+
+    @Override
+    public CompletableFuture<Void> publishAsync(Message<?> message) {
+      this.record(message, null);
+      return new CompletableFuture<>();
+    }
+
+    @Override
+    public boolean tryPublish(Message<?> message) {
+      this.record(message, null);
+      return this.accepting;
+    }
+
+    private void record(Message<?> message, @Nullable Duration delay) {
+      if (this.failure != null) {
+        throw this.failure;
+      }
+      this.published.add(message);
+      this.delays.add(delay);
+    }
+  }
+}
@@ -0,0 +1,184 @@
+package zenny.toybox.springfield.messaging.journal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tabletest.junit.TableTest;
+
+/**
+ * Tests for {@link MessageJournal}, covering the replay of pending records, the cut-off of torn
+ * records on recovery, recovery from the checkpoint, and the rolling and deletion of segments.
+ */
+@DisplayName("MessageJournal")
+class MessageJournalTest {
+
+  private static final int SEGMENT_SIZE = 64;
+
+  @TempDir Path directory;
+
+  @Test
+  @DisplayName("replay.returnsUnacknowledgedRecordsAfterReopening")
+  void replayReturnsUnacknowledgedRecordsAfterReopening() throws IOException {
+    List<Long> offsets = new ArrayList<>();
+    try (MessageJournal journal = new MessageJournal(this.directory, 1024, 1000)) {
+      for (String record : List.of("a", "b", "c", "d")) {
+        offsets.add(journal.append(bytes(record)));
+      }
+      journal.sync(offsets.get(3));
+      journal.acknowledge(offsets.get(1));
+      assertEquals(3, journal.getPendingCount());
+    }
+
+    try (MessageJournal journal = new MessageJournal(this.directory, 1024, 1000)) {
+      List<String> replayed = replay(journal);
+      assertEquals(List.of("a", "c", "d"), replayed);
+      assertEquals(3, journal.getPendingCount());
+      assertEquals(List.of(), replay(journal));
+      journal.acknowledge(offsets.get(0));
+    }
+
+    try (MessageJournal journal = new MessageJournal(this.directory, 1024, 1000)) {
+      assertEquals(List.of("c", "d"), replay(journal));
+    }
+  }
+
+  @TableTest(
+      """
+      Scenario            | Corruption | Recovered
+      Checksum mismatch   | PAYLOAD    | 'a, b'
+      Length past the end | LENGTH     | 'a, b'
+      Zero length         | ZERO       | 'a, b'
+      Intact              | NONE       | 'a, b, c'
+      """)
+  @DisplayName("recover.cutsOffTornRecords")
+  void recoverCutsOffTornRecords(String corruption, String recovered) throws IOException {
+    long torn;
+    try (MessageJournal journal = new MessageJournal(this.directory, 1024, 1000)) {
+      journal.append(bytes("a"));
+      journal.append(bytes("b"));
+      torn = journal.append(bytes("c"));
+      journal.sync(torn);
+    }
+    Path segment = segments(this.directory).get(0);
+    byte[] content = Files.readAllBytes(segment);
+    ByteBuffer buffer = ByteBuffer.wrap(content);
+    switch (corruption) {
+      case "PAYLOAD" -> content[(int) torn + 8] ^= 1;
+      case "LENGTH" -> buffer.putInt((int) torn, 4096);
+      case "ZERO" -> buffer.putInt((int) torn, 0);
+      default -> {}
+    }
+    Files.write(segment, content);
+
+    try (MessageJournal journal = new MessageJournal(this.directory, 1024, 1000)) {
+      assertEquals(List.of(recovered.split(", ")), replay(journal));
+      long next = journal.append(bytes("d"));
+      assertEquals(corruption.equals("NONE") ? torn + 9 : torn, next);
+    }
+  }
+
+  @Test
+  @DisplayName("recover.startsFromTheCheckpoint")
+  void recoverStartsFromTheCheckpoint(@TempDir Path snapshot) throws Exception {
+    try (MessageJournal journal = new MessageJournal(this.directory, 1024, 10)) {
+      long a = journal.append(bytes("a"));
+      long b = journal.append(bytes("b"));
+      long c = journal.append(bytes("c"));
+      journal.sync(c);
+      journal.acknowledge(a);
+      journal.acknowledge(c);
+      waitForCheckpoint(this.directory, b);
+      long d = journal.append(bytes("d"));
+      journal.sync(d);
+
+      // a copy of the files taken while running stands for a crash
+      copy(this.directory, snapshot);
+    }
+
+    try (MessageJournal journal = new MessageJournal(snapshot, 1024, 10)) {
+      assertEquals(List.of("b", "d"), replay(journal));
+    }
+  }
+
+  @Test
+  @DisplayName("append.rollsAndDeletesSegments")
+  void appendRollsAndDeletesSegments() throws Exception {
+    List<Long> offsets = new ArrayList<>();
+    try (MessageJournal journal = new MessageJournal(this.directory, SEGMENT_SIZE, 10)) {
+      // 8 bytes of header and 20 of record, so two records per segment
+      for (int i = 0; i < 5; i++) {
+        offsets.add(journal.append(bytes(String.format("record-%013d", i))));
+      }
+      journal.sync(offsets.get(4));
+      assertEquals(List.of(0L, 28L, 64L, 92L, 128L), offsets);
+      assertEquals(3, segments(this.directory).size());
+
+      for (int i = 0; i < 4; i++) {
+        journal.acknowledge(offsets.get(i));
+      }
+      waitForCheckpoint(this.directory, offsets.get(4));
+      // segments are deleted right after the checkpoint is written
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (segments(this.directory).size() > 1) {
+        assertTrue(System.nanoTime() < deadline, "timed out");
+        Thread.sleep(5);
+      }
+      assertEquals(
+          List.of(this.directory.resolve(String.format("%020d.log", 128))),
+          segments(this.directory));
+    }
+
+    try (MessageJournal journal = new MessageJournal(this.directory, SEGMENT_SIZE, 10)) {
+      assertEquals(List.of(String.format("record-%013d", 4)), replay(journal));
+      assertEquals(156L, journal.append(bytes("next")));
+    }
+  }
+
+  private static List<String> replay(MessageJournal journal) {
+    List<String> records = new ArrayList<>();
+    journal.replay((offset, record) -> records.add(new String(record, StandardCharsets.UTF_8)));
+    return records;
+  }
+
+  private static byte[] bytes(String record) {
+    return record.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static List<Path> segments(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(file -> file.toString().endsWith(".log")).sorted().toList();
+    }
+  }
+
+  private static void copy(Path from, Path to) throws IOException {
+    try (Stream<Path> files = Files.list(from)) {
+      for (Path file : files.toList()) {
+        Files.copy(file, to.resolve(file.getFileName()));
+      }
+    }
+  }
+
+  /** Waits until the checkpoint starts at the given offset. */
+  private static void waitForCheckpoint(Path directory, long offset) throws Exception {
+    Path checkpoint = directory.resolve("checkpoint");
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!Files.exists(checkpoint)
+        || Files.size(checkpoint) < Long.BYTES
+        || ByteBuffer.wrap(Files.readAllBytes(checkpoint)).getLong() != offset) {
+      assertTrue(System.nanoTime() < deadline, "timed out");
+      Thread.sleep(5);
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package zenny.toybox.springfield.messaging.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.tabletest.junit.TableTest;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.messaging.support.MessageOverflowHandler;
+import zenny.toybox.springfield.messaging.support.MessageTask;
+import zenny.toybox.springfield.messaging.support.VirtualThreadMessageExecutor;
+
+/**
+ * Tests for {@link MessagingExecutorMetrics}, covering the queue depth gauges of the lanes of a
+ * virtual thread executor, whether they exist before binding or are created afterwards, and the
+ * limit on the number of channel tags.
+ */
+@DisplayName("MessagingExecutorMetrics")
+class MessagingExecutorMetricsTest {
+
+  private static final String NAME = MicrometerMessagingObserver.PREFIX + ".queue.depth";
+
+  @TableTest(
+      """
+      Scenario            | Max channels | Bound after lanes | Orders | Payments | Other
+      Lanes created later | 3            | false             | 2      | 1        | 0
+      Lanes existing      | 3            | true              | 2      | 1        | 0
+      Over the limit      | 1            | false             | 2      |          | 1
+      """)
+  @DisplayName("bindTo.gaugesWaitingTasksPerLane")
+  void bindToGaugesWaitingTasksPerLane(
+      int maxChannels, boolean boundAfterLanes, int orders, Integer payments, int other) {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    CountDownLatch release = new CountDownLatch(1);
+    try (VirtualThreadMessageExecutor executor =
+        new VirtualThreadMessageExecutor(
+            1,
+            Map.of(),
+            100,
+            new MessageOverflowHandler(MessageOverflowHandler.OverflowPolicy.REJECT))) {
+      MessagingExecutorMetrics metrics = new MessagingExecutorMetrics(executor, null, maxChannels);
+      if (!boundAfterLanes) {
+        metrics.bindTo(registry);
+      }
+      for (String channel : new String[] {"orders", "orders", "orders", "payments", "payments"}) {
+        executor.execute(new Task(channel, release));
+      }
+      if (boundAfterLanes) {
+        metrics.bindTo(registry);
+      }
+
+      assertEquals(orders, this.depth(registry, "orders"));
+      if (payments != null) {
+        assertEquals(payments, this.depth(registry, "payments"));
+      } else {
+        assertNull(registry.find(NAME).tag("channel", "payments").gauge());
+      }
+      assertEquals(other, this.depth(registry, MicrometerMessagingObserver.OTHER_CHANNEL));
+      release.countDown();
+    }
+  }
+
+  private int depth(SimpleMeterRegistry registry, String channel) {
+    return (int) registry.get(NAME).tags("executor", "virtual", "channel", channel).gauge().value();
+  }
+
+  /** A task of a channel waiting for the given latch. */
+  private static final class Task extends MessageTask {
+
+    private final CountDownLatch release;
+
+    Task(String channel, CountDownLatch release) {
+      super(new GenericMessage<>(channel, "payload", Map.of(), null));
+      this.release = release;
+    }
+
+    @Override
+    public void run() {
+      try {
+        this.release.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package zenny.toybox.springfield.messaging.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tabletest.junit.TableTest;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageHandler;
+
+/**
+ * Tests for {@link MicrometerMessagingObserver}, covering the limit on the number of channel tags
+ * and the handler error counters.
+ */
+@DisplayName("MicrometerMessagingObserver")
+class MicrometerMessagingObserverTest {
+
+  @TableTest(
+      """
+      Scenario        | Max channels | Channels | Tagged | Other
+      Under the limit | 3            | 2        | 2      | 0
+      At the limit    | 2            | 2        | 2      | 0
+      Over the limit  | 2            | 5        | 2      | 3
+      """)
+  @DisplayName("published.limitsChannelTags")
+  void publishedLimitsChannelTags(int maxChannels, int channels, int tagged, int other) {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    MicrometerMessagingObserver observer = new MicrometerMessagingObserver(registry, maxChannels);
+
+    for (int i = 0; i < channels; i++) {
+      observer.published(message("channel-" + i));
+    }
+
+    assertEquals(
+        tagged + (other > 0 ? 1 : 0),
+        registry.find(MicrometerMessagingObserver.PREFIX + ".published").counters().size());
+    double inOther =
+        registry
+            .find(MicrometerMessagingObserver.PREFIX + ".published")
+            .tag("channel", MicrometerMessagingObserver.OTHER_CHANNEL)
+            .counters()
+            .stream()
+            .mapToDouble(Counter::count)
+            .sum();
+    assertEquals(other, (int) inOther);
+  }
+
+  @Test
+  @DisplayName("handled.countsErrorsPerExceptionType")
+  void handledCountsErrorsPerExceptionType() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    MicrometerMessagingObserver observer = new MicrometerMessagingObserver(registry);
+    MessageHandler handler = new StubHandler();
+    Message<?> message = message("orders");
+
+    observer.handled(handler, message, 10, new IllegalStateException());
+    observer.handled(handler, message, 10, new IllegalStateException());
+    observer.handled(handler, message, 10, new IllegalArgumentException());
+    observer.handled(handler, message, 10, null);
+
+    String name = MicrometerMessagingObserver.PREFIX + ".handler.errors";
+    assertEquals(
+        2.0,
+        registry
+            .get(name)
+            .tags("channel", "orders", "group", "billing", "exception", "IllegalStateException")
+            .counter()
+            .count());
+    assertEquals(
+        1.0, registry.get(name).tag("exception", "IllegalArgumentException").counter().count());
+    assertEquals(4, registry.get(MicrometerMessagingObserver.PREFIX + ".handler").timer().count());
+    assertNull(registry.find(name).tag("exception", "NullPointerException").counter());
+  }
+
+  private static Message<?> message(String channel) {
+    return new GenericMessage<>(channel, "payload", Map.of(), null);
+  }
+
+  private static final class StubHandler implements MessageHandler {
+
+    @Override
+    public String getChannel() {
+      return "orders";
+    }
+
+    @Override
+    public String getGroup() {
+      return "billing";
+    }
+
+    @Override
+    public void handle(Message<?> message) {}
+  }
+}
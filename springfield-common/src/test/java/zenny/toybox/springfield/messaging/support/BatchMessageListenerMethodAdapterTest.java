@@ -0,0 +1,117 @@
+package zenny.toybox.springfield.messaging.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageListener;
+import zenny.toybox.springfield.messaging.PayloadCodec;
+
+/**
+ * Tests for {@link BatchMessageListenerMethodAdapter}, covering the resolution of list elements
+ * from the element type of the listener parameter.
+ */
+@DisplayName("BatchMessageListenerMethodAdapter")
+class BatchMessageListenerMethodAdapterTest {
+
+  private static final PayloadCodec CODEC =
+      new PayloadCodec() {
+        @Override
+        public <T> T decode(Object payload, Class<T> type) {
+          if (type != Integer.class) {
+            throw new IllegalArgumentException("cannot decode " + type);
+          }
+          return type.cast(Integer.valueOf((String) payload));
+        }
+      };
+
+  @Test
+  @DisplayName("handleBatch.decodesElementType")
+  void handleBatchDecodesElementType() {
+    Listener listener = new Listener();
+
+    adapter(listener, "onNumbers").handleBatch(List.of(message("1"), message("22")));
+
+    assertEquals(List.of(List.of(1, 22)), listener.batches);
+  }
+
+  @Test
+  @DisplayName("handleBatch.passesRawPayloadsForObjectElements")
+  void handleBatchPassesRawPayloadsForObjectElements() {
+    Listener listener = new Listener();
+
+    adapter(listener, "onObjects").handleBatch(List.of(message("1"), message("22")));
+
+    assertEquals(List.of(List.of("1", "22")), listener.batches);
+  }
+
+  @Test
+  @DisplayName("handleBatch.passesMessages")
+  void handleBatchPassesMessages() {
+    Listener listener = new Listener();
+    Message<?> message = message("1");
+
+    adapter(listener, "onMessages").handleBatch(List.of(message));
+
+    assertSame(message, listener.batches.get(0).get(0));
+  }
+
+  @Test
+  @DisplayName("handleBatch.rejectsUndecodablePayload")
+  void handleBatchRejectsUndecodablePayload() {
+    Listener listener = new Listener();
+    Message<?> message = new GenericMessage<>("numbers", "1", Map.of(), null);
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> adapter(listener, "onNumbers").handleBatch(List.of(message)));
+    assertEquals(List.of(), listener.batches);
+  }
+
+  private static BatchMessageListenerMethodAdapter adapter(Listener listener, String name) {
+    for (Method method : Listener.class.getMethods()) {
+      if (method.getName().equals(name)) {
+        return new BatchMessageListenerMethodAdapter(
+            listener,
+            method,
+            method.getAnnotation(MessageListener.class),
+            new StaticApplicationContext(),
+            new MessageConditionEvaluator());
+      }
+    }
+    throw new IllegalArgumentException(name);
+  }
+
+  private static Message<?> message(String payload) {
+    return new GenericMessage<>("numbers", payload, Map.of(), null, CODEC);
+  }
+
+  public static class Listener {
+
+    final List<List<?>> batches = new ArrayList<>();
+
+    @MessageListener(channel = "numbers", batchSize = 10)
+    public void onNumbers(List<Integer> numbers) {
+      this.batches.add(numbers);
+    }
+
+    @MessageListener(channel = "numbers", batchSize = 10)
+    public void onObjects(List<Object> payloads) {
+      this.batches.add(payloads);
+    }
+
+    @MessageListener(channel = "numbers", batchSize = 10)
+    public void onMessages(List<Message<?>> messages) {
+      this.batches.add(messages);
+    }
+  }
+}
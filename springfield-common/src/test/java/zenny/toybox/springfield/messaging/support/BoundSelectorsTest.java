@@ -0,0 +1,66 @@
+package zenny.toybox.springfield.messaging.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zenny.toybox.springfield.messaging.DispatchStrategy;
+import zenny.toybox.springfield.messaging.HandlerSelector;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageHandler;
+
+/**
+ * Tests for {@link BoundSelectors}, covering the reuse of the selector bound to a handler list and
+ * the lookup of lists by identity.
+ */
+@DisplayName("BoundSelectors")
+class BoundSelectorsTest {
+
+  @Test
+  @DisplayName("get.bindsEachListOnce")
+  void getBindsEachListOnce() {
+    BindingStrategy strategy = new BindingStrategy();
+    BoundSelectors selectors = new BoundSelectors();
+    List<MessageHandler> handlers = new ArrayList<>();
+
+    HandlerSelector first = selectors.get(strategy, handlers);
+
+    assertSame(first, selectors.get(strategy, handlers));
+    assertEquals(1, strategy.bound.size());
+  }
+
+  @Test
+  @DisplayName("get.tellsEqualListsApart")
+  void getTellsEqualListsApart() {
+    BindingStrategy strategy = new BindingStrategy();
+    BoundSelectors selectors = new BoundSelectors();
+    List<MessageHandler> handlers = new ArrayList<>();
+    List<MessageHandler> copy = new ArrayList<>();
+
+    assertNotSame(selectors.get(strategy, handlers), selectors.get(strategy, copy));
+    assertEquals(2, strategy.bound.size());
+    assertSame(handlers, strategy.bound.get(0));
+    assertSame(copy, strategy.bound.get(1));
+  }
+
+  /** A strategy recording the lists it binds a selector to. */
+  static final class BindingStrategy implements DispatchStrategy {
+
+    final List<List<MessageHandler>> bound = new ArrayList<>();
+
+    @Override
+    public List<MessageHandler> select(List<MessageHandler> handlers, Message<?> message) {
+      return handlers;
+    }
+
+    @Override
+    public HandlerSelector bind(List<MessageHandler> handlers) {
+      this.bound.add(handlers);
+      return message -> handlers;
+    }
+  }
+}
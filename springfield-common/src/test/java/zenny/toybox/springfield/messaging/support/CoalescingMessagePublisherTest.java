@@ -0,0 +1,314 @@
+package zenny.toybox.springfield.messaging.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tabletest.junit.TableTest;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageHandler;
+import zenny.toybox.springfield.messaging.MessagePublisher;
+
+/**
+ * Tests for {@link CoalescingMessagePublisher}, covering the release of a key once its window has
+ * elapsed, the rotation of the time buckets, the refusal of new keys at {@code maxKeys}, the
+ * acknowledgement of merged messages, the failure of their futures when the released message fails,
+ * the merge functions and the retry of rejected releases, also when they cannot be merged.
+ */
+@DisplayName("CoalescingMessagePublisher")
+class CoalescingMessagePublisherTest {
+
+  @Test
+  @DisplayName("publish.releasesKeyOnceAfterWindow")
+  void publishReleasesKeyOnceAfterWindow() throws Exception {
+    RecordingPublisher delegate = new RecordingPublisher();
+    try (CoalescingMessagePublisher publisher =
+        new CoalescingMessagePublisher(
+            delegate, CoalescingMessagePublisherTest::key, Duration.ofMillis(200), 4, 100)) {
+      long start = System.nanoTime();
+      publisher.publish(message("orders", "a", 1));
+      publisher.publish(message("orders", "a", 2));
+      publisher.publish(message("orders", "a", 3));
+      publisher.publish(message("orders", null, 4));
+
+      assertEquals(List.of(4), delegate.payloads());
+      waitFor(() -> delegate.payloads().size() == 2);
+      // windows are counted in ticks, so a key may be released up to one tick early
+      assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+      assertEquals(List.of(4, 3), delegate.payloads());
+      assertEquals(0, publisher.getPendingCount());
+    }
+  }
+
+  @Test
+  @DisplayName("publish.releasesBucketsInTurn")
+  void publishReleasesBucketsInTurn() throws Exception {
+    RecordingPublisher delegate = new RecordingPublisher();
+    try (CoalescingMessagePublisher publisher =
+        new CoalescingMessagePublisher(
+            delegate, CoalescingMessagePublisherTest::key, Duration.ofMillis(400), 4, 100)) {
+      publisher.publish(message("orders", "a", 1));
+      Thread.sleep(250);
+      publisher.publish(message("orders", "b", 2));
+
+      waitFor(() -> delegate.payloads().size() == 1);
+      assertEquals(List.of(1), delegate.payloads());
+      assertEquals(1, publisher.getPendingCount());
+      waitFor(() -> delegate.payloads().size() == 2);
+      assertEquals(List.of(1, 2), delegate.payloads());
+    }
+  }
+
+  @Test
+  @DisplayName("tryPublish.refusesNewKeysAtMaxKeys")
+  void tryPublishRefusesNewKeysAtMaxKeys() {
+    RecordingPublisher delegate = new RecordingPublisher();
+    try (CoalescingMessagePublisher publisher =
+        new CoalescingMessagePublisher(
+            delegate, CoalescingMessagePublisherTest::key, Duration.ofSeconds(10), 4, 2)) {
+      assertTrue(publisher.tryPublish(message("orders", "a", 1)));
+      assertTrue(publisher.tryPublish(message("orders", "b", 2)));
+      assertFalse(publisher.tryPublish(message("orders", "c", 3)));
+      assertTrue(publisher.tryPublish(message("orders", "a", 4)));
+      assertEquals(List.of(), delegate.payloads());
+
+      publisher.publish(message("orders", "c", 5));
+      assertEquals(List.of(5), delegate.payloads());
+      assertEquals(2, publisher.getPendingCount());
+
+      publisher.flush();
+      assertEquals(List.of(5, 4, 2), delegate.payloads());
+    }
+  }
+
+  @Test
+  @DisplayName("publishAsync.acknowledgesAllMergedMessages")
+  void publishAsyncAcknowledgesAllMergedMessages() {
+    RecordingPublisher delegate = new RecordingPublisher();
+    AtomicInteger acknowledged = new AtomicInteger();
+    try (CoalescingMessagePublisher publisher =
+        new CoalescingMessagePublisher(
+            delegate, CoalescingMessagePublisherTest::key, Duration.ofSeconds(10), 4, 100)) {
+      CompletableFuture<Void> first =
+          publisher.publishAsync(message("orders", "a", 1, acknowledged::incrementAndGet));
+      publisher.publish(message("orders", "a", 2, acknowledged::incrementAndGet));
+      CompletableFuture<Void> third =
+          publisher.publishAsync(message("orders", "a", 3, acknowledged::incrementAndGet));
+      publisher.flush();
+
+      assertEquals(1, delegate.messages.size());
+      assertFalse(first.isDone());
+      delegate.messages.get(0).acknowledge();
+      assertEquals(3, acknowledged.get());
+      assertTrue(first.isDone() && !first.isCompletedExceptionally());
+      assertTrue(third.isDone() && !third.isCompletedExceptionally());
+    }
+  }
+
+  @Test
+  @DisplayName("publishAsync.failsWhenDelegateFails")
+  void publishAsyncFailsWhenDelegateFails() {
+    IllegalStateException failure = new IllegalStateException("boom");
+    MessagePublisher delegate =
+        message -> {
+          throw failure;
+        };
+    try (CoalescingMessagePublisher publisher =
+        new CoalescingMessagePublisher(
+            delegate, CoalescingMessagePublisherTest::key, Duration.ofSeconds(10), 4, 100)) {
+      CompletableFuture<Void> future = publisher.publishAsync(message("orders", "a", 1));
+      publisher.flush();
+
+      assertTrue(future.isCompletedExceptionally());
+      assertEquals(0, publisher.getPendingCount());
+    }
+  }
+
+  @Test
+  @DisplayName("publish.retriesRejectedRelease")
+  void publishRetriesRejectedRelease() throws Exception {
+    RecordingPublisher delegate = new RecordingPublisher();
+    delegate.accepting.set(false);
+    try (CoalescingMessagePublisher publisher =
+        new CoalescingMessagePublisher(
+            delegate, CoalescingMessagePublisherTest::key, Duration.ofMillis(40), 2, 100)) {
+      publisher.publish(message("orders", "a", 1));
+
+      waitFor(() -> delegate.rejected.get() >= 2);
+      assertEquals(1, publisher.getPendingCount());
+      publisher.publish(message("orders", "a", 2));
+      delegate.accepting.set(true);
+      waitFor(() -> publisher.getPendingCount() == 0);
+      assertEquals(List.of(2), delegate.payloads());
+    }
+  }
+
+  @Test
+  @DisplayName("publishAsync.failsWhenReleasedMessageFails")
+  void publishAsyncFailsWhenReleasedMessageFails() throws Exception {
+    IllegalStateException failure = new IllegalStateException("boom");
+    DefaultMessageHandlerRegistry registry = new DefaultMessageHandlerRegistry();
+    registry.register(
+        new MessageHandler() {
+
+          @Override
+          public String getChannel() {
+            return "orders";
+          }
+
+          @Override
+          public String getGroup() {
+            return "a";
+          }
+
+          @Override
+          public void handle(Message<?> message) {
+            throw failure;
+          }
+        });
+    AtomicInteger acknowledged = new AtomicInteger();
+    try (CoalescingMessagePublisher publisher =
+        new CoalescingMessagePublisher(
+            new DefaultMessagePublisher(
+                new DefaultMessageDispatcher(registry, new RandomDispatchStrategy()),
+                null,
+                error -> {}),
+            CoalescingMessagePublisherTest::key,
+            Duration.ofMillis(40),
+            2,
+            100)) {
+      CompletableFuture<Void> first =
+          publisher.publishAsync(message("orders", "a", 1, acknowledged::incrementAndGet));
+      CompletableFuture<Void> second =
+          publisher.publishAsync(message("orders", "a", 2, acknowledged::incrementAndGet));
+
+      for (CompletableFuture<Void> future : List.of(first, second)) {
+        ExecutionException ex =
+            assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertSame(failure, ex.getCause());
+      }
+      assertEquals(0, acknowledged.get());
+    }
+  }
+
+  @Test
+  @DisplayName("publish.survivesFailingMergeOfRejectedRelease")
+  void publishSurvivesFailingMergeOfRejectedRelease() throws Exception {
+    RecordingPublisher delegate = new RecordingPublisher();
+    delegate.accepting.set(false);
+    List<Throwable> errors = new CopyOnWriteArrayList<>();
+    try (CoalescingMessagePublisher publisher =
+        new CoalescingMessagePublisher(
+            delegate,
+            CoalescingMessagePublisherTest::key,
+            (pending, next) -> {
+              throw new IllegalStateException("unmergeable");
+            },
+            Duration.ofMillis(40),
+            2,
+            100)) {
+      publisher.setErrorHandler(errors::add);
+      // a message of the same key arrives while the release of the first one is rejected
+      delegate.onReject = () -> publisher.publish(message("orders", "a", 2));
+      CompletableFuture<Void> first = publisher.publishAsync(message("orders", "a", 1));
+
+      waitFor(() -> errors.size() == 1);
+      assertTrue(first.isCompletedExceptionally());
+      delegate.accepting.set(true);
+      waitFor(() -> publisher.getPendingCount() == 0);
+      assertEquals(List.of(2), delegate.payloads());
+    }
+  }
+
+  @TableTest(
+      """
+      Scenario       | Merge   | Payload | Headers
+      Latest wins    | LATEST  | 2       | b
+      First wins     | FIRST   | 1       | a
+      Headers merged | HEADERS | 2       | a+b
+      """)
+  @DisplayName("Merge.combinesMessagesOfAKey")
+  void mergeCombinesMessagesOfAKey(String merge, int payload, String headers) {
+    Message<?> merged =
+        CoalescingMessagePublisher.Merge.valueOf(merge)
+            .apply(
+                new GenericMessage<>("orders", 1, Map.of("key", "a", "a", true), null),
+                new GenericMessage<>("orders", 2, Map.of("key", "a", "b", true), null));
+
+    assertEquals(payload, merged.getPayload());
+    for (String header : headers.split("\\+")) {
+      assertTrue(merged.getHeaders().containsKey(header), header);
+    }
+    assertEquals(headers.split("\\+").length + 1, merged.getHeaders().size());
+  }
+
+  private static Object key(Message<?> message) {
+    return message.getHeaders().get("key");
+  }
+
+  private static Message<Integer> message(String channel, String key, int payload) {
+    return message(channel, key, payload, null);
+  }
+
+  private static Message<Integer> message(
+      String channel, String key, int payload, Runnable acknowledgeCallback) {
+    return new GenericMessage<>(
+        channel, payload, key != null ? Map.of("key", key) : Map.of(), acknowledgeCallback);
+  }
+
+  private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "timed out");
+      Thread.sleep(5);
+    }
+  }
+
+  private static final class RecordingPublisher implements MessagePublisher {
+
+    final List<Message<?>> messages = new CopyOnWriteArrayList<>();
+    final AtomicBoolean accepting = new AtomicBoolean(true);
+    final AtomicInteger rejected = new AtomicInteger();
+    volatile @Nullable Runnable onReject;
+
+    @Override
+    public void publish(Message<?> message) {
+      this.messages.add(message);
+    }
+
+    @Override
+    public boolean tryPublish(Message<?> message) {
+      if (!this.accepting.get()) {
+        this.rejected.incrementAndGet();
+        Runnable onReject = this.onReject;
+        this.onReject = null;
+        if (onReject != null) {
+          onReject.run();
+        }
+        return false;
+      }
+      this.messages.add(message);
+      return true;
+    }
+
+    List<Object> payloads() {
+      return this.messages.stream().<Object>map(Message::getPayload).toList();
+    }
+  }
+}
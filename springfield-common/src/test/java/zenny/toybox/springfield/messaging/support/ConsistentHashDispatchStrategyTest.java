@@ -0,0 +1,180 @@
+package zenny.toybox.springfield.messaging.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.messaging.HandlerSelector;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageHandler;
+import zenny.toybox.springfield.messaging.MessageListener;
+
+/**
+ * Tests for {@link ConsistentHashDispatchStrategy}, covering the stickiness of keys, the stability
+ * of the ring across handler instances, the limited remapping when a handler leaves, and payload
+ * property keys.
+ */
+@DisplayName("ConsistentHashDispatchStrategy")
+class ConsistentHashDispatchStrategyTest {
+
+  private static final int KEYS = 10_000;
+
+  @Test
+  @DisplayName("select.isStickyPerKey")
+  void selectIsStickyPerKey() {
+    HandlerSelector selector =
+        ConsistentHashDispatchStrategy.byHeader("key").bind(handlers("a", "b", "c", "d"));
+
+    for (int i = 0; i < 100; i++) {
+      Message<?> message = message("key-" + i);
+      assertSame(selector.select(message).get(0), selector.select(message("key-" + i)).get(0));
+    }
+  }
+
+  @Test
+  @DisplayName("bind.isStableAcrossHandlerInstances")
+  void bindIsStableAcrossHandlerInstances() {
+    List<MessageHandler> before = handlers("a", "b", "c", "d");
+    List<MessageHandler> after = handlers("a", "b", "c", "d");
+    HandlerSelector first = ConsistentHashDispatchStrategy.byHeader("key").bind(before);
+    HandlerSelector second = ConsistentHashDispatchStrategy.byHeader("key").bind(after);
+
+    for (int i = 0; i < 1000; i++) {
+      Message<?> message = message("key-" + i);
+      assertNotSame(first.select(message).get(0), second.select(message).get(0));
+      assertEquals(
+          before.indexOf(first.select(message).get(0)),
+          after.indexOf(second.select(message).get(0)));
+    }
+  }
+
+  @Test
+  @DisplayName("bind.remapsOnlyKeysOfRemovedHandler")
+  void bindRemapsOnlyKeysOfRemovedHandler() {
+    List<MessageHandler> handlers = handlers("a", "b", "c", "d");
+    MessageHandler removed = handlers.get(1);
+    HandlerSelector full = ConsistentHashDispatchStrategy.byHeader("key").bind(handlers);
+    List<MessageHandler> remaining = new ArrayList<>(handlers);
+    remaining.remove(removed);
+    HandlerSelector reduced = ConsistentHashDispatchStrategy.byHeader("key").bind(remaining);
+
+    for (int i = 0; i < KEYS; i++) {
+      Message<?> message = message("key-" + i);
+      MessageHandler selected = full.select(message).get(0);
+      if (selected != removed) {
+        assertSame(selected, reduced.select(message).get(0));
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("select.spreadsKeysEvenly")
+  void selectSpreadsKeysEvenly() {
+    List<MessageHandler> handlers = handlers("a", "b", "c", "d");
+    HandlerSelector selector = ConsistentHashDispatchStrategy.byHeader("key").bind(handlers);
+    Map<MessageHandler, Integer> counts = new HashMap<>();
+
+    for (int i = 0; i < KEYS; i++) {
+      counts.merge(selector.select(message("key-" + i)).get(0), 1, Integer::sum);
+    }
+
+    assertEquals(4, counts.size());
+    for (int count : counts.values()) {
+      assertTrue(count > KEYS / 8, () -> "uneven distribution: " + counts.values());
+    }
+  }
+
+  @Test
+  @DisplayName("bind.separatesHandlersSharingAnIdentity")
+  void bindSeparatesHandlersSharingAnIdentity() {
+    List<MessageHandler> handlers = List.of(handler("a"), handler("a"));
+    HandlerSelector selector = ConsistentHashDispatchStrategy.byHeader("key").bind(handlers);
+    Map<MessageHandler, Integer> counts = new HashMap<>();
+
+    for (int i = 0; i < 1000; i++) {
+      counts.merge(selector.select(message("key-" + i)).get(0), 1, Integer::sum);
+    }
+
+    assertEquals(2, counts.size());
+  }
+
+  @Test
+  @DisplayName("byPayloadProperty.hashesNestedProperty")
+  void byPayloadPropertyHashesNestedProperty() {
+    List<MessageHandler> handlers = handlers("a", "b", "c", "d");
+    HandlerSelector byPayload =
+        ConsistentHashDispatchStrategy.byPayloadProperty("customer.id").bind(handlers);
+    HandlerSelector byHeader = ConsistentHashDispatchStrategy.byHeader("key").bind(handlers);
+
+    for (int i = 0; i < 100; i++) {
+      Message<?> message =
+          new GenericMessage<>(
+              "orders", new Order(new Customer("key-" + i)), Map.of("key", "key-" + i), null);
+      assertSame(byHeader.select(message).get(0), byPayload.select(message).get(0));
+    }
+  }
+
+  private static List<MessageHandler> handlers(String... names) {
+    List<MessageHandler> handlers = new ArrayList<>();
+    for (String name : names) {
+      handlers.add(handler(name));
+    }
+    return handlers;
+  }
+
+  private static MessageHandler handler(String name) {
+    try {
+      Method method = Listener.class.getMethod(name, String.class);
+      return new MessageListenerMethodAdapter(
+          new Listener(),
+          method,
+          method.getAnnotation(MessageListener.class),
+          new StaticApplicationContext());
+    } catch (NoSuchMethodException ex) {
+      throw new IllegalArgumentException(name, ex);
+    }
+  }
+
+  private static Message<?> message(String key) {
+    return new GenericMessage<>("orders", "payload", Map.of("key", key), null);
+  }
+
+  public static class Listener {
+
+    @MessageListener(channel = "orders")
+    public void a(String payload) {}
+
+    @MessageListener(channel = "orders")
+    public void b(String payload) {}
+
+    @MessageListener(channel = "orders")
+    public void c(String payload) {}
+
+    @MessageListener(channel = "orders")
+    public void d(String payload) {}
+  }
+
+  public record Order(Customer customer) {
+
+    public Customer getCustomer() {
+      return this.customer;
+    }
+  }
+
+  public record Customer(String id) {
+
+    public String getId() {
+      return this.id;
+    }
+  }
+}
@@ -0,0 +1,326 @@
+package zenny.toybox.springfield.messaging.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tabletest.junit.TableTest;
+import zenny.toybox.springfield.messaging.DispatchCallback;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageHandler;
+
+/**
+ * Tests for {@link DefaultMessageDispatcher}, covering the dispatch of every consumer group of a
+ * channel, on the calling thread or in parallel, waiting for parallel groups without a callback,
+ * the completion of the dispatch callback with the groups that failed, and the redelivery to some
+ * of the groups only.
+ */
+@DisplayName("DefaultMessageDispatcher")
+class DefaultMessageDispatcherTest {
+
+  private static final Message<?> MESSAGE = new GenericMessage<>("orders", "x", Map.of(), null);
+
+  @Test
+  @DisplayName("dispatch.runsGroupsOnCallingThreadWithoutGroupExecutor")
+  void dispatchRunsGroupsOnCallingThreadWithoutGroupExecutor() {
+    DefaultMessageHandlerRegistry registry = new DefaultMessageHandlerRegistry();
+    RecordingHandler a = new RecordingHandler("a", null);
+    RecordingHandler b = new RecordingHandler("b", null);
+    registry.register(a);
+    registry.register(b);
+    DefaultMessageDispatcher dispatcher =
+        new DefaultMessageDispatcher(registry, new RandomDispatchStrategy());
+    RecordingCallback callback = new RecordingCallback();
+
+    dispatcher.dispatch(MESSAGE, callback);
+
+    assertEquals(List.of(Thread.currentThread()), a.threads);
+    assertEquals(List.of(Thread.currentThread()), b.threads);
+    assertEquals(1, callback.completed.get());
+  }
+
+  @Test
+  @DisplayName("dispatch.completesOnceAfterParallelGroups")
+  void dispatchCompletesOnceAfterParallelGroups() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    DefaultMessageHandlerRegistry registry = new DefaultMessageHandlerRegistry();
+    RecordingHandler a = new RecordingHandler("a", null);
+    RecordingHandler b = new RecordingHandler("b", release);
+    RecordingHandler c = new RecordingHandler("c", release);
+    registry.register(a);
+    registry.register(b);
+    registry.register(c);
+    try (ExecutorService groupExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+      DefaultMessageDispatcher dispatcher =
+          new DefaultMessageDispatcher(
+              registry, new RandomDispatchStrategy(), new MessageBatcher(), groupExecutor);
+      RecordingCallback callback = new RecordingCallback();
+
+      dispatcher.dispatch(MESSAGE, callback);
+
+      assertEquals(List.of(Thread.currentThread()), a.threads);
+      assertEquals(0, callback.completed.get());
+      release.countDown();
+      assertTrue(callback.done.await(5, TimeUnit.SECONDS));
+      assertEquals(1, callback.completed.get());
+      assertNull(callback.failure.get());
+      assertTrue(b.threads.get(0).isVirtual());
+      assertTrue(c.threads.get(0).isVirtual());
+    }
+  }
+
+  @Test
+  @DisplayName("dispatch.reportsFailureOfParallelGroup")
+  void dispatchReportsFailureOfParallelGroup() throws Exception {
+    DefaultMessageHandlerRegistry registry = new DefaultMessageHandlerRegistry();
+    IllegalStateException failure = new IllegalStateException("boom");
+    registry.register(new RecordingHandler("a", null));
+    registry.register(
+        new RecordingHandler("b", null) {
+          @Override
+          public void handle(Message<?> message) {
+            throw failure;
+          }
+        });
+    try (ExecutorService groupExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+      DefaultMessageDispatcher dispatcher =
+          new DefaultMessageDispatcher(
+              registry, new RandomDispatchStrategy(), new MessageBatcher(), groupExecutor);
+      RecordingCallback callback = new RecordingCallback();
+
+      dispatcher.dispatch(MESSAGE, callback);
+
+      assertTrue(callback.done.await(5, TimeUnit.SECONDS));
+      assertSame(failure, callback.failure.get());
+      assertEquals(Set.of("b"), callback.failedGroups.get());
+      assertEquals(0, callback.completed.get());
+    }
+  }
+
+  @Test
+  @DisplayName("dispatch.waitsForParallelGroupsWithoutCallback")
+  void dispatchWaitsForParallelGroupsWithoutCallback() {
+    DefaultMessageHandlerRegistry registry = new DefaultMessageHandlerRegistry();
+    IllegalStateException failure = new IllegalStateException("boom");
+    RecordingHandler a = new RecordingHandler("a", null);
+    RecordingHandler b =
+        new RecordingHandler("b", null) {
+          @Override
+          public void handle(Message<?> message) {
+            try {
+              Thread.sleep(100);
+            } catch (InterruptedException ex) {
+              Thread.currentThread().interrupt();
+            }
+            super.handle(message);
+            throw failure;
+          }
+        };
+    registry.register(a);
+    registry.register(b);
+    try (ExecutorService groupExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+      DefaultMessageDispatcher dispatcher =
+          new DefaultMessageDispatcher(
+              registry, new RandomDispatchStrategy(), new MessageBatcher(), groupExecutor);
+
+      assertSame(
+          failure, assertThrows(IllegalStateException.class, () -> dispatcher.dispatch(MESSAGE)));
+
+      assertEquals(List.of(Thread.currentThread()), a.threads);
+      assertEquals(1, b.threads.size());
+      assertTrue(b.threads.get(0).isVirtual());
+    }
+  }
+
+  @Test
+  @DisplayName("dispatch.reportsFailedAndUnreachedGroups")
+  void dispatchReportsFailedAndUnreachedGroups() {
+    DefaultMessageHandlerRegistry registry = new DefaultMessageHandlerRegistry();
+    RecordingHandler a = new RecordingHandler("a", null);
+    RecordingHandler c = new RecordingHandler("c", null);
+    registry.register(a);
+    registry.register(
+        new RecordingHandler("b", null) {
+          @Override
+          public void handle(Message<?> message) {
+            throw new IllegalStateException("boom");
+          }
+        });
+    registry.register(c);
+    DefaultMessageDispatcher dispatcher =
+        new DefaultMessageDispatcher(registry, new RandomDispatchStrategy());
+    RecordingCallback callback = new RecordingCallback();
+
+    dispatcher.dispatch(MESSAGE, callback);
+
+    assertEquals(1, a.threads.size());
+    assertEquals(0, c.threads.size());
+    assertEquals(Set.of("b", "c"), callback.failedGroups.get());
+  }
+
+  @TableTest(
+      """
+      Scenario                  | Parallel | Redelivered to | Handled by
+      All groups                | false    |                | a,b,c
+      Failed groups             | false    | b,c            | b,c
+      Failed groups in parallel | true     | b,c            | b,c
+      One group in parallel     | true     | c              | c
+      Unknown group             | false    | x              |
+      """)
+  @DisplayName("dispatch.onlyDeliversToRedeliveredGroups")
+  void dispatchOnlyDeliversToRedeliveredGroups(
+      boolean parallel, String redeliveredTo, String handledBy) throws Exception {
+    DefaultMessageHandlerRegistry registry = new DefaultMessageHandlerRegistry();
+    List<RecordingHandler> handlers =
+        List.of(
+            new RecordingHandler("a", null),
+            new RecordingHandler("b", null),
+            new RecordingHandler("c", null));
+    handlers.forEach(registry::register);
+    Map<String, Object> headers =
+        redeliveredTo != null
+            ? Map.of(RetryPolicy.GROUPS_HEADER, Set.of(redeliveredTo.split(",")))
+            : Map.of();
+    try (ExecutorService groupExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+      DefaultMessageDispatcher dispatcher =
+          new DefaultMessageDispatcher(
+              registry,
+              new RandomDispatchStrategy(),
+              new MessageBatcher(),
+              parallel ? groupExecutor : null);
+      RecordingCallback callback = new RecordingCallback();
+
+      dispatcher.dispatch(new GenericMessage<>("orders", "x", headers, null), callback);
+
+      assertTrue(callback.done.await(5, TimeUnit.SECONDS));
+      assertEquals(1, callback.completed.get());
+    }
+    List<String> handled = new ArrayList<>();
+    for (RecordingHandler handler : handlers) {
+      if (!handler.threads.isEmpty()) {
+        handled.add(handler.getGroup());
+      }
+    }
+    assertEquals(handledBy != null ? handledBy : "", String.join(",", handled));
+  }
+
+  @Test
+  @DisplayName("dispatch.keepsSelectorsPastManyPatternChannels")
+  void dispatchKeepsSelectorsPastManyPatternChannels() {
+    DefaultMessageHandlerRegistry registry = new DefaultMessageHandlerRegistry();
+    CountingHandler first = new CountingHandler("orders.*");
+    CountingHandler second = new CountingHandler("orders.*");
+    registry.register(first);
+    registry.register(second);
+    DefaultMessageDispatcher dispatcher =
+        new DefaultMessageDispatcher(registry, new RoundRobinDispatchStrategy());
+
+    for (int i = 0; i < 10000; i++) {
+      dispatcher.dispatch(new GenericMessage<>("orders." + i, "x", Map.of(), null));
+    }
+
+    assertEquals(5000, first.handled.get());
+    assertEquals(5000, second.handled.get());
+  }
+
+  static final class CountingHandler implements MessageHandler {
+
+    final AtomicInteger handled = new AtomicInteger();
+    private final String channel;
+
+    CountingHandler(String channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public String getChannel() {
+      return this.channel;
+    }
+
+    @Override
+    public String getGroup() {
+      return "a";
+    }
+
+    @Override
+    public void handle(Message<?> message) {
+      this.handled.incrementAndGet();
+    }
+  }
+
+  static class RecordingHandler implements MessageHandler {
+
+    final List<Thread> threads = new CopyOnWriteArrayList<>();
+    private final String group;
+    private final CountDownLatch release;
+
+    RecordingHandler(String group, CountDownLatch release) {
+      this.group = group;
+      this.release = release;
+    }
+
+    @Override
+    public String getChannel() {
+      return "orders";
+    }
+
+    @Override
+    public String getGroup() {
+      return this.group;
+    }
+
+    @Override
+    public void handle(Message<?> message) {
+      this.threads.add(Thread.currentThread());
+      if (this.release != null) {
+        try {
+          this.release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  static final class RecordingCallback implements DispatchCallback {
+
+    final AtomicInteger completed = new AtomicInteger();
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    final AtomicReference<Set<String>> failedGroups = new AtomicReference<>();
+    final CountDownLatch done = new CountDownLatch(1);
+
+    @Override
+    public void onComplete() {
+      this.completed.incrementAndGet();
+      this.done.countDown();
+    }
+
+    @Override
+    public void onFailure(Throwable ex) {
+      this.onFailure(ex, Set.of());
+    }
+
+    @Override
+    public void onFailure(Throwable ex, Set<String> failedGroups) {
+      this.failure.set(ex);
+      this.failedGroups.set(failedGroups);
+      this.done.countDown();
+    }
+  }
+}
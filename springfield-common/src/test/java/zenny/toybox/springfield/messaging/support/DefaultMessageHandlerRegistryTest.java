@@ -0,0 +1,147 @@
+package zenny.toybox.springfield.messaging.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageHandler;
+import zenny.toybox.springfield.messaging.RoutingTable;
+
+/**
+ * Tests for {@link DefaultMessageHandlerRegistry}, covering the routing snapshot published on each
+ * registration and the resolution of wildcard subscriptions, including consecutive {@code **}
+ * segments.
+ */
+@DisplayName("DefaultMessageHandlerRegistry")
+class DefaultMessageHandlerRegistryTest {
+
+  @Test
+  @DisplayName("getRoutingTable.groupsByChannel")
+  void getRoutingTableGroupsByChannel() {
+    DefaultMessageHandlerRegistry registry = new DefaultMessageHandlerRegistry();
+    MessageHandler a1 = new StubHandler("orders", "a");
+    MessageHandler a2 = new StubHandler("orders", "a");
+    MessageHandler b1 = new StubHandler("orders", "b");
+    registry.register(a1);
+    registry.register(b1);
+    registry.register(a2);
+
+    RoutingTable.Group[] groups = registry.getRoutingTable().getGroups("orders");
+    assertEquals(2, groups.length);
+    assertEquals("a", groups[0].getName());
+    assertEquals(List.of(a1, a2), groups[0].getHandlers());
+    assertEquals("b", groups[1].getName());
+    assertEquals(List.of(b1), groups[1].getHandlers());
+    assertEquals(0, registry.getRoutingTable().getGroups("unknown").length);
+  }
+
+  @Test
+  @DisplayName("getRoutingTable.snapshotIsStable")
+  void getRoutingTableSnapshotIsStable() {
+    DefaultMessageHandlerRegistry registry = new DefaultMessageHandlerRegistry();
+    registry.register(new StubHandler("orders", "a"));
+
+    RoutingTable before = registry.getRoutingTable();
+    assertSame(before, registry.getRoutingTable());
+
+    registry.register(new StubHandler("orders", "a"));
+    RoutingTable after = registry.getRoutingTable();
+    assertNotSame(before, after);
+    assertEquals(1, before.getGroups("orders")[0].getHandlers().size());
+    assertEquals(2, after.getGroups("orders")[0].getHandlers().size());
+  }
+
+  @Test
+  @DisplayName("getRoutingTable.matchesWildcardChannels")
+  void getRoutingTableMatchesWildcardChannels() {
+    DefaultMessageHandlerRegistry registry = new DefaultMessageHandlerRegistry();
+    MessageHandler exact = new StubHandler("order.eu.created", "a");
+    MessageHandler single = new StubHandler("order.*.created", "a");
+    MessageHandler multi = new StubHandler("order.**", "b");
+    MessageHandler other = new StubHandler("payment.*", "a");
+    registry.register(exact);
+    registry.register(single);
+    registry.register(multi);
+    registry.register(other);
+    RoutingTable table = registry.getRoutingTable();
+
+    RoutingTable.Group[] groups = table.getGroups("order.eu.created");
+    assertEquals(2, groups.length);
+    assertEquals("a", groups[0].getName());
+    assertEquals(List.of(exact, single), groups[0].getHandlers());
+    assertEquals(List.of(multi), groups[1].getHandlers());
+    assertSame(groups, table.getGroups("order.eu.created"));
+
+    assertEquals(List.of(single), table.getGroups("order.us.created")[0].getHandlers());
+    assertEquals(1, table.getGroups("order").length);
+    assertEquals(1, table.getGroups("order.us.cancelled").length);
+    assertEquals(List.of(other), table.getGroups("payment.settled")[0].getHandlers());
+    assertEquals(0, table.getGroups("payment.card.settled").length);
+    assertEquals(0, table.getGroups("orders.eu.created").length);
+  }
+
+  @Test
+  @DisplayName("getRoutingTable.sharesGroupsOfSameSubscriptions")
+  void getRoutingTableSharesGroupsOfSameSubscriptions() {
+    DefaultMessageHandlerRegistry registry = new DefaultMessageHandlerRegistry();
+    registry.register(new StubHandler("order.*", "a"));
+    registry.register(new StubHandler("order.**", "b"));
+    registry.register(new StubHandler("order.eu", "a"));
+    RoutingTable table = registry.getRoutingTable();
+
+    RoutingTable.Group[] first = table.getGroups("order.0");
+    for (int i = 1; i < 5000; i++) {
+      assertSame(first, table.getGroups("order." + i));
+    }
+    assertNotSame(first, table.getGroups("order.eu"));
+    assertNotSame(first, table.getGroups("order.eu.created"));
+    assertSame(table.getGroups("order.eu.created"), table.getGroups("order.us.cancelled"));
+  }
+
+  @Test
+  @DisplayName("getRoutingTable.matchesConsecutiveMultiWildcards")
+  void getRoutingTableMatchesConsecutiveMultiWildcards() {
+    DefaultMessageHandlerRegistry registry = new DefaultMessageHandlerRegistry();
+    MessageHandler handler = new StubHandler("a.**.**.**.**.**.**.**.**.**.**.**.**.z", "a");
+    registry.register(handler);
+    RoutingTable table = registry.getRoutingTable();
+    String unmatched = "a" + ".x".repeat(40) + ".y";
+
+    RoutingTable.Group[] groups =
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> table.getGroups(unmatched));
+
+    assertEquals(0, groups.length);
+    assertEquals(List.of(handler), table.getGroups("a.z")[0].getHandlers());
+    assertEquals(List.of(handler), table.getGroups("a.b.c.z")[0].getHandlers());
+  }
+
+  private static final class StubHandler implements MessageHandler {
+
+    private final String channel;
+    private final String group;
+
+    StubHandler(String channel, String group) {
+      this.channel = channel;
+      this.group = group;
+    }
+
+    @Override
+    public String getChannel() {
+      return this.channel;
+    }
+
+    @Override
+    public String getGroup() {
+      return this.group;
+    }
+
+    @Override
+    public void handle(Message<?> message) {}
+  }
+}
@@ -0,0 +1,133 @@
+package zenny.toybox.springfield.messaging.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageHandler;
+import zenny.toybox.springfield.util.concurrent.HierarchicalTimingWheel;
+
+/**
+ * Tests for {@link DefaultMessagePublisher}, covering the redelivery of a failed message to the
+ * consumer groups that did not handle it only, its acknowledgement once all groups handled it, and
+ * the notification of the observer before the message is dispatched.
+ */
+@DisplayName("DefaultMessagePublisher")
+class DefaultMessagePublisherTest {
+
+  @Test
+  @DisplayName("publishAsync.redeliversToFailedGroupsOnly")
+  void publishAsyncRedeliversToFailedGroupsOnly() throws Exception {
+    DefaultMessageHandlerRegistry registry = new DefaultMessageHandlerRegistry();
+    FailingHandler a = new FailingHandler("a", 0);
+    FailingHandler b = new FailingHandler("b", 1);
+    FailingHandler c = new FailingHandler("c", 0);
+    registry.register(a);
+    registry.register(b);
+    registry.register(c);
+    DefaultMessagePublisher publisher =
+        new DefaultMessagePublisher(
+            new DefaultMessageDispatcher(registry, new RandomDispatchStrategy()), null, null);
+    HierarchicalTimingWheel timer = new HierarchicalTimingWheel(10, 8, null);
+    publisher.setTimer(timer);
+    publisher.setRetryPolicy(
+        new RetryPolicy(3, Duration.ofMillis(10), 1.0, Duration.ofMillis(10), null));
+    AtomicInteger acks = new AtomicInteger();
+    try {
+      assertNull(
+          publisher
+              .publishAsync(new GenericMessage<>("orders", "x", Map.of(), acks::incrementAndGet))
+              .get(5, TimeUnit.SECONDS));
+    } finally {
+      timer.shutdownNow();
+    }
+
+    assertEquals(1, a.messages.size());
+    assertEquals(2, b.messages.size());
+    // c was not reached by the failed delivery
+    assertEquals(1, c.messages.size());
+    assertEquals(Set.of("b", "c"), b.messages.get(1).getHeaders().get(RetryPolicy.GROUPS_HEADER));
+    assertEquals(1, acks.get());
+  }
+
+  @Test
+  @DisplayName("publish.notifiesObserverBeforeDispatching")
+  void publishNotifiesObserverBeforeDispatching() {
+    List<String> events = new CopyOnWriteArrayList<>();
+    DefaultMessageHandlerRegistry registry = new DefaultMessageHandlerRegistry();
+    registry.register(
+        new MessageHandler() {
+          @Override
+          public String getChannel() {
+            return "orders";
+          }
+
+          @Override
+          public String getGroup() {
+            return "a";
+          }
+
+          @Override
+          public void handle(Message<?> message) {
+            events.add("handled");
+          }
+        });
+    DefaultMessagePublisher publisher =
+        new DefaultMessagePublisher(
+            new DefaultMessageDispatcher(registry, new RandomDispatchStrategy()),
+            Runnable::run,
+            null);
+    publisher.setObserver(
+        new MessagingObserver() {
+          @Override
+          public void published(Message<?> message) {
+            events.add("published");
+          }
+        });
+
+    publisher.publish(new GenericMessage<>("orders", "x", Map.of(), null));
+
+    assertEquals(List.of("published", "handled"), events);
+  }
+
+  /** A handler of the "orders" channel failing its first deliveries. */
+  static final class FailingHandler implements MessageHandler {
+
+    final List<Message<?>> messages = new CopyOnWriteArrayList<>();
+    private final String group;
+    private final AtomicInteger failures;
+
+    FailingHandler(String group, int failures) {
+      this.group = group;
+      this.failures = new AtomicInteger(failures);
+    }
+
+    @Override
+    public String getChannel() {
+      return "orders";
+    }
+
+    @Override
+    public String getGroup() {
+      return this.group;
+    }
+
+    @Override
+    public void handle(Message<?> message) {
+      this.messages.add(message);
+      if (this.failures.getAndDecrement() > 0) {
+        throw new IllegalStateException("boom");
+      }
+    }
+  }
+}
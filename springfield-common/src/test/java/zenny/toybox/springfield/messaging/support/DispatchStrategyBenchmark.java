@@ -0,0 +1,79 @@
+package zenny.toybox.springfield.messaging.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.messaging.HandlerSelector;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageHandler;
+
+/**
+ * Compares per-message round-robin selection against a selector bound once per handler group.
+ *
+ * <p>Run with {@code java -cp <test-classpath> org.openjdk.jmh.Main DispatchStrategyBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class DispatchStrategyBenchmark {
+
+  private RoundRobinDispatchStrategy strategy;
+  private List<MessageHandler> handlers;
+  private HandlerSelector selector;
+  private Message<?> message;
+
+  @Setup
+  public void setUp() {
+    this.strategy = new RoundRobinDispatchStrategy();
+    this.handlers = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      this.handlers.add(new NoopHandler());
+    }
+    this.handlers = List.copyOf(this.handlers);
+    this.selector = this.strategy.bind(this.handlers);
+    this.message = new GenericMessage<>("bench", "payload", Map.of(), null);
+  }
+
+  @Benchmark
+  public List<MessageHandler> select() {
+    return this.strategy.select(this.handlers, this.message);
+  }
+
+  @Benchmark
+  public List<MessageHandler> bound() {
+    return this.selector.select(this.message);
+  }
+
+  private static final class NoopHandler implements MessageHandler {
+
+    @Override
+    public String getChannel() {
+      return "bench";
+    }
+
+    @Override
+    public String getGroup() {
+      return "";
+    }
+
+    @Override
+    public void handle(Message<?> message) {}
+  }
+}
@@ -0,0 +1,164 @@
+package zenny.toybox.springfield.messaging.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.messaging.HandlerSelector;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageHandler;
+
+/**
+ * Tests for {@link LeastLoadedDispatchStrategy}, covering the preference for fast and idle
+ * handlers, and the decay letting a handler that was slow be picked again.
+ */
+@DisplayName("LeastLoadedDispatchStrategy")
+class LeastLoadedDispatchStrategyTest {
+
+  private static final Message<?> MESSAGE = new GenericMessage<>("orders", "x", Map.of(), null);
+
+  @Test
+  @DisplayName("select.prefersFasterHandler")
+  void selectPrefersFasterHandler() {
+    StubHandler fast = new StubHandler(0);
+    StubHandler slow = new StubHandler(2);
+    HandlerSelector selector =
+        new LeastLoadedDispatchStrategy(Duration.ofMinutes(1)).bind(List.of(fast, slow));
+
+    for (int i = 0; i < 200; i++) {
+      selector.select(MESSAGE).get(0).handle(MESSAGE);
+    }
+
+    assertTrue(fast.handled > 150, () -> "fast=" + fast.handled + " slow=" + slow.handled);
+  }
+
+  @Test
+  @DisplayName("select.avoidsBusyHandler")
+  void selectAvoidsBusyHandler() throws Exception {
+    StubHandler busy = new StubHandler(0);
+    StubHandler idle = new StubHandler(0);
+    LeastLoadedDispatchStrategy strategy = new LeastLoadedDispatchStrategy();
+    HandlerSelector selector = strategy.bind(List.of(busy, idle));
+    MessageHandler tracked = tracker(selector, busy);
+    busy.block = new CountDownLatch(1);
+    Thread thread = Thread.ofVirtual().start(() -> tracked.handle(MESSAGE));
+    while (strategy.getInFlight(busy) == 0) {
+      Thread.sleep(1);
+    }
+
+    for (int i = 0; i < 20; i++) {
+      assertEquals(idle, unwrap(selector.select(MESSAGE).get(0), busy, idle));
+    }
+    busy.block.countDown();
+    thread.join();
+    assertEquals(0, strategy.getInFlight(busy));
+  }
+
+  @Test
+  @DisplayName("select.recoversSlowHandlerOnceEstimateDecays")
+  void selectRecoversSlowHandlerOnceEstimateDecays() throws Exception {
+    StubHandler fast = new StubHandler(0);
+    StubHandler slow = new StubHandler(20);
+    LeastLoadedDispatchStrategy strategy = new LeastLoadedDispatchStrategy(Duration.ofMillis(10));
+    HandlerSelector selector = strategy.bind(List.of(fast, slow));
+    tracker(selector, slow).handle(MESSAGE);
+    long measured = strategy.getAverageLatencyNanos(slow);
+    assertTrue(measured >= TimeUnit.MILLISECONDS.toNanos(20));
+
+    slow.delayMillis = 0;
+    Thread.sleep(200);
+
+    assertTrue(strategy.getAverageLatencyNanos(slow) < measured / 1000);
+    Map<MessageHandler, Integer> picks = new HashMap<>();
+    for (int i = 0; i < 200; i++) {
+      MessageHandler selected = selector.select(MESSAGE).get(0);
+      picks.merge(unwrap(selected, fast, slow), 1, Integer::sum);
+      selected.handle(MESSAGE);
+    }
+    assertTrue(picks.getOrDefault(slow, 0) > 0, () -> "picks=" + picks);
+  }
+
+  @Test
+  @DisplayName("getAverageLatencyNanos.halvesPerHalfLife")
+  void getAverageLatencyNanosHalvesPerHalfLife() throws Exception {
+    StubHandler handler = new StubHandler(10);
+    StubHandler other = new StubHandler(0);
+    LeastLoadedDispatchStrategy strategy = new LeastLoadedDispatchStrategy(Duration.ofMillis(100));
+    tracker(strategy.bind(List.of(handler, other)), handler).handle(MESSAGE);
+    long measured = strategy.getAverageLatencyNanos(handler);
+
+    Thread.sleep(120);
+
+    long decayed = strategy.getAverageLatencyNanos(handler);
+    assertTrue(decayed <= measured / 2, () -> measured + " -> " + decayed);
+    assertTrue(decayed >= measured / 4, () -> measured + " -> " + decayed);
+  }
+
+  /** Selects until the tracker wrapping the given handler comes up. */
+  private static MessageHandler tracker(HandlerSelector selector, MessageHandler handler) {
+    for (int i = 0; i < 1000; i++) {
+      MessageHandler selected = selector.select(MESSAGE).get(0);
+      if (selected.toString().equals(handler.toString())) {
+        return selected;
+      }
+    }
+    throw new AssertionError("never selected: " + handler);
+  }
+
+  /** Returns which of the given handlers the selected tracker wraps. */
+  private static MessageHandler unwrap(MessageHandler selected, StubHandler a, StubHandler b) {
+    return selected.toString().equals(a.toString()) ? a : b;
+  }
+
+  private static final class StubHandler implements MessageHandler {
+
+    private static int count;
+
+    private final String name = "stub-" + count++;
+    private volatile long delayMillis;
+    private volatile CountDownLatch block;
+    private int handled;
+
+    StubHandler(long delayMillis) {
+      this.delayMillis = delayMillis;
+    }
+
+    @Override
+    public String getChannel() {
+      return "orders";
+    }
+
+    @Override
+    public String getGroup() {
+      return "";
+    }
+
+    @Override
+    public void handle(Message<?> message) {
+      this.handled++;
+      try {
+        if (this.block != null) {
+          this.block.await(5, TimeUnit.SECONDS);
+        }
+        if (this.delayMillis > 0) {
+          Thread.sleep(this.delayMillis);
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Override
+    public String toString() {
+      return this.name;
+    }
+  }
+}
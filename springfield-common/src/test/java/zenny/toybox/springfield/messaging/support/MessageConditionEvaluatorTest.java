@@ -0,0 +1,91 @@
+package zenny.toybox.springfield.messaging.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tabletest.junit.TableTest;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.messaging.Message;
+
+/**
+ * Tests for {@link MessageConditionEvaluator}, covering the agreement of the simple equality fast
+ * path with full SpEL evaluation, and the reuse of evaluation contexts across threads.
+ */
+@DisplayName("MessageConditionEvaluator")
+class MessageConditionEvaluatorTest {
+
+  @TableTest(
+      """
+      Scenario                 | Condition                          | Region | Payload | Expected
+      Header equal             | #headers['region'] == 'eu'         | eu     | x       | true
+      Header not equal         | #headers['region'] == 'eu'         | us     | x       | false
+      Header missing           | #headers['region'] == 'eu'         |        | x       | false
+      Header missing, negated  | #headers['region'] != 'eu'         |        | x       | true
+      Header negated           | #headers['region'] != 'eu'         | eu     | x       | false
+      Double quotes            | '#headers["region"] == "eu"'       | eu     | x       | true
+      Extra whitespace         | '  #headers[ "region" ]=="eu"  '   | eu     | x       | true
+      Empty literal            | "#headers['region'] == ''"         | ""     | x       | true
+      Payload equal            | #payload == 'x'                    | eu     | x       | true
+      Payload not equal        | #payload != 'x'                    | eu     | y       | true
+      Case sensitive           | #payload == 'X'                    | eu     | x       | false
+      Escaped quote, no match  | "#payload == 'it''s'"              | eu     | it's    | true
+      """)
+  @DisplayName("compile.fastPathAgreesWithSpel")
+  void compileFastPathAgreesWithSpel(
+      String condition, String region, String payload, boolean expected) {
+    MessageConditionEvaluator evaluator = new MessageConditionEvaluator();
+    Message<?> message = message(payload, region);
+
+    boolean fast = evaluator.compile(condition).test(message);
+    boolean spel = Boolean.TRUE.equals(evaluator.compileValue(condition).apply(message));
+
+    assertEquals(expected, spel);
+    assertEquals(spel, fast);
+  }
+
+  @Test
+  @DisplayName("compile.fastPathAgreesWithSpelOnNonStringHeader")
+  void compileFastPathAgreesWithSpelOnNonStringHeader() {
+    MessageConditionEvaluator evaluator = new MessageConditionEvaluator();
+    Message<?> message = new GenericMessage<>("orders", "x", Map.of("region", 1), null);
+
+    for (String condition : List.of("#headers['region'] == '1'", "#headers['region'] != '1'")) {
+      assertEquals(
+          Boolean.TRUE.equals(evaluator.compileValue(condition).apply(message)),
+          evaluator.compile(condition).test(message));
+    }
+  }
+
+  @Test
+  @DisplayName("evaluate.isolatesConcurrentMessages")
+  void evaluateIsolatesConcurrentMessages() throws Exception {
+    MessageConditionEvaluator evaluator = new MessageConditionEvaluator();
+    String condition = "#headers['region'] == 'eu' and #payload.length() > 1";
+    List<Future<Boolean>> results = new ArrayList<>();
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < 2000; i++) {
+        Message<?> message = message(i % 2 == 0 ? "xx" : "x", i % 3 == 0 ? "eu" : "us");
+        results.add(executor.submit(() -> evaluator.evaluate(condition, message)));
+      }
+    }
+    for (int i = 0; i < results.size(); i++) {
+      assertEquals(i % 2 == 0 && i % 3 == 0, results.get(i).get(), "message " + i);
+    }
+  }
+
+  private static Message<?> message(String payload, String region) {
+    Map<String, Object> headers = new HashMap<>();
+    if (region != null) {
+      headers.put("region", region);
+    }
+    return new GenericMessage<>("orders", payload, headers, null);
+  }
+}
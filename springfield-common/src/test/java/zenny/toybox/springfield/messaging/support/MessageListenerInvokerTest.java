@@ -0,0 +1,239 @@
+package zenny.toybox.springfield.messaging.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tabletest.junit.TableTest;
+
+/**
+ * Tests for {@link MessageListenerInvoker}, covering the lambdas generated for zero to four
+ * parameters, the spreading method handle used otherwise, and the exceptions thrown by the invoked
+ * methods.
+ */
+@DisplayName("MessageListenerInvoker")
+class MessageListenerInvokerTest {
+
+  @TableTest(
+      """
+      Scenario          | Method | Arity | Generated
+      No parameter      | arity0 | 0     | true
+      One parameter     | arity1 | 1     | true
+      Two parameters    | arity2 | 2     | true
+      Three parameters  | arity3 | 3     | true
+      Four parameters   | arity4 | 4     | true
+      Five parameters   | arity5 | 5     | false
+      Primitive boxing  | count  | 1     | true
+      """)
+  @DisplayName("forMethod.passesArguments")
+  void forMethodPassesArguments(String name, int arity, boolean generated) throws Throwable {
+    Method method = findMethod(PublicListener.class, name);
+    PublicListener listener = new PublicListener();
+    Object[] args = new Object[arity];
+    for (int i = 0; i < arity; i++) {
+      args[i] = method.getParameterTypes()[i] == int.class ? i : "a" + i;
+    }
+
+    MessageListenerInvoker invoker = MessageListenerInvoker.forMethod(method);
+    invoker.invoke(listener, args);
+
+    assertEquals(List.of(name + Arrays.toString(args)), listener.calls);
+    assertEquals(generated, isGenerated(invoker));
+  }
+
+  @Test
+  @DisplayName("forMethod.fallsBackForNonPublicClass")
+  void forMethodFallsBackForNonPublicClass() throws Throwable {
+    Method method = findMethod(HiddenListener.class, "onMessage");
+    HiddenListener listener = new HiddenListener();
+
+    MessageListenerInvoker invoker = MessageListenerInvoker.forMethod(method);
+    invoker.invoke(listener, new Object[] {"hello"});
+
+    assertFalse(isGenerated(invoker));
+    assertEquals("hello", listener.received);
+  }
+
+  @Test
+  @DisplayName("forMethod.fallsBackForStaticMethod")
+  void forMethodFallsBackForStaticMethod() throws Throwable {
+    Method method = findMethod(PublicListener.class, "identity");
+
+    MessageListenerInvoker invoker = MessageListenerInvoker.forMethod(method);
+
+    assertFalse(isGenerated(invoker));
+    assertEquals("x", invoker.invoke(new Object(), new Object[] {"x"}));
+  }
+
+  @TableTest(
+      """
+      Scenario                      | Method
+      Generated, unchecked          | failUnchecked
+      Generated, checked            | failChecked
+      Method handle, five arguments | failWide
+      """)
+  @DisplayName("forMethod.propagatesExceptionsUnwrapped")
+  void forMethodPropagatesExceptionsUnwrapped(String name) {
+    Method method = findMethod(PublicListener.class, name);
+    MessageListenerInvoker invoker = MessageListenerInvoker.forMethod(method);
+    Object[] args = new Object[method.getParameterCount()];
+
+    Throwable thrown =
+        assertThrows(Throwable.class, () -> invoker.invoke(new PublicListener(), args));
+
+    assertEquals(name, thrown.getMessage());
+    assertFalse(thrown instanceof java.lang.reflect.InvocationTargetException);
+  }
+
+  @Test
+  @DisplayName("forGetter.readsProperty")
+  void forGetterReadsProperty() throws Exception {
+    Function<Object, Object> name =
+        MessageListenerInvoker.forGetter(Customer.class.getMethod("getName"));
+    Function<Object, Object> age =
+        MessageListenerInvoker.forGetter(Customer.class.getMethod("getAge"));
+    Function<Object, Object> hidden =
+        MessageListenerInvoker.forGetter(HiddenListener.class.getDeclaredMethod("getReceived"));
+    HiddenListener listener = new HiddenListener();
+    listener.received = "hello";
+
+    assertEquals("zenny", name.apply(new Customer("zenny", 7)));
+    assertEquals(7, age.apply(new Customer("zenny", 7)));
+    assertNull(name.apply(new Customer(null, 0)));
+    assertEquals("hello", hidden.apply(listener));
+  }
+
+  @Test
+  @DisplayName("forGetter.propagatesExceptions")
+  void forGetterPropagatesExceptions() throws Exception {
+    Function<Object, Object> failing =
+        MessageListenerInvoker.forGetter(Customer.class.getMethod("getFailing"));
+
+    IllegalStateException thrown =
+        assertThrows(IllegalStateException.class, () -> failing.apply(new Customer("zenny", 7)));
+    assertEquals("getFailing", thrown.getMessage());
+  }
+
+  @Test
+  @DisplayName("forGetter.wrapsCheckedExceptionsOfMethodHandles")
+  void forGetterWrapsCheckedExceptionsOfMethodHandles() throws Exception {
+    Method getter = HiddenListener.class.getDeclaredMethod("getChecked");
+    Function<Object, Object> failing = MessageListenerInvoker.forGetter(getter);
+
+    IllegalStateException thrown =
+        assertThrows(IllegalStateException.class, () -> failing.apply(new HiddenListener()));
+    assertInstanceOf(IOException.class, thrown.getCause());
+  }
+
+  private static boolean isGenerated(MessageListenerInvoker invoker) {
+    return !invoker.getClass().getSimpleName().equals("MethodHandleInvoker");
+  }
+
+  private static Method findMethod(Class<?> type, String name) {
+    for (Method method : type.getDeclaredMethods()) {
+      if (method.getName().equals(name)) {
+        return method;
+      }
+    }
+    throw new IllegalArgumentException(name);
+  }
+
+  public static class PublicListener {
+
+    final List<String> calls = new ArrayList<>();
+
+    public void arity0() {
+      this.calls.add("arity0[]");
+    }
+
+    public void arity1(String a) {
+      this.calls.add("arity1" + List.of(a));
+    }
+
+    public void arity2(String a, String b) {
+      this.calls.add("arity2" + List.of(a, b));
+    }
+
+    public void arity3(String a, String b, String c) {
+      this.calls.add("arity3" + List.of(a, b, c));
+    }
+
+    public void arity4(String a, String b, String c, String d) {
+      this.calls.add("arity4" + List.of(a, b, c, d));
+    }
+
+    public void arity5(String a, String b, String c, String d, String e) {
+      this.calls.add("arity5" + List.of(a, b, c, d, e));
+    }
+
+    public void count(int value) {
+      this.calls.add("count" + List.of(value));
+    }
+
+    public static String identity(String value) {
+      return value;
+    }
+
+    public void failUnchecked(String a) {
+      throw new IllegalStateException("failUnchecked");
+    }
+
+    public void failChecked(String a) throws IOException {
+      throw new IOException("failChecked");
+    }
+
+    public void failWide(String a, String b, String c, String d, String e) throws IOException {
+      throw new IOException("failWide");
+    }
+  }
+
+  static class HiddenListener {
+
+    String received;
+
+    public void onMessage(String message) {
+      this.received = message;
+    }
+
+    String getReceived() {
+      return this.received;
+    }
+
+    String getChecked() throws IOException {
+      throw new IOException("getChecked");
+    }
+  }
+
+  public static class Customer {
+
+    private final String name;
+    private final int age;
+
+    public Customer(String name, int age) {
+      this.name = name;
+      this.age = age;
+    }
+
+    public String getName() {
+      return this.name;
+    }
+
+    public int getAge() {
+      return this.age;
+    }
+
+    public String getFailing() {
+      throw new IllegalStateException("getFailing");
+    }
+  }
+}
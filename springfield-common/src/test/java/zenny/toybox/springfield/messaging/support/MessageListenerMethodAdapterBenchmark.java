@@ -0,0 +1,164 @@
+package zenny.toybox.springfield.messaging.support;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.messaging.Header;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageListener;
+import zenny.toybox.springfield.messaging.Payload;
+
+/**
+ * Compares {@link MessageListenerMethodAdapter} against the per-message reflective resolution and
+ * invocation it replaced.
+ *
+ * <p>{@code reflective} reproduces the previous adapter, which looked up the merged
+ * {@code @Payload} and {@code @Header} annotations of every parameter on each message. Those
+ * lookups are not cached for parameters and dominate its cost, in the order of tens of
+ * microseconds. {@code reflectiveResolved} looks the annotations up once and keeps the per-message
+ * {@link BeanWrapperImpl} and {@link Method#invoke}, isolating what the bound getters and the
+ * generated invoker save.
+ *
+ * <p>Run with {@code java -cp <test-classpath> org.openjdk.jmh.Main
+ * MessageListenerMethodAdapterBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageListenerMethodAdapterBenchmark {
+
+  private Listener listener;
+  private Method method;
+  private MessageListenerMethodAdapter adapter;
+  private Message<Order> message;
+  private Payload[] payloads;
+  private Header[] headers;
+
+  @Setup
+  public void setUp() throws NoSuchMethodException {
+    this.listener = new Listener();
+    this.method = Listener.class.getMethod("onOrder", Order.class, String.class, String.class);
+    MessageListener annotation = this.method.getAnnotation(MessageListener.class);
+    this.adapter =
+        new MessageListenerMethodAdapter(
+            this.listener, this.method, annotation, new StaticApplicationContext());
+    this.message =
+        new GenericMessage<>(
+            "orders", new Order(42L, new Customer("zenny")), Map.of("tenant", "acme"), null);
+    Parameter[] parameters = this.method.getParameters();
+    this.payloads = new Payload[parameters.length];
+    this.headers = new Header[parameters.length];
+    for (int i = 0; i < parameters.length; i++) {
+      this.payloads[i] = AnnotatedElementUtils.findMergedAnnotation(parameters[i], Payload.class);
+      this.headers[i] = AnnotatedElementUtils.findMergedAnnotation(parameters[i], Header.class);
+    }
+  }
+
+  @Benchmark
+  public void reflective(Blackhole blackhole) throws ReflectiveOperationException {
+    Parameter[] parameters = this.method.getParameters();
+    Object[] args = new Object[parameters.length];
+    for (int i = 0; i < parameters.length; i++) {
+      Payload payload = AnnotatedElementUtils.findMergedAnnotation(parameters[i], Payload.class);
+      Header header = AnnotatedElementUtils.findMergedAnnotation(parameters[i], Header.class);
+      if (payload != null) {
+        args[i] =
+            payload.value().isEmpty()
+                ? this.message.getPayload()
+                : new BeanWrapperImpl(this.message.getPayload()).getPropertyValue(payload.value());
+      } else if (header != null) {
+        args[i] = this.message.getHeaders().get(header.value());
+      }
+    }
+    this.method.invoke(this.listener, args);
+    blackhole.consume(this.listener.count);
+  }
+
+  @Benchmark
+  public void reflectiveResolved(Blackhole blackhole) throws ReflectiveOperationException {
+    Object[] args = new Object[this.payloads.length];
+    for (int i = 0; i < args.length; i++) {
+      Payload payload = this.payloads[i];
+      if (payload != null) {
+        args[i] =
+            payload.value().isEmpty()
+                ? this.message.getPayload()
+                : new BeanWrapperImpl(this.message.getPayload()).getPropertyValue(payload.value());
+      } else if (this.headers[i] != null) {
+        args[i] = this.message.getHeaders().get(this.headers[i].value());
+      }
+    }
+    this.method.invoke(this.listener, args);
+    blackhole.consume(this.listener.count);
+  }
+
+  @Benchmark
+  public void adapter(Blackhole blackhole) {
+    this.adapter.handle(this.message);
+    blackhole.consume(this.listener.count);
+  }
+
+  public static class Listener {
+
+    long count;
+
+    @MessageListener(channel = "orders")
+    public void onOrder(
+        @Payload Order order,
+        @Header("tenant") String tenant,
+        @Payload("customer.name") String customerName) {
+      this.count += order.getId() + tenant.length() + customerName.length();
+    }
+  }
+
+  public static class Order {
+
+    private final long id;
+    private final Customer customer;
+
+    public Order(long id, Customer customer) {
+      this.id = id;
+      this.customer = customer;
+    }
+
+    public long getId() {
+      return this.id;
+    }
+
+    public Customer getCustomer() {
+      return this.customer;
+    }
+  }
+
+  public static class Customer {
+
+    private final String name;
+
+    public Customer(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return this.name;
+    }
+  }
+}
@@ -0,0 +1,255 @@
+package zenny.toybox.springfield.messaging.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.NullValueInNestedPathException;
+import org.springframework.context.support.StaticApplicationContext;
+import org.tabletest.junit.TableTest;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.messaging.Header;
+import zenny.toybox.springfield.messaging.MessageListener;
+import zenny.toybox.springfield.messaging.Payload;
+import zenny.toybox.springfield.messaging.PayloadCodec;
+
+/**
+ * Tests for {@link MessageListenerMethodAdapter}, covering the resolution of {@code @Payload}
+ * property paths through bound getters, their bean wrapper fallback, {@code @Header} arguments, the
+ * decoding of the payload only for messages passing the condition, and the exception types of
+ * failed invocations.
+ */
+@DisplayName("MessageListenerMethodAdapter")
+class MessageListenerMethodAdapterTest {
+
+  @TableTest(
+      """
+      Scenario              | Method       | Customer | Expected
+      Nested getter         | onName       | zenny    | zenny
+      Null leaf             | onName       |          |
+      Primitive getter      | onId         | zenny    | 42
+      Indexed path fallback | onFirstOrder | zenny    | first
+      """)
+  @DisplayName("handle.resolvesPayloadProperty")
+  void handleResolvesPayloadProperty(String name, String customer, String expected) {
+    Listener listener = new Listener();
+    MessageListenerMethodAdapter adapter = adapter(listener, name);
+
+    adapter.handle(message(new Order(42L, new Customer(customer))));
+
+    assertEquals(1, listener.received.size());
+    assertEquals(expected, listener.received.get(0) == null ? null : "" + listener.received.get(0));
+  }
+
+  @Test
+  @DisplayName("handle.rejectsNullIntermediate")
+  void handleRejectsNullIntermediate() {
+    Listener listener = new Listener();
+    MessageListenerMethodAdapter adapter = adapter(listener, "onName");
+
+    NullValueInNestedPathException thrown =
+        assertThrows(
+            NullValueInNestedPathException.class,
+            () -> adapter.handle(message(new Order(42L, null))));
+    assertEquals("customer", thrown.getPropertyName());
+    assertEquals(Order.class, thrown.getBeanClass());
+    assertEquals(List.of(), listener.received);
+  }
+
+  @Test
+  @DisplayName("handle.rebindsOnPayloadTypeChange")
+  void handleRebindsOnPayloadTypeChange() {
+    Listener listener = new Listener();
+    MessageListenerMethodAdapter adapter = adapter(listener, "onName");
+
+    adapter.handle(message(new Order(1L, new Customer("a"))));
+    adapter.handle(message(new PriorityOrder(new Customer("b"))));
+    adapter.handle(message(new Order(2L, new Customer("c"))));
+
+    assertEquals(List.of("a", "b", "c"), listener.received);
+  }
+
+  @Test
+  @DisplayName("handle.resolvesHeader")
+  void handleResolvesHeader() {
+    Listener listener = new Listener();
+    MessageListenerMethodAdapter adapter = adapter(listener, "onTenant");
+
+    adapter.handle(message(new Order(42L, new Customer("zenny"))));
+    adapter.handle(new GenericMessage<>("orders", new Order(1L, null), Map.of("other", "x"), null));
+
+    assertEquals(Arrays.asList("acme", null), listener.received);
+  }
+
+  @Test
+  @DisplayName("handle.decodesPayloadOnlyOnceConditionPassed")
+  void handleDecodesPayloadOnlyOnceConditionPassed() {
+    Listener listener = new Listener();
+    MessageListenerMethodAdapter adapter = adapter(listener, "onAmount");
+    List<Class<?>> decoded = new ArrayList<>();
+    PayloadCodec codec =
+        new PayloadCodec() {
+
+          @Override
+          public <T> T decode(Object payload, Class<T> type) {
+            decoded.add(type);
+            return type.cast(Integer.valueOf(payload.toString()));
+          }
+        };
+
+    adapter.handle(new GenericMessage<>("orders", "7", Map.of("tenant", "other"), null, codec));
+    assertEquals(List.of(), decoded);
+
+    adapter.handle(new GenericMessage<>("orders", "42", Map.of("tenant", "acme"), null, codec));
+    assertEquals(List.of(Integer.class), decoded);
+    assertEquals(List.of(42), listener.received);
+  }
+
+  @TableTest(
+      """
+      Scenario          | Method     | Thrown                   | Cause
+      Runtime exception | onFailing  | IllegalStateException    | UnsupportedOperationException
+      Checked exception | onChecked  | IllegalStateException    | IOException
+      Type mismatch     | onCount    | IllegalArgumentException |
+      Null primitive    | onPriority | IllegalArgumentException |
+      """)
+  @DisplayName("handle.keepsReflectiveExceptionTypes")
+  void handleKeepsReflectiveExceptionTypes(String name, String thrownType, String cause) {
+    MessageListenerMethodAdapter adapter = adapter(new Listener(), name);
+
+    Throwable thrown =
+        assertThrows(Throwable.class, () -> adapter.handle(message(new Order(42L, null))));
+
+    assertEquals(thrownType, thrown.getClass().getSimpleName());
+    if (cause != null) {
+      InvocationTargetException target =
+          assertInstanceOf(InvocationTargetException.class, thrown.getCause());
+      assertEquals(cause, target.getCause().getClass().getSimpleName());
+    }
+  }
+
+  private static MessageListenerMethodAdapter adapter(Listener listener, String name) {
+    for (Method method : Listener.class.getMethods()) {
+      if (method.getName().equals(name)) {
+        return new MessageListenerMethodAdapter(
+            listener,
+            method,
+            method.getAnnotation(MessageListener.class),
+            new StaticApplicationContext());
+      }
+    }
+    throw new IllegalArgumentException(name);
+  }
+
+  private static GenericMessage<Object> message(Object payload) {
+    return new GenericMessage<>("orders", payload, Map.of("tenant", "acme"), null);
+  }
+
+  public static class Listener {
+
+    final List<Object> received = new ArrayList<>();
+
+    @MessageListener(channel = "orders")
+    public void onName(@Payload("customer.name") String name) {
+      this.received.add(name);
+    }
+
+    @MessageListener(channel = "orders")
+    public void onId(@Payload("id") long id) {
+      this.received.add(id);
+    }
+
+    @MessageListener(channel = "orders")
+    public void onFirstOrder(@Payload("customer.orders[0]") String order) {
+      this.received.add(order);
+    }
+
+    @MessageListener(channel = "orders")
+    public void onTenant(@Header("tenant") String tenant) {
+      this.received.add(tenant);
+    }
+
+    @MessageListener(channel = "orders", condition = "#headers['tenant'] == 'acme'")
+    public void onAmount(@Payload Integer amount) {
+      this.received.add(amount);
+    }
+
+    @MessageListener(channel = "orders")
+    public void onFailing(@Payload Order order) {
+      throw new UnsupportedOperationException("boom");
+    }
+
+    @MessageListener(channel = "orders")
+    public void onChecked(@Payload Order order) throws IOException {
+      throw new IOException("boom");
+    }
+
+    @MessageListener(channel = "orders")
+    public void onCount(long count) {
+      this.received.add(count);
+    }
+
+    @MessageListener(channel = "orders")
+    public void onPriority(@Header("priority") int priority) {
+      this.received.add(priority);
+    }
+  }
+
+  public static class Order {
+
+    private final long id;
+    private final Customer customer;
+
+    public Order(long id, Customer customer) {
+      this.id = id;
+      this.customer = customer;
+    }
+
+    public long getId() {
+      return this.id;
+    }
+
+    public Customer getCustomer() {
+      return this.customer;
+    }
+  }
+
+  public static class PriorityOrder {
+
+    private final Customer customer;
+
+    public PriorityOrder(Customer customer) {
+      this.customer = customer;
+    }
+
+    public Customer getCustomer() {
+      return this.customer;
+    }
+  }
+
+  public static class Customer {
+
+    private final String name;
+
+    public Customer(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return this.name;
+    }
+
+    public List<String> getOrders() {
+      return List.of("first", "second");
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package zenny.toybox.springfield.messaging.support;
+
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageHandler;
+import zenny.toybox.springfield.messaging.MessagePublisher;
+
+/**
+ * Measures the publish latency of the executor based publisher and the ring buffer publisher with a
+ * handler doing no work.
+ *
+ * <p>Run with {@code java -cp <test-classpath> org.openjdk.jmh.Main MessagePublisherBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessagePublisherBenchmark {
+
+  @Param({"EXECUTOR", "RING_BUFFER"})
+  public String publisherType;
+
+  private MessagePublisher publisher;
+  private ThreadPoolExecutor executor;
+  private Message<?> message;
+
+  @Setup
+  public void setUp() {
+    DefaultMessageHandlerRegistry registry = new DefaultMessageHandlerRegistry();
+    registry.register(new NoopHandler());
+    DefaultMessageDispatcher dispatcher =
+        new DefaultMessageDispatcher(registry, new RandomDispatchStrategy());
+    if ("RING_BUFFER".equals(this.publisherType)) {
+      this.publisher =
+          new RingBufferMessagePublisher(
+              dispatcher, null, 1 << 16, RingBufferMessagePublisher.WaitStrategy.YIELD);
+    } else {
+      this.executor =
+          new ThreadPoolExecutor(
+              1,
+              1,
+              60L,
+              TimeUnit.SECONDS,
+              new LinkedBlockingQueue<>(1 << 16),
+              new ThreadPoolExecutor.CallerRunsPolicy());
+      this.publisher = new DefaultMessagePublisher(dispatcher, this.executor, null);
+    }
+    this.message = new GenericMessage<>("bench", "payload", Map.of(), null);
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (this.publisher instanceof RingBufferMessagePublisher ringBuffer) {
+      ringBuffer.close();
+    } else {
+      this.executor.shutdown();
+    }
+  }
+
+  @Benchmark
+  public void publish() {
+    this.publisher.publish(this.message);
+  }
+
+  private static final class NoopHandler implements MessageHandler {
+
+    @Override
+    public String getChannel() {
+      return "bench";
+    }
+
+    @Override
+    public String getGroup() {
+      return "";
+    }
+
+    @Override
+    public void handle(Message<?> message) {}
+  }
+}
@@ -0,0 +1,108 @@
+package zenny.toybox.springfield.messaging.support;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageHandler;
+
+/**
+ * Measures message throughput of the {@code pool} and {@code virtual} business executors with a
+ * handler blocking on simulated I/O for one millisecond.
+ *
+ * <p>Run with {@code java -cp <test-classpath> org.openjdk.jmh.Main MessagingExecutorBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessagingExecutorBenchmark {
+
+  private static final int MESSAGES = 2000;
+
+  @Param({"POOL", "VIRTUAL"})
+  public String executorType;
+
+  private Executor executor;
+  private DefaultMessagePublisher publisher;
+
+  @Setup
+  public void setUp() {
+    this.executor =
+        "VIRTUAL".equals(this.executorType)
+            ? new VirtualThreadMessageExecutor(1000)
+            : new ThreadPoolExecutor(
+                4,
+                16,
+                60L,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(1000),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    DefaultMessageHandlerRegistry registry = new DefaultMessageHandlerRegistry();
+    registry.register(new BlockingHandler());
+    this.publisher =
+        new DefaultMessagePublisher(
+            new DefaultMessageDispatcher(registry, new RandomDispatchStrategy()),
+            this.executor,
+            null);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    if (this.executor instanceof AutoCloseable closeable) {
+      closeable.close();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MESSAGES)
+  public void publish() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(MESSAGES);
+    for (int i = 0; i < MESSAGES; i++) {
+      Message<?> message = new GenericMessage<>("io", i, Map.of(), latch::countDown);
+      this.publisher.publish(message);
+    }
+    latch.await();
+  }
+
+  private static final class BlockingHandler implements MessageHandler {
+
+    @Override
+    public String getChannel() {
+      return "io";
+    }
+
+    @Override
+    public String getGroup() {
+      return "";
+    }
+
+    @Override
+    public void handle(Message<?> message) {
+      try {
+        Thread.sleep(1);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package zenny.toybox.springfield.messaging.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tabletest.junit.TableTest;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.util.algorithm.Hashing;
+
+/**
+ * Tests for {@link PartitionedMessageExecutor}, covering the ordering of the tasks of a key, the
+ * assignment of tasks to lanes, the backpressure of a full lane, and the tasks accepted or rejected
+ * around {@link PartitionedMessageExecutor#close()}.
+ */
+@DisplayName("PartitionedMessageExecutor")
+class PartitionedMessageExecutorTest {
+
+  @Test
+  @DisplayName("execute.keepsOrderPerKey")
+  void executeKeepsOrderPerKey() {
+    Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+    Map<String, List<String>> threads = new ConcurrentHashMap<>();
+    try (PartitionedMessageExecutor executor =
+        new PartitionedMessageExecutor(4, 1000, PartitionedMessageExecutor.headerKey("key"))) {
+      for (int i = 0; i < 500; i++) {
+        String key = "key-" + (i % 7);
+        int sequence = i;
+        executor.execute(
+            new Task(
+                key,
+                false,
+                () -> {
+                  processed.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(sequence);
+                  threads
+                      .computeIfAbsent(key, k -> new CopyOnWriteArrayList<>())
+                      .add(Thread.currentThread().getName());
+                }));
+      }
+    }
+
+    assertEquals(7, processed.size());
+    processed.forEach(
+        (key, sequences) -> {
+          List<Integer> sorted = new ArrayList<>(sequences);
+          sorted.sort(null);
+          assertEquals(sorted, sequences, key);
+          assertEquals(1, threads.get(key).stream().distinct().count(), key);
+        });
+    assertEquals(500, processed.values().stream().mapToInt(List::size).sum());
+  }
+
+  @TableTest(
+      """
+      Scenario           | Keys        | Lanes
+      Keyed tasks        | a,b,c,d     | hash
+      Tasks without keys | ,,,,        | 0,1,2,0,1
+      Other runnables    | other,other | 0,1
+      """)
+  @DisplayName("execute.assignsLanes")
+  void executeAssignsLanes(String keys, String lanes) throws Exception {
+    String[] taskKeys = keys.split(",", -1);
+    List<String> expected = new ArrayList<>();
+    if (lanes.equals("hash")) {
+      for (String key : taskKeys) {
+        expected.add(String.valueOf(Math.floorMod(Hashing.MURMURHASH3.hash(key), 3)));
+      }
+    } else {
+      expected.addAll(List.of(lanes.split(",")));
+    }
+    List<String> actual = new ArrayList<>();
+    try (PartitionedMessageExecutor executor =
+        new PartitionedMessageExecutor(3, 10, PartitionedMessageExecutor.headerKey("key"))) {
+      for (String key : taskKeys) {
+        CountDownLatch done = new CountDownLatch(1);
+        Runnable body =
+            () -> {
+              actual.add(Thread.currentThread().getName().substring("messaging-lane-".length()));
+              done.countDown();
+            };
+        executor.execute(
+            key.equals("other") ? body : new Task(key.isEmpty() ? null : key, false, body));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+      }
+    }
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  @DisplayName("execute.blocksOnFullLaneAndRejectsFailFastTask")
+  void executeBlocksOnFullLaneAndRejectsFailFastTask() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> processed = new CopyOnWriteArrayList<>();
+    try (PartitionedMessageExecutor executor =
+        new PartitionedMessageExecutor(1, 1, PartitionedMessageExecutor.headerKey("key"))) {
+      executor.execute(new Task("a", false, () -> await(release)));
+      waitFor(() -> executor.getQueueDepth(0) == 0);
+      executor.execute(new Task("a", false, () -> processed.add("queued")));
+
+      assertThrows(
+          RejectedExecutionException.class,
+          () -> executor.execute(new Task("a", true, () -> processed.add("fail-fast"))));
+      Thread submitter =
+          Thread.ofPlatform()
+              .start(() -> executor.execute(new Task("a", false, () -> processed.add("blocked"))));
+      waitFor(() -> submitter.getState() == Thread.State.WAITING);
+      assertEquals(1, executor.getQueueDepth(0));
+
+      release.countDown();
+      submitter.join(5000);
+      assertFalse(submitter.isAlive());
+    }
+    assertEquals(List.of("queued", "blocked"), processed);
+  }
+
+  @Test
+  @DisplayName("close.runsAcceptedTasksAndRejectsNewOnes")
+  void closeRunsAcceptedTasksAndRejectsNewOnes() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> processed = new CopyOnWriteArrayList<>();
+    PartitionedMessageExecutor executor =
+        new PartitionedMessageExecutor(1, 1, PartitionedMessageExecutor.headerKey("key"));
+    executor.execute(new Task("a", false, () -> await(release)));
+    waitFor(() -> executor.getQueueDepth(0) == 0);
+    executor.execute(new Task("a", false, () -> processed.add("queued")));
+    Thread submitter =
+        Thread.ofPlatform()
+            .start(() -> executor.execute(new Task("a", false, () -> processed.add("blocked"))));
+    waitFor(() -> submitter.getState() == Thread.State.WAITING);
+
+    Thread closer = Thread.ofPlatform().start(executor::close);
+    // the closer waits for the blocked submission rather than stranding its task
+    waitFor(() -> closer.getState() == Thread.State.WAITING);
+    release.countDown();
+    closer.join(5000);
+    assertFalse(closer.isAlive());
+
+    assertEquals(List.of("queued", "blocked"), processed);
+    assertThrows(
+        RejectedExecutionException.class, () -> executor.execute(new Task("a", false, () -> {})));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "timed out");
+      Thread.sleep(5);
+    }
+  }
+
+  private static final class Task extends MessageTask {
+
+    private final Runnable body;
+
+    Task(String key, boolean failFast, Runnable body) {
+      super(
+          new GenericMessage<>(
+              "orders", "payload", key != null ? Map.of("key", key) : Map.of(), null),
+          failFast);
+      this.body = body;
+    }
+
+    @Override
+    public void run() {
+      this.body.run();
+    }
+  }
+}
@@ -0,0 +1,175 @@
+package zenny.toybox.springfield.messaging.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tabletest.junit.TableTest;
+import zenny.toybox.springfield.messaging.GenericMessage;
+
+/**
+ * Tests for {@link PriorityMessageQueue}, covering the weighted credit order of {@code poll} and
+ * {@code peek}, the removal of the least urgent task, and the resolution of task levels.
+ */
+@DisplayName("PriorityMessageQueue")
+class PriorityMessageQueueTest {
+
+  @TableTest(
+      """
+      Scenario              | Weights | Offered           | Polled
+      Two to one            | '2, 1'  | '0,0,0,0,1,1,1,1' | '0,0,1,0,0,1,1,1'
+      Equal weights         | '1,1,1' | '2,2,1,1,0,0'     | '0,1,2,0,1,2'
+      Urgent level drained  | '3, 1'  | '1,1,0,0,0,0,0'   | '0,0,0,1,0,0,1'
+      Single level          | 1       | '0,0,0'           | '0,0,0'
+      Only the least urgent | '4, 1'  | '1,1,1'           | '1,1,1'
+      """)
+  @DisplayName("poll.followsWeightedCredits")
+  void pollFollowsWeightedCredits(String weights, String offered, String polled) {
+    PriorityMessageQueue queue = queue(100, ints(weights));
+    for (int level : ints(offered)) {
+      assertTrue(queue.offer(new Task("orders", level)));
+    }
+
+    List<Integer> levels = new ArrayList<>();
+    Map<Integer, Integer> lastSequence = new HashMap<>();
+    while (!queue.isEmpty()) {
+      Runnable peeked = queue.peek();
+      Task task = (Task) queue.poll();
+      assertSame(peeked, task);
+      levels.add(task.level);
+      Integer previous = lastSequence.put(task.level, task.sequence);
+      assertTrue(previous == null || previous < task.sequence, "FIFO within a level");
+    }
+
+    assertEquals(Arrays.stream(ints(polled)).boxed().toList(), levels);
+    assertNull(queue.peek());
+    assertNull(queue.poll());
+  }
+
+  @Test
+  @DisplayName("peek.doesNotUseCredits")
+  void peekDoesNotUseCredits() {
+    PriorityMessageQueue queue = queue(100, new int[] {1, 1});
+    Task urgent = new Task("orders", 0);
+    Task other = new Task("orders", 1);
+    Task urgentAgain = new Task("orders", 0);
+    queue.offer(urgent);
+    queue.offer(other);
+    queue.offer(urgentAgain);
+
+    assertSame(urgent, queue.peek());
+    assertSame(urgent, queue.peek());
+    assertSame(urgent, queue.poll());
+    // level 0 spent its credit, so level 1 comes next even though level 0 is not empty
+    assertSame(other, queue.peek());
+    assertSame(other, queue.poll());
+    assertSame(urgentAgain, queue.peek());
+    assertSame(urgentAgain, queue.poll());
+  }
+
+  @Test
+  @DisplayName("pollLeastUrgent.takesTheOldestOfTheLeastUrgentLevel")
+  void pollLeastUrgentTakesTheOldestOfTheLeastUrgentLevel() {
+    PriorityMessageQueue queue = queue(100, new int[] {4, 2, 1});
+    Task urgent = new Task("orders", 0);
+    Task normal = new Task("orders", 1);
+    Task first = new Task("orders", 2);
+    Task second = new Task("orders", 2);
+    for (Task task : List.of(urgent, first, normal, second)) {
+      queue.offer(task);
+    }
+
+    assertSame(first, queue.pollLeastUrgent());
+    assertSame(second, queue.pollLeastUrgent());
+    assertSame(normal, queue.pollLeastUrgent());
+    assertSame(urgent, queue.pollLeastUrgent());
+    assertNull(queue.pollLeastUrgent());
+    assertEquals(0, queue.size());
+  }
+
+  @Test
+  @DisplayName("offer.rejectsOverCapacity")
+  void offerRejectsOverCapacity() {
+    PriorityMessageQueue queue = queue(2, new int[] {2, 1});
+    assertTrue(queue.offer(new Task("orders", 1)));
+    assertTrue(queue.offer(new Task("orders", 0)));
+
+    assertFalse(queue.offer(new Task("orders", 0)));
+    assertEquals(0, queue.remainingCapacity());
+    queue.pollLeastUrgent();
+    assertTrue(queue.offer(new Task("orders", 0)));
+  }
+
+  @TableTest(
+      """
+      Scenario                | Channel | Priority | Level
+      Numeric header          | orders  | 0        | 0
+      Numeric string header   | orders  | ' 2 '    | 2
+      Out of range header     | orders  | 7        | 2
+      Negative header         | orders  | -1       | 0
+      Unreadable header       | audit   | high     | 2
+      Channel level           | audit   |          | 2
+      Default level           | orders  |          | 1
+      """)
+  @DisplayName("offer.resolvesTheLevelOfTasks")
+  void offerResolvesTheLevelOfTasks(String channel, @Nullable String priority, int level) {
+    PriorityMessageQueue queue = queue(100, new int[] {4, 2, 1});
+    Map<String, Object> headers = new HashMap<>();
+    if (priority != null) {
+      headers.put("priority", priority.matches("-?\\d+") ? Integer.valueOf(priority) : priority);
+    }
+
+    queue.offer(new Task(new GenericMessage<>(channel, "payload", headers, null)));
+    queue.offer(() -> {});
+
+    // the task without a message goes to the default level
+    assertEquals(level == 1 ? 2 : 1, queue.size(level));
+    assertEquals(2, queue.size());
+  }
+
+  private static PriorityMessageQueue queue(int capacity, int[] weights) {
+    return new PriorityMessageQueue(
+        capacity,
+        weights,
+        1,
+        PriorityMessageQueue.levelResolver("priority", Map.of("audit", 2), 1));
+  }
+
+  private static int[] ints(String values) {
+    return Arrays.stream(values.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+  }
+
+  private static final class Task extends MessageTask {
+
+    private static int sequences;
+
+    final int level;
+    final int sequence = sequences++;
+
+    Task(String channel, int level) {
+      super(new GenericMessage<>(channel, "payload", Map.of("priority", level), null));
+      this.level = level;
+    }
+
+    Task(GenericMessage<?> message) {
+      super(message);
+      this.level = -1;
+    }
+
+    @Override
+    public void run() {}
+
+    @Override
+    public void discard(Throwable cause) {}
+  }
+}
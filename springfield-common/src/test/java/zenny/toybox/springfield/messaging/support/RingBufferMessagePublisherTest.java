@@ -0,0 +1,202 @@
+package zenny.toybox.springfield.messaging.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tabletest.junit.TableTest;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageDispatcher;
+
+/**
+ * Tests for {@link RingBufferMessagePublisher}, covering the reuse of slots once the sequence wraps
+ * around the buffer, the rejection of messages while it is full, publishing from the consumer
+ * thread, and closing while producers are publishing.
+ */
+@DisplayName("RingBufferMessagePublisher")
+class RingBufferMessagePublisherTest {
+
+  @TableTest(
+      """
+      Scenario          | Buffer size | Messages | Wait strategy
+      Many laps         | 4           | 1000     | PARK
+      Exactly one lap   | 8           | 8        | YIELD
+      Single slot       | 1           | 100      | BUSY_SPIN
+      """)
+  @DisplayName("publish.wrapsAroundTheBuffer")
+  void publishWrapsAroundTheBuffer(int bufferSize, int messages, String waitStrategy)
+      throws Exception {
+    List<Object> dispatched = new CopyOnWriteArrayList<>();
+    try (RingBufferMessagePublisher publisher =
+        new RingBufferMessagePublisher(
+            message -> dispatched.add(message.getPayload()),
+            null,
+            bufferSize,
+            RingBufferMessagePublisher.WaitStrategy.valueOf(waitStrategy))) {
+      for (int i = 0; i < messages; i++) {
+        publisher.publish(message(i));
+      }
+      waitFor(() -> dispatched.size() == messages);
+      assertEquals(0, publisher.getBacklog());
+    }
+    List<Object> expected = new ArrayList<>();
+    for (int i = 0; i < messages; i++) {
+      expected.add(i);
+    }
+    assertEquals(expected, dispatched);
+  }
+
+  @Test
+  @DisplayName("tryPublish.rejectsWhileTheBufferIsFull")
+  void tryPublishRejectsWhileTheBufferIsFull() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger dispatched = new AtomicInteger();
+    try (RingBufferMessagePublisher publisher =
+        new RingBufferMessagePublisher(
+            message -> {
+              if (message.getPayload().equals(0)) {
+                started.countDown();
+                await(release);
+              }
+              dispatched.incrementAndGet();
+            },
+            null,
+            2,
+            RingBufferMessagePublisher.WaitStrategy.PARK)) {
+      publisher.publish(message(0));
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      assertTrue(publisher.tryPublish(message(1)));
+
+      assertFalse(publisher.tryPublish(message(2)));
+      assertEquals(2, publisher.getBacklog());
+
+      release.countDown();
+      waitFor(() -> dispatched.get() == 2);
+      assertTrue(publisher.tryPublish(message(3)));
+      waitFor(() -> dispatched.get() == 3);
+    }
+  }
+
+  @Test
+  @DisplayName("publish.rejectsOnTheConsumerThreadWhenFull")
+  void publishRejectsOnTheConsumerThreadWhenFull() throws Exception {
+    AtomicReference<RingBufferMessagePublisher> self = new AtomicReference<>();
+    List<Object> outcomes = new CopyOnWriteArrayList<>();
+    CountDownLatch done = new CountDownLatch(1);
+    try (RingBufferMessagePublisher publisher =
+        new RingBufferMessagePublisher(
+            message -> {
+              if (!message.getPayload().equals(0)) {
+                return;
+              }
+              outcomes.add(self.get().tryPublish(message(1)));
+              outcomes.add(self.get().tryPublish(message(2)));
+              try {
+                self.get().publish(message(3));
+                outcomes.add("published");
+              } catch (RejectedExecutionException ex) {
+                outcomes.add(ex);
+              }
+              done.countDown();
+            },
+            null,
+            2,
+            RingBufferMessagePublisher.WaitStrategy.PARK)) {
+      self.set(publisher);
+      publisher.publish(message(0));
+
+      assertTrue(done.await(5, TimeUnit.SECONDS), "consumer waited on itself");
+      assertEquals(true, outcomes.get(0));
+      assertEquals(false, outcomes.get(1));
+      assertInstanceOf(RejectedExecutionException.class, outcomes.get(2));
+    }
+  }
+
+  @Test
+  @DisplayName("close.dispatchesEveryAcceptedMessage")
+  void closeDispatchesEveryAcceptedMessage() throws Exception {
+    for (int round = 0; round < 20; round++) {
+      AtomicInteger dispatched = new AtomicInteger();
+      AtomicInteger accepted = new AtomicInteger();
+      RingBufferMessagePublisher publisher =
+          new RingBufferMessagePublisher(
+              message -> dispatched.incrementAndGet(),
+              null,
+              16,
+              RingBufferMessagePublisher.WaitStrategy.YIELD);
+      CountDownLatch publishing = new CountDownLatch(4);
+      List<Thread> producers = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        producers.add(
+            Thread.ofPlatform()
+                .start(
+                    () -> {
+                      publishing.countDown();
+                      while (true) {
+                        try {
+                          publisher.publish(message("x"));
+                        } catch (RejectedExecutionException ex) {
+                          return;
+                        }
+                        accepted.incrementAndGet();
+                      }
+                    }));
+      }
+      assertTrue(publishing.await(5, TimeUnit.SECONDS));
+      publisher.close();
+      for (Thread producer : producers) {
+        producer.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(producer.isAlive());
+      }
+
+      assertEquals(accepted.get(), dispatched.get());
+      assertThrows(RejectedExecutionException.class, () -> publisher.publish(message("late")));
+    }
+  }
+
+  @Test
+  @DisplayName("close.withoutPublishing")
+  void closeWithoutPublishing() {
+    RingBufferMessagePublisher publisher =
+        new RingBufferMessagePublisher((MessageDispatcher) message -> {}, null);
+    publisher.close();
+    assertThrows(RejectedExecutionException.class, () -> publisher.publish(message("late")));
+    assertThrows(RejectedExecutionException.class, () -> publisher.tryPublish(message("late")));
+  }
+
+  private static Message<Object> message(Object payload) {
+    return new GenericMessage<>("events", payload, Map.of(), null);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "timed out");
+      Thread.sleep(5);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package zenny.toybox.springfield.messaging.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tabletest.junit.TableTest;
+import zenny.toybox.springfield.messaging.GenericMessage;
+import zenny.toybox.springfield.messaging.HandlerSelector;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageHandler;
+
+/**
+ * Tests for {@link RoundRobinDispatchStrategy}, covering the rotation over a bound group, the
+ * independence of the cursors of separate groups, also when selecting without binding, and the
+ * reuse of the selections handed out.
+ */
+@DisplayName("RoundRobinDispatchStrategy")
+class RoundRobinDispatchStrategyTest {
+
+  private static final Message<?> MESSAGE = new GenericMessage<>("orders", "x", Map.of(), null);
+
+  @TableTest(
+      """
+      Scenario        | Handlers | Picks | Expected
+      Single handler  | 1        | 3     | 0,0,0
+      Two handlers    | 2        | 5     | 0,1,0,1,0
+      Three handlers  | 3        | 7     | 0,1,2,0,1,2,0
+      """)
+  @DisplayName("bind.rotatesOverGroup")
+  void bindRotatesOverGroup(int size, int picks, String expected) {
+    List<MessageHandler> handlers = handlers(size);
+    HandlerSelector selector = new RoundRobinDispatchStrategy().bind(handlers);
+    List<String> selected = new ArrayList<>();
+
+    for (int i = 0; i < picks; i++) {
+      List<MessageHandler> selection = selector.select(MESSAGE);
+      assertEquals(1, selection.size());
+      selected.add(String.valueOf(handlers.indexOf(selection.get(0))));
+    }
+
+    assertEquals(expected, String.join(",", selected));
+  }
+
+  @Test
+  @DisplayName("bind.keepsSeparateCursorsPerGroup")
+  void bindKeepsSeparateCursorsPerGroup() {
+    RoundRobinDispatchStrategy strategy = new RoundRobinDispatchStrategy();
+    List<MessageHandler> first = handlers(2);
+    List<MessageHandler> second = handlers(2);
+    HandlerSelector a = strategy.bind(first);
+    HandlerSelector b = strategy.bind(second);
+
+    assertSame(first.get(0), a.select(MESSAGE).get(0));
+    assertSame(first.get(1), a.select(MESSAGE).get(0));
+    assertSame(first.get(0), a.select(MESSAGE).get(0));
+    assertSame(second.get(0), b.select(MESSAGE).get(0));
+    assertSame(second.get(1), b.select(MESSAGE).get(0));
+  }
+
+  @Test
+  @DisplayName("bind.reusesSelections")
+  void bindReusesSelections() {
+    HandlerSelector selector = new RoundRobinDispatchStrategy().bind(handlers(2));
+
+    List<MessageHandler> first = selector.select(MESSAGE);
+    selector.select(MESSAGE);
+
+    assertSame(first, selector.select(MESSAGE));
+  }
+
+  @Test
+  @DisplayName("select.keepsCursorPerGroupInstance")
+  void selectKeepsCursorPerGroupInstance() {
+    RoundRobinDispatchStrategy strategy = new RoundRobinDispatchStrategy();
+    List<MessageHandler> handlers = handlers(2);
+    List<MessageHandler> copy = List.copyOf(handlers);
+
+    MessageHandler first = strategy.select(handlers, MESSAGE).get(0);
+    MessageHandler second = strategy.select(handlers, MESSAGE).get(0);
+    // an equal list is another group, with a cursor of its own
+    MessageHandler fromCopy = strategy.select(copy, MESSAGE).get(0);
+
+    assertEquals(handlers, List.of(first, second));
+    assertSame(handlers.get(0), fromCopy);
+  }
+
+  @Test
+  @DisplayName("bind.spreadsEvenlyUnderContention")
+  void bindSpreadsEvenlyUnderContention() throws Exception {
+    List<MessageHandler> handlers = handlers(4);
+    HandlerSelector selector = new RoundRobinDispatchStrategy().bind(handlers);
+    Map<MessageHandler, AtomicInteger> counts = new ConcurrentHashMap<>();
+    try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+      for (int t = 0; t < 8; t++) {
+        executor.execute(
+            () -> {
+              for (int i = 0; i < 1000; i++) {
+                counts
+                    .computeIfAbsent(selector.select(MESSAGE).get(0), k -> new AtomicInteger())
+                    .incrementAndGet();
+              }
+            });
+      }
+    }
+
+    for (MessageHandler handler : handlers) {
+      assertEquals(2000, counts.get(handler).get());
+    }
+  }
+
+  private static List<MessageHandler> handlers(int size) {
+    List<MessageHandler> handlers = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      handlers.add(new StubHandler());
+    }
+    return handlers;
+  }
+
+  private static final class StubHandler implements MessageHandler {
+
+    @Override
+    public String getChannel() {
+      return "orders";
+    }
+
+    @Override
+    public String getGroup() {
+      return "";
+    }
+
+    @Override
+    public void handle(Message<?> message) {}
+  }
+}
@@ -0,0 +1,247 @@
+package zenny.toybox.springfield.messaging.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tabletest.junit.TableTest;
+import zenny.toybox.springfield.messaging.GenericMessage;
+
+/**
+ * Tests for {@link VirtualThreadMessageExecutor}, covering the per-channel concurrency limit, the
+ * queueing of tasks over the limit without a thread of their own, and the overflow policies applied
+ * once the queue of a channel is full, running tasks on the caller only within the limit.
+ */
+@DisplayName("VirtualThreadMessageExecutor")
+class VirtualThreadMessageExecutorTest {
+
+  @Test
+  @DisplayName("execute.startsThreadsOnlyWithinTheLimit")
+  void executeStartsThreadsOnlyWithinTheLimit() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger started = new AtomicInteger();
+    CountDownLatch done = new CountDownLatch(10);
+    try (VirtualThreadMessageExecutor executor =
+        new VirtualThreadMessageExecutor(2, Map.of(), 100, handler("REJECT"))) {
+      for (int i = 0; i < 10; i++) {
+        executor.execute(
+            new Task(
+                "orders",
+                false,
+                () -> {
+                  started.incrementAndGet();
+                  await(release);
+                  done.countDown();
+                }));
+      }
+      waitFor(() -> started.get() == 2);
+      assertEquals(2, executor.getActiveCount("orders"));
+      assertEquals(8, executor.getWaitingCount("orders"));
+      assertEquals(2, started.get());
+
+      release.countDown();
+      assertTrue(done.await(5, TimeUnit.SECONDS));
+      waitFor(() -> executor.getActiveCount("orders") == 0);
+      assertEquals(0, executor.getWaitingCount("orders"));
+    }
+  }
+
+  @Test
+  @DisplayName("execute.limitsChannelsSeparately")
+  void executeLimitsChannelsSeparately() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    try (VirtualThreadMessageExecutor executor =
+        new VirtualThreadMessageExecutor(1, Map.of("payments", 2), 100, handler("REJECT"))) {
+      for (String channel : List.of("orders", "orders", "payments", "payments", "payments")) {
+        executor.execute(new Task(channel, false, () -> await(release)));
+      }
+      waitFor(() -> executor.getActiveCount("payments") == 2);
+      assertEquals(1, executor.getActiveCount("orders"));
+      assertEquals(1, executor.getWaitingCount("orders"));
+      assertEquals(1, executor.getWaitingCount("payments"));
+      release.countDown();
+    }
+  }
+
+  @Test
+  @DisplayName("execute.rejectsFailFastTaskOverTheLimit")
+  void executeRejectsFailFastTaskOverTheLimit() {
+    CountDownLatch release = new CountDownLatch(1);
+    try (VirtualThreadMessageExecutor executor =
+        new VirtualThreadMessageExecutor(1, Map.of(), 100, handler("CALLER_RUNS"))) {
+      executor.execute(new Task("orders", false, () -> await(release)));
+
+      assertThrows(
+          RejectedExecutionException.class,
+          () -> executor.execute(new Task("orders", true, () -> {})));
+      assertEquals(0, executor.getWaitingCount("orders"));
+      release.countDown();
+    }
+  }
+
+  @TableTest(
+      """
+      Scenario                 | Policy      | Rejected | Ran on caller | Dropped first
+      Reject                   | REJECT      | true     | false         | false
+      Caller runs without room | CALLER_RUNS | true     | false         | false
+      Drop oldest              | DROP_OLDEST | false    | false         | true
+      Block                    | BLOCK       | true     | false         | false
+      """)
+  @DisplayName("execute.appliesOverflowPolicyWhenQueueIsFull")
+  void executeAppliesOverflowPolicyWhenQueueIsFull(
+      String policy, boolean rejected, boolean ranOnCaller, boolean droppedFirst) {
+    CountDownLatch release = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    try (VirtualThreadMessageExecutor executor =
+        new VirtualThreadMessageExecutor(1, Map.of(), 1, handler(policy))) {
+      executor.execute(new Task("orders", false, () -> await(release)));
+      Task first = new Task("orders", false, () -> {});
+      executor.execute(first);
+      Task overflow = new Task("orders", false, () -> threads.add(Thread.currentThread()));
+
+      RejectedExecutionException thrown = null;
+      try {
+        executor.execute(overflow);
+      } catch (RejectedExecutionException ex) {
+        thrown = ex;
+      }
+
+      assertEquals(rejected, thrown != null);
+      assertEquals(ranOnCaller, threads.contains(Thread.currentThread()));
+      assertEquals(droppedFirst, first.discarded != null);
+      if (droppedFirst) {
+        assertInstanceOf(RejectedExecutionException.class, first.discarded);
+        assertEquals(1, executor.getWaitingCount("orders"));
+      } else {
+        assertNull(first.discarded);
+      }
+      release.countDown();
+    }
+  }
+
+  @Test
+  @DisplayName("execute.runsOnCallerWithinTheLimit")
+  void executeRunsOnCallerWithinTheLimit() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    List<Thread> threads = new CopyOnWriteArrayList<>();
+    Runnable tracked =
+        () -> {
+          maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+          threads.add(Thread.currentThread());
+          running.decrementAndGet();
+        };
+    try (VirtualThreadMessageExecutor executor =
+        new VirtualThreadMessageExecutor(
+            1,
+            Map.of(),
+            1,
+            new MessageOverflowHandler(
+                MessageOverflowHandler.OverflowPolicy.CALLER_RUNS, Duration.ofSeconds(5)))) {
+      executor.execute(
+          new Task(
+              "orders",
+              false,
+              () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                await(release);
+                running.decrementAndGet();
+              }));
+      executor.execute(new Task("orders", false, tracked));
+      Thread.ofVirtual()
+          .start(
+              () -> {
+                sleep(100);
+                release.countDown();
+              });
+
+      // waits for the running task to give its permit back rather than exceed the limit
+      executor.execute(new Task("orders", false, tracked));
+
+      waitFor(() -> threads.size() == 2);
+      assertTrue(threads.contains(Thread.currentThread()));
+      assertEquals(1, maxRunning.get());
+    }
+  }
+
+  @Test
+  @DisplayName("execute.runsOtherTasksDirectly")
+  void executeRunsOtherTasksDirectly() throws Exception {
+    CountDownLatch done = new CountDownLatch(1);
+    Thread[] thread = new Thread[1];
+    try (VirtualThreadMessageExecutor executor = new VirtualThreadMessageExecutor(1)) {
+      executor.execute(
+          () -> {
+            thread[0] = Thread.currentThread();
+            done.countDown();
+          });
+      assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+    assertTrue(thread[0].isVirtual());
+  }
+
+  private static MessageOverflowHandler handler(String policy) {
+    return new MessageOverflowHandler(
+        MessageOverflowHandler.OverflowPolicy.valueOf(policy), Duration.ofMillis(50));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "timed out");
+      Thread.sleep(5);
+    }
+  }
+
+  private static final class Task extends MessageTask {
+
+    private final Runnable body;
+    private volatile Throwable discarded;
+
+    Task(String channel, boolean failFast, Runnable body) {
+      super(new GenericMessage<>(channel, "payload", Map.of(), null), failFast);
+      this.body = body;
+    }
+
+    @Override
+    public void run() {
+      this.body.run();
+    }
+
+    @Override
+    public void discard(Throwable cause) {
+      this.discarded = cause;
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package zenny.toybox.springfield.util.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link HierarchicalTimingWheel}, covering expiration across wheel levels, cancellation,
+ * tasks that throw or are rejected, and the tasks still pending when the timer is shut down.
+ */
+@DisplayName("HierarchicalTimingWheel")
+class HierarchicalTimingWheelTest {
+
+  @Test
+  @DisplayName("schedule.runsInExpirationOrderAcrossWheels")
+  void scheduleRunsInExpirationOrderAcrossWheels() throws InterruptedException {
+    try (HierarchicalTimingWheel timer = new HierarchicalTimingWheel(10, 8, null)) {
+      List<Integer> fired = new CopyOnWriteArrayList<>();
+      CountDownLatch latch = new CountDownLatch(4);
+      long start = System.nanoTime();
+      // 80ms per first-level wheel, so the later tasks live on the second and third wheel
+      for (int delay : new int[] {700, 30, 250, 0}) {
+        timer.schedule(
+            () -> {
+              fired.add(delay);
+              latch.countDown();
+            },
+            delay,
+            TimeUnit.MILLISECONDS);
+      }
+
+      assertTrue(latch.await(5, TimeUnit.SECONDS));
+      assertEquals(List.of(0, 30, 250, 700), fired);
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 690);
+      assertEquals(0, timer.size());
+    }
+  }
+
+  @Test
+  @DisplayName("cancel.preventsExecution")
+  void cancelPreventsExecution() throws InterruptedException {
+    try (HierarchicalTimingWheel timer = new HierarchicalTimingWheel(10, 8, null)) {
+      CountDownLatch cancelled = new CountDownLatch(1);
+      CountDownLatch kept = new CountDownLatch(1);
+      HierarchicalTimingWheel.Timeout timeout =
+          timer.schedule(cancelled::countDown, 200, TimeUnit.MILLISECONDS);
+      timer.schedule(kept::countDown, 300, TimeUnit.MILLISECONDS);
+
+      assertEquals(2, timer.size());
+      assertTrue(timeout.cancel());
+      assertFalse(timeout.cancel());
+      assertEquals(1, timer.size());
+      assertTrue(kept.await(5, TimeUnit.SECONDS));
+      assertEquals(1, cancelled.getCount());
+    }
+  }
+
+  @Test
+  @DisplayName("schedule.survivesThrowingTask")
+  void scheduleSurvivesThrowingTask() throws InterruptedException {
+    try (HierarchicalTimingWheel timer = new HierarchicalTimingWheel(10, 8, null)) {
+      CountDownLatch ran = new CountDownLatch(1);
+      timer.schedule(
+          () -> {
+            throw new IllegalStateException("boom");
+          },
+          20,
+          TimeUnit.MILLISECONDS);
+      timer.schedule(ran::countDown, 50, TimeUnit.MILLISECONDS);
+
+      assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  @DisplayName("schedule.survivesRejectingExecutor")
+  void scheduleSurvivesRejectingExecutor() throws InterruptedException {
+    AtomicInteger calls = new AtomicInteger();
+    Executor executor =
+        task -> {
+          if (calls.getAndIncrement() == 0) {
+            throw new RejectedExecutionException("full");
+          }
+          task.run();
+        };
+    try (HierarchicalTimingWheel timer = new HierarchicalTimingWheel(10, 8, executor)) {
+      CountDownLatch ran = new CountDownLatch(2);
+      timer.schedule(ran::countDown, 20, TimeUnit.MILLISECONDS);
+      timer.schedule(ran::countDown, 50, TimeUnit.MILLISECONDS);
+      timer.schedule(ran::countDown, 100, TimeUnit.MILLISECONDS);
+
+      assertTrue(ran.await(5, TimeUnit.SECONDS));
+      assertEquals(3, calls.get());
+    }
+  }
+
+  @Test
+  @DisplayName("shutdownNow.stopsUnusedTimer")
+  void shutdownNowStopsUnusedTimer() {
+    HierarchicalTimingWheel timer = new HierarchicalTimingWheel(10, 8, null);
+
+    assertEquals(List.of(), timer.shutdownNow());
+    assertThrows(IllegalStateException.class, () -> timer.schedule(() -> {}, 1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  @DisplayName("shutdownNow.returnsPendingTasks")
+  void shutdownNowReturnsPendingTasks() throws InterruptedException {
+    HierarchicalTimingWheel timer = new HierarchicalTimingWheel(10, 8, null);
+    CountDownLatch ran = new CountDownLatch(1);
+    timer.schedule(ran::countDown, 0, TimeUnit.MILLISECONDS);
+    Runnable near = () -> {};
+    Runnable far = () -> {};
+    Runnable cancelled = () -> {};
+    timer.schedule(near, 50, TimeUnit.SECONDS);
+    // beyond the first two wheels
+    timer.schedule(far, 1, TimeUnit.HOURS);
+    timer.schedule(cancelled, 50, TimeUnit.SECONDS).cancel();
+    assertTrue(ran.await(5, TimeUnit.SECONDS));
+
+    List<Runnable> pending = timer.shutdownNow();
+
+    assertEquals(Set.of(near, far), new HashSet<>(pending));
+    assertEquals(2, pending.size());
+    assertEquals(0, timer.size());
+    assertThrows(IllegalStateException.class, () -> timer.schedule(near, 1, TimeUnit.SECONDS));
+    assertEquals(List.of(), timer.shutdownNow());
+  }
+}
@@ -0,0 +1,195 @@
+package zenny.toybox.springfield.sqs;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+
+/**
+ * Collects the receipt handles of acknowledged messages per queue and deletes them with {@code
+ * DeleteMessageBatch}, as soon as a full batch of ten is pending or once the linger has elapsed
+ * since the first pending one. Batches are deleted on a pool of {@code concurrency} daemon threads,
+ * so that a burst of acknowledgements is not serialized into one round trip after the other.
+ *
+ * <p>Entries failing on the SQS side, as well as whole batches failing on a client error, are
+ * buffered again after an exponential backoff and retried up to {@code maxRetries} times. Entries
+ * rejected as the sender's fault, such as expired receipt handles, are not retried. Closing the
+ * buffer waits for the retries due, deletes all pending entries right away, and later
+ * acknowledgements are deleted on the calling thread.
+ */
+public class SqsAcknowledgementBuffer implements AutoCloseable {
+
+  /** The maximum number of entries of a {@code DeleteMessageBatch} request. */
+  public static final int MAX_BATCH_SIZE = 10;
+
+  private static final long RETRY_BACKOFF_MILLIS = 100;
+
+  protected final Logger log = LoggerFactory.getLogger(this.getClass());
+
+  private final SqsClient sqsClient;
+  private final long lingerNanos;
+  private final int maxRetries;
+  private final ScheduledThreadPoolExecutor executor;
+  private final Map<String, List<Entry>> pending = new HashMap<>();
+  private boolean closed;
+
+  public SqsAcknowledgementBuffer(
+      SqsClient sqsClient, Duration linger, int maxRetries, int concurrency) {
+    this.sqsClient = sqsClient;
+    this.lingerNanos = linger.toNanos();
+    this.maxRetries = maxRetries;
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sqs-ack-");
+    threadFactory.setDaemon(true);
+    this.executor = new ScheduledThreadPoolExecutor(Math.max(concurrency, 1), threadFactory);
+  }
+
+  /** Buffers the deletion of a message. */
+  public void acknowledge(String queueUrl, String receiptHandle) {
+    this.add(queueUrl, new Entry(receiptHandle, 0));
+  }
+
+  /** Returns the number of buffered entries, all queues included. */
+  public int getPendingCount() {
+    synchronized (this.pending) {
+      int count = 0;
+      for (List<Entry> entries : this.pending.values()) {
+        count += entries.size();
+      }
+      return count;
+    }
+  }
+
+  /** Deletes all buffered entries, then stops deleting in the background. */
+  @Override
+  public void close() {
+    synchronized (this.pending) {
+      this.closed = true;
+    }
+    this.executor.shutdown();
+    try {
+      if (!this.executor.awaitTermination(5, TimeUnit.SECONDS)) {
+        this.executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      this.executor.shutdownNow();
+    }
+    Map<String, List<Entry>> remaining;
+    synchronized (this.pending) {
+      remaining = new HashMap<>(this.pending);
+      this.pending.clear();
+    }
+    remaining.forEach(this::delete);
+  }
+
+  private void add(String queueUrl, Entry entry) {
+    List<Entry> batch = null;
+    boolean closed;
+    synchronized (this.pending) {
+      closed = this.closed;
+      List<Entry> entries =
+          this.pending.computeIfAbsent(queueUrl, key -> new ArrayList<>(MAX_BATCH_SIZE));
+      entries.add(entry);
+      if (closed || entries.size() >= MAX_BATCH_SIZE) {
+        batch = this.pending.remove(queueUrl);
+      } else if (entries.size() == 1) {
+        this.executor.schedule(() -> this.flush(queueUrl), this.lingerNanos, TimeUnit.NANOSECONDS);
+      }
+    }
+    if (batch == null) {
+      return;
+    }
+    if (closed) {
+      this.delete(queueUrl, batch);
+      return;
+    }
+    List<Entry> full = batch;
+    try {
+      this.executor.execute(() -> this.delete(queueUrl, full));
+    } catch (RejectedExecutionException e) {
+      this.delete(queueUrl, full);
+    }
+  }
+
+  private void flush(String queueUrl) {
+    List<Entry> batch;
+    synchronized (this.pending) {
+      batch = this.pending.remove(queueUrl);
+    }
+    if (batch != null) {
+      this.delete(queueUrl, batch);
+    }
+  }
+
+  private void delete(String queueUrl, List<Entry> batch) {
+    List<DeleteMessageBatchRequestEntry> requestEntries = new ArrayList<>(batch.size());
+    for (int i = 0; i < batch.size(); i++) {
+      requestEntries.add(
+          DeleteMessageBatchRequestEntry.builder()
+              .id(String.valueOf(i))
+              .receiptHandle(batch.get(i).receiptHandle())
+              .build());
+    }
+    DeleteMessageBatchResponse response;
+    try {
+      response =
+          this.sqsClient.deleteMessageBatch(
+              DeleteMessageBatchRequest.builder()
+                  .queueUrl(queueUrl)
+                  .entries(requestEntries)
+                  .build());
+    } catch (Exception e) {
+      this.log.warn(
+          "failed to delete SQS message batch queueUrl={} size={}", queueUrl, batch.size(), e);
+      for (Entry entry : batch) {
+        this.retry(queueUrl, entry);
+      }
+      return;
+    }
+    for (BatchResultErrorEntry failure : response.failed()) {
+      Entry entry = batch.get(Integer.parseInt(failure.id()));
+      if (Boolean.TRUE.equals(failure.senderFault())) {
+        this.log.warn(
+            "SQS rejected message deletion queueUrl={} receiptHandle={} code={} message={}",
+            queueUrl,
+            entry.receiptHandle(),
+            failure.code(),
+            failure.message());
+      } else {
+        this.retry(queueUrl, entry);
+      }
+    }
+  }
+
+  private void retry(String queueUrl, Entry entry) {
+    if (entry.attempt() >= this.maxRetries) {
+      this.log.error(
+          "giving up deleting SQS message queueUrl={} receiptHandle={} attempts={}",
+          queueUrl,
+          entry.receiptHandle(),
+          entry.attempt() + 1);
+      return;
+    }
+    Entry next = new Entry(entry.receiptHandle(), entry.attempt() + 1);
+    long backoff = RETRY_BACKOFF_MILLIS << Math.min(entry.attempt(), 10);
+    try {
+      this.executor.schedule(() -> this.add(queueUrl, next), backoff, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      this.add(queueUrl, next);
+    }
+  }
+
+  private record Entry(String receiptHandle, int attempt) {}
+}
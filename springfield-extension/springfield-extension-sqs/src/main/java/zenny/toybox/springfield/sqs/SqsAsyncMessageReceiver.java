@@ -0,0 +1,193 @@
+package zenny.toybox.springfield.sqs;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+import zenny.toybox.springfield.messaging.MessagePublisher;
+
+/**
+ * A {@link SqsMessageReceiver} receiving through a {@link SqsAsyncClient}. Each channel keeps long
+ * polls open, starting with {@code pollsPerChannel} of them, and a poll is issued again as soon as
+ * the previous one returned, instead of after a fixed delay. No thread is blocked while waiting for
+ * messages.
+ *
+ * <p>The number of polls of each channel is adapted to its traffic by a {@link SqsPollController},
+ * between {@code minPollsPerChannel} and {@code maxPollsPerChannel}: polls are added while batches
+ * come back full and retired when they come back empty, and a channel down to its minimum backs off
+ * on empty receives. Polls are also delayed while the in-flight limit is reached, or after a failed
+ * receive.
+ *
+ * <p>Each receive takes its permits of the in-flight limit before it is issued, so that concurrent
+ * polls never ask for more messages than the limit allows. The blocking client is still used to
+ * delete, release and renew messages, so received messages are handed from the completion of the
+ * receive to a pool of daemon threads, one per channel, instead of being processed on the threads
+ * of the async client.
+ */
+public class SqsAsyncMessageReceiver extends SqsMessageReceiver {
+
+  private static final long IN_FLIGHT_RETRY_MILLIS = 100;
+  private static final long FAILURE_RETRY_MILLIS = 1000;
+
+  private final SqsAsyncClient sqsAsyncClient;
+  private final SqsMessagingConfig config;
+  private final ScheduledExecutorService retryScheduler;
+  private final ExecutorService receivedExecutor;
+  private final Set<CompletableFuture<ReceiveMessageResponse>> outstanding =
+      ConcurrentHashMap.newKeySet();
+  private final Map<String, SqsPollController> controllers = new ConcurrentHashMap<>();
+  private final Map<String, AtomicInteger> reserved = new ConcurrentHashMap<>();
+  private volatile boolean running;
+
+  public SqsAsyncMessageReceiver(
+      SqsAsyncClient sqsAsyncClient,
+      SqsClient sqsClient,
+      SqsMessagingConfig config,
+      MessagePublisher messagePublisher) {
+    super(sqsClient, config, messagePublisher);
+    this.sqsAsyncClient = sqsAsyncClient;
+    this.config = config;
+    CustomizableThreadFactory pollThreadFactory = new CustomizableThreadFactory("sqs-poll-");
+    pollThreadFactory.setDaemon(true);
+    this.retryScheduler = new ScheduledThreadPoolExecutor(1, pollThreadFactory);
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sqs-receive-");
+    threadFactory.setDaemon(true);
+    this.receivedExecutor =
+        Executors.newFixedThreadPool(Math.max(config.getChannels().size(), 1), threadFactory);
+  }
+
+  @Override
+  public void start() {
+    this.running = true;
+    for (Map.Entry<String, SqsMessagingConfig.ChannelProperties> entry :
+        this.config.getChannels().entrySet()) {
+      SqsPollController controller =
+          new SqsPollController(
+              this.config.getMinPollsPerChannel(),
+              this.config.getMaxPollsPerChannel(),
+              this.config.getPollsPerChannel(),
+              Math.min(this.config.getMaxFetchSize(), 10),
+              this.config.getMaxEmptyBackoffMillis());
+      this.controllers.put(entry.getKey(), controller);
+      this.reserved.put(entry.getKey(), new AtomicInteger());
+      for (int i = 0; i < controller.getPolls(); i++) {
+        this.poll(entry.getKey(), entry.getValue().getQueueUrl());
+      }
+    }
+    this.log.info(
+        "SqsAsyncMessageReceiver started, channels={}", this.config.getChannels().keySet());
+  }
+
+  /** Returns the number of polls currently kept open for the given channel. */
+  public int getPolls(String channel) {
+    SqsPollController controller = this.controllers.get(channel);
+    return controller != null ? controller.getPolls() : 0;
+  }
+
+  /** Issues a receive, then issues the next one once its messages have been handed over. */
+  protected void poll(String channel, String queueUrl) {
+    if (!this.running) {
+      return;
+    }
+    int reserved = this.reserveInFlight();
+    if (reserved == 0) {
+      this.schedulePoll(channel, queueUrl, IN_FLIGHT_RETRY_MILLIS);
+      return;
+    }
+    AtomicInteger channelReserved = this.reserved.get(channel);
+    channelReserved.addAndGet(reserved);
+    CompletableFuture<ReceiveMessageResponse> future;
+    try {
+      future = this.sqsAsyncClient.receiveMessage(this.createReceiveRequest(queueUrl, reserved));
+    } catch (Exception e) {
+      channelReserved.addAndGet(-reserved);
+      this.releaseInFlight(reserved);
+      this.log.error("failed to poll SQS channel={} queueUrl={}", channel, queueUrl, e);
+      this.schedulePoll(channel, queueUrl, FAILURE_RETRY_MILLIS);
+      return;
+    }
+    this.outstanding.add(future);
+    future.whenComplete(
+        (response, ex) -> {
+          this.outstanding.remove(future);
+          channelReserved.addAndGet(-reserved);
+          if (ex != null) {
+            this.releaseInFlight(reserved);
+            if (this.running) {
+              this.log.error("failed to poll SQS channel={} queueUrl={}", channel, queueUrl, ex);
+              this.schedulePoll(channel, queueUrl, FAILURE_RETRY_MILLIS);
+            }
+            return;
+          }
+          Runnable received = () -> this.received(channel, queueUrl, response.messages(), reserved);
+          try {
+            this.receivedExecutor.execute(received);
+          } catch (RejectedExecutionException e) {
+            // shutting down, the messages are released
+            received.run();
+          }
+        });
+  }
+
+  private void received(
+      String channel,
+      String queueUrl,
+      List<software.amazon.awssdk.services.sqs.model.Message> messages,
+      int reserved) {
+    if (!this.running) {
+      this.releaseInFlight(reserved);
+      for (software.amazon.awssdk.services.sqs.model.Message msg : messages) {
+        this.releaseMessage(queueUrl, msg.receiptHandle());
+      }
+      return;
+    }
+    try {
+      this.processMessages(channel, queueUrl, messages, reserved);
+    } catch (Exception e) {
+      this.log.error("failed to process SQS messages channel={} queueUrl={}", channel, queueUrl, e);
+    }
+    // the permits the channel's polls can take: those left, plus those its pending receives hold
+    int headroom = this.getAvailableInFlight() + this.reserved.get(channel).get();
+    SqsPollController.Decision decision =
+        this.controllers.get(channel).onReceive(reserved, messages.size(), headroom);
+    for (int i = 0; i < decision.polls(); i++) {
+      if (decision.delayMillis() > 0) {
+        this.schedulePoll(channel, queueUrl, decision.delayMillis());
+      } else {
+        this.poll(channel, queueUrl);
+      }
+    }
+  }
+
+  private void schedulePoll(String channel, String queueUrl, long delayMillis) {
+    try {
+      this.retryScheduler.schedule(
+          () -> this.poll(channel, queueUrl), delayMillis, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      // shutting down
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    this.running = false;
+    this.retryScheduler.shutdownNow();
+    for (CompletableFuture<ReceiveMessageResponse> future : this.outstanding) {
+      future.cancel(false);
+    }
+    super.shutdown();
+    this.receivedExecutor.shutdown();
+  }
+}
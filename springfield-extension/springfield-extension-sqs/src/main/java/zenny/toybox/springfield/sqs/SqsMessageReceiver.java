@@ -2,26 +2,29 @@ package zenny.toybox.springfield.sqs;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.services.sqs.SqsClient;
 import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityRequest;
-import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
 import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
 import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
 import zenny.toybox.springfield.messaging.GenericMessage;
 import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessageHeaders;
 import zenny.toybox.springfield.messaging.MessagePublisher;
+import zenny.toybox.springfield.messaging.PayloadCodec;
 
 public class SqsMessageReceiver {
 
@@ -31,10 +34,12 @@ public class SqsMessageReceiver {
   private final SqsMessagingConfig config;
   private final MessagePublisher messagePublisher;
   private final ScheduledExecutorService pollerExecutor;
-  private final ScheduledExecutorService renewPool;
+  private final SqsVisibilityRenewer renewer;
   private final Map<String, SqsMessagingConfig.ChannelProperties> channelMap;
   private final Semaphore inFlight;
+  private final SqsAcknowledgementBuffer ackBuffer;
   private final List<ScheduledFuture<?>> pollFutures = new ArrayList<>();
+  private @Nullable PayloadCodec payloadCodec;
 
   public SqsMessageReceiver(
       SqsClient sqsClient, SqsMessagingConfig config, MessagePublisher messagePublisher) {
@@ -43,9 +48,25 @@ public class SqsMessageReceiver {
     this.messagePublisher = messagePublisher;
     this.pollerExecutor =
         Executors.newScheduledThreadPool(Math.max(config.getChannels().size(), 1));
-    this.renewPool = Executors.newScheduledThreadPool(2);
+    this.renewer =
+        new SqsVisibilityRenewer(
+            sqsClient,
+            Duration.ofSeconds(config.getRenewIntervalSeconds()),
+            config.getVisibilityTimeoutSeconds(),
+            Duration.ofSeconds(1));
     this.channelMap = config.getChannels();
     this.inFlight = new Semaphore(config.getMaxInFlight());
+    this.ackBuffer =
+        new SqsAcknowledgementBuffer(
+            sqsClient,
+            Duration.ofMillis(config.getAckLingerMillis()),
+            config.getMaxRetries(),
+            config.getAckConcurrency());
+  }
+
+  /** Sets the codec decoding message bodies for listeners asking for another type. */
+  public void setPayloadCodec(@Nullable PayloadCodec payloadCodec) {
+    this.payloadCodec = payloadCodec;
   }
 
   @PostConstruct
@@ -66,94 +87,168 @@ public class SqsMessageReceiver {
   }
 
   protected void pollChannel(String channel, String queueUrl) {
-    int available = this.inFlight.availablePermits();
-    if (available <= 0) {
+    int reserved = this.reserveInFlight();
+    if (reserved == 0) {
+      return;
+    }
+    List<software.amazon.awssdk.services.sqs.model.Message> messages;
+    try {
+      messages =
+          this.sqsClient.receiveMessage(this.createReceiveRequest(queueUrl, reserved)).messages();
+    } catch (Exception e) {
+      this.inFlight.release(reserved);
+      this.log.error("failed to poll SQS channel={} queueUrl={}", channel, queueUrl, e);
       return;
     }
+    this.processMessages(channel, queueUrl, messages, reserved);
+  }
 
-    int fetchSize = Math.min(Math.min(this.config.getMaxFetchSize(), 10), available);
-    ReceiveMessageRequest request =
-        ReceiveMessageRequest.builder()
-            .queueUrl(queueUrl)
-            .waitTimeSeconds(this.config.getWaitTimeSeconds())
-            .maxNumberOfMessages(fetchSize)
-            .visibilityTimeout(this.config.getVisibilityTimeoutSeconds())
-            .messageAttributeNames("All")
-            .build();
+  /** Returns the number of messages that can still be taken in flight. */
+  protected int getAvailableInFlight() {
+    return this.inFlight.availablePermits();
+  }
 
-    try {
-      List<software.amazon.awssdk.services.sqs.model.Message> messages =
-          this.sqsClient.receiveMessage(request).messages();
-      for (software.amazon.awssdk.services.sqs.model.Message msg : messages) {
-        if (!this.inFlight.tryAcquire()) {
-          break;
-        }
+  /**
+   * Takes in flight as many messages as a receive may return and the in-flight limit still allows.
+   * The permits are held by the receive, then by the messages it returned, see {@link
+   * #processMessages}.
+   *
+   * @return the number of permits taken, {@code 0} if the limit is reached
+   */
+  protected int reserveInFlight() {
+    int fetchSize = Math.min(this.config.getMaxFetchSize(), 10);
+    int reserved = 0;
+    while (reserved < fetchSize && this.inFlight.tryAcquire()) {
+      reserved++;
+    }
+    return reserved;
+  }
+
+  /** Gives back permits taken by {@link #reserveInFlight()} for a receive that failed. */
+  protected void releaseInFlight(int permits) {
+    this.inFlight.release(permits);
+  }
+
+  /** Returns the request receiving up to the given number of messages. */
+  protected ReceiveMessageRequest createReceiveRequest(String queueUrl, int maxMessages) {
+    return ReceiveMessageRequest.builder()
+        .queueUrl(queueUrl)
+        .waitTimeSeconds(this.config.getWaitTimeSeconds())
+        .maxNumberOfMessages(maxMessages)
+        .visibilityTimeout(this.config.getVisibilityTimeoutSeconds())
+        .messageAttributeNames("All")
+        .build();
+  }
+
+  /**
+   * Publishes the messages of a receive, each of them holding one of the permits reserved for it.
+   * The permits left over are given back, and messages beyond them, if any, are released.
+   */
+  protected void processMessages(
+      String channel,
+      String queueUrl,
+      List<software.amazon.awssdk.services.sqs.model.Message> messages,
+      int reserved) {
+    int processed = Math.min(messages.size(), reserved);
+    if (processed < reserved) {
+      this.inFlight.release(reserved - processed);
+    }
+    for (int i = 0; i < messages.size(); i++) {
+      software.amazon.awssdk.services.sqs.model.Message msg = messages.get(i);
+      if (i < processed) {
         this.processMessage(channel, queueUrl, msg);
+      } else {
+        this.releaseMessage(queueUrl, msg.receiptHandle());
       }
-    } catch (Exception e) {
-      this.log.error("failed to poll SQS channel={} queueUrl={}", channel, queueUrl, e);
     }
   }
 
+  /**
+   * Publishes a message taken in flight. The message is renewed, and holds its in-flight permit,
+   * until it has been acknowledged, rejected by the publisher, or failed for good.
+   */
   protected void processMessage(
       String channel, String queueUrl, software.amazon.awssdk.services.sqs.model.Message sqsMsg) {
-    AtomicBoolean done = new AtomicBoolean(false);
-    ScheduledFuture<?> renewTask =
-        this.renewPool.scheduleAtFixedRate(
-            () -> this.renewVisibility(queueUrl, sqsMsg.receiptHandle(), done),
-            this.config.getRenewIntervalSeconds(),
-            this.config.getRenewIntervalSeconds(),
-            TimeUnit.SECONDS);
-
+    String receiptHandle = sqsMsg.receiptHandle();
+    this.renewer.register(queueUrl, receiptHandle);
+    Runnable completion = this.completion(receiptHandle);
+    CompletableFuture<Void> processed;
     try {
       Message<?> message =
           new GenericMessage<>(
               channel,
               sqsMsg.body(),
               convertAttributes(sqsMsg.messageAttributes()),
-              () -> this.deleteMessage(queueUrl, sqsMsg.receiptHandle()));
-      this.messagePublisher.publish(message);
-      message.acknowledge();
+              () -> {
+                this.deleteMessage(queueUrl, receiptHandle);
+                completion.run();
+              },
+              this.payloadCodec);
+      processed = this.messagePublisher.tryPublishAsync(message);
     } catch (Exception e) {
       this.log.error(
           "failed to process SQS message channel={} messageId={} receiptHandle={}",
           channel,
           sqsMsg.messageId(),
-          sqsMsg.receiptHandle() != null
-              ? sqsMsg.receiptHandle().substring(0, Math.min(20, sqsMsg.receiptHandle().length()))
+          receiptHandle != null
+              ? receiptHandle.substring(0, Math.min(20, receiptHandle.length()))
               : "null",
           e);
-    } finally {
-      done.set(true);
-      renewTask.cancel(false);
-      this.inFlight.release();
+      completion.run();
+      return;
     }
+    if (processed == null) {
+      this.log.debug(
+          "publisher saturated, releasing SQS message channel={} messageId={}",
+          channel,
+          sqsMsg.messageId());
+      completion.run();
+      this.releaseMessage(queueUrl, receiptHandle);
+      return;
+    }
+    processed.whenComplete(
+        (result, ex) -> {
+          if (ex != null) {
+            this.log.warn(
+                "failed to handle SQS message, no longer renewing it channel={} messageId={}",
+                channel,
+                sqsMsg.messageId());
+          }
+          completion.run();
+        });
+  }
+
+  /** Returns a callback that stops renewing a message and gives its permit back, once. */
+  private Runnable completion(String receiptHandle) {
+    AtomicBoolean completed = new AtomicBoolean();
+    return () -> {
+      if (completed.compareAndSet(false, true)) {
+        this.renewer.deregister(receiptHandle);
+        this.inFlight.release();
+      }
+    };
   }
 
+  /**
+   * Deletes an acknowledged message. Deletions are buffered and sent in batches, see {@link
+   * SqsAcknowledgementBuffer}.
+   */
   protected void deleteMessage(String queueUrl, String receiptHandle) {
-    try {
-      this.sqsClient.deleteMessage(
-          DeleteMessageRequest.builder().queueUrl(queueUrl).receiptHandle(receiptHandle).build());
-    } catch (Exception e) {
-      this.log.error(
-          "failed to delete SQS message queueUrl={} receiptHandle={}", queueUrl, receiptHandle, e);
-    }
+    this.ackBuffer.acknowledge(queueUrl, receiptHandle);
   }
 
-  protected void renewVisibility(String queueUrl, String receiptHandle, AtomicBoolean done) {
-    if (done.get()) {
-      return;
-    }
+  /** Makes a message visible again right away, so that it is redelivered on a later poll. */
+  protected void releaseMessage(String queueUrl, String receiptHandle) {
     try {
       this.sqsClient.changeMessageVisibility(
           ChangeMessageVisibilityRequest.builder()
               .queueUrl(queueUrl)
               .receiptHandle(receiptHandle)
-              .visibilityTimeout(this.config.getVisibilityTimeoutSeconds())
+              .visibilityTimeout(0)
               .build());
     } catch (Exception e) {
       this.log.warn(
-          "failed to renew visibility queueUrl={} receiptHandle={}", queueUrl, receiptHandle, e);
+          "failed to release SQS message queueUrl={} receiptHandle={}", queueUrl, receiptHandle, e);
     }
   }
 
@@ -164,7 +259,6 @@ public class SqsMessageReceiver {
       future.cancel(false);
     }
     this.pollerExecutor.shutdown();
-    this.renewPool.shutdown();
 
     int waitSeconds = this.config.getVisibilityTimeoutSeconds() + 10;
     try {
@@ -183,26 +277,26 @@ public class SqsMessageReceiver {
       if (!this.pollerExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
         this.pollerExecutor.shutdownNow();
       }
-      if (!this.renewPool.awaitTermination(5, TimeUnit.SECONDS)) {
-        this.renewPool.shutdownNow();
-      }
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
       this.pollerExecutor.shutdownNow();
-      this.renewPool.shutdownNow();
     }
+    this.renewer.close();
+    this.ackBuffer.close();
     this.log.info("SqsMessageReceiver shutdown complete");
   }
 
-  private static Map<String, Object> convertAttributes(
-      Map<String, MessageAttributeValue> attributes) {
-    Map<String, Object> result = new HashMap<>();
+  private static MessageHeaders convertAttributes(Map<String, MessageAttributeValue> attributes) {
+    if (attributes.isEmpty()) {
+      return MessageHeaders.empty();
+    }
+    MessageHeaders.Builder result = MessageHeaders.builder(attributes.size());
     for (Map.Entry<String, MessageAttributeValue> entry : attributes.entrySet()) {
       MessageAttributeValue attr = entry.getValue();
       if ("String".equals(attr.dataType()) || "Number".equals(attr.dataType())) {
-        result.put(entry.getKey(), attr.stringValue());
+        result.header(entry.getKey(), attr.stringValue());
       }
     }
-    return result;
+    return result.build();
   }
 }
@@ -1,10 +1,14 @@
 package zenny.toybox.springfield.sqs;
 
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import software.amazon.awssdk.services.sqs.SqsClient;
 import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
 import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
 import zenny.toybox.springfield.messaging.Message;
 
@@ -12,19 +16,21 @@ public class SqsMessageSender {
 
   private final SqsClient sqsClient;
   private final SqsMessagingConfig config;
+  private final SqsSendBuffer sendBuffer;
 
   public SqsMessageSender(SqsClient sqsClient, SqsMessagingConfig config) {
     this.sqsClient = sqsClient;
     this.config = config;
+    this.sendBuffer =
+        new SqsSendBuffer(
+            sqsClient,
+            Duration.ofMillis(config.getSendLingerMillis()),
+            config.getSendConcurrency());
   }
 
+  /** Sends a message, blocking until SQS accepted it. */
   public void send(Message<?> message) {
-    SqsMessagingConfig.ChannelProperties channelProps =
-        this.config.getChannels().get(message.getChannel());
-    if (channelProps == null || channelProps.getQueueUrl() == null) {
-      throw new IllegalArgumentException(
-          "no queue-url mapping for channel: " + message.getChannel());
-    }
+    SqsMessagingConfig.ChannelProperties channelProps = this.getChannelProperties(message);
     Map<String, MessageAttributeValue> attrs = toMessageAttributes(message.getHeaders());
     var requestBuilder =
         SendMessageRequest.builder()
@@ -32,14 +38,51 @@ public class SqsMessageSender {
             .messageBody(String.valueOf(message.getPayload()))
             .messageAttributes(attrs);
     if (channelProps.isFifo()) {
-      String groupId =
-          channelProps.getMessageGroupId() != null ? channelProps.getMessageGroupId() : "default";
-      requestBuilder.messageGroupId(groupId);
+      requestBuilder.messageGroupId(groupIdOf(channelProps));
       requestBuilder.messageDeduplicationId(UUID.randomUUID().toString());
     }
     this.sqsClient.sendMessage(requestBuilder.build());
   }
 
+  /**
+   * Buffers a message to be sent with other messages of the same queue in a {@code
+   * SendMessageBatch} request, see {@link SqsSendBuffer}.
+   *
+   * @return a future completed with the message id assigned by SQS
+   */
+  public CompletableFuture<String> sendAsync(Message<?> message) {
+    SqsMessagingConfig.ChannelProperties channelProps = this.getChannelProperties(message);
+    var entryBuilder =
+        SendMessageBatchRequestEntry.builder()
+            .messageBody(String.valueOf(message.getPayload()))
+            .messageAttributes(toMessageAttributes(message.getHeaders()));
+    if (channelProps.isFifo()) {
+      entryBuilder.messageGroupId(groupIdOf(channelProps));
+      entryBuilder.messageDeduplicationId(UUID.randomUUID().toString());
+    }
+    return this.sendBuffer.send(channelProps.getQueueUrl(), entryBuilder.build());
+  }
+
+  /** Sends the buffered messages and stops the batch sender. */
+  @PreDestroy
+  public void shutdown() {
+    this.sendBuffer.close();
+  }
+
+  private SqsMessagingConfig.ChannelProperties getChannelProperties(Message<?> message) {
+    SqsMessagingConfig.ChannelProperties channelProps =
+        this.config.getChannels().get(message.getChannel());
+    if (channelProps == null || channelProps.getQueueUrl() == null) {
+      throw new IllegalArgumentException(
+          "no queue-url mapping for channel: " + message.getChannel());
+    }
+    return channelProps;
+  }
+
+  private static String groupIdOf(SqsMessagingConfig.ChannelProperties channelProps) {
+    return channelProps.getMessageGroupId() != null ? channelProps.getMessageGroupId() : "default";
+  }
+
   private static Map<String, MessageAttributeValue> toMessageAttributes(
       Map<String, Object> headers) {
     Map<String, MessageAttributeValue> attrs = new HashMap<>();
@@ -16,8 +16,27 @@ public class SqsMessagingConfig {
   private int maxFetchSize = 10;
   private int maxRetries = 3;
   private int pollDelaySeconds = 1;
+  private ReceiverMode receiverMode = ReceiverMode.BLOCKING;
+  private int pollsPerChannel = 2;
+  private int minPollsPerChannel = 1;
+  private int maxPollsPerChannel = 10;
+  private long maxEmptyBackoffMillis = 10000;
+  private int ackLingerMillis = 100;
+  private int ackConcurrency = 2;
+  private int sendLingerMillis = 10;
+  private int sendConcurrency = 4;
   private final Map<String, ChannelProperties> channels = new HashMap<>();
 
+  /** How messages are received from the queues. */
+  public enum ReceiverMode {
+
+    /** One blocking receive per channel at a time, repeated every poll delay. */
+    BLOCKING,
+
+    /** Several concurrent long polls per channel through the async client, issued back to back. */
+    ASYNC
+  }
+
   public static class ChannelProperties {
 
     private String queueUrl;
@@ -137,6 +156,78 @@ public class SqsMessagingConfig {
     this.pollDelaySeconds = pollDelaySeconds;
   }
 
+  public ReceiverMode getReceiverMode() {
+    return this.receiverMode;
+  }
+
+  public void setReceiverMode(ReceiverMode receiverMode) {
+    this.receiverMode = receiverMode;
+  }
+
+  public int getPollsPerChannel() {
+    return this.pollsPerChannel;
+  }
+
+  public void setPollsPerChannel(int pollsPerChannel) {
+    this.pollsPerChannel = pollsPerChannel;
+  }
+
+  public int getMinPollsPerChannel() {
+    return this.minPollsPerChannel;
+  }
+
+  public void setMinPollsPerChannel(int minPollsPerChannel) {
+    this.minPollsPerChannel = minPollsPerChannel;
+  }
+
+  public int getMaxPollsPerChannel() {
+    return this.maxPollsPerChannel;
+  }
+
+  public void setMaxPollsPerChannel(int maxPollsPerChannel) {
+    this.maxPollsPerChannel = maxPollsPerChannel;
+  }
+
+  public long getMaxEmptyBackoffMillis() {
+    return this.maxEmptyBackoffMillis;
+  }
+
+  public void setMaxEmptyBackoffMillis(long maxEmptyBackoffMillis) {
+    this.maxEmptyBackoffMillis = maxEmptyBackoffMillis;
+  }
+
+  public int getAckLingerMillis() {
+    return this.ackLingerMillis;
+  }
+
+  public void setAckLingerMillis(int ackLingerMillis) {
+    this.ackLingerMillis = ackLingerMillis;
+  }
+
+  public int getAckConcurrency() {
+    return this.ackConcurrency;
+  }
+
+  public void setAckConcurrency(int ackConcurrency) {
+    this.ackConcurrency = ackConcurrency;
+  }
+
+  public int getSendLingerMillis() {
+    return this.sendLingerMillis;
+  }
+
+  public void setSendLingerMillis(int sendLingerMillis) {
+    this.sendLingerMillis = sendLingerMillis;
+  }
+
+  public int getSendConcurrency() {
+    return this.sendConcurrency;
+  }
+
+  public void setSendConcurrency(int sendConcurrency) {
+    this.sendConcurrency = sendConcurrency;
+  }
+
   public Map<String, ChannelProperties> getChannels() {
     return this.channels;
   }
@@ -0,0 +1,100 @@
+package zenny.toybox.springfield.sqs;
+
+/**
+ * Adapts the number of concurrent receives of a channel to its traffic, between {@code minPolls}
+ * and {@code maxPolls}. Every completed receive reports how full its batch came back, and gets told
+ * whether to poll again, to stop, or to poll again and start one more poll.
+ *
+ * <p>The controller keeps a moving average of the batch fill ratio. A poll is added while batches
+ * come back nearly full and the headroom, the number of messages the polls can still take in
+ * flight, leaves room for one more full batch per poll. A poll is retired when a receive comes back
+ * empty, when batches come back mostly empty, or when the headroom no longer leaves room for a full
+ * batch per poll. Messages hold their share of the in-flight limit until they are acknowledged, so
+ * the headroom shrinks while the handlers fall behind. Once down to {@code minPolls}, consecutive
+ * empty receives back off exponentially, up to {@code maxBackoffMillis}.
+ */
+public class SqsPollController {
+
+  private static final double SMOOTHING = 0.2;
+  private static final double SCALE_UP_FILL_RATIO = 0.8;
+  private static final double SCALE_DOWN_FILL_RATIO = 0.2;
+  private static final long BASE_BACKOFF_MILLIS = 100;
+
+  private final int minPolls;
+  private final int maxPolls;
+  private final int fetchSize;
+  private final long maxBackoffMillis;
+  private int polls;
+  private double fillRatio = 0.5;
+  private int emptyReceives;
+
+  /**
+   * @param initialPolls the number of polls to start with, clamped to the bounds
+   * @param fetchSize the number of messages a receive asks for
+   */
+  public SqsPollController(
+      int minPolls, int maxPolls, int initialPolls, int fetchSize, long maxBackoffMillis) {
+    this.minPolls = Math.max(minPolls, 1);
+    this.maxPolls = Math.max(maxPolls, this.minPolls);
+    this.fetchSize = Math.max(fetchSize, 1);
+    this.maxBackoffMillis = maxBackoffMillis;
+    this.polls = Math.max(this.minPolls, Math.min(initialPolls, this.maxPolls));
+  }
+
+  /** Returns the number of polls the channel should keep open. */
+  public synchronized int getPolls() {
+    return this.polls;
+  }
+
+  /** Returns the moving average of the batch fill ratio. */
+  public synchronized double getFillRatio() {
+    return this.fillRatio;
+  }
+
+  /**
+   * Records a completed receive and decides what the poll that issued it does next.
+   *
+   * @param requested the number of messages the receive asked for
+   * @param received the number of messages it returned
+   * @param headroom the number of messages the polls of the channel can still take in flight,
+   *     including those reserved by its pending receives
+   */
+  public synchronized Decision onReceive(int requested, int received, int headroom) {
+    double fill = requested > 0 ? Math.min((double) received / requested, 1.0) : 0.0;
+    this.fillRatio += SMOOTHING * (fill - this.fillRatio);
+    this.emptyReceives = received == 0 ? this.emptyReceives + 1 : 0;
+
+    if (this.polls > this.minPolls
+        && (received == 0
+            || this.fillRatio < SCALE_DOWN_FILL_RATIO
+            || headroom < this.polls * this.fetchSize)) {
+      this.polls--;
+      return Decision.RETIRE;
+    }
+    if (this.polls < this.maxPolls
+        && this.fillRatio >= SCALE_UP_FILL_RATIO
+        && headroom >= (this.polls + 1) * this.fetchSize) {
+      this.polls++;
+      return Decision.EXPAND;
+    }
+    if (received == 0) {
+      int doublings = Math.min(this.emptyReceives - 1, 20);
+      return new Decision(1, Math.min(BASE_BACKOFF_MILLIS << doublings, this.maxBackoffMillis));
+    }
+    return Decision.CONTINUE;
+  }
+
+  /**
+   * What a poll does after a receive.
+   *
+   * @param polls the number of polls to issue: {@code 0} to retire the poll, {@code 1} to go on,
+   *     {@code 2} to go on and add one
+   * @param delayMillis how long to wait before issuing them
+   */
+  public record Decision(int polls, long delayMillis) {
+
+    static final Decision RETIRE = new Decision(0, 0);
+    static final Decision CONTINUE = new Decision(1, 0);
+    static final Decision EXPAND = new Decision(2, 0);
+  }
+}
@@ -0,0 +1,302 @@
+package zenny.toybox.springfield.sqs;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
+import software.amazon.awssdk.services.sqs.model.SqsException;
+
+/**
+ * Groups outgoing messages per queue into {@code SendMessageBatch} requests. A batch is sent once
+ * it holds ten entries, once the next entry would take it over 256 KB, or once the linger has
+ * elapsed since its first entry. Batches are sent on a pool of {@code concurrency} threads, so that
+ * a burst is not serialized into one round trip after the other. Batches of a FIFO queue, whose URL
+ * ends with {@code .fifo}, are still sent one at a time and in order, so that a batch never
+ * overtakes an earlier one of the same queue.
+ *
+ * <p>Each entry completes its own future with the message id assigned by SQS, or with the error of
+ * its entry or of the whole request. Closing the buffer sends all pending batches right away, and
+ * later entries are sent on the calling thread.
+ */
+public class SqsSendBuffer implements AutoCloseable {
+
+  /** The maximum number of entries of a {@code SendMessageBatch} request. */
+  public static final int MAX_BATCH_SIZE = 10;
+
+  /** The maximum total size of the messages of a {@code SendMessageBatch} request. */
+  public static final int MAX_BATCH_BYTES = 256 * 1024;
+
+  protected final Logger log = LoggerFactory.getLogger(this.getClass());
+
+  private final SqsClient sqsClient;
+  private final long lingerNanos;
+  private final ScheduledThreadPoolExecutor executor;
+  private final Map<String, Batch> pending = new HashMap<>();
+  // the FIFO queues with a batch in flight, and the batches waiting behind it
+  private final Map<String, ArrayDeque<Batch>> ordered = new HashMap<>();
+  private boolean closed;
+
+  public SqsSendBuffer(SqsClient sqsClient, Duration linger, int concurrency) {
+    this.sqsClient = sqsClient;
+    this.lingerNanos = linger.toNanos();
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sqs-send-");
+    threadFactory.setDaemon(true);
+    this.executor = new ScheduledThreadPoolExecutor(Math.max(concurrency, 1), threadFactory);
+    this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    this.executor.setRemoveOnCancelPolicy(true);
+  }
+
+  /**
+   * Buffers a message for the given queue. The id of the entry is assigned when its batch is sent.
+   *
+   * @return a future completed with the message id assigned by SQS
+   */
+  public CompletableFuture<String> send(String queueUrl, SendMessageBatchRequestEntry entry) {
+    int size = sizeOf(entry);
+    if (size > MAX_BATCH_BYTES) {
+      return CompletableFuture.failedFuture(
+          new IllegalArgumentException(
+              "message of " + size + " bytes exceeds the SQS limit of " + MAX_BATCH_BYTES));
+    }
+    CompletableFuture<String> future = new CompletableFuture<>();
+    boolean fifo = isFifo(queueUrl);
+    Batch overflown = null;
+    Batch full = null;
+    boolean closed;
+    synchronized (this.pending) {
+      closed = this.closed;
+      Batch batch = this.pending.get(queueUrl);
+      if (batch != null && batch.bytes + size > MAX_BATCH_BYTES) {
+        overflown = this.take(queueUrl);
+        batch = null;
+      }
+      if (batch == null) {
+        batch = new Batch();
+        this.pending.put(queueUrl, batch);
+        if (!closed) {
+          Batch scheduled = batch;
+          batch.linger =
+              this.executor.schedule(
+                  () -> this.flush(queueUrl, scheduled), this.lingerNanos, TimeUnit.NANOSECONDS);
+        }
+      }
+      batch.add(entry, size, future);
+      if (closed || batch.entries.size() == MAX_BATCH_SIZE) {
+        full = this.take(queueUrl);
+      }
+      if (fifo) {
+        // queued under the lock, so that the batches are sent in the order they were filled
+        Batch head = overflown != null ? this.enqueue(queueUrl, overflown) : null;
+        if (full != null) {
+          Batch next = this.enqueue(queueUrl, full);
+          head = head != null ? head : next;
+        }
+        overflown = head;
+        full = null;
+      }
+    }
+    if (overflown != null) {
+      this.submit(queueUrl, overflown, closed);
+    }
+    if (full != null) {
+      this.submit(queueUrl, full, closed);
+    }
+    return future;
+  }
+
+  /** Sends all pending batches, then stops sending in the background. */
+  @Override
+  public void close() {
+    Map<String, Batch> remaining = new HashMap<>();
+    synchronized (this.pending) {
+      this.closed = true;
+      for (Map.Entry<String, Batch> entry : this.pending.entrySet()) {
+        Batch batch = entry.getValue();
+        if (batch.linger != null) {
+          batch.linger.cancel(false);
+        }
+        batch = isFifo(entry.getKey()) ? this.enqueue(entry.getKey(), batch) : batch;
+        if (batch != null) {
+          remaining.put(entry.getKey(), batch);
+        }
+      }
+      this.pending.clear();
+    }
+    remaining.forEach(this::send);
+    this.executor.shutdown();
+    try {
+      if (!this.executor.awaitTermination(30, TimeUnit.SECONDS)) {
+        this.executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      this.executor.shutdownNow();
+    }
+  }
+
+  private Batch take(String queueUrl) {
+    Batch batch = this.pending.remove(queueUrl);
+    if (batch.linger != null) {
+      batch.linger.cancel(false);
+    }
+    return batch;
+  }
+
+  /**
+   * Queues a batch of a FIFO queue behind the batch in flight, if any. Must be called while holding
+   * the lock on {@code pending}.
+   *
+   * @return the batch if none was in flight, in which case the caller sends it, or {@code null}
+   */
+  private @Nullable Batch enqueue(String queueUrl, Batch batch) {
+    ArrayDeque<Batch> waiting = this.ordered.get(queueUrl);
+    if (waiting != null) {
+      waiting.add(batch);
+      return null;
+    }
+    this.ordered.put(queueUrl, new ArrayDeque<>());
+    return batch;
+  }
+
+  private void submit(String queueUrl, Batch batch, boolean closed) {
+    if (closed) {
+      this.send(queueUrl, batch);
+      return;
+    }
+    try {
+      this.executor.execute(() -> this.send(queueUrl, batch));
+    } catch (RejectedExecutionException e) {
+      this.send(queueUrl, batch);
+    }
+  }
+
+  private void flush(String queueUrl, Batch batch) {
+    synchronized (this.pending) {
+      if (this.pending.get(queueUrl) != batch) {
+        return;
+      }
+      this.pending.remove(queueUrl);
+      if (isFifo(queueUrl) && this.enqueue(queueUrl, batch) == null) {
+        return;
+      }
+    }
+    this.send(queueUrl, batch);
+  }
+
+  /** Sends a batch, then, for a FIFO queue, the batches queued behind it meanwhile. */
+  private void send(String queueUrl, Batch batch) {
+    this.doSend(queueUrl, batch);
+    if (!isFifo(queueUrl)) {
+      return;
+    }
+    while (true) {
+      Batch next;
+      synchronized (this.pending) {
+        next = this.ordered.get(queueUrl).poll();
+        if (next == null) {
+          this.ordered.remove(queueUrl);
+          return;
+        }
+      }
+      this.doSend(queueUrl, next);
+    }
+  }
+
+  private void doSend(String queueUrl, Batch batch) {
+    List<SendMessageBatchRequestEntry> requestEntries = new ArrayList<>(batch.entries.size());
+    for (int i = 0; i < batch.entries.size(); i++) {
+      requestEntries.add(batch.entries.get(i).toBuilder().id(String.valueOf(i)).build());
+    }
+    SendMessageBatchResponse response;
+    try {
+      response =
+          this.sqsClient.sendMessageBatch(
+              SendMessageBatchRequest.builder().queueUrl(queueUrl).entries(requestEntries).build());
+    } catch (Exception e) {
+      this.log.warn(
+          "failed to send SQS message batch queueUrl={} size={}",
+          queueUrl,
+          batch.entries.size(),
+          e);
+      for (CompletableFuture<String> future : batch.futures) {
+        future.completeExceptionally(e);
+      }
+      return;
+    }
+    for (SendMessageBatchResultEntry result : response.successful()) {
+      batch.futures.get(Integer.parseInt(result.id())).complete(result.messageId());
+    }
+    for (BatchResultErrorEntry failure : response.failed()) {
+      batch
+          .futures
+          .get(Integer.parseInt(failure.id()))
+          .completeExceptionally(
+              SqsException.builder()
+                  .message(
+                      "failed to send SQS message queueUrl="
+                          + queueUrl
+                          + " code="
+                          + failure.code()
+                          + " message="
+                          + failure.message())
+                  .build());
+    }
+  }
+
+  /** Returns the size SQS counts against the batch limit: the body and the attributes. */
+  private static int sizeOf(SendMessageBatchRequestEntry entry) {
+    int size = utf8Length(entry.messageBody());
+    for (Map.Entry<String, MessageAttributeValue> attribute :
+        entry.messageAttributes().entrySet()) {
+      MessageAttributeValue value = attribute.getValue();
+      size += utf8Length(attribute.getKey());
+      size += utf8Length(value.dataType());
+      size += utf8Length(value.stringValue());
+      if (value.binaryValue() != null) {
+        size += value.binaryValue().asByteArrayUnsafe().length;
+      }
+    }
+    return size;
+  }
+
+  private static boolean isFifo(String queueUrl) {
+    return queueUrl.endsWith(".fifo");
+  }
+
+  private static int utf8Length(@Nullable String value) {
+    return value != null ? value.getBytes(StandardCharsets.UTF_8).length : 0;
+  }
+
+  private static final class Batch {
+
+    private final List<SendMessageBatchRequestEntry> entries = new ArrayList<>(MAX_BATCH_SIZE);
+    private final List<CompletableFuture<String>> futures = new ArrayList<>(MAX_BATCH_SIZE);
+    private int bytes;
+    private @Nullable ScheduledFuture<?> linger;
+
+    void add(SendMessageBatchRequestEntry entry, int size, CompletableFuture<String> future) {
+      this.entries.add(entry);
+      this.futures.add(future);
+      this.bytes += size;
+    }
+  }
+}
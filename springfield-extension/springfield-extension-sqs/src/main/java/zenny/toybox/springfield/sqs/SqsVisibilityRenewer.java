@@ -0,0 +1,205 @@
+package zenny.toybox.springfield.sqs;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
+
+/**
+ * Keeps in-flight messages invisible while they are processed. Registered messages are kept ordered
+ * by the deadline of their next renewal, and a single loop, running every {@code tick}, extends the
+ * visibility of all the messages that are due with {@code ChangeMessageVisibilityBatch} requests of
+ * up to ten entries per queue.
+ *
+ * <p>A message whose renewal fails on its own, typically because it was deleted meanwhile, is no
+ * longer renewed. When a whole request fails, its messages are renewed again on the next interval.
+ * The loop is started by the first registration.
+ */
+public class SqsVisibilityRenewer implements AutoCloseable {
+
+  /** The maximum number of entries of a {@code ChangeMessageVisibilityBatch} request. */
+  public static final int MAX_BATCH_SIZE = 10;
+
+  protected final Logger log = LoggerFactory.getLogger(this.getClass());
+
+  private final SqsClient sqsClient;
+  private final long intervalNanos;
+  private final int visibilityTimeoutSeconds;
+  private final long tickNanos;
+  private final ScheduledExecutorService scheduler;
+  private final Map<String, Lease> leases = new HashMap<>();
+  private final TreeSet<Lease> deadlines = new TreeSet<>();
+  private long sequence;
+  private boolean started;
+
+  /**
+   * @param interval how long after registration, then after each renewal, a message is renewed
+   * @param visibilityTimeoutSeconds the visibility timeout set on each renewal
+   * @param tick how often due messages are looked for
+   */
+  public SqsVisibilityRenewer(
+      SqsClient sqsClient, Duration interval, int visibilityTimeoutSeconds, Duration tick) {
+    this.sqsClient = sqsClient;
+    this.intervalNanos = interval.toNanos();
+    this.visibilityTimeoutSeconds = visibilityTimeoutSeconds;
+    this.tickNanos = tick.toNanos();
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sqs-visibility-");
+    threadFactory.setDaemon(true);
+    this.scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+  }
+
+  /** Starts renewing the visibility of a message, until it is deregistered. */
+  public void register(String queueUrl, String receiptHandle) {
+    synchronized (this.leases) {
+      if (!this.started) {
+        this.started = true;
+        try {
+          this.scheduler.scheduleWithFixedDelay(
+              this::renewDue, this.tickNanos, this.tickNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+          // closed
+        }
+      }
+      Lease lease =
+          new Lease(
+              queueUrl, receiptHandle, System.nanoTime() + this.intervalNanos, this.sequence++);
+      Lease previous = this.leases.put(receiptHandle, lease);
+      if (previous != null) {
+        this.deadlines.remove(previous);
+      }
+      this.deadlines.add(lease);
+    }
+  }
+
+  /** Stops renewing the visibility of a message. */
+  public void deregister(String receiptHandle) {
+    synchronized (this.leases) {
+      Lease lease = this.leases.remove(receiptHandle);
+      if (lease != null) {
+        this.deadlines.remove(lease);
+      }
+    }
+  }
+
+  /** Returns the number of messages being renewed. */
+  public int getLeaseCount() {
+    synchronized (this.leases) {
+      return this.leases.size();
+    }
+  }
+
+  @Override
+  public void close() {
+    this.scheduler.shutdown();
+    try {
+      if (!this.scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+        this.scheduler.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      this.scheduler.shutdownNow();
+    }
+    synchronized (this.leases) {
+      this.leases.clear();
+      this.deadlines.clear();
+    }
+  }
+
+  /**
+   * Takes the due leases off the registry, registering them again with their next deadline, and
+   * renews them queue by queue. A batch failing unexpectedly is logged, so that it neither stops
+   * the other batches nor cancels the renewal loop.
+   */
+  protected void renewDue() {
+    long now = System.nanoTime();
+    Map<String, List<Lease>> due = new LinkedHashMap<>();
+    synchronized (this.leases) {
+      List<Lease> renewed = new ArrayList<>();
+      while (!this.deadlines.isEmpty() && this.deadlines.first().deadline - now <= 0) {
+        Lease lease = this.deadlines.pollFirst();
+        Lease next =
+            new Lease(
+                lease.queueUrl, lease.receiptHandle, now + this.intervalNanos, this.sequence++);
+        this.leases.put(lease.receiptHandle, next);
+        renewed.add(next);
+        due.computeIfAbsent(lease.queueUrl, key -> new ArrayList<>()).add(next);
+      }
+      // added back once all are taken, a lease renewed at once is not due again on this pass
+      this.deadlines.addAll(renewed);
+    }
+    for (Map.Entry<String, List<Lease>> entry : due.entrySet()) {
+      List<Lease> queued = entry.getValue();
+      for (int from = 0; from < queued.size(); from += MAX_BATCH_SIZE) {
+        List<Lease> batch = queued.subList(from, Math.min(from + MAX_BATCH_SIZE, queued.size()));
+        try {
+          this.renew(entry.getKey(), batch);
+        } catch (RuntimeException e) {
+          this.log.error(
+              "failed to renew visibility queueUrl={} size={}", entry.getKey(), batch.size(), e);
+        }
+      }
+    }
+  }
+
+  private void renew(String queueUrl, List<Lease> batch) {
+    List<ChangeMessageVisibilityBatchRequestEntry> requestEntries = new ArrayList<>(batch.size());
+    for (int i = 0; i < batch.size(); i++) {
+      requestEntries.add(
+          ChangeMessageVisibilityBatchRequestEntry.builder()
+              .id(String.valueOf(i))
+              .receiptHandle(batch.get(i).receiptHandle)
+              .visibilityTimeout(this.visibilityTimeoutSeconds)
+              .build());
+    }
+    ChangeMessageVisibilityBatchResponse response;
+    try {
+      response =
+          this.sqsClient.changeMessageVisibilityBatch(
+              ChangeMessageVisibilityBatchRequest.builder()
+                  .queueUrl(queueUrl)
+                  .entries(requestEntries)
+                  .build());
+    } catch (Exception e) {
+      this.log.warn("failed to renew visibility queueUrl={} size={}", queueUrl, batch.size(), e);
+      return;
+    }
+    for (BatchResultErrorEntry failure : response.failed()) {
+      Lease lease = batch.get(Integer.parseInt(failure.id()));
+      this.log.warn(
+          "failed to renew visibility queueUrl={} receiptHandle={} code={}",
+          queueUrl,
+          lease.receiptHandle,
+          failure.code());
+      synchronized (this.leases) {
+        if (this.leases.remove(lease.receiptHandle, lease)) {
+          this.deadlines.remove(lease);
+        }
+      }
+    }
+  }
+
+  private record Lease(String queueUrl, String receiptHandle, long deadline, long sequence)
+      implements Comparable<Lease> {
+
+    @Override
+    public int compareTo(Lease other) {
+      int order = Long.compare(this.deadline - other.deadline, 0L);
+      return order != 0 ? order : Long.compare(this.sequence, other.sequence);
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package zenny.toybox.springfield.sqs;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResultEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResultEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
+
+/**
+ * A {@link SqsClient} recording the requests it is sent, along with the threads sending them, and
+ * answering them with replaceable handlers that succeed for every entry by default.
+ */
+class RecordingSqsClient implements SqsClient {
+
+  final List<DeleteMessageBatchRequest> deletes = new CopyOnWriteArrayList<>();
+  final List<SendMessageBatchRequest> sends = new CopyOnWriteArrayList<>();
+  final List<ChangeMessageVisibilityBatchRequest> renewals = new CopyOnWriteArrayList<>();
+  final List<ChangeMessageVisibilityRequest> releases = new CopyOnWriteArrayList<>();
+  final List<Thread> threads = new CopyOnWriteArrayList<>();
+  volatile Function<DeleteMessageBatchRequest, DeleteMessageBatchResponse> onDelete =
+      RecordingSqsClient::deleted;
+  volatile Function<SendMessageBatchRequest, SendMessageBatchResponse> onSend =
+      RecordingSqsClient::sent;
+  volatile Function<ChangeMessageVisibilityBatchRequest, ChangeMessageVisibilityBatchResponse>
+      onRenew = RecordingSqsClient::renewed;
+
+  @Override
+  public DeleteMessageBatchResponse deleteMessageBatch(DeleteMessageBatchRequest request) {
+    this.threads.add(Thread.currentThread());
+    this.deletes.add(request);
+    return this.onDelete.apply(request);
+  }
+
+  @Override
+  public SendMessageBatchResponse sendMessageBatch(SendMessageBatchRequest request) {
+    this.threads.add(Thread.currentThread());
+    this.sends.add(request);
+    return this.onSend.apply(request);
+  }
+
+  @Override
+  public ChangeMessageVisibilityBatchResponse changeMessageVisibilityBatch(
+      ChangeMessageVisibilityBatchRequest request) {
+    this.threads.add(Thread.currentThread());
+    this.renewals.add(request);
+    return this.onRenew.apply(request);
+  }
+
+  @Override
+  public ChangeMessageVisibilityResponse changeMessageVisibility(
+      ChangeMessageVisibilityRequest request) {
+    this.threads.add(Thread.currentThread());
+    this.releases.add(request);
+    return ChangeMessageVisibilityResponse.builder().build();
+  }
+
+  /** Returns the receipt handles of all the delete requests, in the order they were sent. */
+  List<String> deletedHandles() {
+    return this.deletes.stream()
+        .flatMap(request -> request.entries().stream())
+        .map(entry -> entry.receiptHandle())
+        .toList();
+  }
+
+  static DeleteMessageBatchResponse deleted(DeleteMessageBatchRequest request) {
+    return DeleteMessageBatchResponse.builder()
+        .successful(
+            request.entries().stream()
+                .map(entry -> DeleteMessageBatchResultEntry.builder().id(entry.id()).build())
+                .toList())
+        .build();
+  }
+
+  /** Answers a send request with the body of each entry as its message id. */
+  static SendMessageBatchResponse sent(SendMessageBatchRequest request) {
+    return SendMessageBatchResponse.builder()
+        .successful(
+            request.entries().stream()
+                .map(
+                    entry ->
+                        SendMessageBatchResultEntry.builder()
+                            .id(entry.id())
+                            .messageId(entry.messageBody())
+                            .build())
+                .toList())
+        .build();
+  }
+
+  static ChangeMessageVisibilityBatchResponse renewed(ChangeMessageVisibilityBatchRequest request) {
+    return ChangeMessageVisibilityBatchResponse.builder()
+        .successful(
+            request.entries().stream()
+                .map(
+                    entry ->
+                        ChangeMessageVisibilityBatchResultEntry.builder().id(entry.id()).build())
+                .toList())
+        .build();
+  }
+
+  @Override
+  public String serviceName() {
+    return SERVICE_NAME;
+  }
+
+  @Override
+  public void close() {}
+}
@@ -0,0 +1,143 @@
+package zenny.toybox.springfield.sqs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tabletest.junit.TableTest;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SqsException;
+
+/**
+ * Tests for {@link SqsAcknowledgementBuffer}, covering the deletion of full batches and lingering
+ * ones, the threads deleting them, the retries of failed deletions with their backoff, and closing
+ * the buffer.
+ */
+@DisplayName("SqsAcknowledgementBuffer")
+class SqsAcknowledgementBufferTest {
+
+  private static final String QUEUE_URL = "https://sqs.us-east-1.amazonaws.com/1/orders";
+
+  @Test
+  @DisplayName("acknowledge.deletesFullBatchesRightAway")
+  void acknowledgeDeletesFullBatchesRightAway() throws Exception {
+    RecordingSqsClient client = new RecordingSqsClient();
+    SqsAcknowledgementBuffer buffer =
+        new SqsAcknowledgementBuffer(client, Duration.ofSeconds(10), 3, 2);
+    for (int i = 0; i < 25; i++) {
+      buffer.acknowledge(QUEUE_URL, "handle-" + i);
+    }
+
+    waitFor(() -> client.deletes.size() == 2);
+    assertEquals(10, client.deletes.get(0).entries().size());
+    assertEquals(10, client.deletes.get(1).entries().size());
+    assertEquals(5, buffer.getPendingCount());
+    for (Thread thread : client.threads) {
+      assertTrue(thread.getName().startsWith("sqs-ack-"), thread.getName());
+      assertTrue(thread.isDaemon());
+    }
+
+    buffer.close();
+    assertEquals(3, client.deletes.size());
+    assertEquals(5, client.deletes.get(2).entries().size());
+    assertSame(Thread.currentThread(), client.threads.get(2));
+    assertEquals(0, buffer.getPendingCount());
+  }
+
+  @Test
+  @DisplayName("acknowledge.deletesLingeringBatchPerQueue")
+  void acknowledgeDeletesLingeringBatchPerQueue() throws Exception {
+    RecordingSqsClient client = new RecordingSqsClient();
+    try (SqsAcknowledgementBuffer buffer =
+        new SqsAcknowledgementBuffer(client, Duration.ofMillis(20), 3, 2)) {
+      buffer.acknowledge(QUEUE_URL, "a");
+      buffer.acknowledge(QUEUE_URL + "-dlq", "b");
+      buffer.acknowledge(QUEUE_URL, "c");
+
+      waitFor(() -> client.deletes.size() == 2);
+      assertEquals(0, buffer.getPendingCount());
+      for (DeleteMessageBatchRequest request : client.deletes) {
+        assertEquals(request.queueUrl().equals(QUEUE_URL) ? 2 : 1, request.entries().size());
+      }
+    }
+  }
+
+  @TableTest(
+      """
+      Scenario     | Failure | Max retries | Requests
+      Client error | CLIENT  | 2           | 3
+      Server fault | SERVER  | 2           | 3
+      Sender fault | SENDER  | 2           | 1
+      No retries   | CLIENT  | 0           | 1
+      """)
+  @DisplayName("acknowledge.retriesFailedDeletions")
+  void acknowledgeRetriesFailedDeletions(String failure, int maxRetries, int requests)
+      throws Exception {
+    RecordingSqsClient client = new RecordingSqsClient();
+    List<Long> sentAt = new CopyOnWriteArrayList<>();
+    client.onDelete =
+        request -> {
+          sentAt.add(System.nanoTime());
+          if (failure.equals("CLIENT")) {
+            throw SqsException.builder().message("unavailable").build();
+          }
+          return DeleteMessageBatchResponse.builder()
+              .failed(
+                  BatchResultErrorEntry.builder()
+                      .id(request.entries().get(0).id())
+                      .code("Failure")
+                      .senderFault(failure.equals("SENDER"))
+                      .build())
+              .build();
+        };
+    try (SqsAcknowledgementBuffer buffer =
+        new SqsAcknowledgementBuffer(client, Duration.ofMillis(1), maxRetries, 1)) {
+      buffer.acknowledge(QUEUE_URL, "a");
+      waitFor(() -> client.deletes.size() == requests);
+    }
+
+    assertEquals(requests, client.deletes.size());
+    for (int i = 1; i < sentAt.size(); i++) {
+      // the backoff doubles from 100ms on each attempt
+      long backoff = TimeUnit.MILLISECONDS.toNanos(100L << (i - 1));
+      assertTrue(sentAt.get(i) - sentAt.get(i - 1) >= backoff, "attempt " + i);
+    }
+  }
+
+  @Test
+  @DisplayName("acknowledge.deletesOnceRetrySucceeds")
+  void acknowledgeDeletesOnceRetrySucceeds() throws Exception {
+    RecordingSqsClient client = new RecordingSqsClient();
+    client.onDelete =
+        request -> {
+          client.onDelete = RecordingSqsClient::deleted;
+          throw SqsException.builder().message("unavailable").build();
+        };
+    try (SqsAcknowledgementBuffer buffer =
+        new SqsAcknowledgementBuffer(client, Duration.ofMillis(200), 3, 1)) {
+      buffer.acknowledge(QUEUE_URL, "a");
+      buffer.acknowledge(QUEUE_URL, "b");
+
+      waitFor(() -> client.deletes.size() == 2);
+      assertEquals(List.of("a", "b", "a", "b"), client.deletedHandles());
+      assertEquals(0, buffer.getPendingCount());
+    }
+  }
+
+  private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "timed out");
+      Thread.sleep(5);
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package zenny.toybox.springfield.sqs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+import software.amazon.awssdk.services.sqs.model.SqsException;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.sqs.SqsMessageReceiverTest.RecordingPublisher;
+
+/**
+ * Tests for {@link SqsAsyncMessageReceiver}, covering the permits of the in-flight limit taken by
+ * concurrent polls, the permits given back after a receive, the retry of failed receives, and the
+ * threads processing received messages.
+ */
+@DisplayName("SqsAsyncMessageReceiver")
+class SqsAsyncMessageReceiverTest {
+
+  private static final String QUEUE_URL = "https://sqs.us-east-1.amazonaws.com/1/orders";
+
+  @Test
+  @DisplayName("poll.reservesPermitsOfConcurrentPolls")
+  void pollReservesPermitsOfConcurrentPolls() throws Exception {
+    RecordingSqsAsyncClient asyncClient = new RecordingSqsAsyncClient();
+    RecordingPublisher publisher = new RecordingPublisher();
+    SqsAsyncMessageReceiver receiver =
+        new SqsAsyncMessageReceiver(asyncClient, new RecordingSqsClient(), config(15), publisher);
+    try {
+      receiver.start();
+      assertEquals(List.of(10, 5), asyncClient.maxNumberOfMessages());
+      assertEquals(0, receiver.getAvailableInFlight());
+
+      // the polls waiting for permits do not issue receives
+      Thread.sleep(250);
+      assertEquals(2, asyncClient.requests.size());
+
+      asyncClient.complete(0, "a", "b", "c");
+      waitFor(() -> asyncClient.requests.size() == 3);
+      assertEquals(7, asyncClient.requests.get(2).maxNumberOfMessages());
+      assertEquals(3, publisher.messages.size());
+      for (Thread thread : publisher.threads) {
+        assertTrue(thread.getName().startsWith("sqs-receive-"), thread.getName());
+        assertTrue(thread.isDaemon());
+      }
+
+      for (Message<?> message : publisher.messages) {
+        message.acknowledge();
+      }
+      asyncClient.complete(1);
+      waitFor(() -> asyncClient.requests.size() == 4);
+      assertEquals(8, asyncClient.requests.get(3).maxNumberOfMessages());
+      assertEquals(0, receiver.getAvailableInFlight());
+    } finally {
+      receiver.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("poll.givesBackPermitsOfFailedReceiveAndRetries")
+  void pollGivesBackPermitsOfFailedReceiveAndRetries() throws Exception {
+    RecordingSqsAsyncClient asyncClient = new RecordingSqsAsyncClient();
+    SqsAsyncMessageReceiver receiver =
+        new SqsAsyncMessageReceiver(
+            asyncClient, new RecordingSqsClient(), config(15), new RecordingPublisher());
+    try {
+      receiver.start();
+      asyncClient.futures.get(1).completeExceptionally(SqsException.builder().build());
+      waitFor(() -> receiver.getAvailableInFlight() == 5);
+
+      // the failed poll is retried later, from the poll scheduler
+      waitFor(() -> asyncClient.requests.size() == 3);
+      Thread thread = asyncClient.threads.get(2);
+      assertTrue(thread.getName().startsWith("sqs-poll-"), thread.getName());
+      assertTrue(thread.isDaemon());
+    } finally {
+      receiver.shutdown();
+    }
+    assertEquals(15, receiver.getAvailableInFlight());
+  }
+
+  @Test
+  @DisplayName("received.processesOffClientThread")
+  void receivedProcessesOffClientThread() throws Exception {
+    RecordingSqsAsyncClient asyncClient = new RecordingSqsAsyncClient();
+    RecordingSqsClient client = new RecordingSqsClient();
+    RecordingPublisher publisher = new RecordingPublisher();
+    publisher.accepting = false;
+    SqsAsyncMessageReceiver receiver =
+        new SqsAsyncMessageReceiver(asyncClient, client, config(15), publisher);
+    try {
+      receiver.start();
+      asyncClient.complete(0, "a");
+      waitFor(() -> client.releases.size() == 1);
+      assertNotSame(Thread.currentThread(), client.threads.get(0));
+      assertTrue(client.threads.get(0).getName().startsWith("sqs-receive-"));
+    } finally {
+      receiver.shutdown();
+    }
+  }
+
+  static SqsMessagingConfig config(int maxInFlight) {
+    SqsMessagingConfig config = SqsMessageReceiverTest.config(maxInFlight);
+    config.setPollsPerChannel(2);
+    config.setMinPollsPerChannel(2);
+    config.setMaxPollsPerChannel(2);
+    SqsMessagingConfig.ChannelProperties channel = new SqsMessagingConfig.ChannelProperties();
+    channel.setQueueUrl(QUEUE_URL);
+    config.getChannels().put("orders", channel);
+    return config;
+  }
+
+  private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "timed out");
+      Thread.sleep(5);
+    }
+  }
+
+  /** A {@link SqsAsyncClient} recording receives and leaving them to be completed by the test. */
+  static final class RecordingSqsAsyncClient implements SqsAsyncClient {
+
+    final List<ReceiveMessageRequest> requests = new CopyOnWriteArrayList<>();
+    final List<CompletableFuture<ReceiveMessageResponse>> futures = new CopyOnWriteArrayList<>();
+    final List<Thread> threads = new CopyOnWriteArrayList<>();
+
+    @Override
+    public CompletableFuture<ReceiveMessageResponse> receiveMessage(ReceiveMessageRequest request) {
+      CompletableFuture<ReceiveMessageResponse> future = new CompletableFuture<>();
+      this.threads.add(Thread.currentThread());
+      this.requests.add(request);
+      this.futures.add(future);
+      return future;
+    }
+
+    /** Completes a receive with messages of the given receipt handles. */
+    void complete(int index, String... receiptHandles) {
+      List<software.amazon.awssdk.services.sqs.model.Message> messages = new ArrayList<>();
+      for (String receiptHandle : receiptHandles) {
+        messages.add(SqsMessageReceiverTest.sqsMessage(receiptHandle));
+      }
+      this.futures.get(index).complete(ReceiveMessageResponse.builder().messages(messages).build());
+    }
+
+    List<Integer> maxNumberOfMessages() {
+      return this.requests.stream().map(ReceiveMessageRequest::maxNumberOfMessages).toList();
+    }
+
+    @Override
+    public String serviceName() {
+      return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {}
+  }
+}
@@ -0,0 +1,145 @@
+package zenny.toybox.springfield.sqs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tabletest.junit.TableTest;
+import zenny.toybox.springfield.messaging.Message;
+import zenny.toybox.springfield.messaging.MessagePublisher;
+
+/**
+ * Tests for {@link SqsMessageReceiver}, covering the permits of the in-flight limit reserved for a
+ * receive, and how long a received message holds its permit: until it is acknowledged, fails, or is
+ * rejected by the publisher.
+ */
+@DisplayName("SqsMessageReceiver")
+class SqsMessageReceiverTest {
+
+  private static final String QUEUE_URL = "https://sqs.us-east-1.amazonaws.com/1/orders";
+
+  @Test
+  @DisplayName("processMessages.holdsPermitsUntilAcknowledged")
+  void processMessagesHoldsPermitsUntilAcknowledged() {
+    RecordingSqsClient client = new RecordingSqsClient();
+    RecordingPublisher publisher = new RecordingPublisher();
+    SqsMessageReceiver receiver = new SqsMessageReceiver(client, config(2), publisher);
+
+    int reserved = receiver.reserveInFlight();
+    assertEquals(2, reserved);
+    receiver.processMessages(
+        "orders", QUEUE_URL, List.of(sqsMessage("a"), sqsMessage("b")), reserved);
+    assertEquals(0, receiver.getAvailableInFlight());
+    assertEquals(2, publisher.messages.size());
+
+    publisher.messages.get(0).acknowledge();
+    assertEquals(1, receiver.getAvailableInFlight());
+    publisher.messages.get(0).acknowledge();
+    assertEquals(1, receiver.getAvailableInFlight());
+
+    publisher.futures.get(1).completeExceptionally(new IllegalStateException("boom"));
+    assertEquals(2, receiver.getAvailableInFlight());
+
+    receiver.shutdown();
+    assertEquals(List.of("a", "a"), client.deletedHandles());
+    assertEquals(0, client.releases.size());
+  }
+
+  @Test
+  @DisplayName("processMessages.releasesRejectedMessage")
+  void processMessagesReleasesRejectedMessage() {
+    RecordingSqsClient client = new RecordingSqsClient();
+    RecordingPublisher publisher = new RecordingPublisher();
+    publisher.accepting = false;
+    SqsMessageReceiver receiver = new SqsMessageReceiver(client, config(2), publisher);
+
+    receiver.processMessages(
+        "orders", QUEUE_URL, List.of(sqsMessage("a")), receiver.reserveInFlight());
+    assertEquals(2, receiver.getAvailableInFlight());
+    assertEquals(1, client.releases.size());
+    assertEquals("a", client.releases.get(0).receiptHandle());
+    assertEquals(0, client.releases.get(0).visibilityTimeout());
+
+    receiver.shutdown();
+    assertEquals(List.of(), client.deletedHandles());
+  }
+
+  @TableTest(
+      """
+      Scenario               | Max in flight | Received | Available after | Released
+      Fewer than reserved    | 15            | 4        | 11              | 0
+      As many as reserved    | 15            | 10       | 5               | 0
+      Limit below fetch size | 3             | 3        | 0               | 0
+      More than reserved     | 3             | 5        | 0               | 2
+      """)
+  @DisplayName("processMessages.givesBackUnusedPermits")
+  void processMessagesGivesBackUnusedPermits(
+      int maxInFlight, int received, int availableAfter, int released) {
+    RecordingSqsClient client = new RecordingSqsClient();
+    RecordingPublisher publisher = new RecordingPublisher();
+    SqsMessageReceiver receiver = new SqsMessageReceiver(client, config(maxInFlight), publisher);
+
+    int reserved = receiver.reserveInFlight();
+    assertEquals(Math.min(maxInFlight, 10), reserved);
+    assertEquals(maxInFlight - reserved, receiver.getAvailableInFlight());
+    List<software.amazon.awssdk.services.sqs.model.Message> messages = new ArrayList<>();
+    for (int i = 0; i < received; i++) {
+      messages.add(sqsMessage(String.valueOf(i)));
+    }
+    receiver.processMessages("orders", QUEUE_URL, messages, reserved);
+
+    assertEquals(availableAfter, receiver.getAvailableInFlight());
+    assertEquals(received - released, publisher.messages.size());
+    assertEquals(released, client.releases.size());
+    for (Message<?> message : publisher.messages) {
+      message.acknowledge();
+    }
+    assertEquals(maxInFlight, receiver.getAvailableInFlight());
+    receiver.shutdown();
+  }
+
+  static SqsMessagingConfig config(int maxInFlight) {
+    SqsMessagingConfig config = new SqsMessagingConfig();
+    config.setMaxInFlight(maxInFlight);
+    config.setVisibilityTimeoutSeconds(1);
+    return config;
+  }
+
+  static software.amazon.awssdk.services.sqs.model.Message sqsMessage(String receiptHandle) {
+    return software.amazon.awssdk.services.sqs.model.Message.builder()
+        .messageId("id-" + receiptHandle)
+        .receiptHandle(receiptHandle)
+        .body("body-" + receiptHandle)
+        .build();
+  }
+
+  static final class RecordingPublisher implements MessagePublisher {
+
+    final List<Message<?>> messages = new CopyOnWriteArrayList<>();
+    final List<CompletableFuture<Void>> futures = new CopyOnWriteArrayList<>();
+    final List<Thread> threads = new CopyOnWriteArrayList<>();
+    volatile boolean accepting = true;
+
+    @Override
+    public void publish(Message<?> message) {
+      this.messages.add(message);
+    }
+
+    @Override
+    public @Nullable CompletableFuture<Void> tryPublishAsync(Message<?> message) {
+      if (!this.accepting) {
+        return null;
+      }
+      CompletableFuture<Void> future = new CompletableFuture<>();
+      this.threads.add(Thread.currentThread());
+      this.messages.add(message);
+      this.futures.add(future);
+      return future;
+    }
+  }
+}
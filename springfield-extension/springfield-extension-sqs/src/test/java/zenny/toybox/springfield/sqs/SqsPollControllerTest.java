@@ -0,0 +1,80 @@
+package zenny.toybox.springfield.sqs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.tabletest.junit.TableTest;
+
+/**
+ * Tests for {@link SqsPollController}, covering the clamping of the number of polls to its bounds,
+ * adding and retiring polls as batches fill up or come back empty and as the headroom shrinks, and
+ * the backoff of empty receives.
+ */
+@DisplayName("SqsPollController")
+class SqsPollControllerTest {
+
+  private static final int FETCH_SIZE = 10;
+
+  @TableTest(
+      """
+      Scenario      | Min polls | Max polls | Initial polls | Polls
+      Within bounds | 1         | 5         | 3             | 3
+      Above max     | 1         | 3         | 5             | 3
+      Below min     | 2         | 3         | 1             | 2
+      Min below one | 0         | 0         | 0             | 1
+      Max below min | 4         | 2         | 3             | 4
+      """)
+  @DisplayName("constructor.clampsPolls")
+  void constructorClampsPolls(int minPolls, int maxPolls, int initialPolls, int polls) {
+    SqsPollController controller =
+        new SqsPollController(minPolls, maxPolls, initialPolls, FETCH_SIZE, 1000);
+    assertEquals(polls, controller.getPolls());
+  }
+
+  @TableTest(
+      """
+      Scenario                   | Initial polls | Received             | Headroom | Decisions     | Polls
+      Full batches with room     | 1             | 10,10,10,10,10,10,10 | 100      | 1,1,1,1,2,2,1 | 3
+      Full batches, room for two | 1             | 10,10,10,10,10,10,10 | 20       | 1,1,1,1,2,1,1 | 2
+      Full batches without room  | 1             | 10,10,10,10,10,10,10 | 15       | 1,1,1,1,1,1,1 | 1
+      Empty receives             | 3             | 0,0,0                | 100      | 0,0,1         | 1
+      Headroom shrinking         | 3             | 5,5,5                | 15       | 0,0,1         | 1
+      Mostly empty batches       | 2             | 1,1,1,1,1,1,1        | 100      | 1,1,1,1,1,1,0 | 1
+      """)
+  @DisplayName("onReceive.adaptsPolls")
+  void onReceiveAdaptsPolls(
+      int initialPolls, String received, int headroom, String decisions, int polls) {
+    SqsPollController controller = new SqsPollController(1, 3, initialPolls, FETCH_SIZE, 1000);
+    List<String> issued = new ArrayList<>();
+    for (String count : received.split(",")) {
+      issued.add(
+          String.valueOf(
+              controller.onReceive(FETCH_SIZE, Integer.parseInt(count), headroom).polls()));
+    }
+    assertEquals(decisions, String.join(",", issued));
+    assertEquals(polls, controller.getPolls());
+  }
+
+  @TableTest(
+      """
+      Scenario          | Max backoff | Received    | Delays
+      Doubling          | 10000       | 0,0,0,0     | 100,200,400,800
+      Capped            | 1000        | 0,0,0,0,0,0 | 100,200,400,800,1000,1000
+      Capped below base | 50          | 0,0         | 50,50
+      Reset by messages | 1000        | 0,0,5,0     | 100,200,0,100
+      """)
+  @DisplayName("onReceive.backsOffEmptyReceives")
+  void onReceiveBacksOffEmptyReceives(long maxBackoff, String received, String delays) {
+    SqsPollController controller = new SqsPollController(1, 1, 1, FETCH_SIZE, maxBackoff);
+    List<String> issued = new ArrayList<>();
+    for (String count : received.split(",")) {
+      SqsPollController.Decision decision =
+          controller.onReceive(FETCH_SIZE, Integer.parseInt(count), 100);
+      assertEquals(1, decision.polls());
+      issued.add(String.valueOf(decision.delayMillis()));
+    }
+    assertEquals(delays, String.join(",", issued));
+  }
+}
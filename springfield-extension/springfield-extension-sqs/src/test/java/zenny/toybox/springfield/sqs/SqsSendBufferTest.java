@@ -0,0 +1,234 @@
+package zenny.toybox.springfield.sqs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tabletest.junit.TableTest;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
+import software.amazon.awssdk.services.sqs.model.SqsException;
+
+/**
+ * Tests for {@link SqsSendBuffer}, covering the split of batches at ten entries and at 256 KB, the
+ * completion of each future with the result of its own entry, the order of the batches of FIFO
+ * queues, and closing the buffer.
+ */
+@DisplayName("SqsSendBuffer")
+class SqsSendBufferTest {
+
+  private static final String QUEUE_URL = "https://sqs.us-east-1.amazonaws.com/1/orders";
+
+  @TableTest(
+      """
+      Scenario          | Messages | Size in KB | Batch sizes
+      One full batch    | 10       | 1          | 10
+      Split at ten      | 25       | 1          | 10,10,5
+      Split at 256 KB   | 5        | 100        | 2,2,1
+      Just under 256 KB | 4        | 64         | 4
+      """)
+  @DisplayName("send.splitsBatches")
+  void sendSplitsBatches(int messages, int sizeInKb, String batchSizes) {
+    RecordingSqsClient client = new RecordingSqsClient();
+    List<CompletableFuture<String>> futures = new ArrayList<>();
+    try (SqsSendBuffer buffer = new SqsSendBuffer(client, Duration.ofSeconds(10), 2)) {
+      for (int i = 0; i < messages; i++) {
+        futures.add(buffer.send(QUEUE_URL, entry(i + ":" + "x".repeat(sizeInKb * 1024 - 4))));
+      }
+    }
+
+    // batches of the same standard queue may be sent in any order
+    List<Integer> sizes = new ArrayList<>();
+    for (SendMessageBatchRequest request : client.sends) {
+      sizes.add(request.entries().size());
+    }
+    sizes.sort(Comparator.reverseOrder());
+    assertEquals(batchSizes, String.join(",", sizes.stream().map(String::valueOf).toList()));
+    for (CompletableFuture<String> future : futures) {
+      assertTrue(future.isDone() && !future.isCompletedExceptionally());
+    }
+  }
+
+  @Test
+  @DisplayName("send.rejectsMessageOverLimit")
+  void sendRejectsMessageOverLimit() {
+    RecordingSqsClient client = new RecordingSqsClient();
+    try (SqsSendBuffer buffer = new SqsSendBuffer(client, Duration.ofSeconds(10), 2)) {
+      CompletableFuture<String> future =
+          buffer.send(QUEUE_URL, entry("x".repeat(SqsSendBuffer.MAX_BATCH_BYTES + 1)));
+
+      ExecutionException ex = assertThrows(ExecutionException.class, future::get);
+      assertInstanceOf(IllegalArgumentException.class, ex.getCause());
+    }
+    assertEquals(0, client.sends.size());
+  }
+
+  @Test
+  @DisplayName("send.completesEachFutureWithItsEntry")
+  void sendCompletesEachFutureWithItsEntry() throws Exception {
+    RecordingSqsClient client = new RecordingSqsClient();
+    client.onSend =
+        request -> {
+          SendMessageBatchResponse.Builder response = SendMessageBatchResponse.builder();
+          List<SendMessageBatchResultEntry> successful = new ArrayList<>();
+          List<BatchResultErrorEntry> failed = new ArrayList<>();
+          // answered in reverse order, as SQS does not keep the order of the entries
+          for (SendMessageBatchRequestEntry entry : request.entries().reversed()) {
+            if (entry.messageBody().startsWith("bad")) {
+              failed.add(
+                  BatchResultErrorEntry.builder().id(entry.id()).code("InvalidMessage").build());
+            } else {
+              successful.add(
+                  SendMessageBatchResultEntry.builder()
+                      .id(entry.id())
+                      .messageId("id-" + entry.messageBody())
+                      .build());
+            }
+          }
+          return response.successful(successful).failed(failed).build();
+        };
+    try (SqsSendBuffer buffer = new SqsSendBuffer(client, Duration.ofMillis(10), 2)) {
+      CompletableFuture<String> a = buffer.send(QUEUE_URL, entry("a"));
+      CompletableFuture<String> bad = buffer.send(QUEUE_URL, entry("bad"));
+      CompletableFuture<String> c = buffer.send(QUEUE_URL, entry("c"));
+
+      assertEquals("id-a", a.get(5, TimeUnit.SECONDS));
+      assertEquals("id-c", c.get(5, TimeUnit.SECONDS));
+      ExecutionException ex = assertThrows(ExecutionException.class, bad::get);
+      assertInstanceOf(SqsException.class, ex.getCause());
+      assertEquals(1, client.sends.size());
+    }
+  }
+
+  @Test
+  @DisplayName("send.failsAllFuturesOfFailedRequest")
+  void sendFailsAllFuturesOfFailedRequest() {
+    RecordingSqsClient client = new RecordingSqsClient();
+    client.onSend =
+        request -> {
+          throw SqsException.builder().message("unavailable").build();
+        };
+    List<CompletableFuture<String>> futures = new ArrayList<>();
+    try (SqsSendBuffer buffer = new SqsSendBuffer(client, Duration.ofSeconds(10), 2)) {
+      futures.add(buffer.send(QUEUE_URL, entry("a")));
+      futures.add(buffer.send(QUEUE_URL, entry("b")));
+    }
+
+    for (CompletableFuture<String> future : futures) {
+      assertTrue(future.isCompletedExceptionally());
+    }
+  }
+
+  @Test
+  @DisplayName("send.sendsOnDaemonThreads")
+  void sendSendsOnDaemonThreads() throws Exception {
+    RecordingSqsClient client = new RecordingSqsClient();
+    try (SqsSendBuffer buffer = new SqsSendBuffer(client, Duration.ofSeconds(10), 2)) {
+      List<CompletableFuture<String>> futures = new ArrayList<>();
+      for (int i = 0; i < SqsSendBuffer.MAX_BATCH_SIZE; i++) {
+        futures.add(buffer.send(QUEUE_URL, entry(String.valueOf(i))));
+      }
+      futures.get(0).get(5, TimeUnit.SECONDS);
+
+      Thread thread = client.threads.get(0);
+      assertTrue(thread.getName().startsWith("sqs-send-"), thread.getName());
+      assertTrue(thread.isDaemon());
+    }
+  }
+
+  @Test
+  @DisplayName("close.sendsPendingBatches")
+  void closeSendsPendingBatches() {
+    RecordingSqsClient client = new RecordingSqsClient();
+    SqsSendBuffer buffer = new SqsSendBuffer(client, Duration.ofSeconds(10), 2);
+    CompletableFuture<String> a = buffer.send(QUEUE_URL, entry("a"));
+    CompletableFuture<String> b = buffer.send(QUEUE_URL + ".fifo", entry("b"));
+    assertFalse(a.isDone());
+
+    buffer.close();
+    assertEquals("a", a.join());
+    assertEquals("b", b.join());
+    assertEquals(2, client.sends.size());
+
+    CompletableFuture<String> late = buffer.send(QUEUE_URL, entry("late"));
+    assertEquals("late", late.join());
+    assertEquals(Thread.currentThread(), client.threads.get(2));
+  }
+
+  @TableTest(
+      """
+      Scenario       | Queue suffix | Max in flight
+      FIFO queue     | .fifo        | 1
+      Standard queue |              | 4
+      """)
+  @DisplayName("send.ordersBatchesOfFifoQueues")
+  void sendOrdersBatchesOfFifoQueues(String queueSuffix, int maxInFlight) throws Exception {
+    String queueUrl = QUEUE_URL + (queueSuffix != null ? queueSuffix : "");
+    RecordingSqsClient client = new RecordingSqsClient();
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxSeen = new AtomicInteger();
+    client.onSend =
+        request -> {
+          maxSeen.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+          try {
+            release.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+          inFlight.decrementAndGet();
+          return RecordingSqsClient.sent(request);
+        };
+    try (SqsSendBuffer buffer = new SqsSendBuffer(client, Duration.ofSeconds(10), 4)) {
+      for (int i = 0; i < 40; i++) {
+        buffer.send(queueUrl, entry(String.valueOf(i)));
+      }
+      waitFor(() -> inFlight.get() == maxInFlight);
+      Thread.sleep(50);
+      assertEquals(maxInFlight, maxSeen.get());
+      release.countDown();
+    }
+
+    assertEquals(4, client.sends.size());
+    if (maxInFlight == 1) {
+      List<String> bodies = new ArrayList<>();
+      for (SendMessageBatchRequest request : client.sends) {
+        for (SendMessageBatchRequestEntry entry : request.entries()) {
+          bodies.add(entry.messageBody());
+        }
+      }
+      for (int i = 0; i < 40; i++) {
+        assertEquals(String.valueOf(i), bodies.get(i));
+      }
+    }
+  }
+
+  private static SendMessageBatchRequestEntry entry(String body) {
+    return SendMessageBatchRequestEntry.builder().messageBody(body).build();
+  }
+
+  private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "timed out");
+      Thread.sleep(5);
+    }
+  }
+}
@@ -0,0 +1,209 @@
+package zenny.toybox.springfield.sqs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tabletest.junit.TableTest;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SqsException;
+
+/**
+ * Tests for {@link SqsVisibilityRenewer}, covering the order in which due messages are renewed,
+ * registering a message again, the batching of renewals per queue, dropping the messages whose
+ * renewal failed, and carrying on after an unexpected failure.
+ */
+@DisplayName("SqsVisibilityRenewer")
+class SqsVisibilityRenewerTest {
+
+  private static final String QUEUE_URL = "https://sqs.us-east-1.amazonaws.com/1/orders";
+
+  private static final Duration NEVER = Duration.ofHours(1);
+
+  @Test
+  @DisplayName("renewDue.renewsOnlyDueMessages")
+  void renewDueRenewsOnlyDueMessages() {
+    RecordingSqsClient client = new RecordingSqsClient();
+    try (SqsVisibilityRenewer renewer = new SqsVisibilityRenewer(client, NEVER, 60, NEVER)) {
+      renewer.register(QUEUE_URL, "a");
+
+      renewer.renewDue();
+      assertEquals(0, client.renewals.size());
+      assertEquals(1, renewer.getLeaseCount());
+    }
+  }
+
+  @TableTest(
+      """
+      Scenario              | Registered | Registered again | Renewed
+      In registration order | a,b,c      |                  | a,b,c
+      Registered again last | a,b,c      | a                | b,c,a
+      Twice again           | a,b,c      | b,a              | c,b,a
+      """)
+  @DisplayName("renewDue.renewsByDeadline")
+  void renewDueRenewsByDeadline(String registered, String registeredAgain, String renewed) {
+    RecordingSqsClient client = new RecordingSqsClient();
+    try (SqsVisibilityRenewer renewer =
+        new SqsVisibilityRenewer(client, Duration.ZERO, 60, NEVER)) {
+      for (String handle : registered.split(",")) {
+        renewer.register(QUEUE_URL, handle);
+      }
+      if (registeredAgain != null) {
+        for (String handle : registeredAgain.split(",")) {
+          renewer.register(QUEUE_URL, handle);
+        }
+      }
+
+      renewer.renewDue();
+      assertEquals(registered.split(",").length, renewer.getLeaseCount());
+      assertEquals(1, client.renewals.size());
+      assertEquals(renewed, String.join(",", handles(client.renewals.get(0))));
+      for (ChangeMessageVisibilityBatchRequestEntry entry : client.renewals.get(0).entries()) {
+        assertEquals(60, entry.visibilityTimeout());
+      }
+
+      renewer.renewDue();
+      assertEquals(renewed, String.join(",", handles(client.renewals.get(1))));
+    }
+  }
+
+  @Test
+  @DisplayName("renewDue.batchesPerQueue")
+  void renewDueBatchesPerQueue() {
+    RecordingSqsClient client = new RecordingSqsClient();
+    try (SqsVisibilityRenewer renewer =
+        new SqsVisibilityRenewer(client, Duration.ZERO, 60, NEVER)) {
+      for (int i = 0; i < 12; i++) {
+        renewer.register(QUEUE_URL, "a" + i);
+      }
+      renewer.register(QUEUE_URL + "-dlq", "b");
+
+      renewer.renewDue();
+      List<String> batches = new ArrayList<>();
+      for (ChangeMessageVisibilityBatchRequest request : client.renewals) {
+        batches.add(request.queueUrl().substring(QUEUE_URL.length()) + request.entries().size());
+      }
+      assertEquals(List.of("10", "2", "-dlq1"), batches);
+    }
+  }
+
+  @Test
+  @DisplayName("renewDue.dropsFailedEntries")
+  void renewDueDropsFailedEntries() {
+    RecordingSqsClient client = new RecordingSqsClient();
+    client.onRenew =
+        request ->
+            ChangeMessageVisibilityBatchResponse.builder()
+                .failed(
+                    BatchResultErrorEntry.builder()
+                        .id(request.entries().get(1).id())
+                        .code("ReceiptHandleIsInvalid")
+                        .senderFault(true)
+                        .build())
+                .build();
+    try (SqsVisibilityRenewer renewer =
+        new SqsVisibilityRenewer(client, Duration.ZERO, 60, NEVER)) {
+      renewer.register(QUEUE_URL, "a");
+      renewer.register(QUEUE_URL, "b");
+      renewer.register(QUEUE_URL, "c");
+
+      renewer.renewDue();
+      assertEquals(2, renewer.getLeaseCount());
+      client.onRenew = RecordingSqsClient::renewed;
+      renewer.renewDue();
+      assertEquals(List.of("a", "c"), handles(client.renewals.get(1)));
+    }
+  }
+
+  @Test
+  @DisplayName("renewDue.keepsEntriesOfFailedRequest")
+  void renewDueKeepsEntriesOfFailedRequest() {
+    RecordingSqsClient client = new RecordingSqsClient();
+    client.onRenew =
+        request -> {
+          throw SqsException.builder().message("unavailable").build();
+        };
+    try (SqsVisibilityRenewer renewer =
+        new SqsVisibilityRenewer(client, Duration.ZERO, 60, NEVER)) {
+      renewer.register(QUEUE_URL, "a");
+      renewer.register(QUEUE_URL, "b");
+
+      renewer.renewDue();
+      assertEquals(2, renewer.getLeaseCount());
+      renewer.deregister("a");
+      assertEquals(1, renewer.getLeaseCount());
+      renewer.renewDue();
+      assertEquals(List.of("b"), handles(client.renewals.get(1)));
+    }
+  }
+
+  @Test
+  @DisplayName("renewDue.survivesUnexpectedFailure")
+  void renewDueSurvivesUnexpectedFailure() {
+    RecordingSqsClient client = new RecordingSqsClient();
+    client.onRenew =
+        request ->
+            request.queueUrl().equals(QUEUE_URL)
+                ? ChangeMessageVisibilityBatchResponse.builder()
+                    .failed(
+                        BatchResultErrorEntry.builder()
+                            .id("unknown")
+                            .code("InternalError")
+                            .senderFault(false)
+                            .build())
+                    .build()
+                : RecordingSqsClient.renewed(request);
+    try (SqsVisibilityRenewer renewer =
+        new SqsVisibilityRenewer(client, Duration.ZERO, 60, NEVER)) {
+      renewer.register(QUEUE_URL, "a");
+      renewer.register(QUEUE_URL + "-dlq", "b");
+
+      renewer.renewDue();
+      assertEquals(2, client.renewals.size());
+      renewer.renewDue();
+      assertEquals(4, client.renewals.size());
+    }
+  }
+
+  @Test
+  @DisplayName("register.startsRenewing")
+  void registerStartsRenewing() throws Exception {
+    RecordingSqsClient client = new RecordingSqsClient();
+    try (SqsVisibilityRenewer renewer =
+        new SqsVisibilityRenewer(client, Duration.ZERO, 60, Duration.ofMillis(10))) {
+      Thread.sleep(50);
+      assertEquals(0, client.renewals.size());
+
+      renewer.register(QUEUE_URL, "a");
+      waitFor(() -> client.renewals.size() >= 2);
+      Thread thread = client.threads.get(0);
+      assertTrue(thread.getName().startsWith("sqs-visibility-"), thread.getName());
+      assertTrue(thread.isDaemon());
+    }
+  }
+
+  private static List<String> handles(ChangeMessageVisibilityBatchRequest request) {
+    List<String> handles = new ArrayList<>();
+    for (ChangeMessageVisibilityBatchRequestEntry entry : request.entries()) {
+      handles.add(entry.receiptHandle());
+    }
+    return handles;
+  }
+
+  private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "timed out");
+      Thread.sleep(5);
+    }
+  }
+}
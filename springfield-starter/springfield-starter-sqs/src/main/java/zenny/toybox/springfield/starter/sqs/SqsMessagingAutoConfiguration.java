@@ -1,6 +1,7 @@
 package zenny.toybox.springfield.starter.sqs;
 
 import java.net.URI;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -9,11 +10,16 @@ import org.springframework.context.annotation.Bean;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
 import software.amazon.awssdk.services.sqs.SqsClient;
 import zenny.toybox.springfield.messaging.MessagePublisher;
+import zenny.toybox.springfield.messaging.PayloadCodec;
+import zenny.toybox.springfield.sqs.SqsAsyncMessageReceiver;
 import zenny.toybox.springfield.sqs.SqsMessageReceiver;
 import zenny.toybox.springfield.sqs.SqsMessageSender;
+import zenny.toybox.springfield.sqs.SqsMessagingConfig;
 
 @AutoConfiguration
 @ConditionalOnClass(SqsClient.class)
@@ -27,7 +33,42 @@ public class SqsMessagingAutoConfiguration {
 
   @Bean
   public SqsClient sqsClient(SqsMessagingProperties properties) {
-    var builder = SqsClient.builder().region(Region.of(properties.getRegion()));
+    return configure(SqsClient.builder(), properties).build();
+  }
+
+  @Bean
+  @ConditionalOnProperty(
+      prefix = "springfield.messaging.sqs",
+      name = "receiver-mode",
+      havingValue = "async")
+  public SqsAsyncClient sqsAsyncClient(SqsMessagingProperties properties) {
+    return configure(SqsAsyncClient.builder(), properties).build();
+  }
+
+  @Bean
+  public SqsMessageSender sqsMessageSender(SqsClient sqsClient, SqsMessagingProperties properties) {
+    return new SqsMessageSender(sqsClient, properties);
+  }
+
+  @Bean
+  public SqsMessageReceiver sqsMessageReceiver(
+      SqsClient sqsClient,
+      SqsMessagingProperties properties,
+      MessagePublisher messagePublisher,
+      ObjectProvider<SqsAsyncClient> sqsAsyncClient,
+      ObjectProvider<PayloadCodec> payloadCodec) {
+    SqsMessageReceiver receiver =
+        properties.getReceiverMode() == SqsMessagingConfig.ReceiverMode.ASYNC
+            ? new SqsAsyncMessageReceiver(
+                sqsAsyncClient.getObject(), sqsClient, properties, messagePublisher)
+            : new SqsMessageReceiver(sqsClient, properties, messagePublisher);
+    receiver.setPayloadCodec(payloadCodec.getIfAvailable());
+    return receiver;
+  }
+
+  private static <B extends AwsClientBuilder<B, ?>> B configure(
+      B builder, SqsMessagingProperties properties) {
+    builder.region(Region.of(properties.getRegion()));
     if (properties.getAccessKey() != null && properties.getSecretKey() != null) {
       builder.credentialsProvider(
           StaticCredentialsProvider.create(
@@ -38,17 +79,6 @@ public class SqsMessagingAutoConfiguration {
     if (properties.getEndpoint() != null && !properties.getEndpoint().isBlank()) {
       builder.endpointOverride(URI.create(properties.getEndpoint()));
     }
-    return builder.build();
-  }
-
-  @Bean
-  public SqsMessageSender sqsMessageSender(SqsClient sqsClient, SqsMessagingProperties properties) {
-    return new SqsMessageSender(sqsClient, properties);
-  }
-
-  @Bean
-  public SqsMessageReceiver sqsMessageReceiver(
-      SqsClient sqsClient, SqsMessagingProperties properties, MessagePublisher messagePublisher) {
-    return new SqsMessageReceiver(sqsClient, properties, messagePublisher);
+    return builder;
   }
 }